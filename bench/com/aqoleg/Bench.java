@@ -0,0 +1,175 @@
+/*
+the small benchmark library
+
+usage:
+    $ java com.aqoleg.Bench
+    $ java com.aqoleg.Bench results.json
+
+    public class Example extends Bench {
+        public Object bench1() {
+            return doSomething();
+        }
+    }
+    new Example().benchAll();
+    Bench.writeJson(outputStream);
+
+json:
+    [
+      {
+        "benchmark": "com.aqoleg.crypto.bench.EccBench.sign",
+        "mode": "thrpt",
+        "threads": 1,
+        "warmupTime": "1 s",
+        "measurementIterations": 3,
+        "measurementTime": "1 s",
+        "primaryMetric": {"score": 7622.5, "scoreUnit": "ops/s", "rawData": [[7601.2, 7650.1, 7616.3]]}
+      }
+    ]
+    the format is the subset of the jmh json format, so the same tools can compare results
+*/
+
+package com.aqoleg;
+
+import com.aqoleg.crypto.bench.*;
+import com.aqoleg.keys.bench.HdKeyPairBench;
+import com.aqoleg.keys.bench.KeyPairBench;
+import com.aqoleg.keys.bench.MnemonicBench;
+import com.aqoleg.messages.bench.BlockBench;
+import com.aqoleg.messages.bench.ScriptBench;
+import com.aqoleg.messages.bench.TransactionBench;
+import com.aqoleg.utils.bench.Base58Bench;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Locale;
+
+public class Bench {
+    private static final long warmupNanos = 1_000_000_000L;
+    private static final int iterations = 3;
+    private static final long iterationNanos = 1_000_000_000L;
+    private static final ArrayList<String> results = new ArrayList<>(); // json objects of all benchmarks
+    @SuppressWarnings("unused")
+    private static volatile Object sink; // keeps results alive, so the jit can not remove the work
+
+    /**
+     * runs all benchmarks
+     *
+     * @param args String path of the json file to write results in, or empty
+     */
+    public static void main(String[] args) {
+        System.out.println("all benchmarks");
+        System.out.println();
+        new EccBench().benchAll();
+        new HmacSha512Bench().benchAll();
+        new Ripemd160Bench().benchAll();
+        new Sha256Bench().benchAll();
+        new Sha512Bench().benchAll();
+        new HdKeyPairBench().benchAll();
+        new KeyPairBench().benchAll();
+        new MnemonicBench().benchAll();
+        new BlockBench().benchAll();
+        new ScriptBench().benchAll();
+        new TransactionBench().benchAll();
+        new Base58Bench().benchAll();
+        if (args.length == 1) {
+            try (FileOutputStream fileOutputStream = new FileOutputStream(args[0])) {
+                writeJson(fileOutputStream);
+                System.out.println("results are written in " + args[0]);
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+        }
+        System.out.println("the end");
+    }
+
+    /**
+     * writes results of all benchmarks run in this jvm as json array
+     *
+     * @param outputStream OutputStream to write json in
+     * @throws NullPointerException if outputStream == null
+     */
+    public static void writeJson(OutputStream outputStream) {
+        PrintStream printStream = new PrintStream(outputStream);
+        printStream.println('[');
+        synchronized (results) {
+            for (int i = 0; i < results.size(); i++) {
+                printStream.print(results.get(i));
+                printStream.println(i == results.size() - 1 ? "" : ",");
+            }
+        }
+        printStream.println(']');
+        printStream.flush();
+    }
+
+    /**
+     * invokes all public function in the subclass, except main() and benchAll() functions,
+     * first for the warmup, then for the measurement, and prints the number of operations per second
+     */
+    public void benchAll() {
+        System.out.println(this.getClass().getName());
+        Method[] methods = this.getClass().getDeclaredMethods();
+        for (Method method : methods) {
+            if (!Modifier.isPublic(method.getModifiers())) {
+                continue;
+            } else if (method.getName().equals("main") || method.getName().equals("benchAll")) {
+                continue;
+            }
+            try {
+                System.out.print(method.getName());
+                run(method, warmupNanos);
+                double[] opsPerSecond = new double[iterations];
+                double score = 0;
+                for (int i = 0; i < iterations; i++) {
+                    opsPerSecond[i] = run(method, iterationNanos);
+                    score += opsPerSecond[i] / iterations;
+                }
+                System.out.println(String.format(" %.1f ops/s", score));
+                addResult(this.getClass().getName() + '.' + method.getName(), score, opsPerSecond);
+            } catch (Throwable throwable) {
+                System.out.println(" failed");
+                throwable.printStackTrace();
+            }
+        }
+        System.out.println();
+    }
+
+    // returns operations per second
+    private double run(Method method, long nanos) throws Throwable {
+        long count = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            sink = method.invoke(this);
+            count++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        return count * 1_000_000_000.0 / elapsed;
+    }
+
+    private static void addResult(String benchmark, double score, double[] opsPerSecond) {
+        StringBuilder rawData = new StringBuilder();
+        for (double ops : opsPerSecond) {
+            rawData.append(rawData.length() == 0 ? "" : ", ").append(String.format(Locale.ROOT, "%.3f", ops));
+        }
+        String json = "  {\n"
+                + "    \"benchmark\": \"" + benchmark + "\",\n"
+                + "    \"mode\": \"thrpt\",\n"
+                + "    \"threads\": 1,\n"
+                + "    \"warmupTime\": \"" + warmupNanos / 1_000_000_000L + " s\",\n"
+                + "    \"measurementIterations\": " + iterations + ",\n"
+                + "    \"measurementTime\": \"" + iterationNanos / 1_000_000_000L + " s\",\n"
+                + "    \"primaryMetric\": {"
+                + "\"score\": " + String.format(Locale.ROOT, "%.3f", score) + ", "
+                + "\"scoreUnit\": \"ops/s\", "
+                + "\"rawData\": [[" + rawData + "]]}\n"
+                + "  }";
+        synchronized (results) {
+            results.add(json);
+        }
+    }
+}
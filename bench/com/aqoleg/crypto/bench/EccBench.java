@@ -0,0 +1,37 @@
+package com.aqoleg.crypto.bench;
+
+import com.aqoleg.Bench;
+import com.aqoleg.crypto.Ecc;
+
+import java.math.BigInteger;
+
+@SuppressWarnings("unused")
+public class EccBench extends Bench {
+    private final byte[] message = new BigInteger(
+            "4b688df40bcedbe641ddb16ff0a1842d9c67ea1c3bf63f3e0471baa664531d1a",
+            16
+    ).toByteArray();
+    private final BigInteger privateKey = new BigInteger(
+            "ebb2c082fd7727890a28ac82f6bdf97bad8de9f5d7c9028692de1a255cad3e0f",
+            16
+    );
+    private final Ecc.Point publicKey = Ecc.multiplyG(privateKey);
+    private final BigInteger[] signature = Ecc.sign(message, privateKey);
+
+    public static void main(String[] args) {
+        new EccBench().benchAll();
+    }
+
+    public Object multiplyG() {
+        return Ecc.multiplyG(privateKey);
+    }
+
+    public Object sign() {
+        return Ecc.sign(message, privateKey);
+    }
+
+    public Object verify() {
+        Ecc.verify(message, publicKey, signature);
+        return signature;
+    }
+}
@@ -0,0 +1,28 @@
+package com.aqoleg.crypto.bench;
+
+import com.aqoleg.Bench;
+import com.aqoleg.crypto.HmacSha512;
+
+@SuppressWarnings("unused")
+public class HmacSha512Bench extends Bench {
+    private final byte[] key = "Bitcoin seed".getBytes();
+    private final byte[] bytes64 = new byte[64];
+    private final byte[] bytes1k = new byte[1024];
+    private final byte[] bytes1m = new byte[1024 * 1024];
+
+    public static void main(String[] args) {
+        new HmacSha512Bench().benchAll();
+    }
+
+    public Object mac64() {
+        return HmacSha512.getMac(bytes64, key);
+    }
+
+    public Object mac1k() {
+        return HmacSha512.getMac(bytes1k, key);
+    }
+
+    public Object mac1m() {
+        return HmacSha512.getMac(bytes1m, key);
+    }
+}
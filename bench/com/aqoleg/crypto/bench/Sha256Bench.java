@@ -0,0 +1,48 @@
+package com.aqoleg.crypto.bench;
+
+import com.aqoleg.Bench;
+import com.aqoleg.crypto.HeaderHash;
+import com.aqoleg.crypto.Sha256;
+
+@SuppressWarnings("unused")
+public class Sha256Bench extends Bench {
+    private final byte[] bytes64 = new byte[64];
+    private final byte[] bytes1k = new byte[1024];
+    private final byte[] bytes1m = new byte[1024 * 1024];
+    private final byte[] header = new byte[80];
+    private final byte[] out = new byte[32];
+    private final Sha256 sha256 = new Sha256();
+    private final HeaderHash headerHash = new HeaderHash();
+
+    public static void main(String[] args) {
+        new Sha256Bench().benchAll();
+    }
+
+    public Object hash64() {
+        return Sha256.getHash(bytes64);
+    }
+
+    public Object hash1k() {
+        return Sha256.getHash(bytes1k);
+    }
+
+    public Object hash1m() {
+        return Sha256.getHash(bytes1m);
+    }
+
+    public Object update1m() {
+        sha256.update(bytes1m).doFinal(out, 0);
+        return out;
+    }
+
+    public Object doubleHash80() {
+        return Sha256.getDoubleHash(header);
+    }
+
+    // only the nonce is changed, the midstate is reused
+    public Object headerHash80() {
+        header[79]++;
+        headerHash.getHash(header, 0, out, 0);
+        return out;
+    }
+}
@@ -0,0 +1,27 @@
+package com.aqoleg.crypto.bench;
+
+import com.aqoleg.Bench;
+import com.aqoleg.crypto.Sha512;
+
+@SuppressWarnings("unused")
+public class Sha512Bench extends Bench {
+    private final byte[] bytes64 = new byte[64];
+    private final byte[] bytes1k = new byte[1024];
+    private final byte[] bytes1m = new byte[1024 * 1024];
+
+    public static void main(String[] args) {
+        new Sha512Bench().benchAll();
+    }
+
+    public Object hash64() {
+        return Sha512.getHash(bytes64);
+    }
+
+    public Object hash1k() {
+        return Sha512.getHash(bytes1k);
+    }
+
+    public Object hash1m() {
+        return Sha512.getHash(bytes1m);
+    }
+}
@@ -0,0 +1,32 @@
+package com.aqoleg.keys.bench;
+
+import com.aqoleg.Bench;
+import com.aqoleg.keys.HdKeyPair;
+
+import java.math.BigInteger;
+
+@SuppressWarnings("unused")
+public class HdKeyPairBench extends Bench {
+    private final HdKeyPair master = HdKeyPair.createMaster(new BigInteger(
+            "ebb2c082fd7727890a28ac82f6bdf97bad8de9f5d7c9028692de1a255cad3e0f",
+            16
+    ).toByteArray());
+    private final String serialized = master.serialize(true);
+    private int keyNumber = 0;
+
+    public static void main(String[] args) {
+        new HdKeyPairBench().benchAll();
+    }
+
+    public Object generateChild() {
+        return master.generateChild(keyNumber++ & 0x7FFFFFFF, false);
+    }
+
+    public Object generateHardenedChild() {
+        return master.generateChild(keyNumber++ & 0x7FFFFFFF, true);
+    }
+
+    public Object deserialize() {
+        return HdKeyPair.deserialize(serialized);
+    }
+}
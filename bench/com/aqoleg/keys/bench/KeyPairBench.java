@@ -0,0 +1,27 @@
+package com.aqoleg.keys.bench;
+
+import com.aqoleg.Bench;
+import com.aqoleg.keys.KeyPair;
+
+import java.math.BigInteger;
+
+@SuppressWarnings("unused")
+public class KeyPairBench extends Bench {
+    private final BigInteger privateKey = new BigInteger(
+            "ebb2c082fd7727890a28ac82f6bdf97bad8de9f5d7c9028692de1a255cad3e0f",
+            16
+    );
+    private final String wif = new KeyPair(privateKey, true).encode();
+
+    public static void main(String[] args) {
+        new KeyPairBench().benchAll();
+    }
+
+    public Object keyPair() {
+        return new KeyPair(privateKey, true);
+    }
+
+    public Object decode() {
+        return KeyPair.decode(wif);
+    }
+}
@@ -0,0 +1,18 @@
+package com.aqoleg.keys.bench;
+
+import com.aqoleg.Bench;
+import com.aqoleg.keys.Mnemonic;
+
+@SuppressWarnings("unused")
+public class MnemonicBench extends Bench {
+    private final String mnemonic = "abandon abandon abandon abandon abandon abandon "
+            + "abandon abandon abandon abandon abandon about";
+
+    public static void main(String[] args) {
+        new MnemonicBench().benchAll();
+    }
+
+    public Object createSeed() {
+        return Mnemonic.createSeed(mnemonic, "TREZOR");
+    }
+}
@@ -0,0 +1,90 @@
+package com.aqoleg.messages.bench;
+
+import com.aqoleg.Bench;
+import com.aqoleg.crypto.Sha256;
+import com.aqoleg.keys.Address;
+import com.aqoleg.keys.AddressMatcher;
+import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Hash;
+import com.aqoleg.messages.Script;
+import com.aqoleg.messages.Transaction;
+import com.aqoleg.utils.BytesOutput;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+@SuppressWarnings("unused")
+public class BlockBench extends Bench {
+    private static final int txNumber = 2000;
+    private final Address address = new Address("1BvBMSEYstWetqTFn5Au4m4GFg7xJaNVN2");
+    private final Address otherAddress = new Address("1FP3iFyCueBGMyQHQRQeojqamf1pt4eQVi");
+    private final byte[] bytes = createBlock();
+    private final Block block = new Block(bytes);
+    private final Hash lastTxHash = block.getTx(txNumber - 1).getHash();
+    private final AddressMatcher matcher = createMatcher(1000);
+
+    public static void main(String[] args) {
+        new BlockBench().benchAll();
+    }
+
+    public Object parse() {
+        return new Block(bytes);
+    }
+
+    public Object getHash() {
+        return new Block(bytes).getHash();
+    }
+
+    public Object getTxByHash() {
+        return block.getTx(lastTxHash);
+    }
+
+    public Object searchTxOutput() {
+        ArrayList<Transaction.Output> outputs = new ArrayList<>();
+        block.searchTxOutput(address, outputs);
+        return outputs;
+    }
+
+    public Object parseAndSearchTxOutput() {
+        ArrayList<Transaction.Output> outputs = new ArrayList<>();
+        new Block(bytes).searchTxOutput(otherAddress, outputs);
+        return outputs;
+    }
+
+    public Object parseAndSearchTxOutputMatcher() {
+        ArrayList<Transaction.Output> outputs = new ArrayList<>();
+        new Block(bytes).searchTxOutput(matcher, outputs);
+        return outputs;
+    }
+
+    // matcher with the number of different addresses, not including the address of the block
+    private AddressMatcher createMatcher(int number) {
+        ArrayList<Address> addresses = new ArrayList<>();
+        for (int i = 0; i < number; i++) {
+            byte[] hash = Arrays.copyOf(Sha256.getHash(new byte[]{(byte) i, (byte) (i >>> 8)}), 20);
+            addresses.add(Address.createFromHash(hash, true));
+        }
+        return new AddressMatcher(addresses);
+    }
+
+    // block with txNumber different txs, each with one input and two p2pkh outputs
+    private byte[] createBlock() {
+        BytesOutput bytesOutput = new BytesOutput();
+        bytesOutput.writeBytes(new byte[80]); // header
+        bytesOutput.writeVariableLength(txNumber);
+        for (int i = 0; i < txNumber; i++) {
+            bytesOutput.writeIntLE(i); // version, makes txs different
+            bytesOutput.writeVariableLength(1);
+            bytesOutput.writeBytes(new byte[32]).writeIntLE(i); // previousTransactionHash, previousOutIndex
+            bytesOutput.writeVariableLength(107).writeBytes(new byte[107]); // scriptSig
+            bytesOutput.writeIntLE(0xFFFFFFFF); // sequence
+            bytesOutput.writeVariableLength(2);
+            for (int j = 0; j < 2; j++) {
+                bytesOutput.writeLongLE(1000);
+                Script.createScriptPubKey(address).write(bytesOutput);
+            }
+            bytesOutput.writeIntLE(0); // lockTime
+        }
+        return bytesOutput.toByteArray();
+    }
+}
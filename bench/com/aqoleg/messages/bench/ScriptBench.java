@@ -0,0 +1,33 @@
+package com.aqoleg.messages.bench;
+
+import com.aqoleg.Bench;
+import com.aqoleg.crypto.Sha256;
+import com.aqoleg.keys.Address;
+import com.aqoleg.keys.KeyPair;
+import com.aqoleg.messages.Script;
+
+import java.math.BigInteger;
+
+@SuppressWarnings("unused")
+public class ScriptBench extends Bench {
+    private final KeyPair keyPair = new KeyPair(new BigInteger(
+            "ebb2c082fd7727890a28ac82f6bdf97bad8de9f5d7c9028692de1a255cad3e0f",
+            16
+    ), true);
+    private final byte[] messageHash = Sha256.getDoubleHash("message".getBytes());
+    private final Script scriptPubKey = Script.createScriptPubKey(Address.createFromPublicKey(keyPair.publicKey));
+    private final Script scriptSig = scriptPubKey.createScriptSig(messageHash, keyPair);
+
+    public static void main(String[] args) {
+        new ScriptBench().benchAll();
+    }
+
+    public Object createScriptSig() {
+        return scriptPubKey.createScriptSig(messageHash, keyPair);
+    }
+
+    public Object verify() {
+        scriptSig.verify(scriptPubKey, messageHash);
+        return scriptSig;
+    }
+}
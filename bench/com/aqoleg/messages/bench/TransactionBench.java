@@ -0,0 +1,72 @@
+package com.aqoleg.messages.bench;
+
+import com.aqoleg.Bench;
+import com.aqoleg.crypto.Ecc;
+import com.aqoleg.keys.Address;
+import com.aqoleg.keys.KeyPair;
+import com.aqoleg.messages.Script;
+import com.aqoleg.messages.Transaction;
+import com.aqoleg.messages.TxBuilder;
+import com.aqoleg.utils.BytesOutput;
+import com.aqoleg.utils.Converter;
+
+import java.math.BigInteger;
+
+@SuppressWarnings("unused")
+public class TransactionBench extends Bench {
+    private static final int inputNumber = 300;
+    private final KeyPair keyPair = new KeyPair(new BigInteger(
+            "ebb2c082fd7727890a28ac82f6bdf97bad8de9f5d7c9028692de1a255cad3e0f",
+            16
+    ), true);
+    private final Address address = Address.createFromPublicKey(keyPair.publicKey);
+    private final Transaction previousTransaction = createPreviousTransaction();
+    private final byte[] transaction = Converter.hexToBytes(build().getHex());
+
+    public static void main(String[] args) {
+        new TransactionBench().benchAll();
+    }
+
+    // consolidation of inputNumber outputs into one
+    public Transaction build() {
+        TxBuilder txBuilder = new TxBuilder();
+        for (int i = 0; i < inputNumber; i++) {
+            txBuilder.addInput(previousTransaction.getTxOutput(i), keyPair);
+        }
+        return txBuilder.addOutput(inputNumber * 1000 - 10000, address).build();
+    }
+
+    public Object parse() {
+        return Transaction.fromBytes(transaction);
+    }
+
+    public Object getHash() {
+        return Transaction.fromBytes(transaction).getHash();
+    }
+
+    public Object verifyInputs() {
+        Transaction transaction = Transaction.fromBytes(this.transaction);
+        Ecc.Batch batch = new Ecc.Batch();
+        for (int i = 0; i < inputNumber; i++) {
+            transaction.verifyInput(i, previousTransaction, batch);
+        }
+        return batch.verify();
+    }
+
+    // tx with inputNumber outputs to the address
+    private Transaction createPreviousTransaction() {
+        BytesOutput bytesOutput = new BytesOutput();
+        bytesOutput.writeIntLE(1); // version
+        bytesOutput.writeVariableLength(1);
+        bytesOutput.writeBytes(new byte[32]).writeIntLE(0); // previousTransactionHash, previousOutIndex
+        bytesOutput.writeVariableLength(0); // scriptSig
+        bytesOutput.writeIntLE(0xFFFFFFFF); // sequence
+        bytesOutput.writeVariableLength(inputNumber);
+        for (int i = 0; i < inputNumber; i++) {
+            bytesOutput.writeLongLE(1000);
+            Script.createScriptPubKey(address).write(bytesOutput);
+        }
+        bytesOutput.writeIntLE(0); // lockTime
+        return Transaction.fromBytes(bytesOutput.toByteArray());
+    }
+}
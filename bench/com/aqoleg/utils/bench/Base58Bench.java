@@ -0,0 +1,33 @@
+package com.aqoleg.utils.bench;
+
+import com.aqoleg.Bench;
+import com.aqoleg.utils.Base58;
+import com.aqoleg.utils.Converter;
+
+@SuppressWarnings("unused")
+public class Base58Bench extends Bench {
+    private final byte[] address = Converter.hexToBytes("00010966776006953d5567439e5e39f86a0d273beed61967f6");
+    private final String encoded = Base58.encode(address);
+    private final byte[] extendedKey = new byte[82];
+    private final String encodedExtendedKey = Base58.encode(extendedKey);
+
+    public static void main(String[] args) {
+        new Base58Bench().benchAll();
+    }
+
+    public Object encode25() {
+        return Base58.encode(address);
+    }
+
+    public Object decode25() {
+        return Base58.decode(encoded);
+    }
+
+    public Object encode82() {
+        return Base58.encode(extendedKey);
+    }
+
+    public Object decode82() {
+        return Base58.decode(encodedExtendedKey);
+    }
+}
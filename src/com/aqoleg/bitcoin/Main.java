@@ -2,12 +2,15 @@ package com.aqoleg.bitcoin;
 
 import com.aqoleg.data.BlockLoader;
 import com.aqoleg.data.ConnectionManager;
+import com.aqoleg.data.Storage;
 import com.aqoleg.data.TransactionSender;
+import com.aqoleg.data.UtxoSet;
 import com.aqoleg.keys.Address;
 import com.aqoleg.keys.HdKeyPair;
 import com.aqoleg.keys.KeyPair;
 import com.aqoleg.keys.Mnemonic;
 import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Hash;
 import com.aqoleg.messages.Message;
 import com.aqoleg.messages.Transaction;
 import com.aqoleg.messages.TxBuilder;
@@ -176,9 +179,13 @@ class Main {
                 System.out.println(i + ": " + new BigDecimal(outputs.get(i).value).movePointLeft(8).toPlainString());
             }
             String print = outputs.size() > 0 ? "enter output number to add, " : "enter ";
-            String input = System.console().readLine(print + "hash of block to search for outputs, 'b' - back: ");
+            String input = System.console().readLine(print + "hash of block to search for outputs, " +
+                    "'u' - search the utxo set, 'b' - back: ");
             if (input.equals("b")) {
                 return;
+            } else if (input.equals("u")) {
+                searchUtxoSet(address);
+                continue;
             }
             try {
                 int outputIndex = Integer.parseInt(input);
@@ -191,7 +198,7 @@ class Main {
                 continue;
             }
             try {
-                block = BlockLoader.getBlock(input);
+                block = BlockLoader.getBlock(Hash.fromHex(input));
                 System.out.print(block.searchTxOutput(address, outputs) ? "finds" : "does not find");
                 System.out.println(" new outputs");
             } catch (Message.Exception exception) {
@@ -200,6 +207,24 @@ class Main {
         } while (true);
     }
 
+    private static void searchUtxoSet(Address address) {
+        UtxoSet utxoSet = Storage.getUtxoSet();
+        if (utxoSet == null) {
+            System.out.println("can not open the utxo set");
+            return;
+        }
+        Hash bestBlock = utxoSet.getBestBlock();
+        if (bestBlock == null) {
+            System.out.println("the utxo set is empty");
+            return;
+        }
+        System.out.println("utxo set at the block " + bestBlock);
+        int size = outputs.size();
+        outputs.addAll(utxoSet.getOutputs(address));
+        System.out.print(outputs.size() > size ? "finds" : "does not find");
+        System.out.println(" new outputs");
+    }
+
     private static void addOutput() {
         try {
             Address address = new Address(System.console().readLine("enter output address: "));
@@ -254,7 +279,7 @@ class Main {
                 return;
             }
             try {
-                block = BlockLoader.getBlock(input);
+                block = BlockLoader.getBlock(Hash.fromHex(input));
             } catch (Message.Exception exception) {
                 System.out.println(exception.getMessage());
                 continue;
@@ -269,7 +294,11 @@ class Main {
                 try {
                     transaction = block.getTx(Integer.parseInt(input));
                 } catch (NumberFormatException | IndexOutOfBoundsException ignored) {
-                    transaction = block.getTx(input);
+                    try {
+                        transaction = block.getTx(Hash.fromHex(input));
+                    } catch (Message.Exception exception) {
+                        transaction = null;
+                    }
                     if (transaction == null) {
                         System.out.println("transaction not found");
                         continue;
@@ -298,7 +327,7 @@ class Main {
             }
             input = System.console().readLine("enter block hash with output for this input: ");
             try {
-                Block block = BlockLoader.getBlock(input);
+                Block block = BlockLoader.getBlock(Hash.fromHex(input));
                 transaction.verifyInput(inputIndex, block);
                 System.out.println("verified");
             } catch (Message.Exception | IndexOutOfBoundsException exception) {
@@ -10,6 +10,9 @@ usage:
     Ecc.Point point = Ecc.createPoint(bigIntegerX, isEven);
     BigInteger[] rs = Ecc.sign(messageBytes, bigInteger);
     Ecc.verify(messageBytes, point, rs);
+    Ecc.Batch batch = new Ecc.Batch();
+    int index = batch.add(messageBytes, point, rs);
+    boolean[] verified = batch.verify();
     BigInteger x = point.x;
     BigInteger y = point.y;
 */
@@ -18,12 +21,11 @@ package com.aqoleg.crypto;
 
 import java.math.BigInteger;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Random;
 
 public class Ecc {
     private static final BigInteger two = BigInteger.valueOf(2);
-    private static final BigInteger three = BigInteger.valueOf(3);
-    private static final BigInteger four = BigInteger.valueOf(4);
     // elliptic curve over finite field y**2 = x**3 + a * x + b (mod p)
     // a = 0
     private static final BigInteger b = BigInteger.valueOf(7);
@@ -38,6 +40,7 @@ public class Ecc {
             16
     );
     private static final BigInteger halfN = n.divide(two);
+    private static final FieldElement one = new FieldElement(BigInteger.ONE); // is not changed
     // base point, generator
     private static final Point g = new Point(
             new BigInteger("79BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798", 16),
@@ -88,7 +91,7 @@ public class Ecc {
      * @throws NullPointerException if a == null
      */
     public static Point multiplyG(BigInteger a) {
-        return g.multiply(a);
+        return multiplyGJacobian(a).toAffine();
     }
 
     /**
@@ -108,11 +111,13 @@ public class Ecc {
         } else if (y.compareTo(p) >= 0) {
             throw new Exception("y is too big");
         }
+        Point point = new Point(x, y);
         // y**2 % p = (x**3 + a * x + b) % p
-        if (y.pow(2).mod(p).compareTo(x.pow(3).add(b).mod(p)) != 0) {
+        FieldElement right = new FieldElement(point.fieldX).square().multiply(point.fieldX).add(new FieldElement(b));
+        if (!new FieldElement(point.fieldY).square().equals(right)) {
             throw new Exception("the point is not on the curve");
         }
-        return new Point(x, y);
+        return point;
     }
 
     /**
@@ -128,18 +133,18 @@ public class Ecc {
         } else if (x.compareTo(p) >= 0) {
             throw new Exception("x is too big");
         }
-        BigInteger r = (x.pow(3).add(b)).mod(p); // y**2 % p =
-        BigInteger legendre = r.modPow(p.subtract(BigInteger.ONE).divide(two), p);
-        if (legendre.compareTo(BigInteger.ONE) != 0) {
+        FieldElement fieldX = new FieldElement(x);
+        // y**2 % p = (x**3 + a * x + b) % p
+        FieldElement y = new FieldElement(fieldX).square().multiply(fieldX).add(new FieldElement(b));
+        // find y
+        if (!y.sqrt()) {
             throw new Exception("point does not exist");
         }
-        // find y
-        BigInteger y = r.modPow(p.add(BigInteger.ONE).divide(four), p);
         // odd or even
-        if (y.testBit(0) ^ !even) {
-            y = p.subtract(y);
+        if (y.isOdd() == even) {
+            y.negate();
         }
-        return new Point(x, y);
+        return new Point(fieldX, y);
     }
 
     /**
@@ -189,6 +194,19 @@ public class Ecc {
      * @throws Ecc.Exception                  if message is not verified
      */
     public static void verify(byte[] message, Point publicKey, BigInteger[] signature) {
+        BigInteger[] zrs = check(message, signature);
+        if (publicKey == null) {
+            throw new NullPointerException();
+        }
+        BigInteger sInverse = zrs[2].modInverse(n);
+        OddMultiples multiples = OddMultiples.create(new Point[]{publicKey}, 5)[0];
+        if (!verify(zrs[0], multiples, zrs[1], sInverse)) {
+            throw new Exception("incorrect signature");
+        }
+    }
+
+    // returns [z, r, s], throws Ecc.Exception if message or signature is out of range
+    private static BigInteger[] check(byte[] message, BigInteger[] signature) {
         BigInteger z = new BigInteger(1, message);
         if (z.bitLength() > n.bitLength()) {
             throw new Exception("message is too big");
@@ -204,129 +222,490 @@ public class Ecc {
         } else if (s.compareTo(n) >= 0) {
             throw new Exception("s is too big");
         }
+        return new BigInteger[]{z, r, s};
+    }
+
+    // returns true if the signature is correct, multiples are odd multiples of the public key or null for infinity
+    private static boolean verify(BigInteger z, OddMultiples multiples, BigInteger r, BigInteger sInverse) {
         // p = g * k
         // s * k = (z + r * d)
         // p = g * s**(-1) * (z + r * d) = g * s**(-1) * z + g * d * s**(-1) * r
         // = g * s**(-1) * z + publicKey * s**(-1) * r
-        BigInteger sInverse = s.modInverse(n);
-        Point p = multiplyG(sInverse.multiply(z)).add(publicKey.multiply(sInverse.multiply(r)));
+        JacobianPoint p = multiplyGAdd(sInverse.multiply(z), multiples, sInverse.multiply(r));
         // r == px % n
-        if (p.x == null || r.compareTo(p.x.mod(n)) != 0) {
-            throw new Exception("incorrect signature");
+        return p.hasXModN(r);
+    }
+
+    // a[i]**(-1) % n for all a[i], with only one modular inversion
+    private static BigInteger[] invertModN(BigInteger[] a) {
+        // a[i]**(-1) = (a[0] * .. * a[i])**(-1) * (a[0] * .. * a[i - 1])
+        BigInteger[] products = new BigInteger[a.length];
+        BigInteger product = BigInteger.ONE;
+        for (int i = 0; i < a.length; i++) {
+            products[i] = product;
+            product = product.multiply(a[i]).mod(n);
         }
+        BigInteger inverse = product.modInverse(n);
+        BigInteger[] inverses = new BigInteger[a.length];
+        for (int i = a.length - 1; i >= 0; i--) {
+            inverses[i] = inverse.multiply(products[i]).mod(n);
+            inverse = inverse.multiply(a[i]).mod(n);
+        }
+        return inverses;
+    }
+
+    // g * a = g * (a % n), the sum of one precomputed point for each 4-bit window of a
+    private static JacobianPoint multiplyGJacobian(BigInteger a) {
+        BigInteger k = a.mod(n);
+        Point[][] table = GTable.table;
+        JacobianPoint result = new JacobianPoint();
+        for (int window = 0; window < table.length; window++) {
+            int digit = 0;
+            for (int bit = 3; bit >= 0; bit--) {
+                digit = (digit << 1) | (k.testBit((window << 2) + bit) ? 1 : 0);
+            }
+            if (digit != 0) {
+                result.add(table[window][digit - 1]);
+            }
+        }
+        return result;
+    }
+
+    // g * a + q * b, with one common chain of doublings for both of them (strauss-shamir)
+    // qMultiples are odd multiples of q, or null if q is the point at infinity
+    private static JacobianPoint multiplyGAdd(BigInteger a, OddMultiples qMultiples, BigInteger b) {
+        OddMultiples gMultiples = OddMultiples.g;
+        int[] aNaf = wNaf(a.mod(n), gMultiples.window);
+        int[] bNaf = qMultiples == null ? null : wNaf(b.mod(n), qMultiples.window);
+        JacobianPoint result = new JacobianPoint();
+        for (int bit = aNaf.length - 1; bit >= 0; bit--) {
+            result.twice();
+            gMultiples.add(result, aNaf[bit]);
+            if (qMultiples != null) {
+                qMultiples.add(result, bNaf[bit]);
+            }
+        }
+        return result;
+    }
+
+    // width-w non-adjacent form of 0 <= a < 2**256, a = sum(naf[i] * 2**i)
+    // naf[i] is 0 or odd, -2**(w - 1) < naf[i] < 2**(w - 1), and there are at least w - 1 zeros after every non-zero
+    private static int[] wNaf(BigInteger a, int window) {
+        int[] naf = new int[257];
+        int carry = 0;
+        int bit = 0;
+        while (bit < naf.length) {
+            if ((a.testBit(bit) ? 1 : 0) == carry) {
+                bit++;
+                continue;
+            }
+            // the word is odd
+            int word = carry;
+            for (int i = 0; i < window; i++) {
+                if (a.testBit(bit + i)) {
+                    word += 1 << i;
+                }
+            }
+            carry = (word >> (window - 1)) & 1;
+            word -= carry << window;
+            naf[bit] = word;
+            bit += window;
+        }
+        return naf;
     }
 
     /**
      * point on the elliptic curve, immutable
      */
     public static class Point {
+        private static final Point infinity = new Point((BigInteger) null, null);
         public final BigInteger x; // null for the point at infinity
         public final BigInteger y; // null for the point at infinity
+        private final FieldElement fieldX; // x as a FieldElement, is not changed after creation
+        private final FieldElement fieldY;
 
         private Point(BigInteger x, BigInteger y) {
             this.x = x;
             this.y = y;
+            fieldX = x == null ? null : new FieldElement(x);
+            fieldY = y == null ? null : new FieldElement(y);
+        }
+
+        private Point(FieldElement x, FieldElement y) {
+            this.x = x.toBigInteger();
+            this.y = y.toBigInteger();
+            fieldX = x;
+            fieldY = y;
+        }
+    }
+
+    /**
+     * multiples of the base point, table[window][digit - 1] = g * digit * 16**window, immutable
+     * built on the first use of multiplyG()
+     */
+    private static class GTable {
+        private static final Point[][] table = build();
+
+        private static Point[][] build() {
+            Point[][] table = new Point[(n.bitLength() + 3) >> 2][15];
+            JacobianPoint sum = new JacobianPoint();
+            Point base = g;
+            for (Point[] row : table) {
+                row[0] = base;
+                sum.set(base);
+                for (int digit = 1; digit < row.length; digit++) {
+                    row[digit] = sum.add(base).toAffine();
+                }
+                // g * 16**(window + 1) = g * 16**window * 15 + g * 16**window
+                base = sum.add(base).toAffine();
+            }
+            return table;
+        }
+    }
+
+    /**
+     * odd multiples of the point in affine coordinates, immutable
+     * point * (2 * i + 1) = (x[i], y[i]), point * -(2 * i + 1) = (x[i], negativeY[i])
+     */
+    private static class OddMultiples {
+        private static final OddMultiples g = create(new Point[]{Ecc.g}, 8)[0]; // built on the first use of verify()
+        private final int window; // multiples are less than 2**(window - 1)
+        private final FieldElement[] x;
+        private final FieldElement[] y;
+        private final FieldElement[] negativeY;
+
+        private OddMultiples(int window) {
+            this.window = window;
+            int size = 1 << (window - 2);
+            x = new FieldElement[size];
+            y = new FieldElement[size];
+            negativeY = new FieldElement[size];
         }
 
         /**
-         * Point addition
+         * @param points affine Points, can be null
+         * @param window width of the wNaf, 2 < window < 16
+         * @return OddMultiples for each point, or null for null and the point at infinity
+         */
+        private static OddMultiples[] create(Point[] points, int window) {
+            int size = 1 << (window - 2);
+            OddMultiples[] oddMultiples = new OddMultiples[points.length];
+            JacobianPoint[][] multiples = new JacobianPoint[points.length][];
+            int count = 0;
+            for (int i = 0; i < points.length; i++) {
+                if (points[i] == null || points[i].fieldX == null) {
+                    continue;
+                }
+                // point * (2 * i + 1) = point * (2 * i - 1) + point * 2
+                multiples[i] = new JacobianPoint[size];
+                multiples[i][0] = new JacobianPoint().set(points[i]);
+                JacobianPoint twice = new JacobianPoint().set(points[i]).twice();
+                for (int j = 1; j < size; j++) {
+                    multiples[i][j] = new JacobianPoint().add(multiples[i][j - 1]).add(twice);
+                }
+                count += size;
+            }
+            // converts all points with one inversion, z[i]**(-1) = (z[0] * .. * z[i])**(-1) * (z[0] * .. * z[i - 1])
+            FieldElement[] products = new FieldElement[count];
+            FieldElement product = new FieldElement(one);
+            int k = 0;
+            for (JacobianPoint[] pointMultiples : multiples) {
+                if (pointMultiples != null) {
+                    for (JacobianPoint multiple : pointMultiples) {
+                        products[k++] = new FieldElement(product);
+                        product.multiply(multiple.z);
+                    }
+                }
+            }
+            FieldElement inverse = product.invert();
+            FieldElement zInverse = new FieldElement();
+            FieldElement zInverse2 = new FieldElement();
+            for (int i = points.length - 1; i >= 0; i--) {
+                if (multiples[i] == null) {
+                    continue;
+                }
+                OddMultiples result = new OddMultiples(window);
+                for (int j = size - 1; j >= 0; j--) {
+                    JacobianPoint multiple = multiples[i][j];
+                    zInverse.set(inverse).multiply(products[--k]);
+                    inverse.multiply(multiple.z);
+                    zInverse2.set(zInverse).square();
+                    result.x[j] = new FieldElement(multiple.x).multiply(zInverse2);
+                    result.y[j] = new FieldElement(multiple.y).multiply(zInverse2).multiply(zInverse);
+                    result.negativeY[j] = new FieldElement(result.y[j]).negate();
+                }
+                oddMultiples[i] = result;
+            }
+            return oddMultiples;
+        }
+
+        /**
+         * result = result + point * digit
          *
-         * @param q Point to be added to this Point
-         * @return this + q
+         * @param result JacobianPoint to add to
+         * @param digit  odd or zero, |digit| < 2**(window - 1)
          */
-        private Point add(Point q) {
-            if (x == null || y == null) {
+        private void add(JacobianPoint result, int digit) {
+            if (digit > 0) {
+                result.add(x[digit >> 1], y[digit >> 1]);
+            } else if (digit < 0) {
+                result.add(x[-digit >> 1], negativeY[-digit >> 1]);
+            }
+        }
+    }
+
+    /**
+     * point in jacobian coordinates, affine (x, y) = (x / z**2, y / z**3), mutable
+     * it allows to add and double points without modular inversion, which is required only once for toAffine()
+     */
+    private static class JacobianPoint {
+        private final FieldElement x = new FieldElement();
+        private final FieldElement y = new FieldElement();
+        private final FieldElement z = new FieldElement();
+        private boolean infinity = true;
+        // temporary values, so the arithmetic does not allocate memory
+        private final FieldElement t1 = new FieldElement();
+        private final FieldElement t2 = new FieldElement();
+        private final FieldElement t3 = new FieldElement();
+        private final FieldElement t4 = new FieldElement();
+        private final FieldElement t5 = new FieldElement();
+
+        /**
+         * creates the point at infinity
+         */
+        private JacobianPoint() {
+        }
+
+        /**
+         * this = q
+         *
+         * @param q affine Point
+         * @return this
+         */
+        private JacobianPoint set(Point q) {
+            infinity = q.fieldX == null;
+            if (!infinity) {
+                x.set(q.fieldX);
+                y.set(q.fieldY);
+                z.set(one);
+            }
+            return this;
+        }
+
+        /**
+         * @return new affine Point, the same as this
+         */
+        private Point toAffine() {
+            if (infinity) {
+                return Point.infinity;
+            }
+            FieldElement zInverse = t1.set(z).invert();
+            FieldElement zInverse2 = t2.set(zInverse).square();
+            return new Point(
+                    new FieldElement(x).multiply(zInverse2),
+                    new FieldElement(y).multiply(zInverse2).multiply(zInverse)
+            );
+        }
+
+        /**
+         * @param r BigInteger 0 < r < n
+         * @return true if affine (x % n) == r
+         */
+        private boolean hasXModN(BigInteger r) {
+            if (infinity) {
+                return false;
+            }
+            // x / z**2 == r, x == r * z**2, or x == (r + n) * z**2 if r + n < p
+            FieldElement zz = t1.set(z).square();
+            if (t2.set(new FieldElement(r)).multiply(zz).equals(x)) {
+                return true;
+            }
+            BigInteger rPlusN = r.add(n);
+            return rPlusN.compareTo(p) < 0 && t2.set(new FieldElement(rPlusN)).multiply(zz).equals(x);
+        }
+
+        /**
+         * this = this + q, mixed addition
+         *
+         * @param q affine Point
+         * @return this
+         */
+        private JacobianPoint add(Point q) {
+            if (q.fieldX == null) {
+                // p + 0 = p
+                return this;
+            }
+            return add(q.fieldX, q.fieldY);
+        }
+
+        /**
+         * this = this + (qx, qy), mixed addition
+         *
+         * @param qx x of the affine point, not the point at infinity
+         * @param qy y of the affine point
+         * @return this
+         */
+        private JacobianPoint add(FieldElement qx, FieldElement qy) {
+            if (infinity) {
                 // 0 + q = q
-                return q;
-            } else if (q == null || q.x == null || q.y == null) {
+                x.set(qx);
+                y.set(qy);
+                z.set(one);
+                infinity = false;
+                return this;
+            }
+            // bring q to the same z, u1 = x, s1 = y, u2 = qx * z**2, s2 = qy * z**3
+            t1.set(z).square();
+            t3.set(qx).multiply(t1);
+            t4.set(qy).multiply(t1).multiply(z);
+            return add();
+        }
+
+        /**
+         * this = this + q
+         *
+         * @param q JacobianPoint
+         * @return this
+         */
+        private JacobianPoint add(JacobianPoint q) {
+            if (q.infinity) {
                 // p + 0 = p
                 return this;
+            } else if (infinity) {
+                // 0 + q = q
+                x.set(q.x);
+                y.set(q.y);
+                z.set(q.z);
+                infinity = false;
+                return this;
             }
-            int xCompare = x.compareTo(q.x);
-            if (xCompare == 0) {
-                if (y.compareTo(q.y) == 0) {
+            // bring both points to the z = z1 * z2, the point (x * z2**2, y * z2**3, z * z2) is the same as this
+            // u1 = x * z2**2, s1 = y * z2**3, u2 = qx * z1**2, s2 = qy * z1**3
+            t1.set(z).square();
+            t2.set(q.z).square();
+            x.multiply(t2);
+            y.multiply(t2).multiply(q.z);
+            t3.set(q.x).multiply(t1);
+            t4.set(q.y).multiply(t1).multiply(z);
+            z.multiply(q.z);
+            return add();
+        }
+
+        // adds (u2 = t3, s2 = t4) to (u1 = x, s1 = y) with the common z
+        private JacobianPoint add() {
+            FieldElement h = t3.subtract(x);
+            FieldElement m = t4.subtract(y);
+            if (h.isZero()) {
+                if (m.isZero()) {
                     // p + p = 2 * p
-                    return getTwice();
+                    return twice();
                 } else {
                     // p - p = 0
-                    return new Point(null, null);
-                }
-            } else {
-                // for different points slope m = (y2 - y1) / (x2 - x1)
-                BigInteger m;
-                BigInteger deltaX;
-                if (xCompare > 0) {
-                    m = y.subtract(q.y);
-                    deltaX = x.subtract(q.x);
-                } else {
-                    m = q.y.subtract(y);
-                    deltaX = q.x.subtract(x);
-                }
-                // deltaY / deltaX = deltaY * deltaX**(-1)
-                if (deltaX.compareTo(BigInteger.ONE) > 0) {
-                    m = m.multiply(deltaX.modInverse(p));
+                    infinity = true;
+                    return this;
                 }
-                // y**2 = x**3 + t * x + k and y = m * x + n
-                // x**3 + (-m**2) * x**2 + (t - 2 * m * n) * x + (k - n**2) = 0
-                // x1 + x2 + x3 = -b / a = m**2
-                // rx = m**2 - px - qx
-                BigInteger rx = m.pow(2).subtract(x).subtract(q.x).mod(p);
-                // m * (rx - px) = ry - py
-                // ry = m * (rx - px) + py
-                BigInteger ry = m.multiply(rx.subtract(x)).add(y).mod(p);
-                // p + q + r = 0
-                // r = -(p + q)
-                return new Point(rx, p.subtract(ry));
             }
+            // rx = m**2 - h**3 - 2 * u1 * h**2
+            // ry = m * (u1 * h**2 - rx) - s1 * h**3
+            // rz = z * h
+            FieldElement hh = t1.set(h).square();
+            FieldElement hhh = t2.set(hh).multiply(h);
+            FieldElement v = t5.set(x).multiply(hh);
+            x.set(m).square().subtract(hhh).subtract(v).subtract(v);
+            v.subtract(x).multiply(m);
+            y.multiply(hhh).negate().add(v);
+            z.multiply(h);
+            return this;
         }
 
         /**
-         * scalar multiplication
+         * this = this * 2
          *
-         * @param r value to be multiplied by this Point
-         * @return this * r
-         * @throws NullPointerException if r == null
+         * @return this
          */
-        private Point multiply(BigInteger r) {
-            if (x == null || y == null) {
-                // 0 * n = 0
+        private JacobianPoint twice() {
+            if (infinity) {
+                // 2 * 0 = 0
+                return this;
+            } else if (y.isZero()) {
+                // the tangent is vertical
+                infinity = true;
                 return this;
             }
-            if (r.signum() == 0) {
-                // p * 0 = 0
-                return new Point(null, null);
-            }
-            if (r.signum() == -1) {
-                // p * (-r) = -(p * r)
-                Point inverse = multiply(r.negate());
-                return new Point(inverse.x, p.subtract(inverse.y));
+            // e = 3 * x**2, d = 4 * x * y**2
+            // rx = e**2 - 2 * d, ry = e * (d - rx) - 8 * y**4, rz = 2 * y * z
+            FieldElement e = t1.set(x).square().multiply(3);
+            FieldElement yy = t2.set(y).square();
+            FieldElement d = t4.set(x).multiply(yy).multiply(4);
+            FieldElement yyyy = t3.set(yy).square();
+            z.multiply(y).multiply(2);
+            x.set(e).square().subtract(d).subtract(d);
+            d.subtract(x).multiply(e);
+            y.set(yyyy).multiply(8).negate().add(d);
+            return this;
+        }
+    }
+
+    /**
+     * collects signatures and verifies all of them at once
+     * modular inversions are shared by the whole batch, and each signature has its own result,
+     * so an incorrect signature does not affect the others
+     */
+    public static class Batch {
+        private final ArrayList<byte[]> messages = new ArrayList<>();
+        private final ArrayList<Point> publicKeys = new ArrayList<>();
+        private final ArrayList<BigInteger[]> signatures = new ArrayList<>();
+
+        /**
+         * @param message   the message to be verified
+         * @param publicKey as a Point
+         * @param signature BigInteger [r, s]
+         * @return index of this signature in the result of verify()
+         * @throws NullPointerException if message == null or publicKey == null or signature == null
+         */
+        public int add(byte[] message, Point publicKey, BigInteger[] signature) {
+            if (message == null || publicKey == null || signature == null) {
+                throw new NullPointerException();
             }
+            messages.add(message);
+            publicKeys.add(publicKey);
+            signatures.add(signature);
+            return messages.size() - 1;
+        }
 
-            Point result = new Point(null, null);
-            Point twice = this;
-            int bitN = 0;
-            int stop = r.bitLength();
-            do {
-                if (r.testBit(bitN)) {
-                    result = result.add(twice);
-                }
-                twice = twice.getTwice();
-                bitN++;
-            } while (bitN != stop);
-            return result;
+        /**
+         * @return number of added signatures
+         */
+        public int size() {
+            return messages.size();
         }
 
         /**
-         * @return this * 2
+         * @return array, true at the index of each correct signature, false for incorrect or out of range
          */
-        private Point getTwice() {
-            // tangent slope m = (3 * x**2 + a) / (2 * y)
-            BigInteger m = three.multiply(x.pow(2)).multiply(two.multiply(y).modInverse(p));
-            // rx = m**2 - px - px
-            BigInteger rx = m.pow(2).subtract(x).subtract(x).mod(p);
-            // ry = m * (rx - px) + py
-            BigInteger ry = m.multiply(rx.subtract(x)).add(y).mod(p);
-            return new Point(rx, p.subtract(ry));
+        public boolean[] verify() {
+            int size = messages.size();
+            boolean[] verified = new boolean[size];
+            BigInteger[][] zrs = new BigInteger[size][];
+            Point[] points = new Point[size];
+            ArrayList<BigInteger> s = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                try {
+                    zrs[i] = check(messages.get(i), signatures.get(i));
+                } catch (Exception | ArrayIndexOutOfBoundsException exception) {
+                    continue;
+                }
+                points[i] = publicKeys.get(i);
+                s.add(zrs[i][2]);
+            }
+            BigInteger[] sInverses = invertModN(s.toArray(new BigInteger[0]));
+            OddMultiples[] multiples = OddMultiples.create(points, 5);
+            for (int i = 0, k = 0; i < size; i++) {
+                if (zrs[i] != null) {
+                    verified[i] = Ecc.verify(zrs[i][0], multiples[i], zrs[i][1], sInverses[k++]);
+                }
+            }
+            return verified;
         }
     }
 
@@ -335,4 +714,4 @@ public class Ecc {
             super(message);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,489 @@
+/*
+element of the finite field Fp of the curve secp256k1, p = 2**256 - 2**32 - 977, mutable
+
+usage:
+    FieldElement a = new FieldElement();
+    FieldElement a = new FieldElement(bigInteger);
+    FieldElement a = new FieldElement(fieldElement);
+    a.set(fieldElement).add(b).subtract(c).multiply(d).square().multiply(3).negate().invert();
+    boolean isSquare = a.sqrt();
+    boolean isZero = a.isZero();
+    boolean isOdd = a.isOdd();
+    boolean equals = a.equals(b);
+    BigInteger bigInteger = a.toBigInteger();
+
+all operations are in place and do not allocate memory, except new FieldElement() and toBigInteger()
+
+limbs:
+    value = n[0] + n[1] * 2**26 + ... + n[9] * 2**234
+    n[0] - n[8] are 26 bits, n[9] is 22 bits, so value < 2**256, but it can be >= p until normalize()
+*/
+
+package com.aqoleg.crypto;
+
+import java.math.BigInteger;
+
+public class FieldElement {
+    private static final int mask = 0x3FFFFFF; // 26 bits
+    private static final int topMask = 0x3FFFFF; // 22 bits
+    // 2 * p in not normalized limbs, used to keep the value positive while subtracting
+    private static final int[] twoP = {
+            0x7FFF85E, 0x7FFFF7E, 0x7FFFFFE, 0x7FFFFFE, 0x7FFFFFE,
+            0x7FFFFFE, 0x7FFFFFE, 0x7FFFFFE, 0x7FFFFFE, 0x7FFFFE
+    };
+    private final int[] n = new int[10];
+
+    /**
+     * creates zero
+     */
+    public FieldElement() {
+    }
+
+    /**
+     * @param a BigInteger 0 <= a < 2**256
+     * @throws NullPointerException   if a == null
+     * @throws FieldElement.Exception if a is negative or too big
+     */
+    public FieldElement(BigInteger a) {
+        if (a.signum() < 0 || a.bitLength() > 256) {
+            throw new Exception("incorrect value");
+        }
+        byte[] bytes = a.toByteArray(); // big-endian
+        for (int bit = 0, i = bytes.length - 1; bit < 256 && i >= 0; bit += 8, i--) {
+            int limb = bit / 26;
+            int shift = bit % 26;
+            int value = (bytes[i] & 0xFF) << shift;
+            n[limb] |= value & mask;
+            if (shift > 18) {
+                n[limb + 1] |= value >>> 26;
+            }
+        }
+    }
+
+    /**
+     * @param a FieldElement to be copied
+     * @throws NullPointerException if a == null
+     */
+    public FieldElement(FieldElement a) {
+        set(a);
+    }
+
+    /**
+     * this = a
+     *
+     * @param a FieldElement
+     * @return this
+     * @throws NullPointerException if a == null
+     */
+    public FieldElement set(FieldElement a) {
+        System.arraycopy(a.n, 0, n, 0, 10);
+        return this;
+    }
+
+    /**
+     * this = this + a
+     *
+     * @param a FieldElement
+     * @return this
+     * @throws NullPointerException if a == null
+     */
+    public FieldElement add(FieldElement a) {
+        int[] b = a.n;
+        carry(
+                (long) n[0] + b[0], (long) n[1] + b[1], (long) n[2] + b[2], (long) n[3] + b[3],
+                (long) n[4] + b[4], (long) n[5] + b[5], (long) n[6] + b[6], (long) n[7] + b[7],
+                (long) n[8] + b[8], (long) n[9] + b[9]
+        );
+        return this;
+    }
+
+    /**
+     * this = this - a
+     *
+     * @param a FieldElement
+     * @return this
+     * @throws NullPointerException if a == null
+     */
+    public FieldElement subtract(FieldElement a) {
+        int[] b = a.n;
+        carry(
+                (long) n[0] + twoP[0] - b[0], (long) n[1] + twoP[1] - b[1], (long) n[2] + twoP[2] - b[2],
+                (long) n[3] + twoP[3] - b[3], (long) n[4] + twoP[4] - b[4], (long) n[5] + twoP[5] - b[5],
+                (long) n[6] + twoP[6] - b[6], (long) n[7] + twoP[7] - b[7], (long) n[8] + twoP[8] - b[8],
+                (long) n[9] + twoP[9] - b[9]
+        );
+        return this;
+    }
+
+    /**
+     * this = -this
+     *
+     * @return this
+     */
+    public FieldElement negate() {
+        carry(
+                twoP[0] - n[0], twoP[1] - n[1], twoP[2] - n[2], twoP[3] - n[3], twoP[4] - n[4],
+                twoP[5] - n[5], twoP[6] - n[6], twoP[7] - n[7], twoP[8] - n[8], twoP[9] - n[9]
+        );
+        return this;
+    }
+
+    /**
+     * this = this * a
+     *
+     * @param a small non-negative int
+     * @return this
+     * @throws FieldElement.Exception if a is negative or too big
+     */
+    public FieldElement multiply(int a) {
+        if (a < 0 || a > 0xFFFF) {
+            throw new Exception("incorrect multiplier");
+        }
+        carry(
+                (long) n[0] * a, (long) n[1] * a, (long) n[2] * a, (long) n[3] * a, (long) n[4] * a,
+                (long) n[5] * a, (long) n[6] * a, (long) n[7] * a, (long) n[8] * a, (long) n[9] * a
+        );
+        return this;
+    }
+
+    /**
+     * this = this * b
+     *
+     * @param b FieldElement, can be this
+     * @return this
+     * @throws NullPointerException if b == null
+     */
+    public FieldElement multiply(FieldElement b) {
+        long a0 = n[0], a1 = n[1], a2 = n[2], a3 = n[3], a4 = n[4];
+        long a5 = n[5], a6 = n[6], a7 = n[7], a8 = n[8], a9 = n[9];
+        long b0 = b.n[0], b1 = b.n[1], b2 = b.n[2], b3 = b.n[3], b4 = b.n[4];
+        long b5 = b.n[5], b6 = b.n[6], b7 = b.n[7], b8 = b.n[8], b9 = b.n[9];
+        // product of 26-bit limbs is 52 bits, sum of 10 products is less than 56 bits
+        long c0 = a0 * b0;
+        long c1 = a0 * b1 + a1 * b0;
+        long c2 = a0 * b2 + a1 * b1 + a2 * b0;
+        long c3 = a0 * b3 + a1 * b2 + a2 * b1 + a3 * b0;
+        long c4 = a0 * b4 + a1 * b3 + a2 * b2 + a3 * b1 + a4 * b0;
+        long c5 = a0 * b5 + a1 * b4 + a2 * b3 + a3 * b2 + a4 * b1 + a5 * b0;
+        long c6 = a0 * b6 + a1 * b5 + a2 * b4 + a3 * b3 + a4 * b2 + a5 * b1 + a6 * b0;
+        long c7 = a0 * b7 + a1 * b6 + a2 * b5 + a3 * b4 + a4 * b3 + a5 * b2 + a6 * b1 + a7 * b0;
+        long c8 = a0 * b8 + a1 * b7 + a2 * b6 + a3 * b5 + a4 * b4 + a5 * b3 + a6 * b2 + a7 * b1 + a8 * b0;
+        long c9 = a0 * b9 + a1 * b8 + a2 * b7 + a3 * b6 + a4 * b5 + a5 * b4 + a6 * b3 + a7 * b2 + a8 * b1 + a9 * b0;
+        long c10 = a1 * b9 + a2 * b8 + a3 * b7 + a4 * b6 + a5 * b5 + a6 * b4 + a7 * b3 + a8 * b2 + a9 * b1;
+        long c11 = a2 * b9 + a3 * b8 + a4 * b7 + a5 * b6 + a6 * b5 + a7 * b4 + a8 * b3 + a9 * b2;
+        long c12 = a3 * b9 + a4 * b8 + a5 * b7 + a6 * b6 + a7 * b5 + a8 * b4 + a9 * b3;
+        long c13 = a4 * b9 + a5 * b8 + a6 * b7 + a7 * b6 + a8 * b5 + a9 * b4;
+        long c14 = a5 * b9 + a6 * b8 + a7 * b7 + a8 * b6 + a9 * b5;
+        long c15 = a6 * b9 + a7 * b8 + a8 * b7 + a9 * b6;
+        long c16 = a7 * b9 + a8 * b8 + a9 * b7;
+        long c17 = a8 * b9 + a9 * b8;
+        long c18 = a9 * b9;
+        reduce(c0, c1, c2, c3, c4, c5, c6, c7, c8, c9, c10, c11, c12, c13, c14, c15, c16, c17, c18);
+        return this;
+    }
+
+    /**
+     * this = this * this
+     *
+     * @return this
+     */
+    public FieldElement square() {
+        long a0 = n[0], a1 = n[1], a2 = n[2], a3 = n[3], a4 = n[4];
+        long a5 = n[5], a6 = n[6], a7 = n[7], a8 = n[8], a9 = n[9];
+        long c0 = a0 * a0;
+        long c1 = a0 * a1 * 2;
+        long c2 = a0 * a2 * 2 + a1 * a1;
+        long c3 = (a0 * a3 + a1 * a2) * 2;
+        long c4 = (a0 * a4 + a1 * a3) * 2 + a2 * a2;
+        long c5 = (a0 * a5 + a1 * a4 + a2 * a3) * 2;
+        long c6 = (a0 * a6 + a1 * a5 + a2 * a4) * 2 + a3 * a3;
+        long c7 = (a0 * a7 + a1 * a6 + a2 * a5 + a3 * a4) * 2;
+        long c8 = (a0 * a8 + a1 * a7 + a2 * a6 + a3 * a5) * 2 + a4 * a4;
+        long c9 = (a0 * a9 + a1 * a8 + a2 * a7 + a3 * a6 + a4 * a5) * 2;
+        long c10 = (a1 * a9 + a2 * a8 + a3 * a7 + a4 * a6) * 2 + a5 * a5;
+        long c11 = (a2 * a9 + a3 * a8 + a4 * a7 + a5 * a6) * 2;
+        long c12 = (a3 * a9 + a4 * a8 + a5 * a7) * 2 + a6 * a6;
+        long c13 = (a4 * a9 + a5 * a8 + a6 * a7) * 2;
+        long c14 = (a5 * a9 + a6 * a8) * 2 + a7 * a7;
+        long c15 = (a6 * a9 + a7 * a8) * 2;
+        long c16 = a7 * a9 * 2 + a8 * a8;
+        long c17 = a8 * a9 * 2;
+        long c18 = a9 * a9;
+        reduce(c0, c1, c2, c3, c4, c5, c6, c7, c8, c9, c10, c11, c12, c13, c14, c15, c16, c17, c18);
+        return this;
+    }
+
+    /**
+     * this = this**(-1) = this**(p - 2), 0**(-1) = 0
+     *
+     * @return this
+     */
+    public FieldElement invert() {
+        FieldElement x2 = new FieldElement();
+        FieldElement x3 = new FieldElement();
+        FieldElement x22 = new FieldElement();
+        FieldElement t = new FieldElement();
+        powerOfOnes(x2, x3, x22, t);
+        // p - 2 = 0xff..fefffffc2d
+        t.squareTimes(5).multiply(this);
+        t.squareTimes(3).multiply(x2);
+        t.squareTimes(2).multiply(this);
+        return set(t);
+    }
+
+    /**
+     * this = sqrt(this) = this**((p + 1) / 4), if square root exists
+     *
+     * @return true if square root exists, false and this is unchanged otherwise
+     */
+    public boolean sqrt() {
+        FieldElement x2 = new FieldElement();
+        FieldElement x3 = new FieldElement();
+        FieldElement x22 = new FieldElement();
+        FieldElement t = new FieldElement();
+        powerOfOnes(x2, x3, x22, t);
+        // (p + 1) / 4 = 0x3f..ffbfffff0c
+        t.squareTimes(6).multiply(x2);
+        t.squareTimes(2);
+        // check, t**2 == this
+        x2.set(t).square();
+        if (!x2.equals(this)) {
+            return false;
+        }
+        set(t);
+        return true;
+    }
+
+    /**
+     * @return true if this == 0 (mod p)
+     */
+    public boolean isZero() {
+        normalize();
+        return (n[0] | n[1] | n[2] | n[3] | n[4] | n[5] | n[6] | n[7] | n[8] | n[9]) == 0;
+    }
+
+    /**
+     * @return true if this % p is odd
+     */
+    public boolean isOdd() {
+        normalize();
+        return (n[0] & 1) == 1;
+    }
+
+    /**
+     * @param object FieldElement to compare with
+     * @return true if this == object (mod p)
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof FieldElement)) {
+            return false;
+        }
+        FieldElement a = (FieldElement) object;
+        normalize();
+        a.normalize();
+        for (int i = 0; i < 10; i++) {
+            if (n[i] != a.n[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        normalize();
+        int hashCode = 0;
+        for (int limb : n) {
+            hashCode = hashCode * 31 + limb;
+        }
+        return hashCode;
+    }
+
+    /**
+     * @return this % p as a BigInteger
+     */
+    public BigInteger toBigInteger() {
+        normalize();
+        byte[] bytes = new byte[33]; // the first byte is zero, positive BigInteger
+        for (int bit = 0; bit < 256; bit += 8) {
+            int limb = bit / 26;
+            int shift = bit % 26;
+            int value = n[limb] >>> shift;
+            if (shift > 18 && limb < 9) {
+                value |= n[limb + 1] << (26 - shift);
+            }
+            bytes[32 - (bit >> 3)] = (byte) value;
+        }
+        return new BigInteger(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return toBigInteger().toString(16);
+    }
+
+    // the common part of the addition chains for invert() and sqrt()
+    // t = this**((2**223 - 1) * 2**23 + 2**22 - 1), x2 = this**3, x3 = this**7, x22 = this**(2**22 - 1)
+    private void powerOfOnes(FieldElement x2, FieldElement x3, FieldElement x22, FieldElement t) {
+        // xN = this**(2**N - 1)
+        x2.set(this).square().multiply(this);
+        x3.set(x2).square().multiply(this);
+        t.set(x3).squareTimes(3).multiply(x3); // x6
+        t.squareTimes(3).multiply(x3); // x9
+        t.squareTimes(2).multiply(x2); // x11
+        x22.set(t).squareTimes(11).multiply(t);
+        FieldElement x44 = new FieldElement(x22).squareTimes(22).multiply(x22);
+        t.set(x44).squareTimes(44).multiply(x44); // x88
+        FieldElement x176 = new FieldElement(t).squareTimes(88).multiply(t);
+        t.set(x176).squareTimes(44).multiply(x44); // x220
+        t.squareTimes(3).multiply(x3); // x223
+        t.squareTimes(23).multiply(x22);
+    }
+
+    private FieldElement squareTimes(int times) {
+        for (int i = 0; i < times; i++) {
+            square();
+        }
+        return this;
+    }
+
+    private void reduce(long c0, long c1, long c2, long c3, long c4, long c5, long c6, long c7, long c8, long c9,
+            long c10, long c11, long c12, long c13, long c14, long c15, long c16, long c17, long c18) {
+        // carry into 26-bit limbs, all values are non-negative
+        c1 += c0 >>> 26;
+        c0 &= mask;
+        c2 += c1 >>> 26;
+        c1 &= mask;
+        c3 += c2 >>> 26;
+        c2 &= mask;
+        c4 += c3 >>> 26;
+        c3 &= mask;
+        c5 += c4 >>> 26;
+        c4 &= mask;
+        c6 += c5 >>> 26;
+        c5 &= mask;
+        c7 += c6 >>> 26;
+        c6 &= mask;
+        c8 += c7 >>> 26;
+        c7 &= mask;
+        c9 += c8 >>> 26;
+        c8 &= mask;
+        c10 += c9 >>> 26;
+        c9 &= mask;
+        c11 += c10 >>> 26;
+        c10 &= mask;
+        c12 += c11 >>> 26;
+        c11 &= mask;
+        c13 += c12 >>> 26;
+        c12 &= mask;
+        c14 += c13 >>> 26;
+        c13 &= mask;
+        c15 += c14 >>> 26;
+        c14 &= mask;
+        c16 += c15 >>> 26;
+        c15 &= mask;
+        c17 += c16 >>> 26;
+        c16 &= mask;
+        c18 += c17 >>> 26;
+        c17 &= mask;
+        long c19 = c18 >>> 26;
+        c18 &= mask;
+        // 2**260 = 2**36 + 0x3D10 (mod p), so limb k >= 10 is added to the limbs k - 10 and k - 9
+        c0 += c10 * 0x3D10;
+        c1 += c10 << 10;
+        c1 += c11 * 0x3D10;
+        c2 += c11 << 10;
+        c2 += c12 * 0x3D10;
+        c3 += c12 << 10;
+        c3 += c13 * 0x3D10;
+        c4 += c13 << 10;
+        c4 += c14 * 0x3D10;
+        c5 += c14 << 10;
+        c5 += c15 * 0x3D10;
+        c6 += c15 << 10;
+        c6 += c16 * 0x3D10;
+        c7 += c16 << 10;
+        c7 += c17 * 0x3D10;
+        c8 += c17 << 10;
+        c8 += c18 * 0x3D10;
+        c9 += c18 << 10;
+        c9 += c19 * 0x3D10;
+        c19 <<= 10; // limb 10 again
+        c0 += c19 * 0x3D10;
+        c1 += c19 << 10;
+        carry(c0, c1, c2, c3, c4, c5, c6, c7, c8, c9);
+    }
+
+    // carries limbs into n, limbs can be negative if the sum is non-negative
+    private void carry(long t0, long t1, long t2, long t3, long t4, long t5, long t6, long t7, long t8, long t9) {
+        long top;
+        do {
+            t1 += t0 >> 26;
+            t0 &= mask;
+            t2 += t1 >> 26;
+            t1 &= mask;
+            t3 += t2 >> 26;
+            t2 &= mask;
+            t4 += t3 >> 26;
+            t3 &= mask;
+            t5 += t4 >> 26;
+            t4 &= mask;
+            t6 += t5 >> 26;
+            t5 &= mask;
+            t7 += t6 >> 26;
+            t6 &= mask;
+            t8 += t7 >> 26;
+            t7 &= mask;
+            t9 += t8 >> 26;
+            t8 &= mask;
+            top = t9 >> 22;
+            t9 &= topMask;
+            // 2**256 = 2**32 + 977 (mod p)
+            t0 += top * 977;
+            t1 += top << 6;
+        } while (top != 0);
+        n[0] = (int) t0;
+        n[1] = (int) t1;
+        n[2] = (int) t2;
+        n[3] = (int) t3;
+        n[4] = (int) t4;
+        n[5] = (int) t5;
+        n[6] = (int) t6;
+        n[7] = (int) t7;
+        n[8] = (int) t8;
+        n[9] = (int) t9;
+    }
+
+    // makes the value < p, if p <= value < 2**256 then value = value - p = value + 2**32 + 977 - 2**256
+    private void normalize() {
+        int t0 = n[0] + 977;
+        int t1 = n[1] + 64 + (t0 >>> 26);
+        int t2 = n[2] + (t1 >>> 26);
+        int t3 = n[3] + (t2 >>> 26);
+        int t4 = n[4] + (t3 >>> 26);
+        int t5 = n[5] + (t4 >>> 26);
+        int t6 = n[6] + (t5 >>> 26);
+        int t7 = n[7] + (t6 >>> 26);
+        int t8 = n[8] + (t7 >>> 26);
+        int t9 = n[9] + (t8 >>> 26);
+        if ((t9 >>> 22) != 0) {
+            n[0] = t0 & mask;
+            n[1] = t1 & mask;
+            n[2] = t2 & mask;
+            n[3] = t3 & mask;
+            n[4] = t4 & mask;
+            n[5] = t5 & mask;
+            n[6] = t6 & mask;
+            n[7] = t7 & mask;
+            n[8] = t8 & mask;
+            n[9] = t9 & topMask;
+        }
+    }
+
+    public static class Exception extends RuntimeException {
+        private Exception(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+double sha256 of the 80-bytes block header; not synchronized, use one instance per thread
+
+usage:
+    HeaderHash headerHash = new HeaderHash();
+    headerHash.getHash(headerBytes, headerStart, outBytes, outStart);
+
+header bytes:
+    bytes 0-63 (version, prevBlock, the beginning of the merkleRoot) are the first sha256 block,
+    its midstate is cached and reused while they are the same;
+    bytes 64-79 (the end of the merkleRoot, timestamp, bits, nonce) with the fixed padding are the second block;
+    the second sha256 of the 32-bytes hash is the one block with the fixed padding
+*/
+
+package com.aqoleg.crypto;
+
+public class HeaderHash {
+    private final int[] firstBlock = new int[16]; // words of the first block of the previous header
+    private final int[] midstate = new int[8]; // state after the first block
+    private final int[] block = new int[64];
+    private final int[] hash = new int[8];
+    private boolean hasMidstate = false;
+
+    /**
+     * writes sha256(sha256(header)) into the out, byte order is the same as in Sha256.getDoubleHash()
+     *
+     * @param header      array containing 80-bytes header
+     * @param headerStart starting position in the header array
+     * @param out         array to write 32-bytes hash in
+     * @param outStart    starting position in the out array
+     * @throws NullPointerException           if header == null or out == null
+     * @throws ArrayIndexOutOfBoundsException if headerStart or outStart is incorrect
+     */
+    public void getHash(byte[] header, int headerStart, byte[] out, int outStart) {
+        if (headerStart < 0 || headerStart > header.length - 80) {
+            throw new ArrayIndexOutOfBoundsException(headerStart);
+        } else if (outStart < 0 || outStart > out.length - 32) {
+            throw new ArrayIndexOutOfBoundsException(outStart);
+        }
+        // the first block, reuse midstate if it is not changed
+        boolean same = hasMidstate;
+        for (int i = 0; i < 16; i++) {
+            int word = Sha256.getWord(header, headerStart + i * 4);
+            if (word != firstBlock[i]) {
+                firstBlock[i] = word;
+                same = false;
+            }
+        }
+        if (!same) {
+            System.arraycopy(firstBlock, 0, block, 0, 16);
+            System.arraycopy(Sha256.initialHash, 0, midstate, 0, 8);
+            Sha256.hashBlock(block, midstate);
+            hasMidstate = true;
+        }
+        // the second block, 16 bytes of the header, 0b10000000, zeros and 64-bit length 640
+        for (int i = 0; i < 4; i++) {
+            block[i] = Sha256.getWord(header, headerStart + 64 + i * 4);
+        }
+        block[4] = 0x80000000;
+        for (int i = 5; i < 15; i++) {
+            block[i] = 0;
+        }
+        block[15] = 80 * 8;
+        System.arraycopy(midstate, 0, hash, 0, 8);
+        Sha256.hashBlock(block, hash);
+        // the second sha256, 32 bytes of the hash, 0b10000000, zeros and 64-bit length 256
+        System.arraycopy(hash, 0, block, 0, 8);
+        block[8] = 0x80000000;
+        for (int i = 9; i < 15; i++) {
+            block[i] = 0;
+        }
+        block[15] = 32 * 8;
+        System.arraycopy(Sha256.initialHash, 0, hash, 0, 8);
+        Sha256.hashBlock(block, hash);
+        for (int word : hash) {
+            out[outStart++] = (byte) (word >>> 24);
+            out[outStart++] = (byte) (word >>> 16);
+            out[outStart++] = (byte) (word >>> 8);
+            out[outStart++] = (byte) word;
+        }
+    }
+}
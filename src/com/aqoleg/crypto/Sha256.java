@@ -4,10 +4,25 @@ cryptographic hash function
 usage:
     byte[] hash = Sha256.getHash(bytes);
     byte[] hash = Sha256.getHash(bytes, start, length);
+    byte[] hash = Sha256.getDoubleHash(bytes);
+    byte[] hash = Sha256.getDoubleHash(bytes, start, length);
+    Sha256 sha256 = new Sha256();
+    Sha256 copy = new Sha256(sha256);
+    Sha256 sha256 = new Sha256(midstate, length);
+    sha256 = sha256.update(bytes);
+    sha256 = sha256.update(bytes, start, length);
+    sha256 = sha256.update(byteBuffer);
+    byte[] midstate = sha256.getMidstate();
+    long length = sha256.getLength();
+    byte[] hash = sha256.doFinal();
+    sha256.doFinal(outBytes, outStart);
+    sha256.reset();
 */
 
 package com.aqoleg.crypto;
 
+import java.nio.ByteBuffer;
+
 public class Sha256 {
     private static final int k[] = {
             0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
@@ -19,6 +34,54 @@ public class Sha256 {
             0x19a4c116, 0x1e376c08, 0x2748774c, 0x34b0bcb5, 0x391c0cb3, 0x4ed8aa4a, 0x5b9cca4f, 0x682e6ff3,
             0x748f82ee, 0x78a5636f, 0x84c87814, 0x8cc70208, 0x90befffa, 0xa4506ceb, 0xbef9a3f7, 0xc67178f2
     };
+    static final int[] initialHash = {0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a,
+            0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19};
+    private static final ThreadLocal<Sha256> threadSha256 = ThreadLocal.withInitial(Sha256::new); // for getHash()
+    private final int[] hash = new int[8]; // current 256-bit hash
+    private final byte[] buffer = new byte[64]; // not processed bytes of the current block
+    private final int[] block = new int[64];
+    private int bufferLength;
+    private long length; // number of bytes in the message
+
+    /**
+     * creates Sha256 for the incremental hashing
+     */
+    public Sha256() {
+        reset();
+    }
+
+    /**
+     * creates the copy of the current state, so that the common beginning of the messages is hashed only once
+     *
+     * @param sha256 Sha256 to copy
+     * @throws NullPointerException if sha256 == null
+     */
+    public Sha256(Sha256 sha256) {
+        System.arraycopy(sha256.hash, 0, hash, 0, 8);
+        System.arraycopy(sha256.buffer, 0, buffer, 0, sha256.bufferLength);
+        bufferLength = sha256.bufferLength;
+        length = sha256.length;
+    }
+
+    /**
+     * restores the state exported with getMidstate()
+     *
+     * @param midstate 32-bytes midstate
+     * @param length   number of bytes hashed into the midstate, multiple of 64
+     * @throws NullPointerException if midstate == null
+     * @throws Exception            if midstate or length is incorrect
+     */
+    public Sha256(byte[] midstate, long length) {
+        if (midstate.length != 32) {
+            throw new Exception("incorrect midstate length " + midstate.length);
+        } else if (length < 0 || (length & 63) != 0) {
+            throw new Exception("incorrect length " + length);
+        }
+        for (int i = 0; i < 8; i++) {
+            hash[i] = getWord(midstate, i * 4);
+        }
+        this.length = length;
+    }
 
     /**
      * @param message array containing message to be hashed
@@ -38,71 +101,211 @@ public class Sha256 {
      * @throws ArrayIndexOutOfBoundsException if messageStart or messageLength is incorrect
      */
     public static byte[] getHash(byte[] message, int messageStart, int messageLength) {
-        int[] hash = {0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a,
-                0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19}; // 256-bit hash
-        int[] block = new int[64]; // 512-bit block, contains 16 words * 32 bits and extended 48 words
-        int blockPos = 0; // current position in the block
-        int messagePos = messageStart; // current position in the message
-        // process 32-bits words from the message
-        int stop = messageStart + messageLength - 3;
-        while (messagePos < stop) {
-            block[blockPos++] = getWord(message, messagePos);
-            messagePos += 4;
-            if (blockPos == 16) {
-                blockPos = 0;
-                hashBlock(block, hash);
+        return threadSha256.get().update(message, messageStart, messageLength).doFinal();
+    }
+
+    /**
+     * @param message array containing message to be hashed
+     * @return 32-bytes sha256(sha256(message))
+     * @throws NullPointerException if message == null
+     */
+    public static byte[] getDoubleHash(byte[] message) {
+        return getDoubleHash(message, 0, message.length);
+    }
+
+    /**
+     * @param message       array containing message to be hashed
+     * @param messageStart  starting position in the message array
+     * @param messageLength the number of bytes containing the message
+     * @return 32-bytes sha256(sha256(message))
+     * @throws NullPointerException           if message == null
+     * @throws ArrayIndexOutOfBoundsException if messageStart or messageLength is incorrect
+     */
+    public static byte[] getDoubleHash(byte[] message, int messageStart, int messageLength) {
+        byte[] out = new byte[32];
+        Sha256 sha256 = threadSha256.get().update(message, messageStart, messageLength);
+        sha256.doFinal(out, 0);
+        sha256.update(out, 0, 32).doFinal(out, 0);
+        return out;
+    }
+
+    /**
+     * @param bytes array containing next part of the message
+     * @return this Sha256
+     * @throws NullPointerException if bytes == null
+     */
+    public Sha256 update(byte[] bytes) {
+        return update(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param bytes       array containing next part of the message
+     * @param bytesStart  starting position in the bytes array
+     * @param bytesLength the number of bytes containing the part of the message
+     * @return this Sha256
+     * @throws NullPointerException           if bytes == null
+     * @throws ArrayIndexOutOfBoundsException if bytesStart or bytesLength is incorrect
+     */
+    public Sha256 update(byte[] bytes, int bytesStart, int bytesLength) {
+        if (bytesStart < 0 || bytesLength < 0 || bytesStart > bytes.length - bytesLength) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        length += bytesLength;
+        int bytesEnd = bytesStart + bytesLength;
+        if (bufferLength > 0) {
+            int n = Math.min(64 - bufferLength, bytesLength);
+            System.arraycopy(bytes, bytesStart, buffer, bufferLength, n);
+            bufferLength += n;
+            bytesStart += n;
+            if (bufferLength < 64) {
+                return this;
             }
+            hashBlock(buffer, 0);
+            bufferLength = 0;
         }
-        // create the buffer word and fill it with the rest of the message
-        byte[] buffer = new byte[4];
-        int bufferPos = 0; // current position in the buffer
-        while (messagePos < messageStart + messageLength) {
-            buffer[bufferPos++] = message[messagePos++];
-        }
-        // add 0b10000000 in the end of the message
-        buffer[bufferPos] = (byte) 0b10000000;
-        // put buffer word in the block
-        block[blockPos++] = getWord(buffer, 0);
-        if (blockPos == 16) {
-            blockPos = 0;
-            hashBlock(block, hash);
-        }
-        // 2 last words in the block is for the length of the message
-        // if they are not empty, process this block and create new one
-        if (blockPos == 15) {
-            block[15] = 0;
-            blockPos = 0;
-            hashBlock(block, hash);
-        }
-        for (int i = blockPos; i < 14; i++) {
-            block[i] = 0;
-        }
-        // put length in the end of the last block, big-endian
-        long bitLength = messageLength << 3;
-        block[14] = (int) (bitLength >>> 32);
-        block[15] = (int) (bitLength);
-        hashBlock(block, hash);
-        // return hash, 32-bit words are big-endian
+        for (; bytesEnd - bytesStart >= 64; bytesStart += 64) {
+            hashBlock(bytes, bytesStart);
+        }
+        bufferLength = bytesEnd - bytesStart;
+        System.arraycopy(bytes, bytesStart, buffer, 0, bufferLength);
+        return this;
+    }
+
+    /**
+     * hashes all remaining bytes of the byteBuffer, position of the byteBuffer will be equal to its limit
+     *
+     * @param byteBuffer ByteBuffer containing next part of the message
+     * @return this Sha256
+     * @throws NullPointerException if byteBuffer == null
+     */
+    public Sha256 update(ByteBuffer byteBuffer) {
+        int bytesLength = byteBuffer.remaining();
+        if (byteBuffer.hasArray()) {
+            update(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), bytesLength);
+            byteBuffer.position(byteBuffer.limit());
+            return this;
+        }
+        length += bytesLength;
+        while (bytesLength > 0) {
+            int n = Math.min(64 - bufferLength, bytesLength);
+            byteBuffer.get(buffer, bufferLength, n);
+            bufferLength += n;
+            bytesLength -= n;
+            if (bufferLength == 64) {
+                hashBlock(buffer, 0);
+                bufferLength = 0;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * exports the state after the whole 64-bytes blocks,
+     * it can be restored with new Sha256(midstate, length)
+     *
+     * @return 32-bytes midstate
+     * @throws Exception if number of hashed bytes is not multiple of 64
+     */
+    public byte[] getMidstate() {
+        if (bufferLength != 0) {
+            throw new Exception("not whole block, length " + length);
+        }
+        byte[] out = new byte[32];
+        putHash(out, 0);
+        return out;
+    }
+
+    /**
+     * @return number of bytes hashed since the creation or the previous doFinal() or reset()
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * completes hashing and resets this Sha256 to the initial state
+     *
+     * @return 32-bytes hash of all bytes passed since the creation or the previous doFinal() or reset()
+     */
+    public byte[] doFinal() {
         byte[] out = new byte[32];
-        int outPos = 0;
+        doFinal(out, 0);
+        return out;
+    }
+
+    /**
+     * completes hashing and resets this Sha256 to the initial state
+     *
+     * @param out      array to write 32-bytes hash of all bytes passed since the creation or the previous doFinal()
+     *                 or reset()
+     * @param outStart starting position in the out array
+     * @throws NullPointerException           if out == null
+     * @throws ArrayIndexOutOfBoundsException if outStart is incorrect
+     */
+    public void doFinal(byte[] out, int outStart) {
+        if (outStart < 0 || outStart > out.length - 32) {
+            throw new ArrayIndexOutOfBoundsException(outStart);
+        }
+        long bitLength = length << 3;
+        // add 0b10000000 in the end of the message, the last 8 bytes of the last block are for the length
+        buffer[bufferLength++] = (byte) 0b10000000;
+        if (bufferLength > 56) {
+            for (int i = bufferLength; i < 64; i++) {
+                buffer[i] = 0;
+            }
+            hashBlock(buffer, 0);
+            bufferLength = 0;
+        }
+        for (int i = bufferLength; i < 56; i++) {
+            buffer[i] = 0;
+        }
+        for (int i = 63; i >= 56; i--) {
+            buffer[i] = (byte) bitLength;
+            bitLength >>>= 8;
+        }
+        hashBlock(buffer, 0);
+        putHash(out, outStart);
+        reset();
+    }
+
+    /**
+     * resets this Sha256 to the initial state
+     */
+    public void reset() {
+        System.arraycopy(initialHash, 0, hash, 0, 8);
+        bufferLength = 0;
+        length = 0;
+    }
+
+    // writes hash words big-endian
+    private void putHash(byte[] out, int outStart) {
         for (int word : hash) {
-            out[outPos++] = (byte) (word >>> 24);
-            out[outPos++] = (byte) (word >>> 16);
-            out[outPos++] = (byte) (word >>> 8);
-            out[outPos++] = (byte) word;
+            out[outStart++] = (byte) (word >>> 24);
+            out[outStart++] = (byte) (word >>> 16);
+            out[outStart++] = (byte) (word >>> 8);
+            out[outStart++] = (byte) word;
         }
-        return out;
+    }
+
+    // processes 64 bytes from the bytesStart
+    private void hashBlock(byte[] bytes, int bytesStart) {
+        for (int i = 0; i < 16; i++) {
+            block[i] = getWord(bytes, bytesStart);
+            bytesStart += 4;
+        }
+        hashBlock(block, hash);
     }
 
     // returns 32-bit word, big-endian
-    private static int getWord(byte[] bytes, int bytesStart) {
+    static int getWord(byte[] bytes, int bytesStart) {
         return bytes[bytesStart] << 24 |
                 (bytes[++bytesStart] & 0xFF) << 16 |
                 (bytes[++bytesStart] & 0xFF) << 8 |
                 (bytes[++bytesStart] & 0xFF);
     }
 
-    private static void hashBlock(int[] block, int[] hash) {
+    // processes 16 words of the block, uses the rest of the block as a buffer
+    static void hashBlock(int[] block, int[] hash) {
         // extend the first 16 words into the remaining 48 words
         for (int i = 16; i < 64; i++) {
             block[i] = block[i - 16] + sum0(block[i - 15]) + block[i - 7] + sum1(block[i - 2]);
@@ -161,4 +364,10 @@ public class Sha256 {
     private static int maj(int a, int b, int c) {
         return (a & b) ^ (a & c) ^ (b & c);
     }
+
+    public static class Exception extends RuntimeException {
+        private Exception(String message) {
+            super(message);
+        }
+    }
 }
\ No newline at end of file
@@ -17,6 +17,8 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Addresses {
     private static final String[] seeds = new String[]{
@@ -29,8 +31,10 @@ public class Addresses {
     };
     private static int seedsPos = 0;
     private static Iterator<NetAddress> seedIterator;
-    private static final ArrayList<NetAddress> receivedAddresses = new ArrayList<>(); // synchronized object
+    private static final ArrayList<NetAddress> receivedAddresses = new ArrayList<>();
     private static int receivedAddressesPos = 0;
+    private static final ReentrantLock lock = new ReentrantLock(); // not a monitor, it is held during blocking io
+    private static final Executor saver = Tasks.serialExecutor(); // writes addresses outside of the selector thread
 
     /**
      * prints info about entered number of NetAddresses
@@ -69,7 +73,8 @@ public class Addresses {
      * @return next NetAddress
      */
     public static NetAddress next() {
-        synchronized (receivedAddresses) {
+        lock.lock();
+        try {
             if (receivedAddressesPos < receivedAddresses.size()) {
                 return receivedAddresses.get(receivedAddressesPos++);
             }
@@ -89,6 +94,8 @@ public class Addresses {
             seedIterator = null;
             seedsPos = 0;
             return next();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -102,8 +109,9 @@ public class Addresses {
         if (addr == null) {
             throw new NullPointerException();
         }
-        new Thread(() -> {
-            synchronized (receivedAddresses) {
+        saver.execute(() -> {
+            lock.lock();
+            try {
                 Iterator<NetAddress> iterator = addr.getIterator();
                 NetAddress netAddress;
                 while (iterator.hasNext()) {
@@ -114,8 +122,10 @@ public class Addresses {
                     receivedAddresses.add(netAddress);
                     Storage.writeAddress(netAddress);
                 }
+            } finally {
+                lock.unlock();
             }
-        }).start();
+        });
     }
 
     private static Iterator<NetAddress> loadSeed(String seed) {
@@ -4,28 +4,37 @@ loads blocks from the memory or nodes; synchronized
 usage:
     $ java com.aqoleg.data.BlockLoader 000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f
 
-    Block block = BlockLoader.getBlock(blockHashString);
-    boolean hasData = BlockLoader.hasDataToDownload();
-    BlockLoader.writeGetData(outputStream);
+    Block block = BlockLoader.getBlock(blockHash);
+    CompletableFuture<Block> future = BlockLoader.getBlockAsync(blockHash);
+    CompletableFuture<List<Block>> future = BlockLoader.getBlocks(blockHashes);
+    BlockLoader.downloadBlocks(blockHashes, consumer);
+    BlockLoader.addPeer(peer);
+    BlockLoader.removePeer(peer);
+    BlockLoader.checkTimeouts();
     BlockLoader.onBlockReceive(blockReceived);
+
+blocks are downloaded by the BlockScheduler, each block is requested from one node,
+up to 8 blocks in flight from each node, up to 32 blocks ahead of the first not delivered one,
+the received blocks wait in the memory for the previous ones, so the window is kept small;
+concurrent requests of the same block share one future, it is completed by the Tasks.executor()
+as soon as the block is received, so the dependent stages do not run in the connection thread
 */
 
 package com.aqoleg.data;
 
 import com.aqoleg.messages.Block;
-import com.aqoleg.messages.GetData;
-import com.aqoleg.messages.Inventory;
+import com.aqoleg.messages.Hash;
 import com.aqoleg.messages.Message;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 public class BlockLoader {
-    private static final ArrayList<String> hashes = new ArrayList<>(); // synchronized and wait/notify object
-    private static final HashMap<String, Block> blocks = new HashMap<>();
-    private static final GetData getData = new GetData(); // blocks to download
+    private static final ReentrantLock lock = new ReentrantLock(); // for the Storage and futures, not a monitor
+    private static final BlockScheduler scheduler = new BlockScheduler(8, 32, 20000);
+    private static final HashMap<Hash, CompletableFuture<Block>> futures = new HashMap<>();
 
     /**
      * prints info about block with entered hash
@@ -35,7 +44,7 @@ public class BlockLoader {
     public static void main(String[] args) {
         if (args.length == 1) {
             try {
-                System.out.println(getBlock(args[0]));
+                System.out.println(getBlock(Hash.fromHex(args[0])));
             } catch (Message.Exception exception) {
                 System.out.println(exception.getMessage());
             }
@@ -47,14 +56,14 @@ public class BlockLoader {
                 if (input.equals("exit")) {
                     ConnectionManager.stop();
                     try {
-                        Thread.sleep(2000);
+                        Tasks.join(2000);
                     } catch (InterruptedException exception) {
                         exception.printStackTrace();
                     }
                     System.exit(0);
                 }
                 try {
-                    System.out.println(getBlock(input));
+                    System.out.println(getBlock(Hash.fromHex(input)));
                 } catch (Message.Exception exception) {
                     System.out.println(exception.getMessage());
                 }
@@ -66,83 +75,121 @@ public class BlockLoader {
      * this method blocks the thread
      * if there is no block in the storage, it downloads it from nodes and saves it
      *
-     * @param hash 64 lower-case hex symbols with reversed endianness
+     * @param hash hash of the block
      * @return Block with this hash
      * @throws NullPointerException if hash == null
-     * @throws Message.Exception    if hash is incorrect
      */
-    public static Block getBlock(String hash) {
-        synchronized (hashes) {
+    public static Block getBlock(Hash hash) {
+        return getBlockAsync(hash).join();
+    }
+
+    /**
+     * if there is no block in the storage, it downloads it from nodes and saves it
+     *
+     * @param hash hash of the block
+     * @return CompletableFuture with the Block with this hash, the same for the concurrent requests,
+     * completed exceptionally if the received block cannot be saved
+     * @throws NullPointerException if hash == null
+     */
+    public static CompletableFuture<Block> getBlockAsync(Hash hash) {
+        if (hash == null) {
+            throw new NullPointerException();
+        }
+        CompletableFuture<Block> future;
+        lock.lock();
+        try {
+            future = futures.get(hash);
+            if (future != null) {
+                return future;
+            }
             Block block = Storage.readBlock(hash);
             if (block != null) {
-                return block;
-            }
-
-            Inventory inventory = Inventory.create(Inventory.typeMsgBlock, hash); // throws if hash is incorrect
-            hash = inventory.getHash(); // normalize
-            hashes.add(hash);
-            getData.add(inventory);
-            while (true) {
-                block = blocks.get(hash);
-                if (block != null) {
-                    if (!hashes.remove(hash)) {
-                        new RuntimeException().printStackTrace();
-                    }
-                    if (!hashes.contains(hash)) {
-                        Storage.writeBlock(hash, block);
-                        blocks.remove(hash);
-                        if (!getData.remove(inventory)) {
-                            new RuntimeException().printStackTrace();
-                        }
-                    }
-                    return block;
-                }
-                ConnectionManager.downloadBlock();
-                try {
-                    hashes.wait();
-                } catch (InterruptedException exception) {
-                    exception.printStackTrace();
-                }
+                return CompletableFuture.completedFuture(block);
             }
+            future = new CompletableFuture<>();
+            futures.put(hash, future);
+        } finally {
+            lock.unlock();
         }
+        downloadBlocks(Collections.singletonList(hash), block -> Tasks.executor().execute(() -> {
+            RuntimeException exception = null;
+            CompletableFuture<Block> completed;
+            lock.lock();
+            try {
+                Storage.writeBlock(hash, block);
+            } catch (RuntimeException e) {
+                exception = e;
+            } finally {
+                completed = futures.remove(hash);
+                lock.unlock();
+            }
+            if (exception == null) {
+                completed.complete(block);
+            } else {
+                completed.completeExceptionally(exception);
+            }
+        }));
+        return future;
     }
 
     /**
-     * @return true if there are blocks to download
+     * each block is completed independently, as soon as it is received
+     *
+     * @param hashes hashes of the blocks
+     * @return CompletableFuture with the list of the blocks in the same order as hashes
+     * @throws NullPointerException if hashes == null or contains null
      */
-    static boolean hasDataToDownload() {
-        synchronized (hashes) {
-            return getData.size() > 0;
+    public static CompletableFuture<List<Block>> getBlocks(Collection<Hash> hashes) {
+        ArrayList<CompletableFuture<Block>> blockFutures = new ArrayList<>(hashes.size());
+        for (Hash hash : hashes) {
+            blockFutures.add(getBlockAsync(hash));
         }
+        return CompletableFuture.allOf(blockFutures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            ArrayList<Block> blocks = new ArrayList<>(blockFutures.size());
+            for (CompletableFuture<Block> future : blockFutures) {
+                blocks.add(future.join());
+            }
+            return blocks;
+        });
     }
 
     /**
-     * writes GetData message
+     * downloads blocks from nodes without saving them
      *
-     * @param outputStream to write message in
-     * @throws IOException if cannot write
+     * @param hashes   hashes of the blocks, for example, from the HeaderChain
+     * @param consumer receives blocks in the same order as hashes in the connection thread, must not wait
+     * @throws NullPointerException if hashes == null or contains null or consumer == null
      */
-    static void writeGetData(OutputStream outputStream) throws IOException {
-        synchronized (hashes) {
-            if (getData.size() > 0) {
-                outputStream.write(getData.toByteArray());
-            }
-        }
+    public static void downloadBlocks(Collection<Hash> hashes, Consumer<Block> consumer) {
+        ConnectionManager.start();
+        scheduler.add(hashes, consumer);
+    }
+
+    /**
+     * @param peer connected node
+     */
+    static void addPeer(BlockScheduler.Peer peer) {
+        scheduler.addPeer(peer);
+    }
+
+    /**
+     * @param peer disconnected node
+     */
+    static void removePeer(BlockScheduler.Peer peer) {
+        scheduler.removePeer(peer);
+    }
+
+    /**
+     * requests again blocks which are not received in time
+     */
+    static void checkTimeouts() {
+        scheduler.checkTimeouts();
     }
 
     /**
      * @param block new Block has been received
      */
     static void onBlockReceive(Block block) {
-        synchronized (hashes) {
-            String hash = block.getHash();
-            if (!hashes.contains(hash)) {
-                return;
-            }
-            if (!blocks.containsKey(hash)) {
-                blocks.put(hash, block);
-            }
-            hashes.notifyAll();
-        }
+        scheduler.onBlockReceive(block);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,249 @@
+/*
+schedules block downloads across peers; thread-safe
+
+usage:
+    BlockScheduler scheduler = new BlockScheduler(window, maxAhead, timeout);
+    scheduler.addPeer(peer);
+    scheduler.removePeer(peer);
+    scheduler.add(hashes, consumer);
+    boolean expected = scheduler.onBlockReceive(block);
+    scheduler.checkTimeouts();
+    int size = scheduler.size();
+
+each block is requested from only one peer, the peer with the least number of blocks in flight,
+each peer has at most window blocks in flight, so the download is spread over all peers;
+only the first maxAhead not delivered blocks are requested, the received blocks are held in the memory
+until the previous ones are delivered, so maxAhead limits both the blocks in flight and the held blocks;
+the block which is not received during the timeout is requested again from another peer, if there is one;
+the blocks from the one add() are passed to its consumer in the same order as the hashes,
+the consumer is called inside the lock of the scheduler and must not use the scheduler or wait
+*/
+
+package com.aqoleg.data;
+
+import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Hash;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+public class BlockScheduler {
+    private final int window;
+    private final int maxAhead;
+    private final long timeout;
+    private final LinkedHashMap<Hash, Request> requests = new LinkedHashMap<>(); // not delivered, in request order
+    private final HashMap<Peer, Integer> peers = new HashMap<>(); // blocks in flight
+
+    /**
+     * @param window   max number of blocks in flight from one peer
+     * @param maxAhead max number of the requested not delivered blocks
+     * @param timeout  milliseconds to wait for the block before requesting it again
+     * @throws IllegalArgumentException if window < 1 or maxAhead < 1 or timeout < 1
+     */
+    public BlockScheduler(int window, int maxAhead, long timeout) {
+        if (window < 1 || maxAhead < 1 || timeout < 1) {
+            throw new IllegalArgumentException("incorrect parameters");
+        }
+        this.window = window;
+        this.maxAhead = maxAhead;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param peer new peer to request blocks from
+     * @throws NullPointerException if peer == null
+     */
+    public synchronized void addPeer(Peer peer) {
+        if (peer == null) {
+            throw new NullPointerException();
+        }
+        if (!peers.containsKey(peer)) {
+            peers.put(peer, 0);
+            schedule();
+        }
+    }
+
+    /**
+     * blocks in flight from this peer will be requested from other peers
+     *
+     * @param peer disconnected peer
+     */
+    public synchronized void removePeer(Peer peer) {
+        if (peers.remove(peer) == null) {
+            return;
+        }
+        for (Request request : requests.values()) {
+            if (request.peer == peer) {
+                request.peer = null;
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * requests blocks, already requested blocks are not requested again
+     *
+     * @param hashes   hashes of the blocks
+     * @param consumer receives blocks in the same order as hashes, in the thread which received the last block
+     *                 or in this thread if the blocks were already received
+     * @throws NullPointerException if hashes == null or contains null or consumer == null
+     */
+    public synchronized void add(Collection<Hash> hashes, Consumer<Block> consumer) {
+        if (consumer == null) {
+            throw new NullPointerException();
+        }
+        Batch batch = new Batch(consumer);
+        for (Hash hash : hashes) {
+            if (hash == null) {
+                throw new NullPointerException();
+            }
+            batch.hashes.add(hash);
+        }
+        for (Hash hash : batch.hashes) {
+            Request request = requests.get(hash);
+            if (request == null) {
+                request = new Request();
+                requests.put(hash, request);
+            }
+            request.batches.add(batch);
+        }
+        // blocks already received for the earlier batches
+        batch.deliver();
+        schedule();
+    }
+
+    /**
+     * @param block received Block
+     * @return true if the block was requested
+     * @throws NullPointerException if block == null
+     */
+    public synchronized boolean onBlockReceive(Block block) {
+        Hash hash = block.getHash();
+        Request request = requests.get(hash);
+        if (request == null || request.block != null) {
+            return false;
+        }
+        request.block = block;
+        if (request.peer != null) {
+            peers.put(request.peer, peers.get(request.peer) - 1);
+            request.peer = null;
+        }
+        for (Batch batch : new ArrayList<>(request.batches)) {
+            batch.deliver();
+        }
+        schedule();
+        return true;
+    }
+
+    /**
+     * requests again the blocks which are not received during the timeout
+     */
+    public synchronized void checkTimeouts() {
+        long time = System.currentTimeMillis();
+        for (Request request : requests.values()) {
+            if (request.peer != null && time - request.time > timeout) {
+                peers.put(request.peer, peers.get(request.peer) - 1);
+                request.slowPeer = request.peer;
+                request.peer = null;
+            }
+        }
+        schedule();
+    }
+
+    /**
+     * @return number of the not delivered blocks
+     */
+    public synchronized int size() {
+        return requests.size();
+    }
+
+    // assigns not requested blocks to peers and sends requests
+    private void schedule() {
+        if (peers.isEmpty()) {
+            return;
+        }
+        HashMap<Peer, ArrayList<Hash>> toSend = new HashMap<>();
+        long time = System.currentTimeMillis();
+        int ahead = 0;
+        for (Map.Entry<Hash, Request> entry : requests.entrySet()) {
+            if (ahead++ >= maxAhead) {
+                break;
+            }
+            Request request = entry.getValue();
+            if (request.block != null || request.peer != null) {
+                continue;
+            }
+            Peer peer = getFreePeer(request.slowPeer);
+            if (peer == null) {
+                continue;
+            }
+            peers.put(peer, peers.get(peer) + 1);
+            request.peer = peer;
+            request.time = time;
+            toSend.computeIfAbsent(peer, key -> new ArrayList<>()).add(entry.getKey());
+        }
+        for (Map.Entry<Peer, ArrayList<Hash>> entry : toSend.entrySet()) {
+            entry.getKey().request(entry.getValue());
+        }
+    }
+
+    // returns the least loaded peer with free window, slowPeer only if there is no other one, or null
+    private Peer getFreePeer(Peer slowPeer) {
+        Peer free = null;
+        int inFlight = window;
+        for (Map.Entry<Peer, Integer> entry : peers.entrySet()) {
+            if (entry.getValue() < inFlight && (entry.getKey() != slowPeer || peers.size() == 1)) {
+                free = entry.getKey();
+                inFlight = entry.getValue();
+            }
+        }
+        return free;
+    }
+
+    /**
+     * source of the blocks
+     */
+    public interface Peer {
+
+        /**
+         * sends the request, the received blocks must be passed to onBlockReceive()
+         *
+         * @param hashes hashes of the blocks
+         */
+        void request(List<Hash> hashes);
+    }
+
+    private static class Request {
+        private final ArrayList<Batch> batches = new ArrayList<>(1);
+        private Block block;
+        private Peer peer; // peer in flight or null
+        private Peer slowPeer; // peer which has not sent the block in time or null
+        private long time; // time of the request
+    }
+
+    // hashes from one add()
+    private class Batch {
+        private final ArrayDeque<Hash> hashes = new ArrayDeque<>();
+        private final Consumer<Block> consumer;
+
+        private Batch(Consumer<Block> consumer) {
+            this.consumer = consumer;
+        }
+
+        // passes received blocks from the start of the batch to the consumer
+        private void deliver() {
+            while (!hashes.isEmpty()) {
+                Request request = requests.get(hashes.peek());
+                if (request.block == null) {
+                    return;
+                }
+                Hash hash = hashes.poll();
+                request.batches.remove(this);
+                if (request.batches.isEmpty()) {
+                    requests.remove(hash);
+                }
+                consumer.accept(request.block);
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+append-only store of blocks in the segment files; thread-safe
+
+usage:
+    BlockStore blockStore = new BlockStore(directory);
+    BlockStore blockStore = new BlockStore(directory, segmentSize);
+    int size = blockStore.size();
+    boolean contains = blockStore.contains(blockHash);
+    Block block = blockStore.read(blockHash);
+    boolean written = blockStore.write(blockHash, block);
+    boolean removed = blockStore.remove(blockHash);
+    blockStore.close();
+
+directory:
+    blk00000.dat   - segment, the next one is started when the current one reaches the segmentSize
+    blk00001.dat
+
+segment bytes:
+    record[]:
+        intLE, magic, 0xd9b4bef9
+        intLE, length, 0 if the block with this hash is removed
+        intLE, crc32 of the block bytes
+        byte[32], hash of the block
+        byte[length], block
+
+the index hash -> (segment, offset, length) is kept in the memory and it is rebuilt from the record headers
+when the store is opened; each record is appended with one write and forced to the disk,
+so after the crash only the tail of the last segment can be incorrect, records of the last segment are checked
+with crc32 and the incorrect tail is truncated;
+removed blocks are not deleted from the segments, the space is not reused;
+blocks are views of the read-only memory-mapped segments, they are read only when they are used;
+the full segments are mapped once, the last segment grows, so only the record of the block is mapped from it
+*/
+
+package com.aqoleg.data;
+
+import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Hash;
+import com.aqoleg.messages.Message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+public class BlockStore {
+    public static final int defaultSegmentSize = 128 * 1024 * 1024;
+    private static final int magic = 0xd9b4bef9;
+    private static final int headerSize = 4 + 4 + 4 + 32; // magic, length, crc32, hash
+    private final File directory;
+    private final int segmentSize;
+    private final HashMap<Hash, Location> index = new HashMap<>();
+    private final ArrayList<MappedByteBuffer> mappedSegments = new ArrayList<>(); // null if not mapped yet
+    private FileChannel lastSegment; // opened for appending
+    private long lastSegmentSize;
+
+    /**
+     * opens the store with the defaultSegmentSize, creates the directory if there is no
+     *
+     * @param directory directory with the segment files
+     * @throws NullPointerException if directory == null
+     * @throws IOException          if cannot read or create files
+     */
+    public BlockStore(File directory) throws IOException {
+        this(directory, defaultSegmentSize);
+    }
+
+    /**
+     * opens the store, creates the directory if there is no
+     *
+     * @param directory   directory with the segment files
+     * @param segmentSize size in bytes after which the next segment is started
+     * @throws NullPointerException if directory == null
+     * @throws IOException          if cannot read or create files
+     */
+    public BlockStore(File directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can not create directory " + directory);
+        }
+        int segment = 0;
+        while (getSegmentFile(segment + 1).isFile()) {
+            segment++;
+        }
+        for (int i = 0; i < segment; i++) {
+            try (FileChannel fileChannel = FileChannel.open(getSegmentFile(i).toPath(), StandardOpenOption.READ)) {
+                readIndex(i, fileChannel, false);
+            }
+            mappedSegments.add(null);
+        }
+        openLastSegment(segment);
+    }
+
+    /**
+     * @return number of blocks in the store
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * @param hash hash of the block
+     * @return true if the store contains the block with this hash
+     * @throws NullPointerException if hash == null
+     */
+    public synchronized boolean contains(Hash hash) {
+        if (hash == null) {
+            throw new NullPointerException();
+        }
+        return index.containsKey(hash);
+    }
+
+    /**
+     * @param hash hash of the block
+     * @return Block, the view of the mapped segment, or null if there is no block with this hash
+     * @throws NullPointerException if hash == null
+     * @throws IOException          if cannot read
+     * @throws Message.Exception    if stored bytes are incorrect
+     */
+    public synchronized Block read(Hash hash) throws IOException {
+        if (hash == null) {
+            throw new NullPointerException();
+        }
+        Location location = index.get(hash);
+        if (location == null) {
+            return null;
+        }
+        if (location.segment == mappedSegments.size() - 1) {
+            return new Block(lastSegment.map(FileChannel.MapMode.READ_ONLY, location.offset, location.length));
+        }
+        ByteBuffer byteBuffer = getMappedSegment(location.segment).duplicate();
+        byteBuffer.limit(location.offset + location.length).position(location.offset);
+        return new Block(byteBuffer);
+    }
+
+    /**
+     * appends the block to the last segment
+     *
+     * @param hash  hash of the block
+     * @param block Block to write
+     * @return false if the store already contains the block with this hash
+     * @throws NullPointerException if hash == null or block == null
+     * @throws IOException          if cannot write
+     */
+    public synchronized boolean write(Hash hash, Block block) throws IOException {
+        if (hash == null || block == null) {
+            throw new NullPointerException();
+        }
+        if (index.containsKey(hash)) {
+            return false;
+        }
+        ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(block.getSize());
+        block.write(blockBytes);
+        byte[] bytes = blockBytes.toByteArray();
+        if (lastSegmentSize > 0 && lastSegmentSize + headerSize + bytes.length > segmentSize) {
+            lastSegment.close();
+            openLastSegment(mappedSegments.size());
+        }
+        int offset = append(hash, bytes);
+        index.put(hash, new Location(mappedSegments.size() - 1, offset, bytes.length));
+        return true;
+    }
+
+    /**
+     * appends the record, that the block is removed
+     *
+     * @param hash hash of the block
+     * @return false if the store contains no block with this hash
+     * @throws NullPointerException if hash == null
+     * @throws IOException          if cannot write
+     */
+    public synchronized boolean remove(Hash hash) throws IOException {
+        if (hash == null) {
+            throw new NullPointerException();
+        }
+        if (!index.containsKey(hash)) {
+            return false;
+        }
+        append(hash, new byte[0]);
+        index.remove(hash);
+        return true;
+    }
+
+    /**
+     * closes the last segment, the store can not be used after it, blocks read before remain readable
+     *
+     * @throws IOException if cannot close
+     */
+    public synchronized void close() throws IOException {
+        lastSegment.close();
+    }
+
+    private File getSegmentFile(int segment) {
+        return new File(directory, String.format("blk%05d.dat", segment));
+    }
+
+    // reads records and puts them into the index, returns the size of the correct records
+    private long readIndex(int segment, FileChannel fileChannel, boolean checkCrc) throws IOException {
+        long size = fileChannel.size();
+        ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc32 = new CRC32();
+        ByteBuffer block = checkCrc ? ByteBuffer.allocate(0) : null;
+        long position = 0;
+        while (position + headerSize <= size) {
+            header.clear();
+            if (fileChannel.read(header, position) != headerSize || header.getInt(0) != magic) {
+                break;
+            }
+            int length = header.getInt(4);
+            if (length < 0 || length > size - position - headerSize) {
+                break;
+            }
+            if (checkCrc) {
+                if (block.capacity() < length) {
+                    block = ByteBuffer.allocate(length);
+                }
+                block.clear().limit(length);
+                if (fileChannel.read(block, position + headerSize) != length) {
+                    break;
+                }
+                crc32.reset();
+                crc32.update(block.array(), 0, length);
+                if ((int) crc32.getValue() != header.getInt(8)) {
+                    break;
+                }
+            }
+            byte[] hashBytes = new byte[32];
+            header.position(12);
+            header.get(hashBytes);
+            Hash hash = Hash.fromBytes(hashBytes);
+            if (length == 0) {
+                index.remove(hash);
+            } else {
+                index.put(hash, new Location(segment, (int) (position + headerSize), length));
+            }
+            position += headerSize + length;
+        }
+        return position;
+    }
+
+    // opens the segment for appending, truncates the incorrect tail
+    private void openLastSegment(int segment) throws IOException {
+        lastSegment = FileChannel.open(
+                getSegmentFile(segment).toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        );
+        lastSegmentSize = readIndex(segment, lastSegment, true);
+        if (lastSegment.size() != lastSegmentSize) {
+            lastSegment.truncate(lastSegmentSize);
+            lastSegment.force(true);
+        }
+        mappedSegments.add(null);
+    }
+
+    // writes the record into the end of the last segment and forces it, returns the offset of the bytes
+    private int append(Hash hash, byte[] bytes) throws IOException {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes);
+        ByteBuffer record = ByteBuffer.allocate(headerSize + bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(magic).putInt(bytes.length).putInt((int) crc32.getValue());
+        record.put(hash.getBytes()).put(bytes).flip();
+        long position = lastSegmentSize;
+        while (record.hasRemaining()) {
+            position += lastSegment.write(record, position);
+        }
+        lastSegment.force(false);
+        int offset = (int) lastSegmentSize + headerSize;
+        lastSegmentSize = position;
+        return offset;
+    }
+
+    // maps the full segment, it is not changed after the next segment is started
+    private MappedByteBuffer getMappedSegment(int segment) throws IOException {
+        MappedByteBuffer mappedSegment = mappedSegments.get(segment);
+        if (mappedSegment == null) {
+            File file = getSegmentFile(segment);
+            try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                mappedSegment = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+            }
+            mappedSegments.set(segment, mappedSegment);
+        }
+        return mappedSegment;
+    }
+
+    private static class Location {
+        private final int segment;
+        private final int offset; // offset of the block bytes in the segment
+        private final int length;
+
+        private Location(int segment, int offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,378 @@
+/*
+verifies all inputs of all transactions of the block in parallel; thread-safe
+
+usage:
+    BlockVerifier verifier = new BlockVerifier(outputLookup);
+    BlockVerifier verifier = new BlockVerifier(forkJoinPoolOrExecutorService, outputLookup);
+    verifier.checkBlock(block, height);
+    BlockVerifier.Result result = verifier.verify(block);
+    boolean verified = result.isVerified();
+    int inputNumber = result.size();
+    BlockVerifier.InputResult inputResult = result.get(i);
+    ArrayList<BlockVerifier.InputResult> failed = result.getFailed();
+    int txIndex = inputResult.txIndex;
+    int inputIndex = inputResult.inputIndex;
+    int status = inputResult.status;
+    String error = inputResult.error;
+
+outputs spent by the transactions of the same block are found in the block,
+all other outputs are requested from the OutputLookup, which must be thread-safe;
+checkBlock() checks the block without scripts, the header commits to the transactions by the merkle root,
+so the block from the node with the header of the chain can not have other transactions
+*/
+
+package com.aqoleg.data;
+
+import com.aqoleg.crypto.Ecc;
+import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Hash;
+import com.aqoleg.messages.Message;
+import com.aqoleg.messages.Transaction;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+
+public class BlockVerifier {
+    public static final int verified = 0;
+    public static final int coinbase = 1; // coinbase input, nothing to verify
+    public static final int noPreviousOutput = 2; // output spent by the input was not found
+    public static final int notVerified = 3;
+    private static final int inputsPerTask = 32; // inputs verified in one task with one Ecc.Batch
+    private static final long maxMoney = 21000000L * 100000000L; // satoshi
+    private static final long initialSubsidy = 50L * 100000000L; // satoshi
+    private static final int halvingInterval = 210000; // blocks
+    private final ExecutorService executor;
+    private final OutputLookup outputLookup;
+
+    /**
+     * creates BlockVerifier using the common ForkJoinPool
+     *
+     * @param outputLookup OutputLookup for outputs not from the verifying block
+     * @throws NullPointerException if outputLookup == null
+     */
+    public BlockVerifier(OutputLookup outputLookup) {
+        this(ForkJoinPool.commonPool(), outputLookup);
+    }
+
+    /**
+     * @param executor     ForkJoinPool or other ExecutorService for verification tasks
+     * @param outputLookup OutputLookup for outputs not from the verifying block
+     * @throws NullPointerException if executor == null or outputLookup == null
+     */
+    public BlockVerifier(ExecutorService executor, OutputLookup outputLookup) {
+        if (executor == null || outputLookup == null) {
+            throw new NullPointerException();
+        }
+        this.executor = executor;
+        this.outputLookup = outputLookup;
+    }
+
+    /**
+     * this method blocks the thread until all inputs are verified
+     *
+     * @param block Block to verify
+     * @return Result with the status of each input
+     * @throws NullPointerException if block == null
+     * @throws Exception            if the thread was interrupted or verification task failed
+     */
+    public Result verify(Block block) {
+        Verification verification = new Verification(block);
+        int size = verification.results.length;
+        if (executor instanceof ForkJoinPool) {
+            ((ForkJoinPool) executor).invoke(new Task(verification, 0, size));
+        } else {
+            ArrayList<Callable<Void>> tasks = new ArrayList<>();
+            for (int from = 0; from < size; from += inputsPerTask) {
+                int start = from;
+                tasks.add(() -> {
+                    verification.verify(start, Math.min(start + inputsPerTask, size));
+                    return null;
+                });
+            }
+            try {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new Exception("interrupted");
+            } catch (ExecutionException exception) {
+                if (exception.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) exception.getCause();
+                }
+                throw new Exception(exception.getCause().toString());
+            }
+        }
+        return new Result(verification.results);
+    }
+
+    /**
+     * checks that the transactions are committed by the merkle root, the coinbase is the first transaction only,
+     * outputs are not more than inputs and the coinbase is not more than the subsidy and the fees
+     *
+     * @param block  Block to check
+     * @param height height of the block in the chain
+     * @throws NullPointerException if block == null
+     * @throws Message.Exception    if block bytes are incorrect
+     * @throws Exception            if the block is incorrect or spends missing output
+     */
+    public void checkBlock(Block block, int height) {
+        if (!block.checkMerkleRoot()) {
+            throw new Exception("incorrect merkle root");
+        }
+        long fees = 0;
+        for (int i = 0; i < block.txNumber(); i++) {
+            Transaction transaction = block.getTx(i);
+            if (transaction.isCoinbase() != (i == 0)) {
+                throw new Exception("incorrect coinbase in tx " + i);
+            }
+            long value = getOutputValue(transaction, i);
+            if (i == 0) {
+                continue;
+            }
+            long inputValue = 0;
+            for (int j = 0; j < transaction.inputNumber(); j++) {
+                Transaction.Output output = getOutput(
+                        block,
+                        i,
+                        transaction.getPreviousTxHash(j),
+                        transaction.getPreviousOutIndex(j)
+                );
+                if (output == null) {
+                    throw new Exception("missing output in tx " + i + " input " + j);
+                }
+                inputValue += output.value;
+                if (inputValue > maxMoney) {
+                    throw new Exception("big input value in tx " + i);
+                }
+            }
+            if (inputValue < value) {
+                throw new Exception("outputs are more than inputs in tx " + i);
+            }
+            fees += inputValue - value;
+        }
+        int halvings = height / halvingInterval;
+        long subsidy = halvings >= 64 ? 0 : initialSubsidy >> halvings;
+        if (getOutputValue(block.getTx(0), 0) > subsidy + fees) {
+            throw new Exception("big coinbase value");
+        }
+    }
+
+    // sum of the output values of the tx
+    private static long getOutputValue(Transaction transaction, int txIndex) {
+        long value = 0;
+        for (int i = 0; i < transaction.outputNumber(); i++) {
+            long outputValue = transaction.getTxOutput(i).value;
+            if (outputValue < 0 || outputValue > maxMoney) {
+                throw new Exception("incorrect value in tx " + txIndex + " output " + i);
+            }
+            value += outputValue;
+            if (value > maxMoney) {
+                throw new Exception("big output value in tx " + txIndex);
+            }
+        }
+        return value;
+    }
+
+    // only earlier transactions of the same block can be spent
+    private Transaction.Output getOutput(Block block, int txIndex, Hash previousTxHash, int previousOutIndex) {
+        int previousTxIndex = block.getTxIndex(previousTxHash);
+        if (previousTxIndex < 0) {
+            return outputLookup.getOutput(previousTxHash, previousOutIndex);
+        } else if (previousTxIndex >= txIndex) {
+            return null;
+        }
+        try {
+            return block.getTx(previousTxIndex).getTxOutput(previousOutIndex);
+        } catch (IndexOutOfBoundsException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * resolves outputs spent by the inputs; must be thread-safe
+     */
+    public interface OutputLookup {
+
+        /**
+         * @param txHash   hash of the tx
+         * @param outIndex index of the output in the tx
+         * @return Transaction.Output or null if not found
+         */
+        Transaction.Output getOutput(Hash txHash, int outIndex);
+    }
+
+    public static class Result {
+        private final InputResult[] results;
+
+        private Result(InputResult[] results) {
+            this.results = results;
+        }
+
+        @Override
+        public String toString() {
+            return "verified: " + isVerified() + ", inputs: " + results.length + ", failed: " + getFailed();
+        }
+
+        /**
+         * @return true if all inputs are verified
+         */
+        public boolean isVerified() {
+            for (InputResult result : results) {
+                if (result.status != verified && result.status != coinbase) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return number of inputs in the block
+         */
+        public int size() {
+            return results.length;
+        }
+
+        /**
+         * @param i index of the input in the block, inputs are in the order of transactions
+         * @return InputResult
+         * @throws IndexOutOfBoundsException if i is incorrect
+         */
+        public InputResult get(int i) {
+            return results[i];
+        }
+
+        /**
+         * @return all not verified inputs
+         */
+        public ArrayList<InputResult> getFailed() {
+            ArrayList<InputResult> failed = new ArrayList<>();
+            for (InputResult result : results) {
+                if (result.status != verified && result.status != coinbase) {
+                    failed.add(result);
+                }
+            }
+            return failed;
+        }
+    }
+
+    public static class InputResult {
+        public final int txIndex; // index of the transaction in the block
+        public final int inputIndex; // index of the input in the transaction
+        public final int status;
+        public final String error; // null if there is no error
+
+        private InputResult(int txIndex, int inputIndex, int status, String error) {
+            this.txIndex = txIndex;
+            this.inputIndex = inputIndex;
+            this.status = status;
+            this.error = error;
+        }
+
+        @Override
+        public String toString() {
+            return "tx: " + txIndex + ", input: " + inputIndex + ", status: " + status
+                    + (error == null ? "" : ", error: " + error);
+        }
+    }
+
+    public static class Exception extends RuntimeException {
+        private Exception(String message) {
+            super(message);
+        }
+    }
+
+    // verification of one block, shared by tasks; each task writes its own range of results
+    private class Verification {
+        private final Block block;
+        private final int[] inputTxIndexes;
+        private final int[] inputIndexes;
+        private final InputResult[] results;
+
+        private Verification(Block block) {
+            this.block = block;
+            int size = 0;
+            for (int i = 0; i < block.txNumber(); i++) {
+                size += block.getTx(i).inputNumber();
+            }
+            inputTxIndexes = new int[size];
+            inputIndexes = new int[size];
+            results = new InputResult[size];
+            size = 0;
+            for (int i = 0; i < block.txNumber(); i++) {
+                for (int j = 0; j < block.getTx(i).inputNumber(); j++) {
+                    inputTxIndexes[size] = i;
+                    inputIndexes[size++] = j;
+                }
+            }
+        }
+
+        // verifies inputs from start inclusive to end exclusive
+        private void verify(int start, int end) {
+            Ecc.Batch batch = new Ecc.Batch();
+            int[] batchIndexes = new int[end - start];
+            for (int i = start; i < end; i++) {
+                batchIndexes[i - start] = -1;
+                int txIndex = inputTxIndexes[i];
+                int inputIndex = inputIndexes[i];
+                Transaction transaction = block.getTx(txIndex);
+                if (transaction.isCoinbase()) {
+                    results[i] = new InputResult(txIndex, inputIndex, coinbase, null);
+                    continue;
+                }
+                Transaction.Output output = getOutput(
+                        block,
+                        txIndex,
+                        transaction.getPreviousTxHash(inputIndex),
+                        transaction.getPreviousOutIndex(inputIndex)
+                );
+                if (output == null) {
+                    results[i] = new InputResult(txIndex, inputIndex, noPreviousOutput, null);
+                    continue;
+                }
+                try {
+                    batchIndexes[i - start] = transaction.verifyInput(inputIndex, output, batch);
+                    results[i] = new InputResult(txIndex, inputIndex, verified, null);
+                } catch (Message.Exception exception) {
+                    results[i] = new InputResult(txIndex, inputIndex, notVerified, exception.getMessage());
+                }
+            }
+            boolean[] verifiedSignatures = batch.verify();
+            for (int i = start; i < end; i++) {
+                int batchIndex = batchIndexes[i - start];
+                if (batchIndex >= 0 && !verifiedSignatures[batchIndex]) {
+                    String error = "incorrect signature";
+                    results[i] = new InputResult(inputTxIndexes[i], inputIndexes[i], notVerified, error);
+                }
+            }
+        }
+    }
+
+    // splits the range of inputs until it is small enough for one batch
+    private static class Task extends RecursiveAction {
+        private final Verification verification;
+        private final int start;
+        private final int end;
+
+        private Task(Verification verification, int start, int end) {
+            this.verification = verification;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= inputsPerTask) {
+                verification.verify(start, end);
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new Task(verification, start, middle), new Task(verification, middle, end));
+            }
+        }
+    }
+}
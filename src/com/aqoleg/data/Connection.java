@@ -1,160 +1,440 @@
 /*
-connection with one socket
+connection with one node, non-blocking, runs in the selector thread of the ConnectionManager
 
 usage:
     Connection connection = new Connection();
     boolean isClosed = connection.closed();
-    connection.sendGetData();
-    connection.sendTransaction();
+    connection.request(blockHashes);
+    connection.sendGetHeaders();
+    connection.announce(inventories);
     connection.close();
+
+    connection.update(selector);
+    connection.onSelect(selectionKey);
+    connection.checkTimeout(currentTimeMillis);
+
+the channel is read into the pooled 64 KiB buffer and decoded in place, the bigger buffer is allocated only
+for the bigger requested message and is replaced with the pooled one after it, the block from the bigger buffer
+is its view, other payloads are copied once; other messages are skipped without buffering;
+messages from other threads are queued and written by the selector thread with the gathering writes,
+received headers are validated and added to the HeaderChain by one serial task, not by the selector thread,
+encoded messages are shared between the connections without copying;
+inventories known to the node are remembered in the rolling filter, they are not announced to it again;
+connecting and the handshake must be finished in 5 seconds
 */
 
 package com.aqoleg.data;
 
 import com.aqoleg.messages.*;
+import com.aqoleg.utils.BufferPool;
+import com.aqoleg.utils.RollingFilter;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.*;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.NoRouteToHostException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
-public class Connection {
-    private final Socket socket = new Socket();
-    private int version = 31800;
+public class Connection implements BlockScheduler.Peer {
+    private static final String[] commands = new String[]{Version.command, VerAck.command, Ping.command,
+            Addr.command, Block.command, Headers.command, Reject.command, Inv.command, GetData.command};
+    private static final long timeout = 5000; // milliseconds to connect and to finish the handshake
+    private static final BufferPool bufferPool = new BufferPool(64 * 1024, 256);
+    private static final Executor headersReceiver = Tasks.serialExecutor(); // adds headers out of the selector thread
+    private final NetAddress netAddress;
+    private final SocketChannel channel;
+    private final FrameDecoder decoder = new FrameDecoder(commands); // used only in the selector thread
+    private final ArrayDeque<Write> writeQueue = new ArrayDeque<>(); // synchronized object
+    private final ByteBuffer[] gather = new ByteBuffer[64]; // used only in the selector thread
+    private final RollingFilter knownInventory = new RollingFilter(50000, 0.000001); // synchronized object
+    private volatile int version = 31800;
+    private SelectionKey key; // used only in the selector thread
+    private ByteBuffer readBuffer; // used only in the selector thread
+    private long deadline; // 0 after the handshake
+    private volatile boolean handshaked = false;
 
     /**
-     * creates and starts new connection
+     * creates new connection with the next address, it will be started by the ConnectionManager
      */
     public Connection() {
-        new Thread(() -> {
-            try {
-                run(Addresses.next());
-            } catch (NoRouteToHostException | ConnectException | SocketTimeoutException ignored) {
-                close();
-            } catch (SocketException exception) {
-                String message = exception.getMessage();
-                if (!message.contains("Socket closed") && !message.contains("Connection reset")) {
-                    exception.printStackTrace();
-                }
-                close();
-            } catch (IOException exception) {
-                if (!exception.getMessage().contains("the end of stream")) {
-                    exception.printStackTrace();
+        netAddress = Addresses.next();
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.connect(new InetSocketAddress(netAddress.getInetAddress(), netAddress.getPort()));
+        } catch (IOException | UnresolvedAddressException | UnsupportedAddressTypeException exception) {
+            if (!(exception instanceof ConnectException || exception instanceof NoRouteToHostException)) {
+                exception.printStackTrace();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException closeException) {
+                    closeException.printStackTrace();
                 }
-                close();
             }
-        }).start();
+        }
+        this.channel = channel;
+        deadline = System.currentTimeMillis() + timeout;
+        if (!closed()) {
+            ConnectionManager.update(this);
+        }
     }
 
     /**
      * @return true if connection was closed and can be deleted
      */
     public boolean closed() {
-        return socket.isClosed();
+        return channel == null || !channel.isOpen();
     }
 
     /**
      * closes this connection
      */
     public void close() {
+        if (closed()) {
+            return;
+        }
+        BlockLoader.removePeer(this);
         try {
-            socket.close();
+            channel.close();
         } catch (IOException exception) {
             exception.printStackTrace();
         }
+        ConnectionManager.update(this);
+    }
+
+    /**
+     * sends GetData message with the blocks from the BlockLoader
+     *
+     * @param hashes hashes of the blocks
+     */
+    @Override
+    public void request(List<Hash> hashes) {
+        GetData getData = new GetData();
+        for (Hash hash : hashes) {
+            getData.add(Inventory.create(Inventory.typeMsgBlock, hash));
+            setKnown(hash);
+        }
+        FrameEncoder.Frame frame = getData.encode();
+        sendIfConnected(frame);
+        frame.release();
+    }
+
+    /**
+     * sends GetHeaders message from the HeaderSync
+     */
+    void sendGetHeaders() {
+        byte[] getHeaders = HeaderSync.getGetHeaders(version);
+        if (getHeaders != null) {
+            sendIfConnected(getHeaders);
+        }
     }
 
     /**
-     * sends GetData message from the BlockLoader
+     * sends Inv message with inventories from the InventoryRelay which the node does not know yet
+     *
+     * @param inventories inventories to announce
      */
-    void sendGetData() {
-        synchronized (socket) {
-            if (!socket.isConnected() || socket.isClosed()) {
-                return;
+    void announce(List<Inventory> inventories) {
+        if (!handshaked) {
+            return;
+        }
+        Inv inv = new Inv();
+        synchronized (knownInventory) {
+            for (Inventory inventory : inventories) {
+                byte[] key = inventory.getHash().getBytes();
+                if (!knownInventory.contains(key)) {
+                    knownInventory.add(key);
+                    inv.add(inventory);
+                }
             }
-            try {
-                OutputStream outputStream = socket.getOutputStream();
-                BlockLoader.writeGetData(outputStream);
-                outputStream.flush();
-            } catch (IOException exception) {
-                exception.printStackTrace();
+        }
+        if (inv.size() != 0) {
+            FrameEncoder.Frame frame = inv.encode();
+            sendIfConnected(frame);
+            frame.release();
+        }
+    }
+
+    /**
+     * selector thread only, registers the channel and requests writing of the queued messages,
+     * releases the buffers of the closed connection
+     *
+     * @param selector Selector of the ConnectionManager
+     */
+    void update(Selector selector) {
+        if (closed()) {
+            if (readBuffer != null) {
+                bufferPool.release(readBuffer);
+                readBuffer = null;
             }
+            synchronized (writeQueue) {
+                while (!writeQueue.isEmpty()) {
+                    writeQueue.pollFirst().release();
+                }
+            }
+            return;
+        }
+        try {
+            if (key == null) {
+                key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+            }
+            synchronized (writeQueue) {
+                if (!writeQueue.isEmpty() && channel.isConnected()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            }
+        } catch (ClosedChannelException | CancelledKeyException exception) {
+            close();
         }
     }
 
     /**
-     * sends Transaction message from the TransactionSender
+     * selector thread only, connects, reads or writes the ready channel
+     *
+     * @param key SelectionKey of this connection
      */
-    void sendTransaction() {
-        synchronized (socket) {
-            if (!socket.isConnected() || socket.isClosed()) {
-                return;
+    void onSelect(SelectionKey key) {
+        try {
+            if (key.isConnectable()) {
+                onConnect();
             }
-            try {
-                OutputStream outputStream = socket.getOutputStream();
-                TransactionSender.writeTransaction(outputStream);
-                outputStream.flush();
-            } catch (IOException exception) {
+            if (key.isValid() && key.isReadable()) {
+                onRead();
+            }
+            if (key.isValid() && key.isWritable()) {
+                onWrite();
+            }
+        } catch (ConnectException | NoRouteToHostException | CancelledKeyException ignored) {
+            close();
+        } catch (IOException exception) {
+            String message = exception.getMessage();
+            if (message == null || (!message.contains("the end of stream") && !message.contains("Connection reset"))) {
                 exception.printStackTrace();
             }
+            close();
+        }
+    }
+
+    /**
+     * selector thread only, closes the connection if it is not connected or handshaked in time
+     *
+     * @param time current time in milliseconds
+     */
+    void checkTimeout(long time) {
+        if (deadline != 0 && time > deadline) {
+            close();
         }
     }
 
-    private void run(NetAddress netAddress) throws IOException {
-        final String[] commands = new String[]{Version.command, VerAck.command, Ping.command, Addr.command,
-                Block.command, Reject.command};
-        InetSocketAddress socketAddress = new InetSocketAddress(netAddress.getInetAddress(), netAddress.getPort());
-        socket.connect(socketAddress, 5000);
-        socket.setSoTimeout(5000);
-        send(Version.create(version, netAddress).toByteArray());
-        InputStream inputStream = socket.getInputStream();
-        Message message;
-        do {
+    private void onConnect() throws IOException {
+        if (!channel.finishConnect()) {
+            return;
+        }
+        key.interestOps(SelectionKey.OP_READ);
+        deadline = System.currentTimeMillis() + timeout;
+        readBuffer = bufferPool.acquire().order(ByteOrder.LITTLE_ENDIAN);
+        FrameEncoder.Frame frame = Version.create(version, netAddress).encode();
+        send(frame);
+        frame.release();
+    }
+
+    private void onRead() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            throw new IOException("the end of stream");
+        }
+        readBuffer.flip();
+        while (!closed()) {
             try {
-                message = Message.read(inputStream, commands);
+                FrameDecoder.Frame frame = decoder.next(readBuffer);
+                if (frame == null) {
+                    break;
+                }
+                onMessage(toMessage(frame));
             } catch (Message.Exception exception) {
                 exception.printStackTrace();
-                continue;
             }
-            if (message instanceof Version) {
-                int version = ((Version) message).getVersion();
-                if (version < this.version) {
-                    this.version = version;
+        }
+        // keep the partial frame, the bigger buffer is allocated only when the frame does not fit
+        int required = decoder.getRequired();
+        if (required > readBuffer.capacity()) {
+            ByteBuffer bigBuffer = ByteBuffer.allocate(required).order(ByteOrder.LITTLE_ENDIAN);
+            bigBuffer.put(readBuffer);
+            bufferPool.release(readBuffer);
+            readBuffer = bigBuffer;
+        } else if (readBuffer.isDirect() || readBuffer.hasRemaining()) {
+            readBuffer.compact();
+        } else {
+            readBuffer = bufferPool.acquire().order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    // the big buffer holds only one frame and is dropped after it, so the block from it is the view without copying,
+    // payloads from the pooled buffer are copied
+    private Message toMessage(FrameDecoder.Frame frame) {
+        if (readBuffer.isDirect() || !frame.command.equals(Block.command)) {
+            return frame.toMessage();
+        }
+        ByteBuffer payload = readBuffer.duplicate(); // writable, so the block writes its array without copying
+        payload.limit(readBuffer.position());
+        payload.position(readBuffer.position() - frame.payload.remaining());
+        return new Block(payload);
+    }
+
+    // writes the queued messages with the gathering writes
+    private void onWrite() throws IOException {
+        synchronized (writeQueue) {
+            while (!writeQueue.isEmpty()) {
+                int n = 0;
+                for (Write write : writeQueue) {
+                    for (ByteBuffer buffer : write.buffers) {
+                        if (buffer.hasRemaining() && n < gather.length) {
+                            gather[n++] = buffer;
+                        }
+                    }
+                    if (n == gather.length) {
+                        break;
+                    }
                 }
-            } else if (message instanceof VerAck) {
-                socket.setSoTimeout(0);
-                send(VerAck.toByteArray());
-                send(GetAddr.toByteArray());
-                if (BlockLoader.hasDataToDownload()) {
-                    sendGetData();
+                channel.write(gather, 0, n);
+                while (!writeQueue.isEmpty() && writeQueue.peekFirst().isWritten()) {
+                    writeQueue.pollFirst().release();
                 }
-                if (TransactionSender.hasTransactionToSend()) {
-                    sendTransaction();
+                if (n != 0 && gather[n - 1].hasRemaining()) {
+                    return;
                 }
-            } else if (message instanceof Ping) {
-                long nonce = ((Ping) message).nonce;
-                if (nonce != 0) {
-                    send(Pong.toByteArray(nonce));
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void onMessage(Message message) {
+        if (message instanceof Version) {
+            int version = ((Version) message).getVersion();
+            if (version < this.version) {
+                this.version = version;
+            }
+        } else if (message instanceof VerAck) {
+            deadline = 0;
+            handshaked = true;
+            send(VerAck.toByteArray());
+            send(GetAddr.toByteArray());
+            BlockLoader.addPeer(this);
+            if (HeaderSync.hasHeadersToDownload()) {
+                sendGetHeaders();
+            }
+            announce(InventoryRelay.getInventories());
+        } else if (message instanceof Ping) {
+            long nonce = ((Ping) message).nonce;
+            if (nonce != 0) {
+                send(Pong.toByteArray(nonce));
+            }
+        } else if (message instanceof Addr) {
+            Addresses.save((Addr) message);
+        } else if (message instanceof Block) {
+            setKnown(((Block) message).getHash());
+            BlockLoader.onBlockReceive((Block) message);
+        } else if (message instanceof Headers) {
+            Headers headers = (Headers) message;
+            headersReceiver.execute(() -> {
+                if (HeaderSync.onHeadersReceive(headers)) {
+                    sendGetHeaders();
                 }
-            } else if (message instanceof Addr) {
-                Addresses.save((Addr) message);
-            } else if (message instanceof Block) {
-                BlockLoader.onBlockReceive((Block) message);
-            } else if (message instanceof Reject) {
-                TransactionSender.onRejectReceived((Reject) message);
+            });
+        } else if (message instanceof Reject) {
+            TransactionSender.onRejectReceived((Reject) message);
+        } else if (message instanceof Inv) {
+            Inv inv = (Inv) message;
+            for (int i = 0; i < inv.size(); i++) {
+                setKnown(inv.get(i).getHash());
+            }
+        } else if (message instanceof GetData) {
+            onGetData((GetData) message);
+        }
+    }
+
+    // sends the cached messages without copying, NotFound for others
+    private void onGetData(GetData getData) {
+        ArrayList<Inventory> notFound = new ArrayList<>();
+        for (int i = 0; i < getData.size(); i++) {
+            Inventory inventory = getData.get(i);
+            setKnown(inventory.getHash());
+            FrameEncoder.Frame frame = InventoryRelay.get(inventory);
+            if (frame == null) {
+                notFound.add(inventory);
+            } else {
+                send(frame);
+                frame.release();
             }
-        } while (!closed());
+        }
+        if (!notFound.isEmpty() && version >= 70001) {
+            FrameEncoder.Frame frame = NotFound.encode(notFound);
+            send(frame);
+            frame.release();
+        }
+    }
+
+    private void setKnown(Hash hash) {
+        byte[] key = hash.getBytes();
+        synchronized (knownInventory) {
+            knownInventory.add(key);
+        }
+    }
+
+    private void sendIfConnected(byte[] bytes) {
+        if (!closed() && channel.isConnected()) {
+            send(bytes);
+        }
+    }
+
+    private void sendIfConnected(FrameEncoder.Frame frame) {
+        if (!closed() && channel.isConnected()) {
+            send(frame);
+        }
     }
 
+    // queues the message, it will be written by the selector thread
     private void send(byte[] bytes) {
-        synchronized (socket) {
-            try {
-                OutputStream outputStream = socket.getOutputStream();
-                outputStream.write(bytes);
-                outputStream.flush();
-            } catch (IOException ignored) {
-                ignored.printStackTrace();
+        synchronized (writeQueue) {
+            writeQueue.addLast(new Write(null, new ByteBuffer[]{ByteBuffer.wrap(bytes)}));
+        }
+        ConnectionManager.update(this);
+    }
+
+    // queues the shared message without copying, the reference of the frame is released after writing
+    private void send(FrameEncoder.Frame frame) {
+        synchronized (writeQueue) {
+            writeQueue.addLast(new Write(frame, frame.getBuffers()));
+        }
+        ConnectionManager.update(this);
+    }
+
+    // queued message with own positions in the buffers
+    private static class Write {
+        private final FrameEncoder.Frame frame; // null for the byte array
+        private final ByteBuffer[] buffers;
+
+        private Write(FrameEncoder.Frame frame, ByteBuffer[] buffers) {
+            this.frame = frame;
+            this.buffers = buffers;
+        }
+
+        private boolean isWritten() {
+            return !buffers[buffers.length - 1].hasRemaining();
+        }
+
+        private void release() {
+            if (frame != null) {
+                frame.release();
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -1,24 +1,46 @@
 /*
-creates and manages several connections
+creates and manages several connections, all connections run in one selector thread
 
 usage:
     int activeConnections = ConnectionManager.getActiveConnections();
     ConnectionManager.start();
     ConnectionManager.stop();
-    ConnectionManager.downloadBlock();
-    ConnectionManager.sendTransaction();
+    ConnectionManager.downloadHeaders();
+    ConnectionManager.announce(inventories);
+    ConnectionManager.update(connection);
+
+the selector thread connects, reads and writes all channels without blocking,
+connections from other threads are passed to it by update(),
+every 3 seconds it replaces closed connections, closes connections which are not handshaked in time
+and requests again the blocks which are not received in time;
+new connections are created by Tasks.executor(), because the next address can require the dns or the file reading,
+and they are passed to the selector thread by update();
+the thread is started by the first connection and stops when the manager is stopped and there are no connections,
+it is started by Tasks, so it can be virtual
 */
 
 package com.aqoleg.data;
 
+import com.aqoleg.messages.Inventory;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class ConnectionManager {
-    private static final ArrayList<Connection> connections = new ArrayList<>();
+    private static final ArrayList<Connection> connections = new ArrayList<>(); // synchronized object
+    private static final Object selectorLock = new Object(); // synchronized object for the selector
+    private static final ConcurrentLinkedQueue<Connection> updates = new ConcurrentLinkedQueue<>();
     private static final int targetActiveConnections = 7;
-    private static boolean run = false;
+    private static final long maintenancePeriod = 3000; // milliseconds
+    private static volatile boolean run = false;
     private static int activeConnections = 0;
+    private static int connecting = 0; // connections which are being created outside of the selector thread
+    private static Selector selector; // null if the selector thread is not running
 
     /**
      * @return number of active connections
@@ -36,12 +58,8 @@ public class ConnectionManager {
                 return;
             }
             run = true;
-            new Thread(() -> {
-                while (run) {
-                    loop();
-                }
-            }).start();
         }
+        wakeup();
     }
 
     /**
@@ -62,33 +80,116 @@ public class ConnectionManager {
             run = false;
             activeConnections = 0;
         }
+        synchronized (selectorLock) {
+            if (selector != null) {
+                selector.wakeup(); // to stop the thread without waiting for the maintenance
+            }
+        }
     }
 
     /**
-     * sends messages about blocks to all connected nodes
+     * sends messages about headers to all connected nodes
      */
-    static void downloadBlock() {
+    static void downloadHeaders() {
         synchronized (connections) {
             start();
             for (Connection connection : connections) {
-                connection.sendGetData();
+                connection.sendGetHeaders();
             }
         }
     }
 
     /**
-     * sends messages about transaction to all connected nodes
+     * announces inventories to all connected nodes which do not know them
+     *
+     * @param inventories inventories from the InventoryRelay
      */
-    static void sendTransaction() {
+    static void announce(List<Inventory> inventories) {
         synchronized (connections) {
-            start();
             for (Connection connection : connections) {
-                connection.sendTransaction();
+                connection.announce(inventories);
+            }
+        }
+    }
+
+    /**
+     * the selector thread will call connection.update()
+     *
+     * @param connection new, closed or with the messages to write
+     */
+    static void update(Connection connection) {
+        updates.add(connection);
+        wakeup();
+    }
+
+    // starts the selector thread or wakes it up
+    private static void wakeup() {
+        synchronized (selectorLock) {
+            if (selector != null) {
+                selector.wakeup();
+                return;
+            }
+            try {
+                selector = Selector.open();
+            } catch (IOException exception) {
+                exception.printStackTrace();
+                return;
+            }
+            Selector threadSelector = selector;
+            Tasks.start(() -> loop(threadSelector));
+        }
+    }
+
+    private static void loop(Selector selector) {
+        long nextMaintenance = 0;
+        while (true) {
+            Connection connection;
+            while ((connection = updates.poll()) != null) {
+                connection.update(selector);
+            }
+            long time = System.currentTimeMillis();
+            if (time >= nextMaintenance || !run) {
+                if (!maintain(selector, time)) {
+                    break;
+                }
+                nextMaintenance = time + maintenancePeriod;
+            }
+            try {
+                selector.select(Math.max(1, nextMaintenance - time));
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+            for (SelectionKey key : selector.selectedKeys()) {
+                ((Connection) key.attachment()).onSelect(key);
+            }
+            selector.selectedKeys().clear();
+        }
+        try {
+            selector.close();
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    // creates the connection with the next address, it calls update() if it is started
+    private static void connect() {
+        Connection connection = new Connection();
+        synchronized (connections) {
+            connecting--;
+            if (run) {
+                connections.add(connection);
+                return;
             }
         }
+        connection.close();
     }
 
-    private static void loop() {
+    // returns false if the selector thread should stop
+    private static boolean maintain(Selector selector, long time) {
+        for (SelectionKey key : new ArrayList<>(selector.keys())) {
+            ((Connection) key.attachment()).checkTimeout(time);
+        }
+        BlockLoader.checkTimeouts();
         synchronized (connections) {
             int activeConnections = 0;
             Iterator<Connection> iterator = connections.iterator();
@@ -101,15 +202,20 @@ public class ConnectionManager {
                     activeConnections++;
                 }
             }
-            ConnectionManager.activeConnections = activeConnections;
-            while (activeConnections++ < targetActiveConnections) {
-                connections.add(new Connection());
+            if (run) {
+                ConnectionManager.activeConnections = activeConnections;
+                while (activeConnections + connecting < targetActiveConnections) {
+                    connecting++;
+                    Tasks.executor().execute(ConnectionManager::connect);
+                }
             }
         }
-        try {
-            Thread.sleep(3000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        synchronized (selectorLock) {
+            if (run || !selector.keys().isEmpty() || !updates.isEmpty()) {
+                return true;
+            }
+            ConnectionManager.selector = null;
+            return false;
         }
     }
-}
\ No newline at end of file
+}
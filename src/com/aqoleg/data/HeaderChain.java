@@ -0,0 +1,471 @@
+/*
+validated chain of block headers with the most work, indexed by height and by hash; thread-safe
+
+usage:
+    HeaderChain headerChain = new HeaderChain(file);
+    int height = headerChain.getHeight();
+    Hash tipHash = headerChain.getTip();
+    Hash hash = headerChain.getHash(height);
+    int height = headerChain.getHeight(hash);
+    byte[] header = headerChain.getHeader(height);
+    Hash[] locator = headerChain.getLocator();
+    int added = headerChain.add(headers);
+    headerChain.close();
+
+file bytes:
+    intLE, magic
+    intLE, count, number of headers, the height of the tip + 1
+    entry[], at the offset 8 + height * 112:
+        byte[80], block header
+        byte[32], hash of the block header
+
+the file is memory-mapped, headers are stored outside of the heap and they are read directly from the mapped file,
+so the block at the height is found without any search; the mapping grows by 65536 entries;
+the hash -> height index is the open-addressing hash table with linear probing, it contains height + 1 only,
+hashes are compared with the hashes in the mapped file, the index is rebuilt when the file is opened;
+the count is written after the headers and the file is forced after each add(), if the branch replaces the end
+of the chain, the count is cut to the fork height and forced before the old entries are overwritten,
+so after the crash the chain is the chain of the last add() or the common part of the old and the new chains;
+each header must be linked with the previous one, has the bits of the retarget rules, the timestamp greater than
+the median of the previous 11 timestamps and not more than 2 hours in the future, and the hash not greater than
+the target from its bits; the branch replaces the end of the chain only if it has more work
+*/
+
+package com.aqoleg.data;
+
+import com.aqoleg.crypto.HeaderHash;
+import com.aqoleg.messages.Hash;
+import com.aqoleg.utils.Converter;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+public class HeaderChain {
+    public static final int retargetInterval = 2016; // blocks
+    private static final int targetTimespan = 14 * 24 * 60 * 60; // seconds
+    private static final int maxFutureTime = 2 * 60 * 60; // seconds
+    private static final int powLimitBits = 0x1d00ffff;
+    private static final BigInteger powLimit = getTarget(powLimitBits);
+    static final String genesis = "01000000" // version
+            + "0000000000000000000000000000000000000000000000000000000000000000" // prevBlock
+            + "3BA3EDFD7A7B12B27AC72C3E67768F617FC81BC3888A51323A9FB8AA4B1E5E4A" // merkleRoot
+            + "29AB5F49" // timestamp
+            + "FFFF001D" // bits
+            + "1DAC2B7C"; // nonce, the Storage appends the tx of the genesis block to this header
+    private static final int magic = 0x31524448;
+    private static final int entrySize = 80 + 32;
+    private static final int growEntries = 65536;
+    private final HeaderHash headerHash = new HeaderHash();
+    private final FileChannel fileChannel;
+    private MappedByteBuffer bytes;
+    private int capacity; // entries in the mapping
+    private int count;
+    private int[] slots; // height + 1, or 0 if empty
+    private int mask;
+
+    /**
+     * opens the chain or creates the new one with the genesis header
+     *
+     * @param file file with headers
+     * @throws NullPointerException if file == null
+     * @throws IOException          if cannot read or write the file or it is incorrect
+     */
+    public HeaderChain(File file) throws IOException {
+        fileChannel = FileChannel.open(
+                file.toPath(),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        );
+        try {
+            long size = fileChannel.size();
+            if (size == 0) {
+                map(growEntries);
+                bytes.putInt(0, magic);
+                append(Converter.hexToBytes(genesis), null);
+                bytes.putInt(4, 1);
+                bytes.force();
+            } else {
+                if (size < 8 || (size - 8) / entrySize > Integer.MAX_VALUE) {
+                    throw new IOException("incorrect size " + file);
+                }
+                map((int) ((size - 8) / entrySize));
+                count = bytes.getInt(4);
+                if (bytes.getInt(0) != magic || count < 1 || count > capacity) {
+                    throw new IOException("incorrect file " + file);
+                }
+            }
+            buildIndex();
+        } catch (IOException | RuntimeException exception) {
+            fileChannel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * @return height of the tip, genesis has height 0
+     */
+    public synchronized int getHeight() {
+        return count - 1;
+    }
+
+    /**
+     * @return hash of the tip
+     */
+    public synchronized Hash getTip() {
+        return getHash(count - 1);
+    }
+
+    /**
+     * @param height height of the block
+     * @return hash of the block at this height
+     * @throws IndexOutOfBoundsException if height is incorrect
+     */
+    public synchronized Hash getHash(int height) {
+        checkHeight(height);
+        return Hash.fromBytes(getBytes(height, 80, 32));
+    }
+
+    /**
+     * @param hash hash of the block
+     * @return height of the block or -1 if there is no such block in the chain
+     * @throws NullPointerException if hash == null
+     */
+    public synchronized int getHeight(Hash hash) {
+        return find(hash.getBytes(), 0);
+    }
+
+    /**
+     * @param height height of the block
+     * @return copy of the 80-bytes block header
+     * @throws IndexOutOfBoundsException if height is incorrect
+     */
+    public synchronized byte[] getHeader(int height) {
+        checkHeight(height);
+        return getBytes(height, 0, 80);
+    }
+
+    /**
+     * @return hashes of the tip, of 9 previous blocks, then with doubling step, and of the genesis
+     */
+    public synchronized Hash[] getLocator() {
+        Hash[] locator = new Hash[64];
+        int number = 0;
+        int step = 1;
+        for (int height = count - 1; height > 0; height -= step) {
+            locator[number++] = getHash(height);
+            if (number >= 10) {
+                step *= 2;
+            }
+        }
+        locator[number++] = getHash(0);
+        return Arrays.copyOf(locator, number);
+    }
+
+    /**
+     * adds headers to the chain, headers already in the chain are skipped,
+     * if the first new header is not after the tip, the headers replace the end of the chain if they have more work
+     *
+     * @param headers list of 80-bytes headers, each one is the next one after the previous
+     * @return number of headers added to the chain
+     * @throws NullPointerException if headers == null or contains null
+     * @throws IOException          if cannot write
+     * @throws Exception            if headers are incorrect, headers before the incorrect one are not added
+     */
+    public synchronized int add(List<byte[]> headers) throws IOException {
+        if (headers.isEmpty()) {
+            return 0;
+        }
+        for (byte[] header : headers) {
+            if (header.length != 80) {
+                throw new Exception("incorrect header length " + header.length);
+            }
+        }
+        int prevHeight = find(headers.get(0), 4);
+        if (prevHeight < 0) {
+            throw new Exception("unknown previous block " + Hash.fromBytes(headers.get(0), 4));
+        }
+        // skip known headers
+        byte[] hash = new byte[32];
+        int first = 0;
+        while (first < headers.size() && prevHeight + 1 + first < count) {
+            headerHash.getHash(headers.get(first), 0, hash, 0);
+            if (!equals(prevHeight + 1 + first, hash)) {
+                break;
+            }
+            first++;
+        }
+        List<byte[]> branch = headers.subList(first, headers.size());
+        int forkHeight = prevHeight + 1 + first;
+        byte[][] hashes = new byte[branch.size()][];
+        int valid = 0;
+        Exception exception = null;
+        for (; valid < branch.size(); valid++) {
+            try {
+                byte[] prevHash = valid == 0 ? getBytes(forkHeight - 1, 80, 32) : hashes[valid - 1];
+                hashes[valid] = check(forkHeight, branch, valid, prevHash);
+            } catch (Exception incorrect) {
+                exception = incorrect;
+                break;
+            }
+        }
+        branch = branch.subList(0, valid);
+        int added = 0;
+        if (!branch.isEmpty() && (forkHeight == count || hasMoreWork(forkHeight, branch))) {
+            boolean rebuild = forkHeight < count;
+            if (rebuild) {
+                // the entries of the old branch are overwritten only after the shorter chain is on the disk
+                bytes.putInt(4, forkHeight);
+                bytes.force();
+            }
+            count = forkHeight;
+            for (int i = 0; i < branch.size(); i++) {
+                append(branch.get(i), hashes[i]);
+            }
+            bytes.putInt(4, count);
+            bytes.force();
+            if (rebuild || count * 2 > slots.length) {
+                buildIndex();
+            } else {
+                for (int height = forkHeight; height < count; height++) {
+                    insert(height);
+                }
+            }
+            added = branch.size();
+        }
+        if (exception != null) {
+            throw exception;
+        }
+        return added;
+    }
+
+    /**
+     * closes the file, the chain can not be used after it
+     *
+     * @throws IOException if cannot close
+     */
+    public synchronized void close() throws IOException {
+        bytes.force();
+        fileChannel.close();
+    }
+
+    // returns target from the compact bits or null if the bits are incorrect
+    private static BigInteger getTarget(int bits) {
+        int size = bits >>> 24;
+        int word = bits & 0x007fffff;
+        if (word != 0 && ((bits & 0x00800000) != 0 || size > 34 || (word > 0xff && size > 33)
+                || (word > 0xffff && size > 32))) {
+            return null; // negative or overflow
+        }
+        if (size <= 3) {
+            return BigInteger.valueOf(word >>> 8 * (3 - size));
+        }
+        return BigInteger.valueOf(word).shiftLeft(8 * (size - 3));
+    }
+
+    // returns compact bits of the target, rounded down
+    private static int getBits(BigInteger target) {
+        int size = (target.bitLength() + 7) / 8;
+        int word = size <= 3 ? target.intValue() << 8 * (3 - size) : target.shiftRight(8 * (size - 3)).intValue();
+        if ((word & 0x00800000) != 0) {
+            word >>>= 8;
+            size++;
+        }
+        return word | size << 24;
+    }
+
+    // 2^256 / (target + 1)
+    private static BigInteger getWork(int bits) {
+        return BigInteger.ONE.shiftLeft(256).divide(getTarget(bits).add(BigInteger.ONE));
+    }
+
+    // checks the header of the branch with the hash of the previous header, returns its hash
+    private byte[] check(int forkHeight, List<byte[]> branch, int i, byte[] prevHash) {
+        byte[] header = branch.get(i);
+        int height = forkHeight + i;
+        for (int j = 0; j < 32; j++) {
+            if (header[4 + j] != prevHash[j]) {
+                throw new Exception("not linked header at height " + height);
+            }
+        }
+        int bits = getIntLE(header, 72);
+        int expectedBits = getExpectedBits(forkHeight, branch, height);
+        if (bits != expectedBits) {
+            throw new Exception("incorrect bits " + Integer.toHexString(bits) + " at height " + height
+                    + ", requires " + Integer.toHexString(expectedBits));
+        }
+        long time = getIntLE(header, 68) & 0xFFFFFFFFL;
+        long[] times = new long[Math.min(11, height)];
+        for (int j = 0; j < times.length; j++) {
+            times[j] = getIntLE(forkHeight, branch, height - 1 - j, 68) & 0xFFFFFFFFL;
+        }
+        Arrays.sort(times);
+        if (time <= times[times.length / 2]) {
+            throw new Exception("early timestamp at height " + height);
+        } else if (time > System.currentTimeMillis() / 1000 + maxFutureTime) {
+            throw new Exception("future timestamp at height " + height);
+        }
+        byte[] hash = headerHash(header);
+        byte[] reversed = new byte[32];
+        for (int j = 0; j < 32; j++) {
+            reversed[j] = hash[31 - j];
+        }
+        if (new BigInteger(1, reversed).compareTo(getTarget(bits)) > 0) {
+            throw new Exception("incorrect proof of work at height " + height);
+        }
+        return hash;
+    }
+
+    // bits of the block at the height according to the retarget rules
+    private int getExpectedBits(int forkHeight, List<byte[]> branch, int height) {
+        int prevBits = getIntLE(forkHeight, branch, height - 1, 72);
+        if (height % retargetInterval != 0) {
+            return prevBits;
+        }
+        long firstTime = getIntLE(forkHeight, branch, height - retargetInterval, 68) & 0xFFFFFFFFL;
+        long lastTime = getIntLE(forkHeight, branch, height - 1, 68) & 0xFFFFFFFFL;
+        long timespan = Math.max(targetTimespan / 4, Math.min(targetTimespan * 4, lastTime - firstTime));
+        BigInteger target = getTarget(prevBits).multiply(BigInteger.valueOf(timespan))
+                .divide(BigInteger.valueOf(targetTimespan));
+        return getBits(target.min(powLimit));
+    }
+
+    // returns true if the branch has more work than the chain after the forkHeight
+    private boolean hasMoreWork(int forkHeight, List<byte[]> branch) {
+        BigInteger work = BigInteger.ZERO;
+        for (byte[] header : branch) {
+            work = work.add(getWork(getIntLE(header, 72)));
+        }
+        for (int height = forkHeight; height < count; height++) {
+            work = work.subtract(getWork(bytes.getInt(getOffset(height) + 72)));
+        }
+        return work.signum() > 0;
+    }
+
+    private byte[] headerHash(byte[] header) {
+        byte[] hash = new byte[32];
+        headerHash.getHash(header, 0, hash, 0);
+        return hash;
+    }
+
+    // intLE of the header from the branch or from the chain
+    private int getIntLE(int forkHeight, List<byte[]> branch, int height, int offset) {
+        if (height >= forkHeight) {
+            return getIntLE(branch.get(height - forkHeight), offset);
+        }
+        return bytes.getInt(getOffset(height) + offset);
+    }
+
+    private static int getIntLE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF)
+                | (bytes[offset + 1] & 0xFF) << 8
+                | (bytes[offset + 2] & 0xFF) << 16
+                | (bytes[offset + 3] & 0xFF) << 24;
+    }
+
+    private void checkHeight(int height) {
+        if (height < 0 || height >= count) {
+            throw new IndexOutOfBoundsException("incorrect height " + height);
+        }
+    }
+
+    private int getOffset(int height) {
+        return 8 + height * entrySize;
+    }
+
+    private byte[] getBytes(int height, int offset, int length) {
+        byte[] out = new byte[length];
+        int start = getOffset(height) + offset;
+        for (int i = 0; i < length; i++) {
+            out[i] = bytes.get(start + i);
+        }
+        return out;
+    }
+
+    // returns true if the hash of the block at the height is the same
+    private boolean equals(int height, byte[] hash) {
+        int start = getOffset(height) + 80;
+        for (int i = 0; i < 32; i++) {
+            if (bytes.get(start + i) != hash[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // maps the file with the capacity in entries
+    private void map(int capacity) throws IOException {
+        if (capacity > (Integer.MAX_VALUE - 8) / entrySize) {
+            throw new IOException("big chain");
+        }
+        bytes = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, 8 + (long) capacity * entrySize);
+        bytes.order(ByteOrder.LITTLE_ENDIAN);
+        this.capacity = capacity;
+    }
+
+    // writes header and its hash after the last one, does not write count
+    private void append(byte[] header, byte[] hash) throws IOException {
+        if (count == capacity) {
+            map(capacity + growEntries);
+        }
+        if (hash == null) {
+            hash = headerHash(header);
+        }
+        int offset = getOffset(count);
+        for (int i = 0; i < 80; i++) {
+            bytes.put(offset + i, header[i]);
+        }
+        for (int i = 0; i < 32; i++) {
+            bytes.put(offset + 80 + i, hash[i]);
+        }
+        count++;
+    }
+
+    private void buildIndex() {
+        int size = 1024;
+        while (size < count * 2) {
+            size <<= 1;
+        }
+        slots = new int[size];
+        mask = size - 1;
+        for (int height = 0; height < count; height++) {
+            insert(height);
+        }
+    }
+
+    // the table must have free slots, it is resized by buildIndex()
+    private void insert(int height) {
+        int slot = bytes.getInt(getOffset(height) + 80) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = height + 1;
+    }
+
+    // returns height of the block with the hash from the start or -1
+    private int find(byte[] hash, int start) {
+        int slot = getIntLE(hash, start) & mask;
+        byte[] key = start == 0 && hash.length == 32 ? hash : Arrays.copyOfRange(hash, start, start + 32);
+        while (slots[slot] != 0) {
+            int height = slots[slot] - 1;
+            if (equals(height, key)) {
+                return height;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    public static class Exception extends RuntimeException {
+        private Exception(String message) {
+            super(message);
+        }
+    }
+}
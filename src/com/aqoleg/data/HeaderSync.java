@@ -0,0 +1,144 @@
+/*
+downloads block headers from nodes into the HeaderChain; thread-safe
+
+usage:
+    $ java com.aqoleg.data.HeaderSync
+
+    HeaderChain headerChain = HeaderSync.sync();
+    boolean hasHeaders = HeaderSync.hasHeadersToDownload();
+    byte[] getHeaders = HeaderSync.getGetHeaders(version);
+    boolean requestMore = HeaderSync.onHeadersReceive(headersReceived);
+
+nodes send up to 2000 headers after the last known hash from the locator,
+the sync is finished when 3 nodes in a row have no new headers for the tip
+*/
+
+package com.aqoleg.data;
+
+import com.aqoleg.messages.GetHeaders;
+import com.aqoleg.messages.Headers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class HeaderSync {
+    private static final ReentrantLock lock = new ReentrantLock(); // not a monitor, it can be used in virtual threads
+    private static final Condition updated = lock.newCondition();
+    private static final int finalResponses = 3; // responses without new headers to finish sync
+    private static final long timeout = 30000; // milliseconds to wait for the new headers before requesting again
+    private static HeaderChain headerChain;
+    private static int emptyResponses = -1; // < 0 if not syncing
+
+    /**
+     * syncs headers and prints the tip
+     *
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        HeaderChain headerChain = sync();
+        if (headerChain != null) {
+            System.out.println("height: " + headerChain.getHeight() + ", tip: " + headerChain.getTip());
+        }
+        ConnectionManager.stop();
+        System.exit(0);
+    }
+
+    /**
+     * this method blocks the thread
+     * downloads headers from nodes until there are no new headers and saves them
+     *
+     * @return HeaderChain with the downloaded headers or null if it can not be opened
+     */
+    public static HeaderChain sync() {
+        lock.lock();
+        try {
+            headerChain = Storage.getHeaderChain();
+            if (headerChain == null) {
+                return null;
+            }
+            emptyResponses = 0;
+            ConnectionManager.downloadHeaders();
+            while (emptyResponses >= 0) {
+                int height = headerChain.getHeight();
+                try {
+                    updated.await(timeout, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException exception) {
+                    exception.printStackTrace();
+                }
+                if (emptyResponses >= 0 && height == headerChain.getHeight()) {
+                    ConnectionManager.downloadHeaders(); // no new headers, request again from all nodes
+                }
+            }
+            return headerChain;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if there are headers to download
+     */
+    static boolean hasHeadersToDownload() {
+        lock.lock();
+        try {
+            return emptyResponses >= 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param version version of the connection
+     * @return GetHeaders message with the locator of the HeaderChain or null if there is nothing to download
+     */
+    static byte[] getGetHeaders(int version) {
+        lock.lock();
+        try {
+            if (emptyResponses < 0) {
+                return null;
+            }
+            return GetHeaders.create(version, headerChain.getLocator(), null).toByteArray();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param headers new Headers has been received
+     * @return true if there are more headers to request from this node
+     */
+    static boolean onHeadersReceive(Headers headers) {
+        lock.lock();
+        try {
+            if (emptyResponses < 0) {
+                return false;
+            }
+            ArrayList<byte[]> list = new ArrayList<>(headers.size());
+            for (int i = 0; i < headers.size(); i++) {
+                list.add(headers.getHeader(i));
+            }
+            int added;
+            try {
+                added = headerChain.add(list);
+            } catch (HeaderChain.Exception | IOException exception) {
+                exception.printStackTrace();
+                return false;
+            }
+            if (added > 0) {
+                emptyResponses = 0;
+                updated.signalAll();
+                return headers.size() == Headers.maxCount;
+            }
+            if (++emptyResponses >= finalResponses) {
+                emptyResponses = -1;
+                updated.signalAll();
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+relays transactions and blocks to the connected nodes, each node is announced each inventory once; synchronized
+
+usage:
+    InventoryRelay.relay(inventory, encodedMessage);
+    FrameEncoder.Frame encodedMessage = InventoryRelay.get(inventory);
+    List<Inventory> inventories = InventoryRelay.getInventories();
+    int size = InventoryRelay.size();
+
+the relayed message is encoded once and cached, it is announced with Inv and sent only to the nodes which request it
+with GetData; the cache keeps the last 1000 messages, older messages are released;
+each connection tracks the inventories its node already knows in the rolling filter: announced by the node,
+received from the node or announced to it, so nothing is announced or sent twice
+*/
+
+package com.aqoleg.data;
+
+import com.aqoleg.messages.FrameEncoder;
+import com.aqoleg.messages.Inventory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class InventoryRelay {
+    private static final int maxCached = 1000;
+    private static final LinkedHashMap<Inventory, FrameEncoder.Frame> cache = new CacheMap(); // synchronized object
+
+    /**
+     * caches the message and announces it to all connected nodes
+     *
+     * @param inventory Inventory of the message
+     * @param frame     encoded message, the reference is kept by the cache
+     * @throws NullPointerException if inventory == null or frame == null
+     */
+    public static void relay(Inventory inventory, FrameEncoder.Frame frame) {
+        if (inventory == null || frame == null) {
+            throw new NullPointerException();
+        }
+        synchronized (cache) {
+            FrameEncoder.Frame old = cache.put(inventory, frame);
+            if (old != null) {
+                old.release();
+            }
+        }
+        ConnectionManager.announce(Collections.singletonList(inventory));
+    }
+
+    /**
+     * @param inventory requested Inventory
+     * @return cached message with the added reference, the caller must release it, or null
+     */
+    public static FrameEncoder.Frame get(Inventory inventory) {
+        synchronized (cache) {
+            FrameEncoder.Frame frame = cache.get(inventory);
+            return frame == null ? null : frame.retain();
+        }
+    }
+
+    /**
+     * @return inventories of all cached messages, from the oldest
+     */
+    public static List<Inventory> getInventories() {
+        synchronized (cache) {
+            return new ArrayList<>(cache.keySet());
+        }
+    }
+
+    /**
+     * @return number of cached messages
+     */
+    public static int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private static class CacheMap extends LinkedHashMap<Inventory, FrameEncoder.Frame> {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Inventory, FrameEncoder.Frame> eldest) {
+            if (size() <= maxCached) {
+                return false;
+            }
+            eldest.getValue().release();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,625 @@
+/*
+key-value store on the disk, log-structured merge tree; not synchronized, synchronize it outside!
+
+usage:
+    KeyValueStore store = new KeyValueStore(directory);
+    KeyValueStore store = new KeyValueStore(directory, maxRunSize, mappingSize);
+    byte[] value = store.get(key);
+    int number = store.scan(prefix, keys, values);
+    store.put(key, value);
+    store.delete(key);
+    byte[] metadata = store.getMetadata();
+    store.flush(metadata);
+    int runNumber = store.runNumber();
+    store.close();
+
+directory:
+    run00000001.dat   - sorted run, the greater number is the newer one
+    run00000002.dat
+    run00000003.tmp   - not finished run, deleted when the store is opened
+
+run bytes:
+    intLE, magic
+    intLE, first, 0 or the number of the oldest run merged into this run, merged runs must be deleted
+    intLE, metadataLength
+    byte[metadataLength], metadata
+    entry[], sorted by the key as unsigned bytes:
+        byte, keyLength
+        byte[keyLength], key
+        intLE, valueLength, -1 if the key is deleted
+        byte[valueLength], value
+    longLE[], offsets of every indexInterval entry
+    intLE, number of the offsets
+    intLE, number of entries
+    intLE, magic
+
+changes are kept in the memory until flush(), it writes them as the new run into the temporary file,
+forces it to the disk and renames it, so after the crash the store contains the state of the last flush();
+the metadata of the newest run is the metadata of the store;
+get() checks the memory, then runs from the newest to the oldest, in each run the binary search over the offsets
+is followed by the scan of at most indexInterval entries of the memory-mapped run;
+scan() finds the first key with the prefix in each run in the same way and reads entries while they have the prefix;
+the compaction is size-tiered, after flush() the newest runs are merged into one run if there are at least mergeRuns
+of them and each one is not bigger than all newer ones together, so each entry is rewritten about
+log4(size / flushSize) times; the merged run is not bigger than maxRunSize, so the big runs are not rewritten;
+deleted keys are dropped only by the merge with the oldest run;
+the run is mapped with several mappings of mappingSize bytes, so it can be bigger than 2 GiB
+*/
+
+package com.aqoleg.data;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+public class KeyValueStore {
+    public static final int mergeRuns = 4;
+    public static final long defaultMaxRunSize = 1L << 30;
+    public static final int defaultMappingSize = 1 << 30;
+    private static final int magic = 0x4b565332;
+    private static final int indexInterval = 64;
+    private static final byte[] deleted = new byte[0]; // compared by reference
+    private static final Comparator<byte[]> keyComparator = KeyValueStore::compare;
+    private final File directory;
+    private final long maxRunSize;
+    private final int mappingSize;
+    private final TreeMap<byte[], byte[]> changes = new TreeMap<>(keyComparator);
+    private final ArrayList<Run> runs = new ArrayList<>(); // from the oldest to the newest
+    private int lastRunNumber = 0;
+
+    /**
+     * opens the store with the defaultMaxRunSize and the defaultMappingSize, creates the directory if there is no
+     *
+     * @param directory directory with the runs
+     * @throws NullPointerException if directory == null
+     * @throws IOException          if cannot read or create files
+     */
+    public KeyValueStore(File directory) throws IOException {
+        this(directory, defaultMaxRunSize, defaultMappingSize);
+    }
+
+    /**
+     * opens the store, creates the directory if there is no
+     *
+     * @param directory   directory with the runs
+     * @param maxRunSize  size in bytes of the merged runs, bigger runs are not merged
+     * @param mappingSize size in bytes of each memory mapping of the run
+     * @throws NullPointerException     if directory == null
+     * @throws IllegalArgumentException if maxRunSize < 1 or mappingSize < 8
+     * @throws IOException              if cannot read or create files
+     */
+    public KeyValueStore(File directory, long maxRunSize, int mappingSize) throws IOException {
+        if (maxRunSize < 1 || mappingSize < 8) {
+            throw new IllegalArgumentException("incorrect sizes");
+        }
+        this.directory = directory;
+        this.maxRunSize = maxRunSize;
+        this.mappingSize = mappingSize;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("can not create directory " + directory);
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("can not read directory " + directory);
+        }
+        TreeMap<Integer, File> runFiles = new TreeMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.matches("run\\d{8}\\.tmp")) {
+                Files.delete(file.toPath());
+            } else if (name.matches("run\\d{8}\\.dat")) {
+                runFiles.put(Integer.parseInt(name.substring(3, 11)), file);
+            }
+        }
+        int merged = Integer.MAX_VALUE; // runs from this number are merged into the newer run
+        for (Map.Entry<Integer, File> entry : runFiles.descendingMap().entrySet()) {
+            lastRunNumber = Math.max(lastRunNumber, entry.getKey());
+            if (entry.getKey() >= merged) {
+                Files.delete(entry.getValue().toPath()); // was not deleted because of the crash
+                continue;
+            }
+            Run run = new Run(entry.getKey(), entry.getValue(), mappingSize);
+            runs.add(0, run);
+            if (run.first != 0) {
+                merged = run.first;
+            }
+        }
+    }
+
+    /**
+     * @param key key up to 255 bytes
+     * @return value or null if there is no such key
+     * @throws NullPointerException if key == null
+     */
+    public byte[] get(byte[] key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        byte[] value = changes.get(key);
+        if (value == null) {
+            for (int i = runs.size() - 1; i >= 0; i--) {
+                value = runs.get(i).get(key);
+                if (value != null) {
+                    break;
+                }
+            }
+        }
+        return value == deleted ? null : value;
+    }
+
+    /**
+     * the change is saved with the next flush()
+     *
+     * @param key   key up to 255 bytes
+     * @param value value
+     * @throws NullPointerException     if key == null or value == null
+     * @throws IllegalArgumentException if key is too long
+     */
+    public void put(byte[] key, byte[] value) {
+        if (value == null) {
+            throw new NullPointerException();
+        } else if (key.length > 255) {
+            throw new IllegalArgumentException("long key");
+        }
+        changes.put(key.clone(), value.clone());
+    }
+
+    /**
+     * the change is saved with the next flush()
+     *
+     * @param key key up to 255 bytes
+     * @throws NullPointerException     if key == null
+     * @throws IllegalArgumentException if key is too long
+     */
+    public void delete(byte[] key) {
+        if (key.length > 255) {
+            throw new IllegalArgumentException("long key");
+        }
+        changes.put(key.clone(), deleted);
+    }
+
+    /**
+     * @param prefix first bytes of the keys
+     * @param keys   ArrayList to add found keys into, sorted as unsigned bytes
+     * @param values ArrayList to add values of the found keys into
+     * @return number of found keys
+     * @throws NullPointerException if prefix == null or keys == null or values == null
+     */
+    public int scan(byte[] prefix, ArrayList<byte[]> keys, ArrayList<byte[]> values) {
+        if (prefix == null || keys == null || values == null) {
+            throw new NullPointerException();
+        }
+        TreeMap<byte[], byte[]> entries = new TreeMap<>(keyComparator);
+        for (Run run : runs) {
+            run.scan(prefix, entries);
+        }
+        for (Map.Entry<byte[], byte[]> entry : changes.tailMap(prefix).entrySet()) {
+            if (!startsWith(entry.getKey(), prefix)) {
+                break;
+            }
+            entries.put(entry.getKey(), entry.getValue());
+        }
+        int number = 0;
+        for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+            if (entry.getValue() != deleted) {
+                keys.add(entry.getKey().clone());
+                values.add(entry.getValue().clone());
+                number++;
+            }
+        }
+        return number;
+    }
+
+    /**
+     * @return metadata of the last flush() or empty array
+     */
+    public byte[] getMetadata() {
+        return runs.isEmpty() ? new byte[0] : runs.get(runs.size() - 1).metadata.clone();
+    }
+
+    /**
+     * writes all changes and the metadata into the new run, merges the newest runs of the similar size
+     *
+     * @param metadata bytes describing the state of the store
+     * @throws NullPointerException if metadata == null
+     * @throws IOException          if cannot write
+     */
+    public void flush(byte[] metadata) throws IOException {
+        if (metadata == null) {
+            throw new NullPointerException();
+        }
+        Run run = writeRun(metadata, 0, new EntryIterator() {
+            private final Iterator<Map.Entry<byte[], byte[]>> iterator = changes.entrySet().iterator();
+
+            @Override
+            public boolean next(Entry entry) {
+                if (!iterator.hasNext()) {
+                    return false;
+                }
+                Map.Entry<byte[], byte[]> next = iterator.next();
+                entry.key = next.getKey();
+                entry.value = next.getValue();
+                return true;
+            }
+        });
+        runs.add(run);
+        changes.clear();
+        int first = runs.size();
+        long size = 0;
+        while (first > 0) {
+            long runSize = runs.get(first - 1).size;
+            if (size + runSize > maxRunSize || (first < runs.size() && runSize > size)) {
+                break;
+            }
+            size += runSize;
+            first--;
+        }
+        if (runs.size() - first >= mergeRuns) {
+            merge(first);
+        }
+    }
+
+    /**
+     * @return number of runs on the disk
+     */
+    public int runNumber() {
+        return runs.size();
+    }
+
+    /**
+     * not flushed changes are lost
+     */
+    public void close() {
+        changes.clear();
+        runs.clear();
+    }
+
+    // compares keys as unsigned bytes
+    private static int compare(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        if (key.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (key[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeIntLE(OutputStream outputStream, int n) throws IOException {
+        outputStream.write(n);
+        outputStream.write(n >>> 8);
+        outputStream.write(n >>> 16);
+        outputStream.write(n >>> 24);
+    }
+
+    // merges runs from the first one into one, the newest value of each key is kept,
+    // deleted keys are dropped if there are no older runs
+    private void merge(int first) throws IOException {
+        List<Run> merging = runs.subList(first, runs.size());
+        boolean dropDeleted = first == 0;
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>((a, b) -> {
+            int difference = compare(a.entry.key, b.entry.key);
+            return difference != 0 ? difference : b.run.number - a.run.number; // the newest is the first
+        });
+        for (Run run : merging) {
+            Cursor cursor = new Cursor(run);
+            if (cursor.next()) {
+                cursors.add(cursor);
+            }
+        }
+        Run merged = writeRun(getMetadata(), merging.get(0).number, entry -> {
+            while (!cursors.isEmpty()) {
+                Cursor cursor = cursors.poll();
+                entry.key = cursor.entry.key;
+                entry.value = cursor.entry.value;
+                // skip older values of the same key
+                while (!cursors.isEmpty() && compare(cursors.peek().entry.key, entry.key) == 0) {
+                    Cursor older = cursors.poll();
+                    if (older.next()) {
+                        cursors.add(older);
+                    }
+                }
+                if (cursor.next()) {
+                    cursors.add(cursor);
+                }
+                if (entry.value != deleted || !dropDeleted) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        for (Run run : merging) {
+            Files.delete(run.file.toPath());
+        }
+        merging.clear();
+        runs.add(merged);
+    }
+
+    // writes the temporary file, forces it and renames it
+    private Run writeRun(byte[] metadata, int first, EntryIterator entries) throws IOException {
+        int number = ++lastRunNumber;
+        File tmp = new File(directory, String.format("run%08d.tmp", number));
+        File file = new File(directory, String.format("run%08d.dat", number));
+        ArrayList<Long> offsets = new ArrayList<>();
+        try (FileOutputStream fileOutputStream = new FileOutputStream(tmp)) {
+            BufferedOutputStream outputStream = new BufferedOutputStream(fileOutputStream, 1 << 16);
+            writeIntLE(outputStream, magic);
+            writeIntLE(outputStream, first);
+            writeIntLE(outputStream, metadata.length);
+            outputStream.write(metadata);
+            long offset = 12 + metadata.length;
+            int count = 0;
+            Entry entry = new Entry();
+            while (entries.next(entry)) {
+                if (count++ % indexInterval == 0) {
+                    offsets.add(offset);
+                }
+                outputStream.write(entry.key.length);
+                outputStream.write(entry.key);
+                if (entry.value == deleted) {
+                    writeIntLE(outputStream, -1);
+                    offset += 1 + entry.key.length + 4;
+                } else {
+                    writeIntLE(outputStream, entry.value.length);
+                    outputStream.write(entry.value);
+                    offset += 1 + entry.key.length + 4 + entry.value.length;
+                }
+                if (count == Integer.MAX_VALUE) {
+                    throw new IOException("big run");
+                }
+            }
+            for (long runOffset : offsets) {
+                writeIntLE(outputStream, (int) runOffset);
+                writeIntLE(outputStream, (int) (runOffset >>> 32));
+            }
+            writeIntLE(outputStream, offsets.size());
+            writeIntLE(outputStream, count);
+            writeIntLE(outputStream, magic);
+            outputStream.flush();
+            fileOutputStream.getFD().sync();
+        } catch (IOException exception) {
+            Files.deleteIfExists(tmp.toPath());
+            throw exception;
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return new Run(number, file, mappingSize);
+    }
+
+    private interface EntryIterator {
+
+        // sets the next entry, returns false if there are no more entries
+        boolean next(Entry entry) throws IOException;
+    }
+
+    private static class Entry {
+        private byte[] key;
+        private byte[] value; // deleted if the key is deleted
+    }
+
+    // sorted immutable memory-mapped file
+    private static class Run {
+        private final int number;
+        private final File file;
+        private final long size;
+        private final ByteBuffer[] mappings; // each one of mappingSize bytes, except the last one
+        private final int mappingSize;
+        private final int first; // 0 or the number of the oldest merged run
+        private final byte[] metadata;
+        private final long[] offsets; // offsets of every indexInterval entry
+        private final int count;
+
+        // throws IOException if the file is incorrect
+        private Run(int number, File file, int mappingSize) throws IOException {
+            this.number = number;
+            this.file = file;
+            this.mappingSize = mappingSize;
+            try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                size = fileChannel.size();
+                if (size < 24) {
+                    throw new IOException("incorrect run " + file);
+                }
+                mappings = new ByteBuffer[(int) ((size + mappingSize - 1) / mappingSize)];
+                for (int i = 0; i < mappings.length; i++) {
+                    long start = (long) i * mappingSize;
+                    long length = Math.min(mappingSize, size - start);
+                    mappings[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, start, length)
+                            .order(ByteOrder.LITTLE_ENDIAN);
+                }
+            }
+            if (getInt(0) != magic || getInt(size - 4) != magic) {
+                throw new IOException("incorrect run " + file);
+            }
+            first = getInt(4);
+            metadata = new byte[getInt(8)];
+            get(12, metadata);
+            count = getInt(size - 8);
+            offsets = new long[getInt(size - 12)];
+            long offsetsStart = size - 12 - offsets.length * 8L;
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = getInt(offsetsStart + i * 8L) & 0xFFFFFFFFL
+                        | (long) getInt(offsetsStart + i * 8L + 4) << 32;
+            }
+        }
+
+        // returns value, deleted or null if there is no such key
+        private byte[] get(byte[] key) {
+            int found = search(key);
+            if (found < 0) {
+                return null;
+            }
+            long offset = offsets[found];
+            int end = Math.min(count, (found + 1) * indexInterval);
+            for (int i = found * indexInterval; i < end; i++) {
+                int difference = compareKey(offset, key);
+                if (difference == 0) {
+                    return getValue(offset);
+                } else if (difference > 0) {
+                    return null;
+                }
+                offset = getNextOffset(offset);
+            }
+            return null;
+        }
+
+        // puts all entries with keys starting with the prefix into the map
+        private void scan(byte[] prefix, TreeMap<byte[], byte[]> entries) {
+            int found = Math.max(search(prefix), 0);
+            long offset = offsets.length == 0 ? 0 : offsets[found];
+            for (int i = found * indexInterval; i < count; i++) {
+                if (startsWith(offset, prefix)) {
+                    entries.put(getKey(offset), getValue(offset));
+                } else if (compareKey(offset, prefix) > 0) {
+                    return;
+                }
+                offset = getNextOffset(offset);
+            }
+        }
+
+        // returns index of the last offset with the key <= the searching key, -1 if there is no
+        private int search(byte[] key) {
+            int low = 0;
+            int high = offsets.length - 1;
+            int found = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int difference = compareKey(offsets[middle], key);
+                if (difference == 0) {
+                    return middle;
+                } else if (difference < 0) {
+                    found = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return found;
+        }
+
+        private boolean startsWith(long offset, byte[] prefix) {
+            if ((get(offset) & 0xFF) < prefix.length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (get(offset + 1 + i) != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // compares the key of the entry with the key
+        private int compareKey(long offset, byte[] key) {
+            int keyLength = get(offset) & 0xFF;
+            int length = Math.min(keyLength, key.length);
+            for (int i = 0; i < length; i++) {
+                int difference = (get(offset + 1 + i) & 0xFF) - (key[i] & 0xFF);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return keyLength - key.length;
+        }
+
+        private byte[] getKey(long offset) {
+            byte[] key = new byte[get(offset) & 0xFF];
+            get(offset + 1, key);
+            return key;
+        }
+
+        private byte[] getValue(long offset) {
+            long valueOffset = offset + 1 + (get(offset) & 0xFF);
+            int length = getInt(valueOffset);
+            if (length < 0) {
+                return deleted;
+            }
+            byte[] value = new byte[length];
+            get(valueOffset + 4, value);
+            return value;
+        }
+
+        private long getNextOffset(long offset) {
+            long valueOffset = offset + 1 + (get(offset) & 0xFF);
+            return valueOffset + 4 + Math.max(0, getInt(valueOffset));
+        }
+
+        private byte get(long position) {
+            return mappings[(int) (position / mappingSize)].get((int) (position % mappingSize));
+        }
+
+        private int getInt(long position) {
+            int offset = (int) (position % mappingSize);
+            if (offset <= mappingSize - 4) {
+                return mappings[(int) (position / mappingSize)].getInt(offset);
+            }
+            return (get(position) & 0xFF) | (get(position + 1) & 0xFF) << 8
+                    | (get(position + 2) & 0xFF) << 16 | (get(position + 3) & 0xFF) << 24;
+        }
+
+        // reads bytes which can be in several mappings
+        private void get(long position, byte[] out) {
+            int done = 0;
+            while (done < out.length) {
+                int offset = (int) (position % mappingSize);
+                ByteBuffer mapping = mappings[(int) (position / mappingSize)].duplicate();
+                mapping.position(offset);
+                int length = Math.min(out.length - done, mapping.remaining());
+                mapping.get(out, done, length);
+                done += length;
+                position += length;
+            }
+        }
+    }
+
+    // reads entries of the run one by one
+    private static class Cursor {
+        private final Run run;
+        private final Entry entry = new Entry();
+        private int index = 0;
+        private long offset;
+
+        private Cursor(Run run) {
+            this.run = run;
+            offset = run.offsets.length == 0 ? 0 : run.offsets[0];
+        }
+
+        // reads the next entry, returns false if there are no more entries
+        private boolean next() {
+            if (index >= run.count) {
+                return false;
+            }
+            entry.key = run.getKey(offset);
+            entry.value = run.getValue(offset);
+            offset = run.getNextOffset(offset);
+            index++;
+            return true;
+        }
+    }
+}
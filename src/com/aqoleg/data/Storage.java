@@ -5,37 +5,47 @@ all local files
     addresses/   - node addresses directory
         new   - new loaded addresses
         prev   - previous loaded addresses
-    blocks/   - blocks directory
-        000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f   - block hash
+    blocks/   - blocks directory, BlockStore
+        blk00000.dat   - segment with blocks
+    headers.dat   - validated block headers, HeaderChain
+    utxo/   - unspent tx outputs, UtxoSet
 
 usage:
     Storage.resetAddressesPosition();
     NetAddress netAddress = Storage.readNextAddress();
     Storage.writeAddress(netAddress);
-    Block block = Storage.readBlock(blockHashString);
-    Storage.writeBlock(blockHashString, block);
+    Block block = Storage.readBlock(blockHash);
+    Storage.writeBlock(blockHash, block);
+    HeaderChain headerChain = Storage.getHeaderChain();
+    UtxoSet utxoSet = Storage.getUtxoSet();
+
+the stores are opened lazily under one lock, so each one is opened once even if it is requested
+by the threads which hold different locks;
+the UtxoSet follows the HeaderChain, after each written block one serial task outside of the lock of the caller
+disconnects its blocks which are not in the chain and connects blocks of the chain which are in the BlockStore,
+they are checked with checkBlock() and verify() of the BlockVerifier, so the block with the chain header
+and other transactions is not connected; the set grows when the blocks of the chain are written in any order,
+it continues from the last flushed block after the crash
 */
 
 package com.aqoleg.data;
 
 import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Hash;
 import com.aqoleg.messages.Message;
 import com.aqoleg.messages.NetAddress;
 import com.aqoleg.utils.Converter;
 
 import java.io.*;
 import java.nio.file.Files;
-import java.nio.file.NoSuchFileException;
 import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Storage {
     private static final String genesisHash = "000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f";
-    private static final String genesis = "01000000" // version
-            + "0000000000000000000000000000000000000000000000000000000000000000" // prevBlock
-            + "3BA3EDFD7A7B12B27AC72C3E67768F617FC81BC3888A51323A9FB8AA4B1E5E4A" // merkleRoot
-            + "29AB5F49" // timestamp
-            + "FFFF001D" // bits
-            + "1DAC2B7C" // nonce
+    private static final String genesis = HeaderChain.genesis // header
             + "01" // tx#
             + "01000000" // version
             + "01" // vin#
@@ -52,12 +62,18 @@ public class Storage {
             + "DEB649F6BC3F4CEF38C4F35504E51EC112DE5C384DF7BA0B8D578A4C702B6BF11D5FAC"
             + "00000000"; // lockTime
     private static final int addressesCapacity = 30 * 500;
+    private static final Executor utxoUpdater = Tasks.serialExecutor(); // outside of the lock of the caller
+    private static final AtomicBoolean utxoUpdateQueued = new AtomicBoolean(false);
+    private static final ReentrantLock openLock = new ReentrantLock(); // not a monitor, it is held during blocking io
     private static boolean addressesSkipNew = false; // if true reads addresses from prevAddresses
     private static int addressesBytesSkip = -1; // if < 0 there are no addresses to read
     private static File root;
     private static File newAddresses;
     private static File prevAddresses;
-    private static File blocks;
+    private static BlockStore blocks;
+    private static HeaderChain headerChain;
+    private static UtxoSet utxoSet;
+    private static BlockVerifier verifier;
 
     /**
      * synchronize it outside
@@ -147,26 +163,27 @@ public class Storage {
 
     /**
      * synchronize it outside
-     * reads block from blocks/blockHash
+     * reads block from the BlockStore in the blocks directory
      *
-     * @param hash 64 lower-case hex symbols with reversed endianness
+     * @param hash hash of the block
      * @return Block or null if there is no such block or it is incorrect
      * @throws NullPointerException if hash == null
      */
-    public static Block readBlock(String hash) {
-        initBlocks();
-        File file = new File(blocks, hash);
-        if (!file.isFile()) {
+    public static Block readBlock(Hash hash) {
+        if (hash == null) {
+            throw new NullPointerException();
+        }
+        if (!initBlocks()) {
             return null;
         }
         try {
-            return new Block(Files.readAllBytes(file.toPath()));
+            return blocks.read(hash);
         } catch (IOException | Message.Exception exception) {
             exception.printStackTrace();
             try {
-                Files.delete(file.toPath());
-            } catch (IOException deleteException) {
-                deleteException.printStackTrace();
+                blocks.remove(hash);
+            } catch (IOException removeException) {
+                removeException.printStackTrace();
             }
         }
         return null;
@@ -174,33 +191,122 @@ public class Storage {
 
     /**
      * synchronize it outside
-     * writes Block to blocks/blockHash
+     * appends Block to the BlockStore in the blocks directory
      *
-     * @param hash  64 lower-case hex symbols with reversed endianness
+     * @param hash  hash of the block
      * @param block to write, null to delete
      * @throws NullPointerException if hash == null
      */
-    public static void writeBlock(String hash, Block block) {
-        initBlocks();
-        File file = new File(blocks, hash);
+    public static void writeBlock(Hash hash, Block block) {
+        if (hash == null) {
+            throw new NullPointerException();
+        }
+        if (!initBlocks()) {
+            return;
+        }
         try {
             if (block == null) {
-                try {
-                    Files.delete(file.toPath());
-                } catch (NoSuchFileException ignored) {
-                }
+                blocks.remove(hash);
             } else {
-                FileOutputStream stream = new FileOutputStream(file);
-                block.write(stream);
-                stream.close();
+                blocks.write(hash, block);
+                queueUtxoUpdate();
             }
         } catch (IOException exception) {
             exception.printStackTrace();
+        }
+    }
+
+    /**
+     * opens the HeaderChain from the headers.dat once, all callers get the same HeaderChain
+     *
+     * @return HeaderChain or null if it can not be opened
+     */
+    public static HeaderChain getHeaderChain() {
+        openLock.lock();
+        try {
+            if (headerChain != null) {
+                return headerChain;
+            }
+            initRoot();
             try {
-                Files.delete(file.toPath());
-            } catch (IOException deleteException) {
-                deleteException.printStackTrace();
+                headerChain = new HeaderChain(new File(root, "headers.dat"));
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+            return headerChain;
+        } finally {
+            openLock.unlock();
+        }
+    }
+
+    /**
+     * opens the UtxoSet from the utxo directory once, all callers get the same UtxoSet
+     *
+     * @return UtxoSet or null if it can not be opened
+     */
+    public static UtxoSet getUtxoSet() {
+        openLock.lock();
+        try {
+            if (utxoSet != null) {
+                return utxoSet;
+            }
+            initRoot();
+            try {
+                utxoSet = new UtxoSet(new File(root, "utxo"));
+                verifier = new BlockVerifier(utxoSet);
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+            return utxoSet;
+        } finally {
+            openLock.unlock();
+        }
+    }
+
+    // queues the update of the UtxoSet, if it is not queued yet, the queued one also connects the new block
+    private static void queueUtxoUpdate() {
+        if (!utxoUpdateQueued.compareAndSet(false, true)) {
+            return;
+        }
+        utxoUpdater.execute(() -> {
+            utxoUpdateQueued.set(false);
+            try {
+                updateUtxoSet();
+            } catch (IOException | RuntimeException exception) {
+                exception.printStackTrace();
+            }
+        });
+    }
+
+    // moves the UtxoSet to the tip of the HeaderChain with the blocks from the BlockStore
+    private static void updateUtxoSet() throws IOException {
+        HeaderChain headerChain = getHeaderChain();
+        UtxoSet utxoSet = getUtxoSet();
+        if (headerChain == null || utxoSet == null || !initBlocks()) {
+            return;
+        }
+        Hash best = utxoSet.getBestBlock();
+        while (best != null && headerChain.getHeight(best) < 0) {
+            Block block = blocks.read(best);
+            if (block == null) {
+                return;
+            }
+            utxoSet.disconnectBlock(block);
+            best = utxoSet.getBestBlock();
+        }
+        int height = best == null ? 0 : headerChain.getHeight(best) + 1;
+        for (; height <= headerChain.getHeight(); height++) {
+            Block block = blocks.read(headerChain.getHash(height));
+            if (block == null) {
+                return;
+            }
+            verifier.checkBlock(block, height);
+            BlockVerifier.Result result = verifier.verify(block);
+            if (!result.isVerified()) {
+                new IOException("not verified block at height " + height + " " + result.getFailed()).printStackTrace();
+                return;
             }
+            utxoSet.connectBlock(block);
         }
     }
 
@@ -230,44 +336,60 @@ public class Storage {
         setAddressesPosition();
     }
 
-    private static void initBlocks() {
-        if (blocks != null) {
-            return;
-        }
-        initRoot();
-        blocks = new File(root, "blocks");
-        if (!blocks.isDirectory()) {
-            if (!blocks.mkdirs()) {
-                new IOException("can not create directory " + blocks.toString()).printStackTrace();
-                return;
-            }
-        }
-        // write genesis
-        File file = new File(blocks, genesisHash);
-        if (file.isFile()) {
-            return;
-        }
+    // returns false if the BlockStore can not be opened
+    private static boolean initBlocks() {
+        openLock.lock();
         try {
-            Files.write(file.toPath(), Converter.hexToBytes(genesis));
-        } catch (IOException exception) {
-            exception.printStackTrace();
+            if (blocks != null) {
+                return true;
+            }
+            initRoot();
+            File directory = new File(root, "blocks");
             try {
-                Files.delete(file.toPath());
-            } catch (IOException deleteException) {
-                deleteException.printStackTrace();
+                blocks = new BlockStore(directory);
+            } catch (IOException exception) {
+                exception.printStackTrace();
+                return false;
+            }
+            // move blocks from the files of the previous version, named by the block hash
+            File[] files = directory.listFiles((dir, name) -> name.length() == 64);
+            if (files != null) {
+                for (File file : files) {
+                    try {
+                        Hash hash = Hash.fromHex(file.getName());
+                        blocks.write(hash, new Block(Files.readAllBytes(file.toPath())));
+                        Files.delete(file.toPath());
+                    } catch (IOException | Message.Exception exception) {
+                        exception.printStackTrace();
+                    }
+                }
             }
+            // write genesis
+            try {
+                blocks.write(Hash.fromHex(genesisHash), new Block(Converter.hexToBytes(genesis)));
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+            return true;
+        } finally {
+            openLock.unlock();
         }
     }
 
     private static void initRoot() {
-        if (root != null) {
-            return;
-        }
-        root = new File(System.getProperty("user.home"), ".bitcoin.aqoleg.com");
-        if (!root.isDirectory()) {
-            if (!root.mkdirs()) {
-                new IOException("can not create directory " + root.toString()).printStackTrace();
+        openLock.lock();
+        try {
+            if (root != null) {
+                return;
+            }
+            root = new File(System.getProperty("user.home"), ".bitcoin.aqoleg.com");
+            if (!root.isDirectory()) {
+                if (!root.mkdirs()) {
+                    new IOException("can not create directory " + root.toString()).printStackTrace();
+                }
             }
+        } finally {
+            openLock.unlock();
         }
     }
 
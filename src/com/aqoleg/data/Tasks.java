@@ -0,0 +1,187 @@
+/*
+starts background tasks of the node on platform or virtual threads; thread-safe
+
+usage:
+    $ java -Dcom.aqoleg.virtualThreads=true ...
+
+    boolean isVirtual = Tasks.setVirtual(true);
+    boolean isVirtual = Tasks.isVirtual();
+    Thread thread = Tasks.start(runnable);
+    Executor executor = Tasks.executor();
+    Executor serialExecutor = Tasks.serialExecutor();
+    int running = Tasks.running();
+    boolean finished = Tasks.join(timeoutMillis);
+
+virtual threads require java 21 or newer, they are created with reflection, so the code can be run on java 8;
+if they are not available, platform threads are used;
+all started threads are tracked, join() waits for all of them, so the node can be stopped without sleeping;
+blocking tasks must not wait inside synchronized blocks, because it pins the carrier thread, use locks
+*/
+
+package com.aqoleg.data;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class Tasks {
+    private static final ThreadFactory virtualFactory = getVirtualFactory(); // null if there is no virtual threads
+    private static final ReentrantLock lock = new ReentrantLock();
+    private static final Condition finished = lock.newCondition();
+    private static final HashSet<Thread> threads = new HashSet<>();
+    private static volatile boolean virtual = Boolean.getBoolean("com.aqoleg.virtualThreads") && virtualFactory != null;
+
+    /**
+     * @param virtual true to start new tasks on virtual threads, false to start them on platform threads
+     * @return true if new tasks will be started on virtual threads
+     */
+    public static boolean setVirtual(boolean virtual) {
+        Tasks.virtual = virtual && virtualFactory != null;
+        return Tasks.virtual;
+    }
+
+    /**
+     * @return true if new tasks are started on virtual threads
+     */
+    public static boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * @param task task to run
+     * @return started thread
+     * @throws NullPointerException if task == null
+     */
+    public static Thread start(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        Runnable tracked = () -> {
+            try {
+                task.run();
+            } finally {
+                lock.lock();
+                try {
+                    threads.remove(Thread.currentThread());
+                    finished.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+        Thread thread = virtual ? virtualFactory.newThread(tracked) : new Thread(tracked);
+        lock.lock();
+        try {
+            threads.add(thread);
+        } finally {
+            lock.unlock();
+        }
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * @return executor for the short tasks, a new virtual thread for each task or the common ForkJoinPool
+     */
+    public static Executor executor() {
+        return virtual ? Tasks::start : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * @return executor which runs tasks one by one in the order of submission, without the idle thread
+     */
+    public static Executor serialExecutor() {
+        return new SerialExecutor();
+    }
+
+    /**
+     * @return number of running threads started by start()
+     */
+    public static int running() {
+        lock.lock();
+        try {
+            return threads.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * this method blocks the thread
+     *
+     * @param timeout max milliseconds to wait
+     * @return true if all threads started by start() have finished, except the current one
+     * @throws InterruptedException if the current thread is interrupted
+     */
+    public static boolean join(long timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!threads.isEmpty() && !(threads.size() == 1 && threads.contains(Thread.currentThread()))) {
+                long nanos = deadline - System.nanoTime();
+                if (nanos <= 0) {
+                    return false;
+                }
+                finished.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Thread.ofVirtual().factory() or null
+    private static ThreadFactory getVirtualFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            return null;
+        }
+    }
+
+    private static class SerialExecutor implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>(); // synchronized object
+        private boolean running = false;
+
+        @Override
+        public void execute(Runnable task) {
+            if (task == null) {
+                throw new NullPointerException();
+            }
+            synchronized (tasks) {
+                tasks.addLast(task);
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+            start(this::runAll);
+        }
+
+        private void runAll() {
+            while (true) {
+                Runnable task;
+                synchronized (tasks) {
+                    task = tasks.pollFirst();
+                    if (task == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                try {
+                    task.run();
+                } catch (RuntimeException exception) {
+                    exception.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,490 @@
+/*
+persistent set of unspent tx outputs, updated by connecting and disconnecting blocks; thread-safe
+
+usage:
+    UtxoSet utxoSet = new UtxoSet(directory);
+    UtxoSet utxoSet = new UtxoSet(directory, cacheSize);
+    Hash bestBlockHash = utxoSet.getBestBlock();
+    long size = utxoSet.size();
+    Transaction.Output output = utxoSet.getOutput(txHash, outIndex);
+    ArrayList<Transaction.Output> outputs = utxoSet.getOutputs(address);
+    utxoSet.connectBlock(block);
+    utxoSet.disconnectBlock(block);
+    utxoSet.flush();
+    utxoSet.close();
+
+the set is stored in the KeyValueStore
+key bytes:
+    byte, 'o'
+    byte[32], tx hash
+    intBE, output index
+value bytes:
+    longLE, value
+    varInt, scriptPubKeyLength
+    byte[scriptPubKeyLength], scriptPubKey
+address index, unspent outputs with the p2pkh, p2sh or p2pk scriptPubKey:
+    byte, 'a'
+    byte[20], hash of the public key or of the script, p2pk outputs use the hash of the public key
+    byte, type, Script.p2pkh or Script.p2sh
+    byte[32], tx hash
+    intBE, output index
+value bytes:
+    the same as the value of the output
+undo data of the connected block, outputs spent by this block, excluding outputs created by this block:
+    byte, 'u'
+    byte[32], block hash
+value bytes:
+    varInt, number of outputs
+    output[]:
+        byte[32], tx hash
+        intLE, output index
+        varInt, valueLength
+        byte[valueLength], value as above
+metadata of the store:
+    byte[32], hash of the last connected block
+    longLE, number of unspent outputs
+
+outputs are cached in the write-back lru cache, changed outputs are written into the store only when they are
+evicted or flushed; the store is flushed with the hash of the last connected block, so after the crash the set
+is the set of the last flushed block, it is flushed automatically when there are too many unflushed changes;
+the address index is changed together with the outputs, so all outputs of the address are read by one
+prefix scan of the store without downloading and searching blocks;
+coinbase inputs and provably unspendable op_return outputs are not stored
+*/
+
+package com.aqoleg.data;
+
+import com.aqoleg.crypto.Ripemd160;
+import com.aqoleg.crypto.Sha256;
+import com.aqoleg.keys.Address;
+import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Hash;
+import com.aqoleg.messages.Message;
+import com.aqoleg.messages.Script;
+import com.aqoleg.messages.Transaction;
+import com.aqoleg.utils.BytesInput;
+import com.aqoleg.utils.BytesOutput;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class UtxoSet implements BlockVerifier.OutputLookup {
+    public static final int defaultCacheSize = 1 << 18;
+    private static final byte outputPrefix = 'o';
+    private static final byte undoPrefix = 'u';
+    private static final byte addressPrefix = 'a';
+    private final KeyValueStore store;
+    private final int cacheSize;
+    private final Cache cache;
+    private Hash bestBlock; // null if no block was connected
+    private long size;
+    private int unflushed = 0; // changed outputs since the last flush
+
+    /**
+     * opens the set with the defaultCacheSize, creates the directory if there is no
+     *
+     * @param directory directory with the store
+     * @throws NullPointerException if directory == null
+     * @throws IOException          if cannot read or create files
+     */
+    public UtxoSet(File directory) throws IOException {
+        this(directory, defaultCacheSize);
+    }
+
+    /**
+     * opens the set, creates the directory if there is no
+     *
+     * @param directory directory with the store
+     * @param cacheSize maximum number of cached outputs
+     * @throws NullPointerException     if directory == null
+     * @throws IllegalArgumentException if cacheSize < 1
+     * @throws IOException              if cannot read or create files
+     */
+    public UtxoSet(File directory, int cacheSize) throws IOException {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("incorrect cacheSize");
+        }
+        store = new KeyValueStore(directory);
+        this.cacheSize = cacheSize;
+        cache = new Cache();
+        byte[] metadata = store.getMetadata();
+        if (metadata.length == 40) {
+            BytesInput bytesInput = new BytesInput(metadata);
+            bestBlock = Hash.fromBytes(bytesInput.readBytes(new byte[32]));
+            size = bytesInput.readLongLE();
+        }
+    }
+
+    /**
+     * @return hash of the last connected block or null if no block was connected
+     */
+    public synchronized Hash getBestBlock() {
+        return bestBlock;
+    }
+
+    /**
+     * @return number of unspent outputs
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @param txHash   hash of the tx
+     * @param outIndex index of the output in the tx
+     * @return unspent Transaction.Output or null if not found
+     * @throws NullPointerException if txHash == null
+     */
+    @Override
+    public synchronized Transaction.Output getOutput(Hash txHash, int outIndex) {
+        byte[] value = get(new Outpoint(txHash, outIndex));
+        if (value == null) {
+            return null;
+        }
+        BytesInput bytesInput = new BytesInput(value);
+        return new Transaction.Output(txHash, outIndex, bytesInput.readLongLE(), Script.fromBytesInput(bytesInput));
+    }
+
+    /**
+     * finds all unspent outputs of the address with one scan of the address index
+     *
+     * @param address Address, p2pk outputs are found with the p2pkh address of the same public key
+     * @return ArrayList with unspent outputs of the address, sorted by the tx hash and the index
+     * @throws NullPointerException if address == null
+     */
+    public synchronized ArrayList<Transaction.Output> getOutputs(Address address) {
+        BytesOutput prefix = new BytesOutput();
+        prefix.write(addressPrefix);
+        prefix.writeBytes(address.getHash());
+        prefix.write(address.p2pkh ? Script.p2pkh : Script.p2sh);
+        ArrayList<byte[]> keys = new ArrayList<>();
+        ArrayList<byte[]> values = new ArrayList<>();
+        store.scan(prefix.toByteArray(), keys, values);
+        ArrayList<Transaction.Output> outputs = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            BytesInput key = new BytesInput(keys.get(i));
+            key.skip(22);
+            Hash txHash = Hash.fromBytes(key.readBytes(new byte[32]));
+            int index = key.readIntBE();
+            BytesInput value = new BytesInput(values.get(i));
+            outputs.add(new Transaction.Output(txHash, index, value.readLongLE(), Script.fromBytesInput(value)));
+        }
+        return outputs;
+    }
+
+    /**
+     * adds outputs of the block and removes outputs spent by the block, block must be verified before
+     *
+     * @param block Block, the next one after the best block, or any block if the set is empty
+     * @throws NullPointerException if block == null
+     * @throws IOException          if cannot write
+     * @throws Message.Exception    if block bytes are incorrect
+     * @throws Exception            if the block is not the next one or it spends missing output,
+     *                              the set is not changed in this case
+     */
+    public synchronized void connectBlock(Block block) throws IOException {
+        if (bestBlock != null && !bestBlock.equals(block.getPrevBlockHash())) {
+            throw new Exception("block is not the next one after " + bestBlock);
+        }
+        // outputs spent by the block are checked before the set is changed
+        BytesOutput undo = new BytesOutput();
+        int undoNumber = 0;
+        HashSet<Outpoint> spent = new HashSet<>();
+        for (int i = 0; i < block.txNumber(); i++) {
+            Transaction transaction = block.getTx(i);
+            if (transaction.isCoinbase()) {
+                continue;
+            }
+            for (int j = 0; j < transaction.inputNumber(); j++) {
+                Outpoint outpoint = new Outpoint(transaction.getPreviousTxHash(j), transaction.getPreviousOutIndex(j));
+                if (!spent.add(outpoint)) {
+                    throw new Exception("double spent " + outpoint);
+                }
+                int txIndex = block.getTxIndex(outpoint.txHash);
+                if (txIndex >= 0 && txIndex < i) {
+                    if (outpoint.index < 0 || outpoint.index >= block.getTx(txIndex).outputNumber()) {
+                        throw new Exception("missing output " + outpoint);
+                    }
+                    continue; // created and spent in this block, not in the undo data
+                }
+                byte[] value = get(outpoint);
+                if (value == null) {
+                    throw new Exception("missing output " + outpoint);
+                }
+                outpoint.txHash.write(undo);
+                undo.writeIntLE(outpoint.index);
+                undo.writeVariableLength(value.length);
+                undo.writeBytes(value);
+                undoNumber++;
+            }
+        }
+        for (int i = 0; i < block.txNumber(); i++) {
+            Transaction transaction = block.getTx(i);
+            Hash txHash = block.getTxHash(i);
+            for (int j = 0; j < transaction.outputNumber(); j++) {
+                Transaction.Output output = transaction.getTxOutput(j);
+                byte[] value = encode(output);
+                if (!isUnspendable(value)) {
+                    put(new Outpoint(txHash, j), value);
+                }
+            }
+            if (!transaction.isCoinbase()) {
+                for (int j = 0; j < transaction.inputNumber(); j++) {
+                    put(new Outpoint(transaction.getPreviousTxHash(j), transaction.getPreviousOutIndex(j)), null);
+                }
+            }
+        }
+        BytesOutput undoRecord = new BytesOutput();
+        undoRecord.writeVariableLength(undoNumber);
+        undoRecord.writeBytes(undo.toByteArray());
+        store.put(getUndoKey(block.getHash()), undoRecord.toByteArray());
+        bestBlock = block.getHash();
+        if (unflushed > cacheSize) {
+            flush();
+        }
+    }
+
+    /**
+     * removes outputs of the block and restores outputs spent by the block
+     *
+     * @param block Block, the best block
+     * @throws NullPointerException if block == null
+     * @throws IOException          if cannot write
+     * @throws Message.Exception    if block bytes are incorrect
+     * @throws Exception            if the block is not the best block or there is no undo data
+     */
+    public synchronized void disconnectBlock(Block block) throws IOException {
+        Hash hash = block.getHash();
+        if (!hash.equals(bestBlock)) {
+            throw new Exception("block is not the best block " + bestBlock);
+        }
+        byte[] undoKey = getUndoKey(hash);
+        byte[] undo = store.get(undoKey);
+        if (undo == null) {
+            throw new Exception("no undo data for " + hash);
+        }
+        for (int i = block.txNumber() - 1; i >= 0; i--) {
+            Hash txHash = block.getTxHash(i);
+            for (int j = block.getTx(i).outputNumber() - 1; j >= 0; j--) {
+                Outpoint outpoint = new Outpoint(txHash, j);
+                if (get(outpoint) != null) {
+                    put(outpoint, null);
+                }
+            }
+        }
+        BytesInput bytesInput = new BytesInput(undo);
+        long undoNumber = bytesInput.readVariableLengthInt();
+        for (long i = 0; i < undoNumber; i++) {
+            Hash txHash = Hash.fromBytes(bytesInput.readBytes(new byte[32]));
+            int index = bytesInput.readIntLE();
+            put(new Outpoint(txHash, index), bytesInput.readBytes(new byte[(int) bytesInput.readVariableLengthInt()]));
+        }
+        store.delete(undoKey);
+        bestBlock = block.getPrevBlockHash();
+        if (unflushed > cacheSize) {
+            flush();
+        }
+    }
+
+    /**
+     * writes all changed outputs and the best block to the disk
+     *
+     * @throws IOException if cannot write
+     */
+    public synchronized void flush() throws IOException {
+        for (Map.Entry<Outpoint, CacheEntry> entry : cache.entrySet()) {
+            CacheEntry cacheEntry = entry.getValue();
+            if (cacheEntry.dirty) {
+                write(entry.getKey(), cacheEntry.value);
+                cacheEntry.dirty = false;
+            }
+        }
+        cache.values().removeIf(cacheEntry -> cacheEntry.value == null);
+        BytesOutput metadata = new BytesOutput();
+        if (bestBlock != null) {
+            bestBlock.write(metadata);
+            metadata.writeLongLE(size);
+        }
+        store.flush(metadata.toByteArray());
+        unflushed = 0;
+    }
+
+    /**
+     * flushes and closes the set
+     *
+     * @throws IOException if cannot write
+     */
+    public synchronized void close() throws IOException {
+        flush();
+        cache.clear();
+        store.close();
+    }
+
+    private static byte[] getUndoKey(Hash blockHash) {
+        BytesOutput bytesOutput = new BytesOutput();
+        bytesOutput.write(undoPrefix);
+        blockHash.write(bytesOutput);
+        return bytesOutput.toByteArray();
+    }
+
+    private static byte[] encode(Transaction.Output output) {
+        BytesOutput bytesOutput = new BytesOutput();
+        bytesOutput.writeLongLE(output.value);
+        output.getScriptPubKey().write(bytesOutput);
+        return bytesOutput.toByteArray();
+    }
+
+    // returns key of the address index or null if the scriptPubKey has no address
+    private static byte[] getAddressKey(Outpoint outpoint, byte[] value) {
+        int length = value[8] & 0xFF; // scripts with the address are short
+        byte[] hash = null;
+        int type = Script.p2pkh;
+        if (length == 25 && value[9] == 0x76 && value[10] == (byte) 0xa9 && value[11] == 20
+                && value[32] == (byte) 0x88 && value[33] == (byte) 0xac) { // p2pkh
+            hash = Arrays.copyOfRange(value, 12, 32);
+        } else if (length == 23 && value[9] == (byte) 0xa9 && value[10] == 20 && value[31] == (byte) 0x87) { // p2sh
+            hash = Arrays.copyOfRange(value, 11, 31);
+            type = Script.p2sh;
+        } else if ((length == 35 || length == 67) && value[9] == length - 2 && value[8 + length] == (byte) 0xac) {
+            // p2pk, the same address as p2pkh
+            hash = Ripemd160.getHash(Sha256.getHash(Arrays.copyOfRange(value, 10, 8 + length)));
+        }
+        if (hash == null) {
+            return null;
+        }
+        BytesOutput bytesOutput = new BytesOutput();
+        bytesOutput.write(addressPrefix);
+        bytesOutput.writeBytes(hash);
+        bytesOutput.write(type);
+        outpoint.txHash.write(bytesOutput);
+        bytesOutput.writeIntBE(outpoint.index);
+        return bytesOutput.toByteArray();
+    }
+
+    // returns true if the encoded scriptPubKey starts with op_return
+    private static boolean isUnspendable(byte[] value) {
+        return value.length > 9 && (value[8] & 0xFF) < 0xfd && value[9] == 0x6a;
+    }
+
+    // returns value from the cache or from the store, null if spent
+    private byte[] get(Outpoint outpoint) {
+        CacheEntry cacheEntry = cache.get(outpoint);
+        if (cacheEntry == null) {
+            byte[] value = store.get(outpoint.getKey());
+            if (value == null) {
+                return null;
+            }
+            cacheEntry = new CacheEntry(value, false);
+            cache.put(outpoint, cacheEntry);
+        }
+        return cacheEntry.value;
+    }
+
+    // puts value into the cache, null if spent, updates the address index
+    private void put(Outpoint outpoint, byte[] value) {
+        byte[] previous = get(outpoint);
+        cache.put(outpoint, new CacheEntry(value, true));
+        if (previous != null && value == null) {
+            size--;
+            byte[] addressKey = getAddressKey(outpoint, previous);
+            if (addressKey != null) {
+                store.delete(addressKey);
+            }
+        } else if (previous == null && value != null) {
+            size++;
+            byte[] addressKey = getAddressKey(outpoint, value);
+            if (addressKey != null) {
+                store.put(addressKey, value);
+            }
+        }
+        unflushed++;
+    }
+
+    private void write(Outpoint outpoint, byte[] value) {
+        if (value == null) {
+            store.delete(outpoint.getKey());
+        } else {
+            store.put(outpoint.getKey(), value);
+        }
+    }
+
+    public static class Exception extends RuntimeException {
+        private Exception(String message) {
+            super(message);
+        }
+    }
+
+    private static class Outpoint {
+        private final Hash txHash;
+        private final int index;
+
+        private Outpoint(Hash txHash, int index) {
+            if (txHash == null) {
+                throw new NullPointerException();
+            }
+            this.txHash = txHash;
+            this.index = index;
+        }
+
+        @Override
+        public String toString() {
+            return txHash + ":" + index;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof Outpoint)) {
+                return false;
+            }
+            Outpoint outpoint = (Outpoint) object;
+            return index == outpoint.index && txHash.equals(outpoint.txHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return txHash.hashCode() * 31 + index;
+        }
+
+        private byte[] getKey() {
+            BytesOutput bytesOutput = new BytesOutput();
+            bytesOutput.write(outputPrefix);
+            txHash.write(bytesOutput);
+            bytesOutput.writeIntBE(index);
+            return bytesOutput.toByteArray();
+        }
+    }
+
+    private static class CacheEntry {
+        private final byte[] value; // null if spent
+        private boolean dirty; // not written into the store
+
+        private CacheEntry(byte[] value, boolean dirty) {
+            this.value = value;
+            this.dirty = dirty;
+        }
+    }
+
+    // lru cache, evicted dirty entries are written into the store
+    private class Cache extends LinkedHashMap<Outpoint, CacheEntry> {
+
+        private Cache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Outpoint, CacheEntry> eldest) {
+            if (size() <= cacheSize) {
+                return false;
+            }
+            if (eldest.getValue().dirty) {
+                write(eldest.getKey(), eldest.getValue().value);
+            }
+            return true;
+        }
+    }
+}
@@ -28,16 +28,18 @@ import java.util.Arrays;
 
 public class Address {
     public final boolean p2pkh; // true if p2pkh address, else p2sh address
+    final byte[] hash; // not changed
     private final String address;
 
     private Address(byte[] hash, boolean p2pkh) {
         this.p2pkh = p2pkh;
+        this.hash = hash.clone();
         byte[] bytes = new byte[25];
         if (!p2pkh) {
             bytes[0] = 0x05;
         }
         System.arraycopy(hash, 0, bytes, 1, 20);
-        byte[] checksum = Sha256.getHash(Sha256.getHash(bytes, 0, 21));
+        byte[] checksum = Sha256.getDoubleHash(bytes, 0, 21);
         System.arraycopy(checksum, 0, bytes, 21, 4);
         address = Base58.encode(bytes);
     }
@@ -64,12 +66,13 @@ public class Address {
         } else {
             throw new Exception("incorrect version " + bytes[0] + ", requires 0x00 or 0x05");
         }
-        byte[] checksum = Sha256.getHash(Sha256.getHash(bytes, 0, 21));
+        byte[] checksum = Sha256.getDoubleHash(bytes, 0, 21);
         for (int i = 0; i < 4; i++) {
             if (checksum[i] != bytes[21 + i]) {
                 throw new Exception("incorrect checksum");
             }
         }
+        hash = Arrays.copyOfRange(bytes, 1, 21);
         this.address = address;
     }
 
@@ -138,7 +141,7 @@ public class Address {
      * @return 20 bytes hash of the script or of the public key
      */
     public byte[] getHash() {
-        return Arrays.copyOfRange(Base58.decode(address), 1, 21);
+        return hash.clone();
     }
 
     private static String toString(String input) {
@@ -0,0 +1,135 @@
+/*
+immutable set of addresses for searching outputs of many addresses in one pass; thread-safe
+
+usage:
+    AddressMatcher matcher = new AddressMatcher(addresses);
+    int size = matcher.size();
+    boolean matches = matcher.matches(address);
+    boolean matches = matcher.matches(scriptPubKey.address);
+    boolean matches = matcher.matches(hashBytes, start, isP2pkh);
+
+the bloom filter with 16 bits per address and 4 bit positions rejects almost all other hashes,
+the bit positions are taken from the hash itself, because its bytes are uniformly distributed;
+the hash which passes the filter is searched in the sorted array of the first 8 bytes of the hashes
+and then compared with the remaining 12 bytes and the type
+*/
+
+package com.aqoleg.keys;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+public class AddressMatcher {
+    private static final int hashNumber = 4; // bit positions per address
+    private final long[] filter;
+    private final int filterMask; // number of bits - 1
+    private final long[] prefixes; // sorted first 8 bytes of the hashes, big-endian
+    private final byte[] suffixes; // for each prefix, the remaining 12 bytes of the hash
+    private final boolean[] p2pkh; // for each prefix, the type of the address
+
+    /**
+     * @param addresses addresses to search, duplicates are allowed
+     * @throws NullPointerException if addresses == null or contains null
+     */
+    public AddressMatcher(Collection<Address> addresses) {
+        int size = addresses.size();
+        int bits = 64;
+        while (bits < size * 16 && bits < 1 << 30) {
+            bits <<= 1;
+        }
+        filter = new long[bits / 64];
+        filterMask = bits - 1;
+        Address[] sorted = addresses.toArray(new Address[0]);
+        Arrays.sort(sorted, Comparator.comparingLong(address -> getPrefix(address.hash, 0)));
+        prefixes = new long[size];
+        suffixes = new byte[size * 12];
+        p2pkh = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            byte[] hash = sorted[i].hash;
+            for (int j = 0; j < hashNumber; j++) {
+                int bit = getBit(hash, 0, j) & filterMask;
+                filter[bit >>> 6] |= 1L << bit;
+            }
+            prefixes[i] = getPrefix(hash, 0);
+            System.arraycopy(hash, 8, suffixes, i * 12, 12);
+            p2pkh[i] = sorted[i].p2pkh;
+        }
+    }
+
+    /**
+     * @return number of addresses
+     */
+    public int size() {
+        return prefixes.length;
+    }
+
+    /**
+     * @param address Address or null, for example Script.address of the undefined script
+     * @return true if the address is in the set
+     */
+    public boolean matches(Address address) {
+        return address != null && matches(address.hash, 0, address.p2pkh);
+    }
+
+    /**
+     * @param hash  array containing 20-bytes hash of the public key or of the script
+     * @param start starting position in the array
+     * @param p2pkh true if the hash is the hash of the public key
+     * @return true if the address with this hash is in the set
+     * @throws NullPointerException      if hash == null
+     * @throws IndexOutOfBoundsException if start is incorrect
+     */
+    public boolean matches(byte[] hash, int start, boolean p2pkh) {
+        if (start < 0 || start > hash.length - 20) {
+            throw new IndexOutOfBoundsException("incorrect start " + start);
+        }
+        for (int j = 0; j < hashNumber; j++) {
+            int bit = getBit(hash, start, j) & filterMask;
+            if ((filter[bit >>> 6] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        long prefix = getPrefix(hash, start);
+        int i = Arrays.binarySearch(prefixes, prefix);
+        if (i < 0) {
+            return false;
+        }
+        while (i > 0 && prefixes[i - 1] == prefix) {
+            i--;
+        }
+        for (; i < prefixes.length && prefixes[i] == prefix; i++) {
+            if (this.p2pkh[i] == p2pkh && equalsSuffix(i, hash, start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // first 8 bytes, big-endian
+    private static long getPrefix(byte[] hash, int start) {
+        long prefix = 0;
+        for (int i = 0; i < 8; i++) {
+            prefix = prefix << 8 | (hash[start + i] & 0xFF);
+        }
+        return prefix;
+    }
+
+    // j-th bit position, 4 bytes from the different parts of the hash
+    private static int getBit(byte[] hash, int start, int j) {
+        int offset = start + j * 4;
+        return (hash[offset] & 0xFF)
+                | (hash[offset + 1] & 0xFF) << 8
+                | (hash[offset + 2] & 0xFF) << 16
+                | (hash[offset + 3] & 0xFF) << 24;
+    }
+
+    private boolean equalsSuffix(int i, byte[] hash, int start) {
+        for (int j = 0; j < 12; j++) {
+            if (suffixes[i * 12 + j] != hash[start + 8 + j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
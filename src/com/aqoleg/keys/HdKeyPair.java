@@ -128,7 +128,7 @@ public class HdKeyPair extends KeyPair {
             throw new Exception("incorrect first byte of the key, requires 0x00");
         }
         byte[] key = bytesInput.readBytes(new byte[32]);
-        byte[] checksum = Sha256.getHash(Sha256.getHash(bytes, 0, 78));
+        byte[] checksum = Sha256.getDoubleHash(bytes, 0, 78);
         for (int i = 0; i < 4; i++) {
             if ((checksum[i] & 0xFF) != bytesInput.read()) {
                 throw new Exception("incorrect checksum");
@@ -292,7 +292,7 @@ public class HdKeyPair extends KeyPair {
         } else {
             bytes.writeBytes(publicKey.toByteArray());
         }
-        byte[] checksum = Sha256.getHash(Sha256.getHash(bytes.toByteArray()));
+        byte[] checksum = Sha256.getDoubleHash(bytes.toByteArray());
         bytes.writeBytes(checksum, 0, 4);
         return Base58.encode(bytes.toByteArray());
     }
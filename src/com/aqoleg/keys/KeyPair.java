@@ -88,7 +88,7 @@ public class KeyPair {
         if (compressed && bytes[33] != 0x01) {
             throw new Exception("incorrect compressed flag " + bytes[33] + ", requires 0x01");
         }
-        byte[] checksum = Sha256.getHash(Sha256.getHash(bytes, 0, compressed ? 34 : 33));
+        byte[] checksum = Sha256.getDoubleHash(bytes, 0, compressed ? 34 : 33);
         for (int i = 0; i < 4; i++) {
             if (checksum[i] != bytes[(compressed ? 34 : 33) + i]) {
                 throw new Exception("incorrect checksum");
@@ -159,7 +159,7 @@ public class KeyPair {
         if (publicKey.compressed) {
             bytes[33] = 0x01;
         }
-        byte[] checksum = Sha256.getHash(Sha256.getHash(bytes, 0, publicKey.compressed ? 34 : 33));
+        byte[] checksum = Sha256.getDoubleHash(bytes, 0, publicKey.compressed ? 34 : 33);
         System.arraycopy(checksum, 0, bytes, publicKey.compressed ? 34 : 33, 4);
         return Base58.encode(bytes);
     }
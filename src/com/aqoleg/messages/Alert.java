@@ -132,7 +132,7 @@ public class Alert extends Message {
                 throw new Message.Exception("incorrect object length");
             }
             Ecc.verify(
-                    Sha256.getHash(Sha256.getHash(bytes, alertPayloadStartPos, alertPayloadLength)),
+                    Sha256.getDoubleHash(bytes, alertPayloadStartPos, alertPayloadLength),
                     publicKey.point,
                     new BigInteger[]{new BigInteger(rBytes), new BigInteger(sBytes)}
             );
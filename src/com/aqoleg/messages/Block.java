@@ -1,16 +1,23 @@
 /*
-bitcoin block, response to the GetData message; stored in the filesystem
+bitcoin block, response to the GetData message; stored in the filesystem; thread-safe
 
 usage:
     Block block = (Block) Message.read(inputStream);
     Block block = new Block(bytes);
+    Block block = new Block(byteBuffer);
     block.write(outputStream);
     String string = block.toString();
-    String hash = block.getHash();
+    Hash hash = block.getHash();
+    Hash prevBlockHash = block.getPrevBlockHash();
+    int size = block.getSize();
     int txNumber = block.txNumber();
+    Hash txHash = block.getTxHash(i);
     Transaction transaction = block.getTx(i);
-    Transaction transaction = block.getTx(hash);
+    Transaction transaction = block.getTx(txHash);
+    int txIndex = block.getTxIndex(txHash);
+    boolean correct = block.checkMerkleRoot();
     boolean found = block.searchTxOutput(address, txOutputsList);
+    boolean found = block.searchTxOutput(addressMatcher, txOutputsList);
 
 bytes:
     intLE, version
@@ -22,26 +29,43 @@ bytes:
     varInt, count
     tx[]:
         Transaction
+
+the block is a view of the bytes, it is not copied and must not be changed;
+the constructor only checks the structure and records the offsets of the transactions,
+Transaction objects and tx hashes are created when they are requested;
+the index of tx hashes is created with the first search by hash, it is the open-addressing hash table
+with linear probing, which contains tx indexes, and the array of all 32-bytes tx hashes
 */
 
 package com.aqoleg.messages;
 
+import com.aqoleg.crypto.HeaderHash;
+import com.aqoleg.crypto.Ripemd160;
 import com.aqoleg.crypto.Sha256;
 import com.aqoleg.data.Storage;
 import com.aqoleg.keys.Address;
-import com.aqoleg.utils.BytesInput;
+import com.aqoleg.keys.AddressMatcher;
+import com.aqoleg.utils.BytesOutput;
 import com.aqoleg.utils.Converter;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class Block extends Message implements Storage.Writable {
     public static final String command = "block";
-    private final byte[] bytes;
-    private final Transaction[] transactions;
-    private String hash;
+    private static final ThreadLocal<HeaderHash> headerHash = ThreadLocal.withInitial(HeaderHash::new);
+    private final ByteBuffer bytes; // position is 0, limit is the block size, only absolute gets are used
+    private final int[] txOffsets; // start of each tx and the end of the last one
+    private final AtomicReferenceArray<Transaction> transactions; // created on request
+    private final Hash[] txHashes; // created on request
+    private volatile TxIndex txIndex; // created on request
+    private Hash hash;
 
     /**
      * @param bytes byte array with payload
@@ -49,22 +73,41 @@ public class Block extends Message implements Storage.Writable {
      * @throws Message.Exception    if bytes are incorrect
      */
     public Block(byte[] bytes) {
-        BytesInput bytesInput = new BytesInput(bytes);
-        if (bytesInput.skip(80) != 80) { // version, prevBlock, merkleRoot, timestamp, bits, nonce
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * creates the view of the remaining bytes of the byteBuffer, for example of the memory-mapped file
+     *
+     * @param byteBuffer ByteBuffer with payload, its position is not changed
+     * @throws NullPointerException if byteBuffer == null
+     * @throws Message.Exception    if bytes are incorrect
+     */
+    public Block(ByteBuffer byteBuffer) {
+        bytes = byteBuffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (bytes.limit() < 80) { // version, prevBlock, merkleRoot, timestamp, bits, nonce
             throw new Message.Exception("short header");
         }
+        int[] position = {80};
         try {
-            transactions = new Transaction[(int) bytesInput.readVariableLengthInt()]; // count
-        } catch (IndexOutOfBoundsException | NegativeArraySizeException exception) {
+            long count = readVariableLengthInt(position);
+            if (count < 0 || count > (bytes.limit() - position[0]) / 10) { // 10 is the minimal tx size
+                throw new Message.Exception("incorrect count " + count);
+            }
+            txOffsets = new int[(int) count + 1];
+            for (int i = 0; i < count; i++) {
+                txOffsets[i] = position[0];
+                skipTx(position);
+            }
+        } catch (IndexOutOfBoundsException exception) {
             throw new Message.Exception(exception.getMessage());
         }
-        for (int i = 0; i < transactions.length; i++) {
-            transactions[i] = Transaction.fromBytesInput(bytesInput);
-        }
-        if (bytesInput.available() != 0) {
+        if (position[0] != bytes.limit()) {
             throw new Message.Exception("big length");
         }
-        this.bytes = bytes;
+        txOffsets[txOffsets.length - 1] = position[0];
+        transactions = new AtomicReferenceArray<>(txOffsets.length - 1);
+        txHashes = new Hash[txOffsets.length - 1];
     }
 
     /**
@@ -77,8 +120,18 @@ public class Block extends Message implements Storage.Writable {
      */
     @Override
     public int write(OutputStream outputStream) throws IOException {
-        outputStream.write(bytes);
-        return bytes.length;
+        if (bytes.hasArray()) {
+            outputStream.write(bytes.array(), bytes.arrayOffset(), bytes.limit());
+        } else {
+            byte[] buffer = new byte[8192];
+            ByteBuffer byteBuffer = bytes.duplicate();
+            while (byteBuffer.hasRemaining()) {
+                int length = Math.min(buffer.length, byteBuffer.remaining());
+                byteBuffer.get(buffer, 0, length);
+                outputStream.write(buffer, 0, length);
+            }
+        }
+        return bytes.limit();
     }
 
     /**
@@ -89,40 +142,75 @@ public class Block extends Message implements Storage.Writable {
      */
     @Override
     public String toString() {
-        BytesInput bytesInput = new BytesInput(bytes);
         StringBuilder out = new StringBuilder();
         out.append("blockHash: ").append(getHash());
-        out.append(", version: ").append(bytesInput.readIntLE());
-        byte[] bytes = new byte[32];
-        bytesInput.readBytes(bytes);
-        out.append(", prevBlock: ").append(Converter.bytesToHexReverse(bytes, false, false));
-        bytesInput.readBytes(bytes);
-        out.append(", merkleRoot: ").append(Converter.bytesToHexReverse(bytes, false, false));
-        out.append(", timestamp: ").append(Instant.ofEpochSecond(bytesInput.readIntLE()));
-        out.append(", bits: ").append(bytesInput.readIntLE());
-        out.append(", nonce: ").append(bytesInput.readIntLE());
-        out.append(", count: ").append(transactions.length);
-        for (int i = 0; i < transactions.length; i++) {
-            out.append(", ").append(i).append(": (").append(transactions[i]).append(')');
+        out.append(", version: ").append(bytes.getInt(0));
+        out.append(", prevBlock: ").append(Converter.bytesToHexReverse(getBytes(4, 32), false, false));
+        out.append(", merkleRoot: ").append(Converter.bytesToHexReverse(getBytes(36, 32), false, false));
+        out.append(", timestamp: ").append(Instant.ofEpochSecond(bytes.getInt(68)));
+        out.append(", bits: ").append(bytes.getInt(72));
+        out.append(", nonce: ").append(bytes.getInt(76));
+        out.append(", count: ").append(txNumber());
+        for (int i = 0; i < txNumber(); i++) {
+            out.append(", ").append(i).append(": (").append(getTx(i)).append(')');
         }
         return out.toString();
     }
 
     /**
-     * @return reversed 32-bytes hex hash of this block
+     * @return hash of this block
      */
-    public String getHash() {
+    public Hash getHash() {
         if (hash == null) {
-            hash = Converter.bytesToHexReverse(Sha256.getHash(Sha256.getHash(bytes, 0, 80)), false, false);
+            byte[] hashBytes = new byte[32];
+            headerHash.get().getHash(getBytes(0, 80), 0, hashBytes, 0);
+            hash = new Hash(hashBytes);
         }
         return hash;
     }
 
+    /**
+     * @return hash of the previous block
+     */
+    public Hash getPrevBlockHash() {
+        return new Hash(getBytes(4, 32));
+    }
+
+    /**
+     * @return size of this block in bytes
+     */
+    public int getSize() {
+        return bytes.limit();
+    }
+
     /**
      * @return number of transactions in this block
      */
     public int txNumber() {
-        return transactions.length;
+        return txOffsets.length - 1;
+    }
+
+    /**
+     * calculates the hash without creating the Transaction
+     *
+     * @param i transaction index
+     * @return hash of the tx with this index
+     * @throws IndexOutOfBoundsException if i is incorrect
+     */
+    public Hash getTxHash(int i) {
+        Hash txHash = txHashes[i];
+        if (txHash == null) {
+            TxIndex txIndex = this.txIndex;
+            if (txIndex == null) {
+                byte[] hashBytes = new byte[32];
+                getTxHash(i, hashBytes, 0);
+                txHash = new Hash(hashBytes);
+            } else {
+                txHash = Hash.fromBytes(txIndex.hashes, i * 32);
+            }
+            txHashes[i] = txHash; // immutable, can be calculated twice by concurrent threads
+        }
+        return txHash;
     }
 
     /**
@@ -131,24 +219,74 @@ public class Block extends Message implements Storage.Writable {
      * @throws IndexOutOfBoundsException if i is incorrect
      */
     public Transaction getTx(int i) {
-        return transactions[i];
+        Transaction transaction = transactions.get(i);
+        if (transaction == null) {
+            ByteBuffer txBytes = getTxBytes(i);
+            byte[] txArray = new byte[txBytes.remaining()];
+            txBytes.get(txArray);
+            transactions.compareAndSet(i, null, Transaction.fromBytes(txArray));
+            transaction = transactions.get(i);
+        }
+        return transaction;
     }
 
     /**
-     * @param hash reversed 32-bytes hex hash of the tx
+     * @param hash hash of the tx
      * @return Transaction with this hash or null
+     * @throws NullPointerException if hash == null
      */
-    public Transaction getTx(String hash) {
-        for (Transaction transaction : transactions) {
-            if (transaction.getHash().equals(hash)) {
-                return transaction;
+    public Transaction getTx(Hash hash) {
+        int i = getTxIndex(hash);
+        return i < 0 ? null : getTx(i);
+    }
+
+    /**
+     * @param hash hash of the tx
+     * @return index of the first tx with this hash or -1
+     * @throws NullPointerException if hash == null
+     */
+    public int getTxIndex(Hash hash) {
+        TxIndex txIndex = this.txIndex;
+        if (txIndex == null) {
+            txIndex = new TxIndex();
+            this.txIndex = txIndex; // immutable, can be created twice by concurrent threads
+        }
+        return txIndex.get(hash.bytes, 0);
+    }
+
+    /**
+     * the tree with the same adjacent hashes is incorrect, because it has the same root as the tree without
+     * the duplicated transactions
+     *
+     * @return true if the merkleRoot of the header is the root of the merkle tree of the tx hashes
+     */
+    public boolean checkMerkleRoot() {
+        int number = txNumber();
+        if (number == 0) {
+            return false;
+        }
+        byte[] tree = new byte[number * 32]; // hashes of the current level
+        for (int i = 0; i < number; i++) {
+            System.arraycopy(getTxHash(i).bytes, 0, tree, i * 32, 32);
+        }
+        Sha256 sha256 = new Sha256();
+        while (number > 1) {
+            for (int i = 0; i < number; i += 2) {
+                int right = i + 1 < number ? i + 1 : i; // the last odd hash is paired with itself
+                if (right != i && equals(tree, i * 32, right * 32)) {
+                    return false;
+                }
+                sha256.update(tree, i * 32, 32).update(tree, right * 32, 32).doFinal(tree, i / 2 * 32);
+                sha256.update(tree, i / 2 * 32, 32).doFinal(tree, i / 2 * 32);
             }
+            number = (number + 1) / 2;
         }
-        return null;
+        return equals(36, Arrays.copyOf(tree, 32));
     }
 
     /**
-     * add to the list all found outputs for this address
+     * add to the list all found outputs for this address,
+     * only transactions which can contain such outputs are created
      *
      * @param address for searching outputs
      * @param outputs ArrayList to add found output into
@@ -156,12 +294,301 @@ public class Block extends Message implements Storage.Writable {
      * @throws NullPointerException if address == null or outputs == null
      */
     public boolean searchTxOutput(Address address, ArrayList<Transaction.Output> outputs) {
+        BytesOutput bytesOutput = new BytesOutput();
+        Script.createScriptPubKey(address).write(bytesOutput);
+        byte[] scriptPubKey = bytesOutput.toByteArray(); // with length
+        byte[] hash = address.p2pkh ? address.getHash() : null; // for p2pk outputs
+        if (outputs == null) {
+            throw new NullPointerException();
+        }
+        boolean found = false;
+        for (int i = 0; i < txNumber(); i++) {
+            Transaction transaction = transactions.get(i);
+            if (transaction == null && mayHaveTxOutput(i, scriptPubKey, hash)) {
+                transaction = getTx(i);
+            }
+            if (transaction != null && transaction.searchTxOutput(address, outputs)) {
+                found = true;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * add to the list all found outputs for any of the addresses, the block is read once,
+     * only transactions which can contain such outputs are created
+     *
+     * @param matcher AddressMatcher with addresses for searching outputs
+     * @param outputs ArrayList to add found output into
+     * @return true if found
+     * @throws NullPointerException if matcher == null or outputs == null
+     */
+    public boolean searchTxOutput(AddressMatcher matcher, ArrayList<Transaction.Output> outputs) {
+        if (matcher == null || outputs == null) {
+            throw new NullPointerException();
+        }
+        byte[] hash = new byte[20];
         boolean found = false;
-        for (Transaction transaction : transactions) {
-            if (transaction.searchTxOutput(address, outputs)) {
+        for (int i = 0; i < txNumber(); i++) {
+            Transaction transaction = transactions.get(i);
+            if (transaction == null && mayHaveTxOutput(i, matcher, hash)) {
+                transaction = getTx(i);
+            }
+            if (transaction != null && transaction.searchTxOutput(matcher, outputs)) {
                 found = true;
             }
         }
         return found;
     }
-}
\ No newline at end of file
+
+    // writes double sha256 of the tx bytes into the out
+    private void getTxHash(int i, byte[] out, int outStart) {
+        Sha256 sha256 = new Sha256().update(getTxBytes(i));
+        sha256.doFinal(out, outStart);
+        sha256.update(out, outStart, 32).doFinal(out, outStart);
+    }
+
+    // returns copy of the bytes
+    private byte[] getBytes(int start, int length) {
+        byte[] out = new byte[length];
+        ByteBuffer byteBuffer = bytes.duplicate();
+        byteBuffer.position(start);
+        byteBuffer.get(out);
+        return out;
+    }
+
+    // returns view of the tx bytes
+    private ByteBuffer getTxBytes(int i) {
+        ByteBuffer byteBuffer = bytes.duplicate();
+        byteBuffer.limit(txOffsets[i + 1]).position(txOffsets[i]);
+        return byteBuffer;
+    }
+
+    // reads varInt from the position[0] and moves it; throws IndexOutOfBoundsException
+    private long readVariableLengthInt(int[] position) {
+        int firstByte = bytes.get(position[0]++) & 0xFF;
+        long out;
+        if (firstByte == 0xFD) {
+            out = bytes.getShort(position[0]) & 0xFFFF;
+            position[0] += 2;
+        } else if (firstByte == 0xFE) {
+            out = bytes.getInt(position[0]) & 0xFFFFFFFFL;
+            position[0] += 4;
+        } else if (firstByte == 0xFF) {
+            out = bytes.getLong(position[0]);
+            position[0] += 8;
+        } else {
+            out = firstByte;
+        }
+        return out;
+    }
+
+    // moves position[0] by length; throws IndexOutOfBoundsException
+    private void skip(int[] position, long length) {
+        if (length < 0 || length > bytes.limit() - position[0]) {
+            throw new IndexOutOfBoundsException("short length");
+        }
+        position[0] += (int) length;
+    }
+
+    // checks the structure of the tx from the position[0] and moves it to the end of the tx, as Transaction does
+    private void skipTx(int[] position) {
+        skip(position, 4); // version
+        long count = readVariableLengthInt(position); // flag or #vin
+        boolean witness = count == 0;
+        if (witness) {
+            if (bytes.get(position[0]++) != 1) {
+                throw new Message.Exception("incorrect witness flag");
+            }
+            count = readVariableLengthInt(position);
+        }
+        for (long i = 0; i < count; i++) {
+            skip(position, 36); // previousTransactionHash, previousOutIndex
+            skip(position, readVariableLengthInt(position)); // scriptSig
+            skip(position, 4); // sequence
+        }
+        count = readVariableLengthInt(position); // #vout
+        for (long i = 0; i < count; i++) {
+            skip(position, 8); // value
+            skip(position, readVariableLengthInt(position)); // scriptPubKey
+        }
+        if (witness) {
+            count = readVariableLengthInt(position); // #witnesses
+            for (long i = 0; i < count; i++) {
+                skip(position, readVariableLengthInt(position)); // witness
+            }
+        }
+        skip(position, 4); // lockTime
+    }
+
+    // returns true if the tx has output with this scriptPubKey or p2pk output with this public key hash
+    private boolean mayHaveTxOutput(int i, byte[] scriptPubKey, byte[] publicKeyHash) {
+        int[] position = {txOffsets[i] + 4}; // version
+        long count = readVariableLengthInt(position); // flag or #vin
+        if (count == 0) {
+            position[0]++; // witness flag
+            count = readVariableLengthInt(position);
+        }
+        for (long j = 0; j < count; j++) {
+            position[0] += 36; // previousTransactionHash, previousOutIndex
+            skip(position, readVariableLengthInt(position)); // scriptSig
+            position[0] += 4; // sequence
+        }
+        count = readVariableLengthInt(position); // #vout
+        for (long j = 0; j < count; j++) {
+            position[0] += 8; // value
+            int start = position[0];
+            int length = (int) readVariableLengthInt(position);
+            if (position[0] - start + length == scriptPubKey.length && equals(start, scriptPubKey)) {
+                return true;
+            } else if (publicKeyHash != null && (length == 35 || length == 67)) { // p2pk: pubKey checksig
+                int publicKeyLength = bytes.get(position[0]) & 0xFF;
+                if (publicKeyLength == length - 2 && (bytes.get(position[0] + length - 1) & 0xFF) == 0xac) {
+                    byte[] publicKey = getBytes(position[0] + 1, publicKeyLength);
+                    if (equals(Ripemd160.getHash(Sha256.getHash(publicKey)), publicKeyHash)) {
+                        return true;
+                    }
+                }
+            }
+            position[0] += length;
+        }
+        return false;
+    }
+
+    // returns true if the tx has p2pkh, p2sh or p2pk output with the hash from the matcher, hash is the buffer
+    private boolean mayHaveTxOutput(int i, AddressMatcher matcher, byte[] hash) {
+        int[] position = {txOffsets[i] + 4}; // version
+        long count = readVariableLengthInt(position); // flag or #vin
+        if (count == 0) {
+            position[0]++; // witness flag
+            count = readVariableLengthInt(position);
+        }
+        for (long j = 0; j < count; j++) {
+            position[0] += 36; // previousTransactionHash, previousOutIndex
+            skip(position, readVariableLengthInt(position)); // scriptSig
+            position[0] += 4; // sequence
+        }
+        count = readVariableLengthInt(position); // #vout
+        for (long j = 0; j < count; j++) {
+            position[0] += 8; // value
+            int length = (int) readVariableLengthInt(position);
+            int start = position[0];
+            if (length == 25 && (bytes.get(start) & 0xFF) == 0x76 && (bytes.get(start + 1) & 0xFF) == 0xa9
+                    && bytes.get(start + 2) == 20) { // p2pkh: dup hash160 pubKeyHash equalverify checksig
+                if (matcher.matches(copy(start + 3, hash), 0, true)) {
+                    return true;
+                }
+            } else if (length == 23 && (bytes.get(start) & 0xFF) == 0xa9 && bytes.get(start + 1) == 20) {
+                // p2sh: hash160 scriptHash equal
+                if (matcher.matches(copy(start + 2, hash), 0, false)) {
+                    return true;
+                }
+            } else if (length == 35 || length == 67) { // p2pk: pubKey checksig
+                int publicKeyLength = bytes.get(start) & 0xFF;
+                if (publicKeyLength == length - 2 && (bytes.get(start + length - 1) & 0xFF) == 0xac) {
+                    byte[] publicKey = getBytes(start + 1, publicKeyLength);
+                    if (matcher.matches(Ripemd160.getHash(Sha256.getHash(publicKey)), 0, true)) {
+                        return true;
+                    }
+                }
+            }
+            position[0] += length;
+        }
+        return false;
+    }
+
+    // copies 20 bytes from the start into the hash and returns it
+    private byte[] copy(int start, byte[] hash) {
+        for (int i = 0; i < 20; i++) {
+            hash[i] = bytes.get(start + i);
+        }
+        return hash;
+    }
+
+    private boolean equals(int start, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (bytes.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(byte[] bytes, int start1, int start2) {
+        for (int i = 0; i < 32; i++) {
+            if (bytes[start1 + i] != bytes[start2 + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equals(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // hashes of all txs and the hash table of their indexes
+    private class TxIndex {
+        private final byte[] hashes; // 32-bytes hash of each tx
+        private final int[] slots; // tx index + 1, or 0 if empty
+        private final int mask;
+
+        private TxIndex() {
+            int count = txNumber();
+            hashes = new byte[count * 32];
+            int capacity = 2;
+            while (capacity < count * 2) { // load factor is at most 0.5
+                capacity <<= 1;
+            }
+            slots = new int[capacity];
+            mask = capacity - 1;
+            for (int i = 0; i < count; i++) {
+                getTxHash(i, hashes, i * 32);
+                int slot = getSlot(hashes, i * 32);
+                while (true) {
+                    if (slots[slot] == 0) {
+                        slots[slot] = i + 1;
+                        break;
+                    } else if (equals(slots[slot] - 1, hashes, i * 32)) {
+                        break; // keep the first tx with the same hash
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            }
+        }
+
+        // returns index of the tx with this hash or -1
+        private int get(byte[] hash, int hashStart) {
+            int slot = getSlot(hash, hashStart);
+            while (slots[slot] != 0) {
+                if (equals(slots[slot] - 1, hash, hashStart)) {
+                    return slots[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        // hash bytes are uniformly distributed, so any 4 bytes are a good hash code
+        private int getSlot(byte[] hash, int hashStart) {
+            return ((hash[hashStart] & 0xFF)
+                    | (hash[hashStart + 1] & 0xFF) << 8
+                    | (hash[hashStart + 2] & 0xFF) << 16
+                    | (hash[hashStart + 3] & 0xFF) << 24) & mask;
+        }
+
+        private boolean equals(int i, byte[] hash, int hashStart) {
+            for (int j = 0; j < 32; j++) {
+                if (hashes[i * 32 + j] != hash[hashStart + j]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
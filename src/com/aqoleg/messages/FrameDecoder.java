@@ -0,0 +1,200 @@
+/*
+incremental message decoder over the ByteBuffer, without copying of the payload; not synchronized
+
+usage:
+    FrameDecoder decoder = new FrameDecoder(stringArrayWithCommands);
+    FrameDecoder.Frame frame = decoder.next(byteBuffer);
+    int required = decoder.getRequired();
+    String command = frame.command;
+    ByteBuffer payload = frame.payload;
+    Message subclassMessage = frame.toMessage();
+
+next() consumes bytes from the position of the byteBuffer and returns the frame with one of the requested commands,
+or null if there is no complete frame in the byteBuffer;
+the magic is searched with int comparisons, the command is compared as the precomputed 12-bytes key,
+the checksum is hashed directly from the byteBuffer;
+frames with other commands are skipped without hashing and without buffering, even if they are bigger than the buffer;
+the payload is the read-only slice of the byteBuffer, it is valid until the byteBuffer is compacted or cleared;
+after next() returned null, the bytes from the position must be kept, getRequired() returns the length of the frame,
+so the caller can grow the buffer or stop reading until it has the space
+
+message bytes:
+    byte[4], magic
+    byte[12], command
+    intLE, length of payload
+    byte[4], checksum, first 4 bytes of sha256(sha256(payload))
+    byte[length of payload], payload
+*/
+
+package com.aqoleg.messages;
+
+import com.aqoleg.crypto.Sha256;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class FrameDecoder {
+    public static final int headerLength = 24;
+    public static final int maxPayload = 32 * 1024 * 1024;
+    private static final int magic = 0xD9B4BEF9; // intLE of the magic of the main network
+    private final String[] commands;
+    private final long[] keys; // bytes 0...7 of the null-padded commands, longLE
+    private final int[] keyEnds; // bytes 8...11 of the null-padded commands, intLE
+    private final Sha256 sha256 = new Sha256();
+    private final byte[] hash = new byte[32];
+    private long skip = 0; // remaining bytes of the skipped frame
+    private int required = 0;
+
+    /**
+     * @param commands array of commands of requested messages
+     * @throws NullPointerException if commands == null or contains null
+     * @throws Message.Exception    if command is too long
+     */
+    public FrameDecoder(String[] commands) {
+        this.commands = commands.clone();
+        keys = new long[commands.length];
+        keyEnds = new int[commands.length];
+        ByteBuffer key = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < commands.length; i++) {
+            byte[] cmd = commands[i].getBytes();
+            if (cmd.length > 12) {
+                throw new Message.Exception("command is too big");
+            }
+            key.clear();
+            key.put(cmd);
+            while (key.hasRemaining()) {
+                key.put((byte) 0);
+            }
+            keys[i] = key.getLong(0);
+            keyEnds[i] = key.getInt(8);
+        }
+    }
+
+    /**
+     * consumes bytes from the position of the byteBuffer up to the end of the returned frame
+     *
+     * @param byteBuffer ByteBuffer in the read mode, with any byte order
+     * @return next frame with one of the requested commands or null if there is no complete frame
+     * @throws NullPointerException if byteBuffer == null
+     * @throws Message.Exception    if the payload length or the checksum is incorrect, the incorrect frame is consumed
+     */
+    public Frame next(ByteBuffer byteBuffer) {
+        required = 0;
+        if (skip != 0) {
+            int n = (int) Math.min(skip, byteBuffer.remaining());
+            byteBuffer.position(byteBuffer.position() + n);
+            skip -= n;
+            if (skip != 0) {
+                return null;
+            }
+        }
+        while (true) {
+            if (!findMagic(byteBuffer)) {
+                return null;
+            }
+            int pos = byteBuffer.position();
+            if (byteBuffer.remaining() < headerLength) {
+                required = headerLength;
+                return null;
+            }
+            int length = getIntLE(byteBuffer, pos + 16);
+            if (length < 0 || length > maxPayload) {
+                byteBuffer.position(pos + 4);
+                throw new Message.Exception("incorrect payload length " + (length & 0xFFFFFFFFL));
+            }
+            int index = indexOf(getLongLE(byteBuffer, pos + 4), getIntLE(byteBuffer, pos + 12));
+            if (index < 0) {
+                int n = Math.min(headerLength + length, byteBuffer.remaining());
+                byteBuffer.position(pos + n);
+                skip = headerLength + length - n;
+                if (skip != 0) {
+                    return null;
+                }
+                continue;
+            }
+            if (byteBuffer.remaining() < headerLength + length) {
+                required = headerLength + length;
+                return null;
+            }
+            ByteBuffer payload = byteBuffer.duplicate();
+            payload.limit(pos + headerLength + length).position(pos + headerLength);
+            payload = payload.slice().asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN);
+            byteBuffer.position(pos + headerLength + length);
+            // checksum, first 4 bytes of sha256(sha256(payload))
+            sha256.update(payload.duplicate());
+            sha256.doFinal(hash, 0);
+            sha256.update(hash, 0, 32);
+            sha256.doFinal(hash, 0);
+            for (int i = 0; i < 4; i++) {
+                if (hash[i] != byteBuffer.get(pos + 20 + i)) {
+                    throw new Message.Exception("incorrect checksum");
+                }
+            }
+            return new Frame(commands[index], payload);
+        }
+    }
+
+    /**
+     * @return length of the frame in the beginning of the remaining bytes after next() returned null, or 0
+     */
+    public int getRequired() {
+        return required;
+    }
+
+    // sets the position to the magic and returns true, or keeps the last 3 bytes and returns false
+    private static boolean findMagic(ByteBuffer byteBuffer) {
+        int pos = byteBuffer.position();
+        int end = byteBuffer.limit() - 4;
+        int m = byteBuffer.order() == ByteOrder.LITTLE_ENDIAN ? magic : Integer.reverseBytes(magic);
+        while (pos <= end) {
+            if (byteBuffer.getInt(pos) == m) {
+                byteBuffer.position(pos);
+                return true;
+            }
+            pos++;
+        }
+        byteBuffer.position(Math.max(byteBuffer.position(), byteBuffer.limit() - 3));
+        return false;
+    }
+
+    private int indexOf(long key, int keyEnd) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == key && keyEnds[i] == keyEnd) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int getIntLE(ByteBuffer byteBuffer, int index) {
+        int i = byteBuffer.getInt(index);
+        return byteBuffer.order() == ByteOrder.LITTLE_ENDIAN ? i : Integer.reverseBytes(i);
+    }
+
+    private static long getLongLE(ByteBuffer byteBuffer, int index) {
+        long l = byteBuffer.getLong(index);
+        return byteBuffer.order() == ByteOrder.LITTLE_ENDIAN ? l : Long.reverseBytes(l);
+    }
+
+    public static class Frame {
+        public final String command;
+        public final ByteBuffer payload; // read-only, little-endian
+
+        private Frame(String command, ByteBuffer payload) {
+            this.command = command;
+            this.payload = payload;
+        }
+
+        /**
+         * copies the payload once and parses it
+         *
+         * @return subclass of the Message with this command
+         * @throws Message.Exception if the payload is incorrect
+         */
+        public Message toMessage() {
+            byte[] bytes = new byte[payload.remaining()];
+            payload.duplicate().get(bytes);
+            return Message.create(command, bytes);
+        }
+    }
+}
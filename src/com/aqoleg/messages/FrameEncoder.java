@@ -0,0 +1,295 @@
+/*
+writes the outbound message directly into the pooled direct ByteBuffers; not synchronized, the Frame is thread-safe
+
+usage:
+    FrameEncoder encoder = new FrameEncoder(command);
+    encoder = encoder.writeByte(b);
+    encoder = encoder.writeBytes(bytes);
+    encoder = encoder.writeBytes(bytes, start, length);
+    encoder = encoder.writeIntLE(intLE);
+    encoder = encoder.writeLongLE(longLE);
+    encoder = encoder.writeVariableLength(longVar);
+    FrameEncoder.Frame frame = encoder.finish();
+    FrameEncoder.Frame frame = FrameEncoder.encode(command, payloadBytes);
+    int length = frame.length();
+    frame = frame.retain();
+    ByteBuffer[] buffers = frame.getBuffers();
+    byte[] message = frame.toByteArray();
+    frame.release();
+
+the header is reserved in the first buffer, finish() writes the length and the checksum into it;
+the message takes as many 4 KiB buffers as it needs, they are written with one gathering write;
+the frame is encoded once and is shared by all peers, getBuffers() returns new views of the same memory
+and adds the reference, each release() removes one, after the last one the buffers are returned into the pool;
+the encoder must not be used after finish()
+*/
+
+package com.aqoleg.messages;
+
+import com.aqoleg.crypto.Sha256;
+import com.aqoleg.utils.BufferPool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FrameEncoder {
+    private static final int magic = 0xD9B4BEF9; // intLE of the magic of the main network
+    private static final BufferPool bufferPool = new BufferPool(4096, 1024);
+    private static final ThreadLocal<Sha256> sha256 = ThreadLocal.withInitial(Sha256::new);
+    private final ArrayList<ByteBuffer> buffers = new ArrayList<>();
+    private ByteBuffer buffer; // the last buffer, null after finish()
+    private int length = 0; // length of the payload
+
+    /**
+     * reserves the header of the message
+     *
+     * @param command String with command
+     * @throws NullPointerException if command == null
+     * @throws Message.Exception    if command is too long
+     */
+    public FrameEncoder(String command) {
+        byte[] cmd = command.getBytes();
+        if (cmd.length > 12) {
+            throw new Message.Exception("command is too big");
+        }
+        buffer = acquire();
+        buffer.putInt(magic);
+        buffer.put(cmd);
+        while (buffer.position() < FrameDecoder.headerLength) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    /**
+     * @param command String with command
+     * @param payload byte array with payload
+     * @return encoded message
+     * @throws NullPointerException if command == null or payload == null
+     * @throws Message.Exception    if command is too long
+     */
+    public static Frame encode(String command, byte[] payload) {
+        return new FrameEncoder(command).writeBytes(payload).finish();
+    }
+
+    /**
+     * @param b the byte to be written
+     * @return this
+     */
+    public FrameEncoder writeByte(int b) {
+        if (!buffer.hasRemaining()) {
+            next();
+        }
+        buffer.put((byte) b);
+        length++;
+        return this;
+    }
+
+    /**
+     * @param bytes array to be written, can be empty
+     * @return this
+     * @throws NullPointerException if bytes == null
+     */
+    public FrameEncoder writeBytes(byte[] bytes) {
+        return writeBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * @param bytes       array to be written
+     * @param bytesStart  starting position in the bytes array
+     * @param bytesLength the number of the bytes to write, can be zero
+     * @return this
+     * @throws NullPointerException      if bytes == null
+     * @throws IndexOutOfBoundsException if bytesStart or bytesLength is incorrect
+     */
+    public FrameEncoder writeBytes(byte[] bytes, int bytesStart, int bytesLength) {
+        if (bytesStart < 0 || bytesLength < 0 || bytesStart > bytes.length - bytesLength) {
+            throw new IndexOutOfBoundsException();
+        }
+        length += bytesLength;
+        while (bytesLength > 0) {
+            if (!buffer.hasRemaining()) {
+                next();
+            }
+            int n = Math.min(buffer.remaining(), bytesLength);
+            buffer.put(bytes, bytesStart, n);
+            bytesStart += n;
+            bytesLength -= n;
+        }
+        return this;
+    }
+
+    /**
+     * @param n the integer to be written as 4 bytes, little-endian
+     * @return this
+     */
+    public FrameEncoder writeIntLE(int n) {
+        if (buffer.remaining() < 4) {
+            for (int i = 0; i < 4; i++) {
+                writeByte(n);
+                n >>= 8;
+            }
+            return this;
+        }
+        buffer.putInt(n);
+        length += 4;
+        return this;
+    }
+
+    /**
+     * @param n the long to be written as 8 bytes, little-endian
+     * @return this
+     */
+    public FrameEncoder writeLongLE(long n) {
+        if (buffer.remaining() < 8) {
+            for (int i = 0; i < 8; i++) {
+                writeByte((int) n);
+                n >>= 8;
+            }
+            return this;
+        }
+        buffer.putLong(n);
+        length += 8;
+        return this;
+    }
+
+    /**
+     * n < 0xFD, 1 byte
+     * 0xFD <= n < 0xFFFF, 0xFD || (2 bytes, little-endian)
+     * 0xFFFF <= n < 0xFFFFFFFF, 0xFE || (4 byes, little-endian)
+     * 0xFFFFFFFF <= n <= 0xFFFFFFFFFFFFFFFF, 0xFF || (8 bytes, little-endian)
+     *
+     * @param n the integer to be written
+     * @return this
+     */
+    public FrameEncoder writeVariableLength(long n) {
+        if (n < 0 || n > 0xFFFFFFFFL) {
+            writeByte(0xFF);
+            return writeLongLE(n);
+        } else if (n < 0xFD) {
+            return writeByte((int) n);
+        } else if (n <= 0xFFFF) {
+            writeByte(0xFD);
+            writeByte((int) n);
+            return writeByte((int) (n >> 8));
+        } else {
+            writeByte(0xFE);
+            return writeIntLE((int) n);
+        }
+    }
+
+    /**
+     * writes the length and the checksum into the header
+     *
+     * @return encoded message
+     */
+    public Frame finish() {
+        buffers.add(buffer);
+        buffer = null;
+        Sha256 sha256 = FrameEncoder.sha256.get();
+        for (int i = 0; i < buffers.size(); i++) {
+            ByteBuffer payload = buffers.get(i);
+            payload.flip();
+            payload = payload.duplicate();
+            if (i == 0) {
+                payload.position(FrameDecoder.headerLength);
+            }
+            sha256.update(payload);
+        }
+        byte[] checksum = sha256.doFinal();
+        sha256.update(checksum);
+        sha256.doFinal(checksum, 0);
+        ByteBuffer header = buffers.get(0);
+        header.putInt(16, length);
+        for (int i = 0; i < 4; i++) {
+            header.put(20 + i, checksum[i]);
+        }
+        return new Frame(buffers.toArray(new ByteBuffer[0]), FrameDecoder.headerLength + length);
+    }
+
+    private void next() {
+        buffers.add(buffer);
+        buffer = acquire();
+    }
+
+    private static ByteBuffer acquire() {
+        return bufferPool.acquire().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static class Frame {
+        private final ByteBuffer[] buffers; // in the read mode, must not be changed
+        private final int length;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Frame(ByteBuffer[] buffers, int length) {
+            this.buffers = buffers;
+            this.length = length;
+        }
+
+        /**
+         * @return length of the whole message
+         */
+        public int length() {
+            return length;
+        }
+
+        /**
+         * adds the reference, the caller must call release()
+         *
+         * @return this
+         * @throws Message.Exception if the frame was released
+         */
+        public Frame retain() {
+            if (references.getAndIncrement() <= 0) {
+                throw new Message.Exception("released frame");
+            }
+            return this;
+        }
+
+        /**
+         * adds the reference, the caller must call release() after writing
+         *
+         * @return new ByteBuffers with the message for the gathering write
+         * @throws Message.Exception if the frame was released
+         */
+        public ByteBuffer[] getBuffers() {
+            retain();
+            ByteBuffer[] views = new ByteBuffer[buffers.length];
+            for (int i = 0; i < buffers.length; i++) {
+                views[i] = buffers[i].duplicate();
+            }
+            return views;
+        }
+
+        /**
+         * @return byte array with the message
+         * @throws Message.Exception if the frame was released
+         */
+        public byte[] toByteArray() {
+            if (references.get() <= 0) {
+                throw new Message.Exception("released frame");
+            }
+            byte[] bytes = new byte[length];
+            int pos = 0;
+            for (ByteBuffer buffer : buffers) {
+                ByteBuffer view = buffer.duplicate();
+                int n = view.remaining();
+                view.get(bytes, pos, n);
+                pos += n;
+            }
+            return bytes;
+        }
+
+        /**
+         * removes the reference, the last one returns the buffers into the pool
+         */
+        public void release() {
+            if (references.decrementAndGet() == 0) {
+                for (ByteBuffer buffer : buffers) {
+                    bufferPool.release(buffer);
+                }
+            }
+        }
+    }
+}
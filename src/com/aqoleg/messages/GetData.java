@@ -9,9 +9,11 @@ usage:
     String string = getData.toString();
     boolean contains = getData.contains(inventory);
     int size = getData.size();
+    Inventory inventory = getData.get(index);
     boolean added = getData.add(inventory);
     boolean removed = getData.remove(inventory);
     byte[] message = getData.toByteArray();
+    FrameEncoder.Frame message = getData.encode();
 
 payload bytes:
     varInt, count
@@ -85,6 +87,15 @@ public class GetData extends Message {
         return inventories.size();
     }
 
+    /**
+     * @param index index of the inventory
+     * @return Inventory with this index
+     * @throws IndexOutOfBoundsException if index is incorrect
+     */
+    public Inventory get(int index) {
+        return inventories.get(index);
+    }
+
     /**
      * @param inventory Inventory to be added to this GetData
      * @return false if this GetData already contains this inventory
@@ -120,4 +131,16 @@ public class GetData extends Message {
         }
         return Message.toByteArray(command, bytes.toByteArray());
     }
+
+    /**
+     * @return encoded GetData message, inventories are written without the intermediate array
+     */
+    public FrameEncoder.Frame encode() {
+        FrameEncoder encoder = new FrameEncoder(command);
+        encoder.writeVariableLength(inventories.size());
+        for (Inventory i : inventories) {
+            i.encode(encoder);
+        }
+        return encoder.finish();
+    }
 }
\ No newline at end of file
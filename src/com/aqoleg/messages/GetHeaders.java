@@ -0,0 +1,78 @@
+/*
+requests Headers message with up to 2000 block headers, starting after the first found hash of the locator,
+ stopping on the stopHash (including stopHash) or on 2000th header, version >= 31800
+
+usage:
+    GetHeaders getHeaders = GetHeaders.create(intVersion, locatorHashes, stopHash);
+    String string = getHeaders.toString();
+    byte[] message = getHeaders.toByteArray();
+
+payload bytes:
+    intLE, version
+    varInt, hash#
+    byte[32] * hash#, hashes, from the newest to the oldest
+    byte[32], stopHash, zeros to get 2000 headers
+*/
+
+package com.aqoleg.messages;
+
+import com.aqoleg.utils.BytesInput;
+import com.aqoleg.utils.BytesOutput;
+import com.aqoleg.utils.Converter;
+
+public class GetHeaders extends Message {
+    public static final String command = "getheaders";
+    private final byte[] bytes;
+
+    private GetHeaders(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param version  version
+     * @param hashes   array of hashes of known blocks, from the newest to the oldest
+     * @param stopHash hash of the last requested block or null
+     * @return instance of GetHeaders
+     * @throws NullPointerException if hashes == null or contains null
+     */
+    public static GetHeaders create(int version, Hash[] hashes, Hash stopHash) {
+        BytesOutput bytesOutput = new BytesOutput().writeIntLE(version).writeVariableLength(hashes.length);
+        for (Hash hash : hashes) {
+            hash.write(bytesOutput);
+        }
+        if (stopHash == null) {
+            bytesOutput.writeBytes(new byte[32]);
+        } else {
+            stopHash.write(bytesOutput);
+        }
+        return new GetHeaders(bytesOutput.toByteArray());
+    }
+
+    /**
+     * @return "version: 1, hashes: 1, 0: 00...d3, stopHash: 00..00"
+     * hashes are lower case, hex, reversed
+     */
+    @Override
+    public String toString() {
+        BytesInput bytesInput = new BytesInput(bytes);
+        StringBuilder out = new StringBuilder();
+        out.append("version: ").append(bytesInput.readIntLE());
+        int count = (int) bytesInput.readVariableLengthInt();
+        out.append(", hashes: ").append(count);
+        byte[] hash = new byte[32];
+        for (int i = 0; i < count; i++) {
+            bytesInput.readBytes(hash);
+            out.append(", ").append(i).append(": ").append(Converter.bytesToHexReverse(hash, false, false));
+        }
+        bytesInput.readBytes(hash);
+        out.append(", stopHash: ").append(Converter.bytesToHexReverse(hash, false, false));
+        return out.toString();
+    }
+
+    /**
+     * @return byte array with this GetHeaders message
+     */
+    public byte[] toByteArray() {
+        return Message.toByteArray(command, bytes);
+    }
+}
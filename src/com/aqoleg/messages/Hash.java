@@ -0,0 +1,144 @@
+/*
+immutable 32-bytes hash of the block or the transaction; thread-safe
+
+usage:
+    Hash hash = Hash.fromHex(reversedHexString);
+    Hash hash = Hash.fromBytes(bytes);
+    Hash hash = Hash.fromBytes(bytes, start);
+    String string = hash.toString();
+    boolean equals = hash.equals(otherHash);
+    int hashCode = hash.hashCode();
+    byte[] bytes = hash.getBytes();
+    hash.write(bytesOutput);
+    hash.encode(frameEncoder);
+
+bytes are in the same order as in the messages,
+string is lower case, hex, reversed, as it is shown by block explorers;
+bytes of the hash are uniformly distributed, so the first 4 bytes are used as the hashCode
+*/
+
+package com.aqoleg.messages;
+
+import com.aqoleg.utils.BytesOutput;
+import com.aqoleg.utils.Converter;
+
+public class Hash {
+    final byte[] bytes; // not changed
+    private final int hashCode;
+
+    // does not copy bytes, they must not be changed
+    Hash(byte[] bytes) {
+        this.bytes = bytes;
+        hashCode = (bytes[0] & 0xFF) | (bytes[1] & 0xFF) << 8 | (bytes[2] & 0xFF) << 16 | (bytes[3] & 0xFF) << 24;
+    }
+
+    /**
+     * @param hex reversed 32-bytes hex hash, can start with 0x
+     * @return Hash
+     * @throws NullPointerException if hex == null
+     * @throws Message.Exception    if hex is incorrect
+     */
+    public static Hash fromHex(String hex) {
+        byte[] bytes;
+        try {
+            bytes = Converter.hexToBytesReverse(hex);
+        } catch (Converter.Exception exception) {
+            throw new Message.Exception(exception.getMessage());
+        }
+        if (bytes == null) {
+            throw new NullPointerException();
+        } else if (bytes.length != 32) {
+            throw new Message.Exception("incorrect length");
+        }
+        return new Hash(bytes);
+    }
+
+    /**
+     * @param bytes 32-bytes hash in the same order as in the messages
+     * @return Hash with the copy of bytes
+     * @throws NullPointerException if bytes == null
+     * @throws Message.Exception    if length is incorrect
+     */
+    public static Hash fromBytes(byte[] bytes) {
+        if (bytes.length != 32) {
+            throw new Message.Exception("incorrect length");
+        }
+        return new Hash(bytes.clone());
+    }
+
+    /**
+     * @param bytes array containing 32-bytes hash in the same order as in the messages
+     * @param start starting position in the array
+     * @return Hash with the copy of bytes
+     * @throws NullPointerException      if bytes == null
+     * @throws IndexOutOfBoundsException if start is incorrect
+     */
+    public static Hash fromBytes(byte[] bytes, int start) {
+        byte[] copy = new byte[32];
+        System.arraycopy(bytes, start, copy, 0, 32);
+        return new Hash(copy);
+    }
+
+    /**
+     * @return lower case, hex, reversed hash
+     */
+    @Override
+    public String toString() {
+        return Converter.bytesToHexReverse(bytes, false, false);
+    }
+
+    /**
+     * @param object object to be compared with
+     * @return true if object is Hash with the same bytes
+     */
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        } else if (!(object instanceof Hash)) {
+            return false;
+        }
+        Hash hash = (Hash) object;
+        if (hashCode != hash.hashCode) {
+            return false;
+        }
+        for (int i = 0; i < 32; i++) {
+            if (bytes[i] != hash.bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /**
+     * @return copy of the 32-bytes hash in the same order as in the messages
+     */
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * write this Hash into the BytesOutput
+     *
+     * @param bytesOutput BytesOutput in which will be written 32 bytes of this Hash
+     * @throws NullPointerException if bytesOutput == null
+     */
+    public void write(BytesOutput bytesOutput) {
+        bytesOutput.writeBytes(bytes);
+    }
+
+    /**
+     * write this Hash into the FrameEncoder
+     *
+     * @param encoder FrameEncoder in which will be written 32 bytes of this Hash
+     * @throws NullPointerException if encoder == null
+     */
+    public void encode(FrameEncoder encoder) {
+        encoder.writeBytes(bytes);
+    }
+}
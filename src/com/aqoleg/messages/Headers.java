@@ -0,0 +1,77 @@
+/*
+response to the GetHeaders message, up to 2000 block headers
+
+usage:
+    Headers headers = (Headers) Message.read(inputStream);
+    Headers headers = new Headers(bytes);
+    String string = headers.toString();
+    int size = headers.size();
+    byte[] header = headers.getHeader(i);
+
+payload bytes:
+    varInt, count
+    header[]:
+        byte[80], block header
+        varInt, tx#, always 0
+*/
+
+package com.aqoleg.messages;
+
+import com.aqoleg.utils.BytesInput;
+
+public class Headers extends Message {
+    public static final String command = "headers";
+    public static final int maxCount = 2000;
+    private final byte[][] headers;
+
+    /**
+     * @param bytes byte array with payload
+     * @throws NullPointerException if bytes == null
+     * @throws Message.Exception    if bytes are incorrect
+     */
+    public Headers(byte[] bytes) {
+        BytesInput bytesInput = new BytesInput(bytes);
+        try {
+            long count = bytesInput.readVariableLengthInt();
+            if (count < 0 || count > maxCount) {
+                throw new Message.Exception("incorrect count " + count);
+            }
+            headers = new byte[(int) count][];
+            for (int i = 0; i < count; i++) {
+                headers[i] = bytesInput.readBytes(new byte[80]);
+                if (bytesInput.readVariableLengthInt() != 0) {
+                    throw new Message.Exception("header with transactions");
+                }
+            }
+        } catch (IndexOutOfBoundsException exception) {
+            throw new Message.Exception(exception.getMessage());
+        }
+        if (bytesInput.available() != 0) {
+            throw new Message.Exception("big payload length");
+        }
+    }
+
+    /**
+     * @return "count: 2"
+     */
+    @Override
+    public String toString() {
+        return "count: " + headers.length;
+    }
+
+    /**
+     * @return number of headers
+     */
+    public int size() {
+        return headers.length;
+    }
+
+    /**
+     * @param i index of the header
+     * @return copy of the 80-bytes block header
+     * @throws IndexOutOfBoundsException if i is incorrect
+     */
+    public byte[] getHeader(int i) {
+        return headers[i].clone();
+    }
+}
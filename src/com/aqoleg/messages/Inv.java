@@ -9,9 +9,11 @@ usage:
     String string = inv.toString();
     boolean contains = inv.contains(inventory);
     int size = inv.size();
+    Inventory inventory = inv.get(index);
     boolean added = inv.add(inventory);
     boolean removed = inv.remove(inventory);
     byte[] message = inv.toByteArray();
+    FrameEncoder.Frame message = inv.encode();
 
 payload bytes:
     varInt, count
@@ -85,6 +87,15 @@ public class Inv extends Message {
         return inventories.size();
     }
 
+    /**
+     * @param index index of the inventory
+     * @return Inventory with this index
+     * @throws IndexOutOfBoundsException if index is incorrect
+     */
+    public Inventory get(int index) {
+        return inventories.get(index);
+    }
+
     /**
      * @param inventory Inventory to be added to this Inv
      * @return false if this Inv already contains this inventory
@@ -120,4 +131,16 @@ public class Inv extends Message {
         }
         return Message.toByteArray(command, bytes.toByteArray());
     }
+
+    /**
+     * @return encoded Inv message, inventories are written without the intermediate array
+     */
+    public FrameEncoder.Frame encode() {
+        FrameEncoder encoder = new FrameEncoder(command);
+        encoder.writeVariableLength(inventories.size());
+        for (Inventory i : inventories) {
+            i.encode(encoder);
+        }
+        return encoder.finish();
+    }
 }
\ No newline at end of file
@@ -3,12 +3,14 @@ data structure used in Inv, GetData and NotFound messages
 
 usage:
     Inventory inventory = Inventory.read(bytesInput);
-    Inventory inventory = Inventory.create(Inventory.typeMsgTx, hashBytes);
+    Inventory inventory = Inventory.create(Inventory.typeMsgTx, hash);
     int type = inventory.type;
     String string = inventory.toString();
-    String hash = inventory.getHash();
+    Hash hash = inventory.getHash();
     boolean equals = inventory.equals(otherInventory);
+    int hashCode = inventory.hashCode();
     inventory.write(bytesOutput);
+    inventory.encode(frameEncoder);
 
 Inventory bytes:
     intLE, type
@@ -19,15 +21,14 @@ package com.aqoleg.messages;
 
 import com.aqoleg.utils.BytesInput;
 import com.aqoleg.utils.BytesOutput;
-import com.aqoleg.utils.Converter;
 
 public class Inventory {
     public static final int typeMsgTx = 1;
     public static final int typeMsgBlock = 2;
     public final int type;
-    private final byte[] hash;
+    private final Hash hash;
 
-    private Inventory(int type, byte[] hash) {
+    private Inventory(int type, Hash hash) {
         this.type = type;
         this.hash = hash;
     }
@@ -41,7 +42,7 @@ public class Inventory {
     public static Inventory read(BytesInput bytes) {
         try {
             int type = bytes.readIntLE();
-            byte[] hash = bytes.readBytes(new byte[32]);
+            Hash hash = new Hash(bytes.readBytes(new byte[32]));
             return new Inventory(type, hash);
         } catch (IndexOutOfBoundsException exception) {
             throw new Message.Exception(exception.getMessage());
@@ -50,25 +51,18 @@ public class Inventory {
 
     /**
      * @param type type of data
-     * @param hash reversed 32-bytes hex hash of data
+     * @param hash hash of data
      * @return Inventory with this type and hash
      * @throws NullPointerException if hash == null
-     * @throws Message.Exception    if type is incorrect or hash is incorrect
+     * @throws Message.Exception    if type is incorrect
      */
-    public static Inventory create(int type, String hash) {
-        if (type < 0 || type > 4) {
+    public static Inventory create(int type, Hash hash) {
+        if (hash == null) {
+            throw new NullPointerException();
+        } else if (type < 0 || type > 4) {
             throw new Message.Exception("incorrect inventory type");
         }
-        byte[] hashBytes;
-        try {
-            hashBytes = Converter.hexToBytesReverse(hash);
-        } catch (Converter.Exception exception) {
-            throw new Message.Exception(exception.getMessage());
-        }
-        if (hashBytes.length != 32) {
-            throw new Message.Exception("incorrect length");
-        }
-        return new Inventory(type, hashBytes);
+        return new Inventory(type, hash);
     }
 
     /**
@@ -90,22 +84,19 @@ public class Inventory {
             return false;
         }
         Inventory inventory = (Inventory) object;
-        if (type != inventory.type) {
-            return false;
-        }
-        for (int i = 0; i < 32; i++) {
-            if (hash[i] != inventory.hash[i]) {
-                return false;
-            }
-        }
-        return true;
+        return type == inventory.type && hash.equals(inventory.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash.hashCode() * 31 + type;
     }
 
     /**
-     * @return lower case, hex, reversed hash
+     * @return hash of data
      */
-    public String getHash() {
-        return Converter.bytesToHexReverse(hash, false, false);
+    public Hash getHash() {
+        return hash;
     }
 
     /**
@@ -116,6 +107,17 @@ public class Inventory {
      */
     public void write(BytesOutput bytes) {
         bytes.writeIntLE(type);
-        bytes.writeBytes(hash);
+        hash.write(bytes);
+    }
+
+    /**
+     * write this Inventory into the FrameEncoder
+     *
+     * @param encoder FrameEncoder in which will be written this Inventory
+     * @throws NullPointerException if encoder == null
+     */
+    public void encode(FrameEncoder encoder) {
+        encoder.writeIntLE(type);
+        hash.encode(encoder);
     }
 }
\ No newline at end of file
@@ -4,8 +4,10 @@ message reader and creator
 usage:
     Message subclassMessage = Message.read(inputStream);
     Message subclassMessage = Message.read(inputStream, stringArrayWithCommands);
+    Message subclassMessage = new FrameDecoder(stringArrayWithCommands).next(byteBuffer).toMessage();
     String command = message.command;
     byte[] message = Message.toByteArray(command, payloadBytes);
+    FrameEncoder.Frame message = FrameEncoder.encode(command, payloadBytes);
 
 message bytes:
     byte[4], magic
@@ -19,7 +21,6 @@ message bytes:
 package com.aqoleg.messages;
 
 import com.aqoleg.crypto.Sha256;
-import com.aqoleg.utils.BytesOutput;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -73,31 +74,27 @@ public abstract class Message {
      * @throws Message.Exception    if command is too long
      */
     public static byte[] toByteArray(String command, byte[] payload) {
-        BytesOutput bytes = new BytesOutput();
-        // magic
-        bytes.write(magic[0]);
-        bytes.write(magic[1]);
-        bytes.write(magic[2]);
-        bytes.write(magic[3]);
-        // command
         byte[] cmd = command.getBytes();
         if (cmd.length > 12) {
             throw new Message.Exception("command is too big");
         }
-        bytes.writeBytes(cmd);
-        int padding = 12 - cmd.length;
-        while (padding != 0) {
-            bytes.write(0);
-            padding--;
+        byte[] bytes = new byte[24 + payload.length];
+        // magic
+        for (int i = 0; i < 4; i++) {
+            bytes[i] = (byte) magic[i];
+        }
+        // command, null padded
+        System.arraycopy(cmd, 0, bytes, 4, cmd.length);
+        // length of the payload, intLE
+        for (int i = 0; i < 4; i++) {
+            bytes[16 + i] = (byte) (payload.length >>> (i * 8));
         }
-        // length of the payload
-        bytes.writeIntLE(payload.length);
         // checksum, first 4 bytes of sha256(sha256(payload))
-        byte[] checksum = Sha256.getHash(Sha256.getHash(payload));
-        bytes.writeBytes(checksum, 0, 4);
+        byte[] checksum = Sha256.getDoubleHash(payload);
+        System.arraycopy(checksum, 0, bytes, 20, 4);
         // payload
-        bytes.writeBytes(payload);
-        return bytes.toByteArray();
+        System.arraycopy(payload, 0, bytes, 24, payload.length);
+        return bytes;
     }
 
     private static byte[] readHeader(InputStream inputStream) throws IOException {
@@ -171,12 +168,17 @@ public abstract class Message {
             pos += readBytes;
         }
         // check the checksum, header[16...19], first 4 bytes of sha256(sha256(payload))
-        byte[] checksum = Sha256.getHash(Sha256.getHash(payload));
+        byte[] checksum = Sha256.getDoubleHash(payload);
         for (int i = 0; i < 4; i++) {
             if (checksum[i] != header[i + 16]) {
                 throw new Message.Exception("incorrect checksum");
             }
         }
+        return create(command, payload);
+    }
+
+    // parses the payload with the checked checksum
+    static Message create(String command, byte[] payload) {
         switch (command) {
             case Addr.command:
                 return new Addr(payload);
@@ -186,6 +188,8 @@ public abstract class Message {
                 return new Block(payload);
             case GetData.command:
                 return new GetData(payload);
+            case Headers.command:
+                return new Headers(payload);
             case Inv.command:
                 return new Inv(payload);
             case NotFound.command:
@@ -6,6 +6,7 @@ usage:
     NotFound notFound = new NotFound(bytes);
     String string = notFound.toString();
     boolean contains = notFound.contains(inventory);
+    FrameEncoder.Frame message = NotFound.encode(inventoriesList);
 
 payload bytes:
     varInt, count
@@ -16,6 +17,8 @@ package com.aqoleg.messages;
 
 import com.aqoleg.utils.BytesInput;
 
+import java.util.List;
+
 public class NotFound extends Message {
     public static final String command = "notfound";
     private final byte[] bytes;
@@ -39,6 +42,20 @@ public class NotFound extends Message {
         this.bytes = bytes;
     }
 
+    /**
+     * @param inventories list of the not found inventories
+     * @return encoded NotFound message
+     * @throws NullPointerException if inventories == null or contains null
+     */
+    public static FrameEncoder.Frame encode(List<Inventory> inventories) {
+        FrameEncoder encoder = new FrameEncoder(command);
+        encoder.writeVariableLength(inventories.size());
+        for (Inventory i : inventories) {
+            i.encode(encoder);
+        }
+        return encoder.finish();
+    }
+
     /**
      * @return "count: 1, 0: (Inv.toString())"
      */
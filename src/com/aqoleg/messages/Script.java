@@ -16,6 +16,7 @@ usage:
     int byteSize = script.getSize();
     int scriptSigByteSize = scriptPubKey.getScriptSigSize(isCompressedPublicKey);
     scriptSig.verify(prevScriptPublicKey, messageHashBytes);
+    int index = scriptSig.verify(prevScriptPublicKey, messageHashBytes, eccBatch);
     script.write(bytesOutput);
 
 pay to public key, p2pk:
@@ -323,6 +324,20 @@ public class Script {
      * @throws Message.Exception    if script is not verified
      */
     public void verify(Script previousScriptPublicKey, byte[] messageHash) {
+        verify(previousScriptPublicKey, messageHash, null);
+    }
+
+    /**
+     * verifies this scriptSig to redeem scriptPublicKey, but adds the signature into the batch instead of checking it
+     *
+     * @param previousScriptPublicKey scriptPubKey of the previous transaction
+     * @param messageHash             hash of the message to verify
+     * @param batch                   Ecc.Batch to add the signature into, or null to check the signature now
+     * @return index of the signature in the batch, or -1 if there is no signature to check
+     * @throws NullPointerException if previousScriptPubKey == null or messageHash == null
+     * @throws Message.Exception    if script is not verified
+     */
+    public int verify(Script previousScriptPublicKey, byte[] messageHash, Ecc.Batch batch) {
         if (previousScriptPublicKey.type == p2pk) {
             // scriptPubKey: pubKey checksig
             BytesInput bytesInput = new BytesInput(previousScriptPublicKey.bytes);
@@ -343,11 +358,7 @@ public class Script {
                 throw new Message.Exception("big scriptSig length");
             }
 
-            try {
-                Ecc.verify(messageHash, publicKey.point, new BigInteger[]{signature.r, signature.s});
-            } catch (Ecc.Exception exception) {
-                throw new Message.Exception(exception.getMessage());
-            }
+            return verify(messageHash, publicKey, signature, batch);
         } else if (previousScriptPublicKey.type == p2pkh) {
             // scriptSig: sig pubKey
             BytesInput bytesInput = new BytesInput(bytes);
@@ -377,11 +388,7 @@ public class Script {
             if (!Address.createFromPublicKey(publicKey).equals(previousScriptPublicKey.address)) {
                 throw new Message.Exception("incorrect pubKeyHash");
             }
-            try {
-                Ecc.verify(messageHash, publicKey.point, new BigInteger[]{signature.r, signature.s});
-            } catch (Ecc.Exception exception) {
-                throw new Message.Exception(exception.getMessage());
-            }
+            return verify(messageHash, publicKey, signature, batch);
         } else if (previousScriptPublicKey.type == p2sh) {
             // scriptSig: sig script
             BytesInput bytesInput = new BytesInput(bytes);
@@ -407,6 +414,7 @@ public class Script {
             if (!address.equals(previousScriptPublicKey.address)) {
                 throw new Message.Exception("incorrect scriptHash");
             }
+            return -1;
         } else {
             throw new Message.Exception("unsupported type");
         }
@@ -423,6 +431,20 @@ public class Script {
         bytesOutput.writeBytes(bytes);
     }
 
+    // checks signature now, if batch == null, or adds it into the batch and returns its index
+    private static int verify(byte[] messageHash, PublicKey publicKey, Signature signature, Ecc.Batch batch) {
+        BigInteger[] rs = new BigInteger[]{signature.r, signature.s};
+        if (batch != null) {
+            return batch.add(messageHash, publicKey.point, rs);
+        }
+        try {
+            Ecc.verify(messageHash, publicKey.point, rs);
+        } catch (Ecc.Exception exception) {
+            throw new Message.Exception(exception.getMessage());
+        }
+        return -1;
+    }
+
     // returns String or throws Message.Exception
     private String read() {
         StringBuilder out = new StringBuilder();
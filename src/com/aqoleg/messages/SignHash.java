@@ -0,0 +1,85 @@
+/*
+calculates signHashAll hashes of all inputs of one transaction; thread-safe
+
+usage:
+    SignHash signHash = new SignHash(txBytes);
+    byte[] hash = signHash.getHash(inputIndex, previousScriptPubKey);
+
+the signed message of the input is the tx with empty scriptSigs, where the scriptSig of this input is replaced
+with the previousScriptPubKey, and with appended intLE signHashAll;
+the message without scripts is created once, and the sha256 midstates of the message up to the script
+of each input are calculated once, so only the script and the rest of the message are hashed for each input
+*/
+
+package com.aqoleg.messages;
+
+import com.aqoleg.crypto.Sha256;
+import com.aqoleg.utils.BytesInput;
+import com.aqoleg.utils.BytesOutput;
+
+class SignHash {
+    private final byte[] message; // tx with empty scriptSigs and signHashAll
+    private final int[] scriptPositions; // positions of the empty scriptSig of each input in the message
+    private final Sha256[] midstates; // state after the message bytes before the scriptSig of each input
+
+    /**
+     * @param txBytes bytes of the tx, scriptSigs are ignored
+     * @throws NullPointerException      if txBytes == null
+     * @throws IndexOutOfBoundsException if txBytes are incorrect
+     */
+    SignHash(byte[] txBytes) {
+        BytesInput bytesInput = new BytesInput(txBytes);
+        BytesOutput bytesOutput = new BytesOutput();
+        bytesOutput.writeIntLE(bytesInput.readIntLE()); // version
+        int count = (int) bytesInput.readVariableLengthInt(); // flag or #vin
+        if (count == 0) {
+            bytesOutput.write(0);
+            bytesOutput.write(bytesInput.read());
+            count = (int) bytesInput.readVariableLengthInt();
+        }
+        bytesOutput.writeVariableLength(count);
+        scriptPositions = new int[count];
+        byte[] input = new byte[36];
+        for (int i = 0; i < count; i++) {
+            bytesInput.readBytes(input); // previousTransactionHash, previousOutIndex
+            bytesOutput.writeBytes(input);
+            scriptPositions[i] = bytesOutput.size();
+            //noinspection ResultOfMethodCallIgnored
+            bytesInput.skip(bytesInput.readVariableLengthInt()); // scriptSig
+            bytesOutput.write(0x00);
+            bytesOutput.writeIntLE(bytesInput.readIntLE()); // sequence
+        }
+        bytesOutput.writeBytes(bytesInput.readBytes(new byte[bytesInput.available()]));
+        bytesOutput.writeIntLE(1); // signHashAll
+        message = bytesOutput.toByteArray();
+
+        midstates = new Sha256[count];
+        Sha256 sha256 = new Sha256();
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            sha256.update(message, position, scriptPositions[i] - position);
+            position = scriptPositions[i];
+            midstates[i] = new Sha256(sha256);
+        }
+    }
+
+    /**
+     * @param inputIndex           index of the input to sign
+     * @param previousScriptPubKey scriptPubKey of the output spent by this input
+     * @return double sha256 hash of the signed message
+     * @throws NullPointerException      if previousScriptPubKey == null
+     * @throws IndexOutOfBoundsException if inputIndex is incorrect
+     */
+    byte[] getHash(int inputIndex, Script previousScriptPubKey) {
+        BytesOutput bytesOutput = new BytesOutput();
+        previousScriptPubKey.write(bytesOutput);
+        int start = scriptPositions[inputIndex] + 1; // skip empty scriptSig
+        Sha256 sha256 = new Sha256(midstates[inputIndex])
+                .update(bytesOutput.toByteArray())
+                .update(message, start, message.length - start);
+        byte[] hash = new byte[32];
+        sha256.doFinal(hash, 0);
+        sha256.update(hash).doFinal(hash, 0);
+        return hash;
+    }
+}
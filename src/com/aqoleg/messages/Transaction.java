@@ -10,18 +10,29 @@ usage:
     Transaction transaction = Transaction.fromBytes(bytes);
     Transaction transaction = Transaction.fromBytesInput(bytesInput);
     String string = transaction.toString();
-    String hash = transaction.getHash();
+    Hash hash = transaction.getHash();
     String hexBytes = transaction.getHex();
     int size = transaction.getSize();
     transaction.verifyInput(inputIndex, previousTransaction);
     transaction.verifyInput(inputIndex, blockWithPreviousTransaction);
-    Transaction.Output output = transaction.getOutput(outputIndex);
+    int index = transaction.verifyInput(inputIndex, previousTransaction, eccBatch);
+    int index = transaction.verifyInput(inputIndex, blockWithPreviousTransaction, eccBatch);
+    int index = transaction.verifyInput(inputIndex, previousOutput, eccBatch);
+    boolean isCoinbase = transaction.isCoinbase();
+    int inputNumber = transaction.inputNumber();
+    Hash previousTxHash = transaction.getPreviousTxHash(inputIndex);
+    int previousOutIndex = transaction.getPreviousOutIndex(inputIndex);
+    int outputNumber = transaction.outputNumber();
+    Transaction.Output output = transaction.getTxOutput(outputIndex);
+    Transaction.Output output = new Transaction.Output(txHash, outputIndex, valueSatoshi, scriptPubKey);
     int outputIndex = output.index;
     long valueSatoshi = output.value;
-    byte[] transactionHash = output.getTxHash();
+    Hash transactionHash = output.getTxHash();
     Script scriptPubKey = output.scriptPubKey;
     boolean found = transaction.searchOutput(address, outputsList);
+    boolean found = transaction.searchTxOutput(addressMatcher, outputsList);
     byte[] message = transaction.toByteArray();
+    FrameEncoder.Frame message = transaction.encode();
 
 payload bytes:
     intLE, version
@@ -46,10 +57,11 @@ payload bytes:
 
 package com.aqoleg.messages;
 
+import com.aqoleg.crypto.Ecc;
 import com.aqoleg.crypto.Sha256;
 import com.aqoleg.keys.Address;
+import com.aqoleg.keys.AddressMatcher;
 import com.aqoleg.utils.BytesInput;
-import com.aqoleg.utils.BytesOutput;
 import com.aqoleg.utils.Converter;
 
 import java.math.BigDecimal;
@@ -61,7 +73,8 @@ public class Transaction extends Message {
     private Input[] inputs;
     private Output[] outputs;
     private int witnessesStartIndex; // -1 if there is no
-    private String hash;
+    private Hash hash;
+    private SignHash signHash;
 
     private Transaction() {
     }
@@ -107,7 +120,7 @@ public class Transaction extends Message {
             transaction.inputs = new Input[count];
             for (int i = 0; i < count; i++) {
                 transaction.inputs[i] = transaction.new Input(
-                        bytesInput.readBytes(new byte[32]),
+                        new Hash(bytesInput.readBytes(new byte[32])),
                         bytesInput.readIntLE(),
                         Script.fromBytesInput(bytesInput),
                         bytesInput.readIntLE()
@@ -119,7 +132,8 @@ public class Transaction extends Message {
             }
             transaction.outputs = new Output[count];
             for (int i = 0; i < count; i++) {
-                transaction.outputs[i] = transaction.new Output(
+                transaction.outputs[i] = new Output(
+                        transaction,
                         i,
                         bytesInput.readLongLE(),
                         Script.fromBytesInput(bytesInput)
@@ -210,11 +224,11 @@ public class Transaction extends Message {
     }
 
     /**
-     * @return reversed lower case 32-bytes hex hash of this transaction
+     * @return hash of this transaction
      */
-    public String getHash() {
+    public Hash getHash() {
         if (hash == null) {
-            hash = Converter.bytesToHexReverse(Sha256.getHash(Sha256.getHash(bytes)), false, false);
+            hash = new Hash(Sha256.getDoubleHash(bytes));
         }
         return hash;
     }
@@ -241,43 +255,128 @@ public class Transaction extends Message {
      * @throws Message.Exception         if input is not verified
      */
     public void verifyInput(int inputIndex, Transaction previousTransaction) {
+        verifyInput(inputIndex, previousTransaction, null);
+    }
+
+    /**
+     * @param inputIndex                   index of input to verify
+     * @param blockWithPreviousTransaction Block with Transaction with output of input to verify
+     * @throws NullPointerException      if blockWithPreviousTransaction == null
+     * @throws IndexOutOfBoundsException if inputIndex is incorrect
+     * @throws Message.Exception         if block does not contain tx or input is not verified
+     */
+    public void verifyInput(int inputIndex, Block blockWithPreviousTransaction) {
+        verifyInput(inputIndex, blockWithPreviousTransaction, null);
+    }
+
+    /**
+     * verifies input, but adds the signature into the batch instead of checking it
+     *
+     * @param inputIndex          index of input to verify
+     * @param previousTransaction Transaction with output of input to verify
+     * @param batch               Ecc.Batch to add the signature into, or null to check the signature now
+     * @return index of the signature in the batch, or -1 if there is no signature to check
+     * @throws NullPointerException      if previousTransaction == null
+     * @throws IndexOutOfBoundsException if inputIndex is incorrect
+     * @throws Message.Exception         if input is not verified
+     */
+    public int verifyInput(int inputIndex, Transaction previousTransaction, Ecc.Batch batch) {
         Input input = inputs[inputIndex];
-        if (!input.getPreviousTxHash().equals(previousTransaction.getHash())) {
+        if (!input.previousTransactionHash.equals(previousTransaction.getHash())) {
             throw new Message.Exception("incorrect hash");
         }
-
-        Output output;
-        try {
-            output = previousTransaction.outputs[input.previousOutIndex];
-        } catch (IndexOutOfBoundsException exception) {
-            throw new Message.Exception("incorrect prevOutIndex " + exception.getMessage());
-        }
-
-        input.scriptSig.verify(output.scriptPubKey, getSignHash(inputIndex, output.scriptPubKey));
+        return verifyInput(inputIndex, previousTransaction, batch, input);
     }
 
     /**
+     * verifies input, but adds the signature into the batch instead of checking it
+     *
      * @param inputIndex                   index of input to verify
      * @param blockWithPreviousTransaction Block with Transaction with output of input to verify
+     * @param batch                        Ecc.Batch to add the signature into, or null to check the signature now
+     * @return index of the signature in the batch, or -1 if there is no signature to check
      * @throws NullPointerException      if blockWithPreviousTransaction == null
      * @throws IndexOutOfBoundsException if inputIndex is incorrect
      * @throws Message.Exception         if block does not contain tx or input is not verified
      */
-    public void verifyInput(int inputIndex, Block blockWithPreviousTransaction) {
+    public int verifyInput(int inputIndex, Block blockWithPreviousTransaction, Ecc.Batch batch) {
         Input input = inputs[inputIndex];
-        Transaction previousTransaction = blockWithPreviousTransaction.getTx(input.getPreviousTxHash());
+        Transaction previousTransaction = blockWithPreviousTransaction.getTx(input.previousTransactionHash);
         if (previousTransaction == null) {
-            throw new Message.Exception("block does not contains tx " + input.getPreviousTxHash());
+            throw new Message.Exception("block does not contains tx " + input.previousTransactionHash);
         }
+        return verifyInput(inputIndex, previousTransaction, batch, input);
+    }
 
-        Output output;
-        try {
-            output = previousTransaction.outputs[input.previousOutIndex];
-        } catch (IndexOutOfBoundsException exception) {
-            throw new Message.Exception("incorrect prevOutIndex " + exception.getMessage());
+    /**
+     * verifies input, but adds the signature into the batch instead of checking it
+     *
+     * @param inputIndex     index of input to verify
+     * @param previousOutput Output spent by the input to verify
+     * @param batch          Ecc.Batch to add the signature into, or null to check the signature now
+     * @return index of the signature in the batch, or -1 if there is no signature to check
+     * @throws NullPointerException      if previousOutput == null
+     * @throws IndexOutOfBoundsException if inputIndex is incorrect
+     * @throws Message.Exception         if previousOutput is not spent by the input or input is not verified
+     */
+    public int verifyInput(int inputIndex, Output previousOutput, Ecc.Batch batch) {
+        Input input = inputs[inputIndex];
+        if (previousOutput.index != input.previousOutIndex
+                || !input.previousTransactionHash.equals(previousOutput.getTxHash())) {
+            throw new Message.Exception("incorrect previous output");
         }
+        return input.scriptSig.verify(
+                previousOutput.scriptPubKey,
+                getSignHash(inputIndex, previousOutput.scriptPubKey),
+                batch
+        );
+    }
 
-        input.scriptSig.verify(output.scriptPubKey, getSignHash(inputIndex, output.scriptPubKey));
+    /**
+     * @return true if this is a coinbase transaction, with one input without the previous output
+     */
+    public boolean isCoinbase() {
+        if (inputs.length != 1 || inputs[0].previousOutIndex != -1) {
+            return false;
+        }
+        for (byte b : inputs[0].previousTransactionHash.bytes) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of inputs in this transaction
+     */
+    public int inputNumber() {
+        return inputs.length;
+    }
+
+    /**
+     * @return number of outputs in this transaction
+     */
+    public int outputNumber() {
+        return outputs.length;
+    }
+
+    /**
+     * @param inputIndex index of input
+     * @return hash of the tx with the output spent by this input
+     * @throws IndexOutOfBoundsException if inputIndex is incorrect
+     */
+    public Hash getPreviousTxHash(int inputIndex) {
+        return inputs[inputIndex].previousTransactionHash;
+    }
+
+    /**
+     * @param inputIndex index of input
+     * @return index of the output spent by this input
+     * @throws IndexOutOfBoundsException if inputIndex is incorrect
+     */
+    public int getPreviousOutIndex(int inputIndex) {
+        return inputs[inputIndex].previousOutIndex;
     }
 
     /**
@@ -308,6 +407,25 @@ public class Transaction extends Message {
         return found;
     }
 
+    /**
+     * add to the list all found outputs for any of the addresses
+     *
+     * @param matcher AddressMatcher with addresses for searching outputs
+     * @param outputs ArrayList to add found output into
+     * @return true if found
+     * @throws NullPointerException if matcher == null or outputs == null
+     */
+    public boolean searchTxOutput(AddressMatcher matcher, ArrayList<Output> outputs) {
+        boolean found = false;
+        for (Output output : this.outputs) {
+            if (matcher.matches(output.scriptPubKey.address)) {
+                outputs.add(output);
+                found = true;
+            }
+        }
+        return found;
+    }
+
     /**
      * @return byte array with this Transaction message
      */
@@ -315,6 +433,13 @@ public class Transaction extends Message {
         return Message.toByteArray(command, bytes);
     }
 
+    /**
+     * @return encoded Transaction message, it can be sent to many peers
+     */
+    public FrameEncoder.Frame encode() {
+        return FrameEncoder.encode(command, bytes);
+    }
+
     private static String toString(String input) {
         try {
             return Transaction.fromBytes(Converter.hexToBytes(input)).toString();
@@ -325,43 +450,33 @@ public class Transaction extends Message {
         }
     }
 
-    private byte[] getSignHash(int inputIndex, Script previousScriptPubKey) {
-        BytesInput bytesInput = new BytesInput(bytes);
-        BytesOutput bytesOutput = new BytesOutput();
-        bytesOutput.writeIntLE(bytesInput.readIntLE()); // version
-        int count = (int) bytesInput.readVariableLengthInt(); // flag or #vin
-        if (count == 0) {
-            bytesOutput.write(0);
-            bytesOutput.write(bytesInput.read());
-            count = (int) bytesInput.readVariableLengthInt();
+    private int verifyInput(int inputIndex, Transaction previousTransaction, Ecc.Batch batch, Input input) {
+        Output output;
+        try {
+            output = previousTransaction.outputs[input.previousOutIndex];
+        } catch (IndexOutOfBoundsException exception) {
+            throw new Message.Exception("incorrect prevOutIndex " + exception.getMessage());
         }
-        bytesOutput.writeVariableLength(count);
-        byte[] input = new byte[36];
-        for (int i = 0; i < count; i++) {
-            bytesInput.readBytes(input); // previousTransactionHash, previousOutIndex
-            bytesOutput.writeBytes(input);
-            //noinspection ResultOfMethodCallIgnored
-            bytesInput.skip(bytesInput.readVariableLengthInt()); // scriptSig
-            if (i == inputIndex) {
-                previousScriptPubKey.write(bytesOutput);
-            } else {
-                bytesOutput.write(0x00);
-            }
-            bytesOutput.writeIntLE(bytesInput.readIntLE()); // sequence
+
+        return input.scriptSig.verify(output.scriptPubKey, getSignHash(inputIndex, output.scriptPubKey), batch);
+    }
+
+    private byte[] getSignHash(int inputIndex, Script previousScriptPubKey) {
+        SignHash signHash = this.signHash;
+        if (signHash == null) {
+            signHash = new SignHash(bytes); // immutable, can be created twice by concurrent threads
+            this.signHash = signHash;
         }
-        bytesOutput.writeBytes(bytesInput.readBytes(new byte[bytesInput.available()]));
-        bytesOutput.writeIntLE(1); // signHashAll
-        return Sha256.getHash(Sha256.getHash(bytesOutput.toByteArray()));
+        return signHash.getHash(inputIndex, previousScriptPubKey);
     }
 
     private class Input {
-        private final byte[] previousTransactionHash;
+        private final Hash previousTransactionHash;
         private final int previousOutIndex;
         private final Script scriptSig;
         private final int sequence;
-        private String prevHash;
 
-        private Input(byte[] previousTransactionHash, int previousOutIndex, Script scriptSig, int sequence) {
+        private Input(Hash previousTransactionHash, int previousOutIndex, Script scriptSig, int sequence) {
             this.previousTransactionHash = previousTransactionHash;
             this.previousOutIndex = previousOutIndex;
             this.scriptSig = scriptSig;
@@ -370,29 +485,46 @@ public class Transaction extends Message {
 
         @Override
         public String toString() {
-            return "prevTxHash: " + getPreviousTxHash() +
+            return "prevTxHash: " + previousTransactionHash +
                     ", prevOut: " + previousOutIndex +
                     ", scriptSig: (" + scriptSig +
                     "), sequence: " + sequence;
         }
-
-        private String getPreviousTxHash() {
-            if (prevHash == null) {
-                prevHash = Converter.bytesToHexReverse(previousTransactionHash, false, false);
-            }
-            return prevHash;
-        }
     }
 
-    public class Output {
+    public static class Output {
         public final int index;
         public final long value;
         private final Script scriptPubKey;
+        private final Transaction transaction; // null if the output is created without the tx
+        private final Hash txHash; // null if the output is created from the tx
 
-        private Output(int index, long value, Script scriptPubKey) {
+        private Output(Transaction transaction, int index, long value, Script scriptPubKey) {
+            this.index = index;
+            this.value = value;
+            this.scriptPubKey = scriptPubKey;
+            this.transaction = transaction;
+            txHash = null;
+        }
+
+        /**
+         * creates the output without the transaction, for example stored output
+         *
+         * @param txHash       hash of the tx with this output
+         * @param index        index of this output in the tx
+         * @param value        value in satoshi
+         * @param scriptPubKey scriptPubKey of this output
+         * @throws NullPointerException if txHash == null or scriptPubKey == null
+         */
+        public Output(Hash txHash, int index, long value, Script scriptPubKey) {
+            if (txHash == null || scriptPubKey == null) {
+                throw new NullPointerException();
+            }
             this.index = index;
             this.value = value;
             this.scriptPubKey = scriptPubKey;
+            transaction = null;
+            this.txHash = txHash;
         }
 
         @Override
@@ -402,10 +534,10 @@ public class Transaction extends Message {
         }
 
         /**
-         * @return tx hash bytes
+         * @return hash of the tx with this output
          */
-        public byte[] getTxHash() {
-            return Sha256.getHash(Sha256.getHash(bytes));
+        public Hash getTxHash() {
+            return transaction == null ? txHash : transaction.getHash();
         }
 
         /**
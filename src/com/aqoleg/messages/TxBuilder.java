@@ -14,7 +14,6 @@ usage:
 
 package com.aqoleg.messages;
 
-import com.aqoleg.crypto.Sha256;
 import com.aqoleg.keys.Address;
 import com.aqoleg.keys.KeyPair;
 import com.aqoleg.utils.BytesOutput;
@@ -151,20 +150,22 @@ public class TxBuilder {
         if (change != null && change.value < 0) {
             throw new Message.Exception("not enough values in inputs");
         }
+        SignHash signHash = new SignHash(getBytes(true));
         for (int i = 0; i < inputs.size(); i++) {
-            inputs.get(i).sign(Sha256.getHash(Sha256.getHash(getBytes(i))));
+            Input input = inputs.get(i);
+            input.sign(signHash.getHash(i, input.previousOutput.getScriptPubKey()));
         }
-        return Transaction.fromBytes(getBytes(-1));
+        return Transaction.fromBytes(getBytes(false));
     }
 
-    // get tx bytes, inputToSign < 0 for final tx
-    private byte[] getBytes(int inputToSign) {
+    // get tx bytes, with empty scriptSigs for signature
+    private byte[] getBytes(boolean forSignature) {
         BytesOutput bytesOutput = new BytesOutput();
         bytesOutput.writeIntLE(1); // version
         int count = inputs.size();
         bytesOutput.writeVariableLength(count);
         for (int i = 0; i < count; i++) {
-            inputs.get(i).write(bytesOutput, inputToSign >= 0, inputToSign == i);
+            inputs.get(i).write(bytesOutput, forSignature);
         }
         count = outputs.size() + (change == null ? 0 : 1);
         bytesOutput.writeVariableLength(count);
@@ -175,15 +176,11 @@ public class TxBuilder {
             change.write(bytesOutput);
         }
         bytesOutput.writeIntLE(0);
-        // hash code type
-        if (inputToSign >= 0) {
-            bytesOutput.writeIntLE(1); // signHashAll
-        }
         return bytesOutput.toByteArray();
     }
 
     private static class Input {
-        private final byte[] previousTransactionHash;
+        private final Hash previousTransactionHash;
         private final Transaction.Output previousOutput;
         private final KeyPair keyPair;
         private Script scriptSig;
@@ -220,12 +217,8 @@ public class TxBuilder {
                 return false;
             }
             Input input = (Input) object;
-            for (int i = 0; i < previousTransactionHash.length; i++) {
-                if (input.previousTransactionHash[i] != previousTransactionHash[i]) {
-                    return false;
-                }
-            }
-            return input.previousOutput.index == previousOutput.index;
+            return input.previousTransactionHash.equals(previousTransactionHash)
+                    && input.previousOutput.index == previousOutput.index;
         }
 
         // actual or calculated size
@@ -243,15 +236,13 @@ public class TxBuilder {
         }
 
         // throws if write not for signature before creating signature
-        private void write(BytesOutput bytesOutput, boolean forSignature, boolean forThisSignature) {
-            bytesOutput.writeBytes(previousTransactionHash);
+        private void write(BytesOutput bytesOutput, boolean forSignature) {
+            previousTransactionHash.write(bytesOutput);
             bytesOutput.writeIntLE(previousOutput.index);
-            if (!forSignature) {
-                scriptSig.write(bytesOutput);
-            } else if (forThisSignature) {
-                previousOutput.getScriptPubKey().write(bytesOutput);
-            } else {
+            if (forSignature) {
                 bytesOutput.write(0x00);
+            } else {
+                scriptSig.write(bytesOutput);
             }
             bytesOutput.writeIntLE(0xFFFFFFFF);
         }
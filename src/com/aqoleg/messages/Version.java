@@ -10,6 +10,7 @@ usage:
     String string = version.toString();
     int version = version.getVersion();
     byte[] message = version.toByteArray();
+    FrameEncoder.Frame message = version.encode();
 
 payload bytes:
     intLE, version
@@ -159,4 +160,11 @@ public class Version extends Message {
     public byte[] toByteArray() {
         return Message.toByteArray(command, bytes);
     }
+
+    /**
+     * @return encoded Version message
+     */
+    public FrameEncoder.Frame encode() {
+        return FrameEncoder.encode(command, bytes);
+    }
 }
\ No newline at end of file
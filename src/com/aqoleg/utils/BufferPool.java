@@ -0,0 +1,75 @@
+/*
+pool of the reusable direct ByteBuffers with the same capacity; thread-safe
+
+usage:
+    BufferPool bufferPool = new BufferPool(bufferCapacity, maxPooled);
+    ByteBuffer buffer = bufferPool.acquire();
+    bufferPool.release(buffer);
+    int pooled = bufferPool.size();
+
+the released buffer must not be used, buffers with other capacity and buffers over maxPooled are dropped
+*/
+
+package com.aqoleg.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+
+public class BufferPool {
+    private final int bufferCapacity;
+    private final int maxPooled;
+    private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+
+    /**
+     * @param bufferCapacity capacity of each buffer
+     * @param maxPooled      max number of free buffers in the pool
+     * @throws IllegalArgumentException if bufferCapacity < 1 or maxPooled < 0
+     */
+    public BufferPool(int bufferCapacity, int maxPooled) {
+        if (bufferCapacity < 1 || maxPooled < 0) {
+            throw new IllegalArgumentException("incorrect parameters");
+        }
+        this.bufferCapacity = bufferCapacity;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * @return cleared direct ByteBuffer with the capacity of this pool, big-endian
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer;
+        synchronized (buffers) {
+            buffer = buffers.pollLast();
+        }
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferCapacity);
+        }
+        buffer.clear();
+        return buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * @param buffer ByteBuffer which is no longer used
+     * @throws NullPointerException if buffer == null
+     */
+    public void release(ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.capacity() != bufferCapacity) {
+            return;
+        }
+        synchronized (buffers) {
+            if (buffers.size() < maxPooled) {
+                buffers.addLast(buffer);
+            }
+        }
+    }
+
+    /**
+     * @return number of free buffers in the pool
+     */
+    public int size() {
+        synchronized (buffers) {
+            return buffers.size();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+bounded set of the recently added keys with false positives, it remembers at least the last capacity keys;
+not synchronized
+
+usage:
+    RollingFilter filter = new RollingFilter(capacity, falsePositiveRate);
+    filter.add(keyBytes);
+    boolean contains = filter.contains(keyBytes);
+    filter.clear();
+
+two bloom filters are used, the keys are added to the current one, when it has capacity keys,
+the previous one is cleared and becomes the current one, so the memory does not grow;
+the arrays are allocated with the first key, so the unused filter is cheap;
+the key is hashed with the random seed of this filter, so the false positives are different in each filter
+*/
+
+package com.aqoleg.utils;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+public class RollingFilter {
+    private static final SecureRandom random = new SecureRandom();
+    private final int capacity;
+    private final int bits; // number of bits in each filter
+    private final int hashes; // number of bits for each key
+    private final long seed = random.nextLong();
+    private long[] current; // null before the first key
+    private long[] previous;
+    private int count = 0; // number of keys in the current filter
+
+    /**
+     * @param capacity          number of the last keys which are surely remembered
+     * @param falsePositiveRate max probability of the false positive, when the filter is full
+     * @throws IllegalArgumentException if capacity < 1 or falsePositiveRate is not in (0, 1)
+     */
+    public RollingFilter(int capacity, double falsePositiveRate) {
+        if (capacity < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("incorrect parameters");
+        }
+        this.capacity = capacity;
+        // each of two filters has the half of the rate, bits = -n * ln(p) / ln(2)^2, hashes = bits / n * ln(2)
+        double bits = -capacity * Math.log(falsePositiveRate / 2) / (Math.log(2) * Math.log(2));
+        this.bits = (int) Math.min(Math.ceil(bits / 64) * 64, Integer.MAX_VALUE - 63);
+        hashes = Math.max(1, (int) Math.round(this.bits / (double) capacity * Math.log(2)));
+    }
+
+    /**
+     * @param key bytes of the key
+     * @throws NullPointerException if key == null
+     */
+    public void add(byte[] key) {
+        long hash = hash(key);
+        if (current == null) {
+            current = new long[bits / 64];
+            previous = new long[bits / 64];
+        } else if (count == capacity) {
+            long[] cleared = previous;
+            Arrays.fill(cleared, 0);
+            previous = current;
+            current = cleared;
+            count = 0;
+        }
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = ((h1 + i * h2) & 0x7FFFFFFF) % bits;
+            current[bit >>> 6] |= 1L << bit;
+        }
+        count++;
+    }
+
+    /**
+     * @param key bytes of the key
+     * @return true if the key was probably added, false if it was not added or it is older than 2 * capacity keys
+     * @throws NullPointerException if key == null
+     */
+    public boolean contains(byte[] key) {
+        long hash = hash(key);
+        return current != null && (contains(current, hash) || contains(previous, hash));
+    }
+
+    /**
+     * removes all keys
+     */
+    public void clear() {
+        if (current != null) {
+            Arrays.fill(current, 0);
+            Arrays.fill(previous, 0);
+        }
+        count = 0;
+    }
+
+    private boolean contains(long[] filter, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashes; i++) {
+            int bit = ((h1 + i * h2) & 0x7FFFFFFF) % bits;
+            if ((filter[bit >>> 6] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 64-bit fnv-1a with the seed and the final mix of the murmur3
+    private long hash(byte[] key) {
+        long hash = seed ^ 0xCBF29CE484222325L;
+        for (byte b : key) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
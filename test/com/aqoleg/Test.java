@@ -26,9 +26,11 @@ import com.aqoleg.data.test.*;
 import com.aqoleg.keys.test.*;
 import com.aqoleg.messages.test.*;
 import com.aqoleg.utils.test.Base58Test;
+import com.aqoleg.utils.test.BufferPoolTest;
 import com.aqoleg.utils.test.BytesInputTest;
 import com.aqoleg.utils.test.BytesOutputTest;
 import com.aqoleg.utils.test.ConverterTest;
+import com.aqoleg.utils.test.RollingFilterTest;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -41,16 +43,27 @@ public class Test {
         System.out.println();
         boolean ok = new Test().testAll();
         ok &= new EccTest().testAll();
+        ok &= new FieldElementTest().testAll();
+        ok &= new HeaderHashTest().testAll();
         ok &= new HmacSha512Test().testAll();
         ok &= new Ripemd160Test().testAll();
         ok &= new Sha256Test().testAll();
         ok &= new Sha512Test().testAll();
         ok &= new AddressesTest().testAll();
         ok &= new BlockLoaderTest().testAll();
+        ok &= new BlockSchedulerTest().testAll();
+        ok &= new BlockStoreTest().testAll();
+        ok &= new BlockVerifierTest().testAll();
         ok &= new ConnectionManagerTest().testAll();
         ok &= new ConnectionTest().testAll();
+        ok &= new HeaderChainTest().testAll();
+        ok &= new InventoryRelayTest().testAll();
+        ok &= new KeyValueStoreTest().testAll();
         ok &= new StorageTest().testAll();
+        ok &= new TasksTest().testAll();
         ok &= new TransactionSenderTest().testAll();
+        ok &= new UtxoSetTest().testAll();
+        ok &= new AddressMatcherTest().testAll();
         ok &= new AddressTest().testAll();
         ok &= new HdKeyPairTest().testAll();
         ok &= new KeyPairTest().testAll();
@@ -59,9 +72,14 @@ public class Test {
         ok &= new AddrTest().testAll();
         ok &= new AlertTest().testAll();
         ok &= new BlockTest().testAll();
+        ok &= new FrameDecoderTest().testAll();
+        ok &= new FrameEncoderTest().testAll();
         ok &= new GetAddrTest().testAll();
         ok &= new GetBlocksTest().testAll();
         ok &= new GetDataTest().testAll();
+        ok &= new GetHeadersTest().testAll();
+        ok &= new HashTest().testAll();
+        ok &= new HeadersTest().testAll();
         ok &= new InventoryTest().testAll();
         ok &= new InvTest().testAll();
         ok &= new MessageTest().testAll();
@@ -76,9 +94,11 @@ public class Test {
         ok &= new VerAckTest().testAll();
         ok &= new VersionTest().testAll();
         ok &= new Base58Test().testAll();
+        ok &= new BufferPoolTest().testAll();
         ok &= new BytesInputTest().testAll();
         ok &= new BytesOutputTest().testAll();
         ok &= new ConverterTest().testAll();
+        ok &= new RollingFilterTest().testAll();
         System.out.println("all tests " + (ok ? "ok" : "not ok"));
         System.out.println("the end");
     }
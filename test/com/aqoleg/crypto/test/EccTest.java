@@ -302,6 +302,45 @@ public class EccTest extends Test {
         }
     }
 
+    public void batch() {
+        Ecc.Batch batch = new Ecc.Batch();
+        Ecc.Point point = Ecc.multiplyG(BigInteger.TEN);
+        assertThrows(NullPointerException.class, () -> batch.add(null, point, new BigInteger[2]));
+        assertThrows(NullPointerException.class, () -> batch.add(new byte[]{1}, null, new BigInteger[2]));
+        assertThrows(NullPointerException.class, () -> batch.add(new byte[]{1}, point, null));
+        assertEquals(0, batch.size());
+        assertEquals(0, batch.verify().length);
+
+        Random random = new Random();
+        boolean[] required = new boolean[60];
+        for (int i = 0; i < required.length; i++) {
+            if (i % 6 == 0) {
+                System.out.print(".");
+            }
+            byte[] message = new BigInteger(250, random).toByteArray();
+            BigInteger privateKey = new BigInteger(160, random);
+            Ecc.Point publicKey = Ecc.multiplyG(privateKey);
+            BigInteger[] signature = Ecc.sign(message, privateKey);
+            required[i] = i % 3 != 0;
+            if (i % 3 == 0) {
+                if (i % 2 == 0) {
+                    message[0] ^= 1;
+                } else if (i % 9 == 0) {
+                    signature = new BigInteger[]{signature[0]};
+                } else {
+                    signature = new BigInteger[]{signature[0], BigInteger.ZERO};
+                }
+            }
+            assertEquals(i, batch.add(message, publicKey, signature));
+        }
+        assertEquals(required.length, batch.size());
+        boolean[] verified = batch.verify();
+        assertEquals(required.length, verified.length);
+        for (int i = 0; i < required.length; i++) {
+            assertTrue(required[i] == verified[i]);
+        }
+    }
+
     private void areTheSamePoint(Ecc.Point point, String x, String y) {
         assertEquals(x, point.x.toString(16).toUpperCase());
         assertEquals(y, point.y.toString(16).toUpperCase());
@@ -0,0 +1,86 @@
+package com.aqoleg.crypto.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.crypto.FieldElement;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+@SuppressWarnings("unused")
+public class FieldElementTest extends Test {
+    private static final BigInteger p = new BigInteger(
+            "fffffffffffffffffffffffffffffffffffffffffffffffffffffffefffffc2f",
+            16
+    );
+
+    public static void main(String[] args) {
+        new FieldElementTest().testAll();
+    }
+
+    public void constructor() {
+        assertThrows(NullPointerException.class, () -> new FieldElement((BigInteger) null));
+        assertThrows(NullPointerException.class, () -> new FieldElement((FieldElement) null));
+        assertThrows(FieldElement.Exception.class, () -> new FieldElement(BigInteger.TEN.negate()));
+        assertThrows(FieldElement.Exception.class, () -> new FieldElement(BigInteger.ONE.shiftLeft(256)));
+        assertEquals(0, BigInteger.ZERO.compareTo(new FieldElement().toBigInteger()));
+        assertEquals(0, BigInteger.TEN.compareTo(new FieldElement(BigInteger.TEN).toBigInteger()));
+        assertEquals(0, BigInteger.ZERO.compareTo(new FieldElement(p).toBigInteger()));
+        BigInteger max = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE);
+        assertEquals(0, max.mod(p).compareTo(new FieldElement(max).toBigInteger()));
+        assertEquals(0, BigInteger.TEN.compareTo(new FieldElement(new FieldElement(BigInteger.TEN)).toBigInteger()));
+    }
+
+    public void arithmetic() {
+        Random random = new Random();
+        for (int i = 0; i < 1000; i++) {
+            BigInteger a = new BigInteger(256, random);
+            BigInteger b = i % 10 == 0 ? p.subtract(BigInteger.ONE) : new BigInteger(256, random);
+            FieldElement fa = new FieldElement(a);
+            FieldElement fb = new FieldElement(b);
+            same(a.add(b), new FieldElement(fa).add(fb));
+            same(a.subtract(b), new FieldElement(fa).subtract(fb));
+            same(b.subtract(a), new FieldElement(fb).subtract(fa));
+            same(a.negate(), new FieldElement(fa).negate());
+            same(a.multiply(b), new FieldElement(fa).multiply(fb));
+            same(a.multiply(a), new FieldElement(fa).square());
+            same(a.multiply(a), new FieldElement(fa).multiply(fa));
+            same(a.multiply(BigInteger.valueOf(0xFFFF)), new FieldElement(fa).multiply(0xFFFF));
+            if (a.mod(p).signum() != 0) {
+                same(a.modInverse(p), new FieldElement(fa).invert());
+            }
+            assertTrue(fa.equals(new FieldElement(a.mod(p))));
+            assertTrue(!fa.equals(new FieldElement(fa).add(new FieldElement(BigInteger.ONE))));
+            assertTrue(fa.isOdd() == a.mod(p).testBit(0));
+        }
+        assertThrows(FieldElement.Exception.class, () -> new FieldElement().multiply(-1));
+        assertThrows(FieldElement.Exception.class, () -> new FieldElement().multiply(0x10000));
+        assertTrue(new FieldElement().isZero());
+        assertTrue(new FieldElement(p).isZero());
+        assertTrue(new FieldElement(BigInteger.TEN).subtract(new FieldElement(BigInteger.TEN)).isZero());
+        assertTrue(new FieldElement().invert().isZero());
+    }
+
+    public void sqrt() {
+        Random random = new Random();
+        for (int i = 0; i < 100; i++) {
+            BigInteger a = new BigInteger(256, random).mod(p);
+            FieldElement square = new FieldElement(a).square();
+            FieldElement root = new FieldElement(square);
+            assertTrue(root.sqrt());
+            assertTrue(root.equals(new FieldElement(a)) || root.equals(new FieldElement(a).negate()));
+            // -1 is not a square, so -a**2 has no square root
+            FieldElement notSquare = new FieldElement(square).negate();
+            if (!square.isZero()) {
+                assertTrue(!notSquare.sqrt());
+                assertTrue(notSquare.equals(new FieldElement(square).negate()));
+            }
+        }
+        FieldElement zero = new FieldElement();
+        assertTrue(zero.sqrt());
+        assertTrue(zero.isZero());
+    }
+
+    private void same(BigInteger required, FieldElement actual) {
+        assertEquals(0, required.mod(p).compareTo(actual.toBigInteger()));
+    }
+}
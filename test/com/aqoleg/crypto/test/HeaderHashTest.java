@@ -0,0 +1,45 @@
+package com.aqoleg.crypto.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.crypto.HeaderHash;
+import com.aqoleg.crypto.Sha256;
+
+@SuppressWarnings("unused")
+public class HeaderHashTest extends Test {
+
+    public static void main(String[] args) {
+        new HeaderHashTest().testAll();
+    }
+
+    public void getHash() {
+        HeaderHash headerHash = new HeaderHash();
+        byte[] out = new byte[40];
+        assertThrows(NullPointerException.class, () -> headerHash.getHash(null, 0, out, 0));
+        assertThrows(NullPointerException.class, () -> headerHash.getHash(new byte[80], 0, null, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> headerHash.getHash(new byte[80], 1, out, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> headerHash.getHash(new byte[80], -1, out, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> headerHash.getHash(new byte[80], 0, out, 9));
+
+        byte[] header = hexToBytes("0001000000" // one byte before, version
+                + "0000000000000000000000000000000000000000000000000000000000000000" // prevBlock
+                + "3BA3EDFD7A7B12B27AC72C3E67768F617FC81BC3888A51323A9FB8AA4B1E5E4A" // merkleRoot
+                + "29AB5F49" // timestamp
+                + "FFFF001D" // bits
+                + "1DAC2B7C"); // nonce
+        headerHash.getHash(header, 1, out, 4);
+        assertEquals(
+                "000000006fe28c0ab6f1b372c1a6a246ae63f74f931e8365e15a089c68d619000000000000000000",
+                out
+        );
+
+        byte[] hash = new byte[32];
+        for (int i = 0; i < 300; i++) {
+            header[1 + 76 + (i & 3)]++; // nonce, the midstate is reused
+            if (i % 7 == 0) {
+                header[1 + (i % 64)]++; // the first block is changed
+            }
+            headerHash.getHash(header, 1, hash, 0);
+            assertEquals(Sha256.getDoubleHash(header, 1, 80), hash);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.aqoleg.crypto.test;
 import com.aqoleg.Test;
 import com.aqoleg.crypto.Sha256;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 @SuppressWarnings("unused")
@@ -103,4 +104,140 @@ public class Sha256Test extends Test {
                 Sha256.getHash(Sha256.getHash(bytes))
         );
     }
-}
\ No newline at end of file
+
+    public void update() {
+        Sha256 sha256 = new Sha256();
+        assertThrows(NullPointerException.class, () -> sha256.update((byte[]) null));
+        assertThrows(NullPointerException.class, () -> sha256.update(null, 0, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> sha256.update(new byte[]{1, 1, 1, 1}, 2, 9));
+        assertThrows(IndexOutOfBoundsException.class, () -> sha256.update(new byte[]{1, 1, 1, 1}, -1, 2));
+
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", sha256.doFinal());
+        assertEquals(
+                "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                sha256.update("a".getBytes()).update("bc".getBytes()).doFinal()
+        );
+        // doFinal resets
+        assertEquals(
+                "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                sha256.update("abc".getBytes()).doFinal()
+        );
+
+        byte[] bytes = new byte[300];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 7);
+        }
+        for (int length = 0; length < bytes.length; length += 13) {
+            for (int split = 0; split <= length; split += 11) {
+                assertEquals(
+                        Sha256.getHash(bytes, 0, length),
+                        sha256.update(bytes, 0, split).update(bytes, split, length - split).doFinal()
+                );
+            }
+        }
+
+        byte[] millionA = new byte[1000000];
+        Arrays.fill(millionA, (byte) 'a');
+        for (int i = 0; i < millionA.length; i += 1000) {
+            sha256.update(millionA, i, 1000);
+        }
+        assertEquals("cdc76e5c9914fb9281a1c7e284d73e67f1809a48a497200e046d39ccc7112cd0", sha256.doFinal());
+    }
+
+    public void copy() {
+        assertThrows(NullPointerException.class, () -> new Sha256(null));
+        Sha256 sha256 = new Sha256().update("abcdbcdecdefdefgefghfghighijhijkijkljklm".getBytes());
+        Sha256 copy = new Sha256(sha256);
+        assertEquals(
+                "248d6a61d20638b8e5c026930c3e6039a33ce45964ff2167f6ecedd419db06c1",
+                sha256.update("klmnlmnomnopnopq".getBytes()).doFinal()
+        );
+        assertEquals(
+                "248d6a61d20638b8e5c026930c3e6039a33ce45964ff2167f6ecedd419db06c1",
+                copy.update("klmnlmnomnopnopq".getBytes()).doFinal()
+        );
+    }
+
+    public void byteBuffer() {
+        Sha256 sha256 = new Sha256();
+        assertThrows(NullPointerException.class, () -> sha256.update((ByteBuffer) null));
+
+        byte[] bytes = new byte[300];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 7);
+        }
+        ByteBuffer heap = ByteBuffer.wrap(bytes, 10, 250).slice();
+        ByteBuffer direct = ByteBuffer.allocateDirect(250);
+        direct.put(bytes, 10, 250).flip();
+        assertEquals(Sha256.getHash(bytes, 10, 250), sha256.update(heap).doFinal());
+        assertEquals(250, heap.position());
+        direct.limit(100);
+        sha256.update(direct);
+        direct.limit(250);
+        assertEquals(Sha256.getHash(bytes, 10, 250), sha256.update(direct).doFinal());
+        assertEquals(0, direct.remaining());
+    }
+
+    public void doFinal() {
+        Sha256 sha256 = new Sha256();
+        assertThrows(NullPointerException.class, () -> sha256.doFinal(null, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> sha256.doFinal(new byte[40], 9));
+        assertThrows(IndexOutOfBoundsException.class, () -> sha256.doFinal(new byte[40], -1));
+
+        byte[] out = new byte[40];
+        sha256.update("abc".getBytes()).doFinal(out, 8);
+        assertEquals(
+                "0000000000000000ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                out
+        );
+        assertEquals(0, sha256.getLength());
+
+        sha256.update("xyz".getBytes());
+        assertEquals(3, sha256.getLength());
+        sha256.reset();
+        assertEquals(0, sha256.getLength());
+        assertEquals(
+                "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+                sha256.update("abc".getBytes()).doFinal()
+        );
+    }
+
+    public void midstate() {
+        Sha256 sha256 = new Sha256();
+        assertThrows(NullPointerException.class, () -> new Sha256(null, 0));
+        assertThrows(Sha256.Exception.class, () -> new Sha256(new byte[31], 0));
+        assertThrows(Sha256.Exception.class, () -> new Sha256(new byte[32], 65));
+        assertThrows(Sha256.Exception.class, () -> new Sha256(new byte[32], -64));
+        assertThrows(Sha256.Exception.class, () -> sha256.update(new byte[65]).getMidstate());
+        sha256.reset();
+
+        assertEquals(
+                "6a09e667bb67ae853c6ef372a54ff53a510e527f9b05688c1f83d9ab5be0cd19",
+                new Sha256().getMidstate()
+        );
+        byte[] bytes = "abcdbcdecdefdefgefghfghighijhijkijkljklmklmnlmnomnopnopq".getBytes();
+        byte[] message = new byte[128 + bytes.length];
+        System.arraycopy(bytes, 0, message, 128, bytes.length);
+        byte[] midstate = sha256.update(message, 0, 128).getMidstate();
+        assertEquals(128, sha256.getLength());
+        assertEquals(
+                Sha256.getHash(message),
+                new Sha256(midstate, 128).update(bytes).doFinal()
+        );
+    }
+
+    public void getDoubleHash() {
+        assertThrows(NullPointerException.class, () -> Sha256.getDoubleHash(null));
+        assertThrows(NullPointerException.class, () -> Sha256.getDoubleHash(null, 9, 9));
+        assertThrows(IndexOutOfBoundsException.class, () -> Sha256.getDoubleHash(new byte[]{1, 1, 1, 1}, 2, 9));
+
+        assertEquals(
+                "9595c9df90075148eb06860365df33584b75bff782a510c6cd4883a419833d50",
+                Sha256.getDoubleHash("hello".getBytes())
+        );
+        assertEquals(
+                "9595c9df90075148eb06860365df33584b75bff782a510c6cd4883a419833d50",
+                Sha256.getDoubleHash("--hello--".getBytes(), 2, 5)
+        );
+    }
+}
@@ -5,6 +5,12 @@ import com.aqoleg.data.BlockLoader;
 import com.aqoleg.data.ConnectionManager;
 import com.aqoleg.data.Storage;
 import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Hash;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings("unused")
 public class BlockLoaderTest extends Test {
@@ -14,8 +20,8 @@ public class BlockLoaderTest extends Test {
     }
 
     public void test() {
-        String hash0 = "0000000000011bc2675148710038d131bad83cf6a3fb7da3f8ebff2c9cde68df";
-        String hash1 = "000000000003b97cec3e714136796147fb7ac36cd18eba941dffe346b330e7e1";
+        Hash hash0 = Hash.fromHex("0000000000011bc2675148710038d131bad83cf6a3fb7da3f8ebff2c9cde68df");
+        Hash hash1 = Hash.fromHex("000000000003b97cec3e714136796147fb7ac36cd18eba941dffe346b330e7e1");
         Block[] block = new Block[4];
         new Thread(() -> block[0] = BlockLoader.getBlock(hash0)).start();
         new Thread(() -> block[1] = BlockLoader.getBlock(hash1)).start();
@@ -49,4 +55,34 @@ public class BlockLoaderTest extends Test {
         );
         assertEquals(5000000000L, block[3].getTx(0).getTxOutput(0).value);
     }
-}
\ No newline at end of file
+
+    public void async() {
+        Hash hash0 = Hash.fromHex("0000000000011bc2675148710038d131bad83cf6a3fb7da3f8ebff2c9cde68df");
+        Hash hash1 = Hash.fromHex("000000000003b97cec3e714136796147fb7ac36cd18eba941dffe346b330e7e1");
+        Storage.writeBlock(hash0, null);
+        Storage.writeBlock(hash1, null);
+        assertThrows(NullPointerException.class, () -> BlockLoader.getBlockAsync(null));
+        assertThrows(NullPointerException.class, () -> BlockLoader.getBlocks(null));
+        CompletableFuture<Block> future = BlockLoader.getBlockAsync(hash0);
+        assertTrue(future == BlockLoader.getBlockAsync(hash0));
+        CompletableFuture<List<Block>> futures = BlockLoader.getBlocks(Arrays.asList(hash1, hash0));
+        List<Block> blocks = null;
+        try {
+            blocks = futures.get(80, TimeUnit.SECONDS);
+        } catch (Exception exception) {
+            System.out.println("timeout, cannot download blocks...");
+        }
+        ConnectionManager.stop();
+        Storage.writeBlock(hash0, null);
+        Storage.writeBlock(hash1, null);
+        assertTrue(blocks != null);
+        if (blocks == null) {
+            return;
+        }
+        assertTrue(future.isDone());
+        assertEquals(2, blocks.size());
+        assertEquals(hash1.toString(), blocks.get(0).getHash().toString());
+        assertEquals(hash0.toString(), blocks.get(1).getHash().toString());
+        assertEquals(134, future.join().getTx(0).getSize());
+    }
+}
@@ -0,0 +1,192 @@
+package com.aqoleg.data.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.data.BlockScheduler;
+import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Hash;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@SuppressWarnings("unused")
+public class BlockSchedulerTest extends Test {
+
+    public static void main(String[] args) {
+        new BlockSchedulerTest().testAll();
+    }
+
+    public void test() {
+        assertThrows(IllegalArgumentException.class, () -> new BlockScheduler(0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BlockScheduler(1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BlockScheduler(1, 1, 0));
+        BlockScheduler scheduler = new BlockScheduler(2, 100, 100000);
+        ArrayList<Block> delivered = new ArrayList<>();
+        assertThrows(NullPointerException.class, () -> scheduler.addPeer(null));
+        assertThrows(NullPointerException.class, () -> scheduler.add(null, delivered::add));
+        assertThrows(NullPointerException.class, () -> scheduler.add(Collections.emptyList(), null));
+        assertThrows(NullPointerException.class, () -> scheduler.add(Collections.singletonList(null), delivered::add));
+        assertThrows(NullPointerException.class, () -> scheduler.onBlockReceive(null));
+
+        Block[] blocks = new Block[6];
+        List<Hash> hashes = new ArrayList<>();
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = block(i);
+            hashes.add(blocks[i].getHash());
+        }
+        scheduler.add(hashes, delivered::add);
+        assertEquals(6, scheduler.size());
+        Peer peer0 = new Peer();
+        Peer peer1 = new Peer();
+        scheduler.addPeer(peer0);
+        assertEquals(2, peer0.requested.size());
+        scheduler.addPeer(peer1);
+        assertEquals(2, peer1.requested.size());
+        assertEquals(hashes.get(0).toString(), peer0.requested.get(0).toString());
+        assertEquals(hashes.get(1).toString(), peer0.requested.get(1).toString());
+        assertEquals(hashes.get(2).toString(), peer1.requested.get(0).toString());
+        assertEquals(hashes.get(3).toString(), peer1.requested.get(1).toString());
+
+        // blocks are delivered in order
+        assertTrue(scheduler.onBlockReceive(blocks[2]));
+        assertTrue(!scheduler.onBlockReceive(blocks[2]));
+        assertTrue(!scheduler.onBlockReceive(block(10)));
+        assertEquals(0, delivered.size());
+        assertEquals(3, peer1.requested.size());
+        assertEquals(hashes.get(4).toString(), peer1.requested.get(2).toString());
+        assertTrue(scheduler.onBlockReceive(blocks[0]));
+        assertEquals(1, delivered.size());
+        assertTrue(scheduler.onBlockReceive(blocks[1]));
+        assertEquals(3, delivered.size());
+        assertEquals(hashes.get(2).toString(), delivered.get(2).getHash().toString());
+        assertEquals(3, scheduler.size());
+        assertEquals(3, peer0.requested.size());
+        assertEquals(hashes.get(5).toString(), peer0.requested.get(2).toString());
+
+        // in flight blocks of the removed peer are requested from another one
+        scheduler.removePeer(peer1);
+        scheduler.removePeer(peer1);
+        assertEquals(4, peer0.requested.size());
+        assertEquals(hashes.get(3).toString(), peer0.requested.get(3).toString());
+        assertTrue(scheduler.onBlockReceive(blocks[5]));
+        assertEquals(5, peer0.requested.size());
+        assertEquals(hashes.get(4).toString(), peer0.requested.get(4).toString());
+        assertTrue(scheduler.onBlockReceive(blocks[4]));
+        assertEquals(3, delivered.size());
+        assertTrue(scheduler.onBlockReceive(blocks[3]));
+        assertEquals(6, delivered.size());
+        for (int i = 0; i < blocks.length; i++) {
+            assertEquals(hashes.get(i).toString(), delivered.get(i).getHash().toString());
+        }
+        assertEquals(0, scheduler.size());
+    }
+
+    public void timeout() {
+        BlockScheduler scheduler = new BlockScheduler(4, 100, 1);
+        Peer peer0 = new Peer();
+        Peer peer1 = new Peer();
+        scheduler.addPeer(peer0);
+        ArrayList<Block> delivered = new ArrayList<>();
+        Block block = block(0);
+        scheduler.add(Collections.singletonList(block.getHash()), delivered::add);
+        scheduler.addPeer(peer1);
+        assertEquals(1, peer0.requested.size());
+        assertEquals(0, peer1.requested.size());
+        sleep();
+        scheduler.checkTimeouts();
+        assertEquals(1, peer0.requested.size());
+        assertEquals(1, peer1.requested.size());
+        sleep();
+        scheduler.checkTimeouts();
+        assertEquals(2, peer0.requested.size());
+        assertTrue(scheduler.onBlockReceive(block));
+        assertEquals(1, delivered.size());
+    }
+
+    public void sharedBlocks() {
+        BlockScheduler scheduler = new BlockScheduler(2, 2, 100000);
+        Peer peer = new Peer();
+        scheduler.addPeer(peer);
+        Block[] blocks = new Block[]{block(0), block(1), block(2)};
+        ArrayList<Block> delivered0 = new ArrayList<>();
+        ArrayList<Block> delivered1 = new ArrayList<>();
+        scheduler.add(Arrays.asList(blocks[0].getHash(), blocks[1].getHash()), delivered0::add);
+        scheduler.add(Arrays.asList(blocks[2].getHash(), blocks[1].getHash()), delivered1::add);
+        assertEquals(3, scheduler.size());
+        assertEquals(2, peer.requested.size());
+        // the third block is not requested until the first ones are delivered
+        scheduler.onBlockReceive(blocks[1]);
+        assertEquals(0, delivered0.size());
+        assertEquals(2, peer.requested.size());
+        scheduler.onBlockReceive(blocks[0]);
+        assertEquals(2, delivered0.size());
+        assertEquals(0, delivered1.size());
+        assertEquals(2, scheduler.size());
+        assertEquals(3, peer.requested.size());
+        assertEquals(blocks[2].getHash().toString(), peer.requested.get(2).toString());
+        scheduler.onBlockReceive(blocks[2]);
+        assertEquals(2, delivered1.size());
+        assertEquals(blocks[2].getHash().toString(), delivered1.get(0).getHash().toString());
+        assertEquals(blocks[1].getHash().toString(), delivered1.get(1).getHash().toString());
+        assertEquals(0, scheduler.size());
+    }
+
+    public void receivedBeforeBatch() {
+        BlockScheduler scheduler = new BlockScheduler(2, 100, 100000);
+        Peer peer = new Peer();
+        scheduler.addPeer(peer);
+        Block[] blocks = new Block[]{block(0), block(1)};
+        ArrayList<Block> delivered0 = new ArrayList<>();
+        ArrayList<Block> delivered1 = new ArrayList<>();
+        scheduler.add(Arrays.asList(blocks[0].getHash(), blocks[1].getHash()), delivered0::add);
+        // the second block is kept for the first batch, which waits for the first block
+        assertTrue(scheduler.onBlockReceive(blocks[1]));
+        assertEquals(0, delivered0.size());
+        scheduler.add(Collections.singletonList(blocks[1].getHash()), delivered1::add);
+        assertEquals(1, delivered1.size());
+        assertEquals(blocks[1].getHash().toString(), delivered1.get(0).getHash().toString());
+        assertEquals(2, scheduler.size());
+        assertTrue(scheduler.onBlockReceive(blocks[0]));
+        assertEquals(2, delivered0.size());
+        assertEquals(0, scheduler.size());
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(10);
+        } catch (InterruptedException exception) {
+            exception.printStackTrace();
+        }
+    }
+
+    // block with the coinbase, different n makes different block hash
+    private Block block(int n) {
+        return new Block(hexToBytes("01000000" // version
+                + "0000000000000000000000000000000000000000000000000000000000000000" // prevBlock
+                + "0000000000000000000000000000000000000000000000000000000000000000" // merkleRoot
+                + "29ab5f49" // timestamp
+                + "ffff001d" // bits
+                + String.format("%08x", n) // nonce
+                + "01" // tx#
+                + "01000000" // version
+                + "01" // vin#
+                + "0000000000000000000000000000000000000000000000000000000000000000" // previousTransactionHash
+                + "ffffffff" // previousOutIndex
+                + "0100" // scriptSig
+                + "ffffffff" // sequence
+                + "01" // vout#
+                + "00f2052a01000000" // value
+                + "0151" // scriptPubKey
+                + "00000000")); // lockTime
+    }
+
+    private static class Peer implements BlockScheduler.Peer {
+        private final ArrayList<Hash> requested = new ArrayList<>();
+
+        @Override
+        public void request(List<Hash> hashes) {
+            requested.addAll(hashes);
+        }
+    }
+}
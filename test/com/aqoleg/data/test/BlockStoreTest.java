@@ -0,0 +1,127 @@
+package com.aqoleg.data.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.data.BlockStore;
+import com.aqoleg.messages.Block;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+@SuppressWarnings("unused")
+public class BlockStoreTest extends Test {
+    private static final String genesis = "01000000" // version
+            + "0000000000000000000000000000000000000000000000000000000000000000" // prevBlock
+            + "3BA3EDFD7A7B12B27AC72C3E67768F617FC81BC3888A51323A9FB8AA4B1E5E4A" // merkleRoot
+            + "29AB5F49" // timestamp
+            + "FFFF001D" // bits
+            + "1DAC2B7C" // nonce
+            + "01" // tx#
+            + "01000000" // version
+            + "01" // vin#
+            + "0000000000000000000000000000000000000000000000000000000000000000" // previousTransactionHash
+            + "FFFFFFFF" // previousOutIndex
+            + "4D" // scriptSigLen
+            + "04FFFF001D0104455468652054696D65732030332F4A616E2F32303039204368"
+            + "616E63656C6C6F72206F6E206272696E6B206F66207365636F6E64206261696C6F757420666F722062616E6B73"
+            + "FFFFFFFF" // sequence
+            + "01" // vout#
+            + "00F2052A01000000" // value
+            + "43" // scriptPubKeyLen
+            + "4104678AFDB0FE5548271967F1A67130B7105CD6A828E03909A67962E0EA1F61"
+            + "DEB649F6BC3F4CEF38C4F35504E51EC112DE5C384DF7BA0B8D578A4C702B6BF11D5FAC"
+            + "00000000"; // lockTime
+
+    public static void main(String[] args) {
+        new BlockStoreTest().testAll();
+    }
+
+    public void test() throws IOException {
+        File directory = Files.createTempDirectory("blockStoreTest").toFile();
+        assertThrows(NullPointerException.class, () -> new BlockStore(null));
+        Block[] blocks = createBlocks(5);
+        BlockStore blockStore = new BlockStore(directory, 800);
+        assertEquals(0, blockStore.size());
+        assertThrows(NullPointerException.class, () -> blockStore.read(null));
+        assertThrows(NullPointerException.class, () -> blockStore.write(null, blocks[0]));
+        assertThrows(NullPointerException.class, () -> blockStore.write(blocks[0].getHash(), null));
+        assertThrows(NullPointerException.class, () -> blockStore.remove(null));
+        assertNull(blockStore.read(blocks[0].getHash()));
+        for (Block block : blocks) {
+            assertTrue(blockStore.write(block.getHash(), block));
+            assertTrue(!blockStore.write(block.getHash(), block));
+        }
+        assertEquals(5, blockStore.size());
+        assertTrue(new File(directory, "blk00002.dat").isFile()); // 2 blocks in one segment
+        assertTrue(!new File(directory, "blk00003.dat").isFile());
+        for (Block block : blocks) {
+            assertTrue(blockStore.contains(block.getHash()));
+            assertEquals(toBytes(block), toBytes(blockStore.read(block.getHash())));
+        }
+        assertTrue(blockStore.remove(blocks[1].getHash()));
+        assertTrue(!blockStore.remove(blocks[1].getHash()));
+        assertTrue(!blockStore.contains(blocks[1].getHash()));
+        assertNull(blockStore.read(blocks[1].getHash()));
+        Block block2 = blockStore.read(blocks[2].getHash());
+        blockStore.close();
+        assertEquals(toBytes(blocks[2]), toBytes(block2));
+
+        BlockStore reopened = new BlockStore(directory, 800);
+        assertEquals(4, reopened.size());
+        assertTrue(!reopened.contains(blocks[1].getHash()));
+        assertEquals(toBytes(blocks[4]), toBytes(reopened.read(blocks[4].getHash())));
+        assertTrue(reopened.write(blocks[1].getHash(), blocks[1]));
+        reopened.close();
+
+        // incomplete record in the end of the last segment
+        File last = new File(directory, "blk00002.dat");
+        long length = last.length();
+        try (FileOutputStream stream = new FileOutputStream(last, true)) {
+            stream.write(hexToBytes("f9beb4d9" + "ffff0000"));
+        }
+        reopened = new BlockStore(directory, 800);
+        assertEquals(5, reopened.size());
+        assertEquals(length, last.length());
+        assertEquals(toBytes(blocks[1]), toBytes(reopened.read(blocks[1].getHash())));
+        reopened.close();
+
+        // incorrect crc32 of the last record
+        try (RandomAccessFile file = new RandomAccessFile(last, "rw")) {
+            file.seek(length - 1);
+            file.write(1);
+        }
+        reopened = new BlockStore(directory, 800);
+        assertEquals(4, reopened.size());
+        assertTrue(!reopened.contains(blocks[1].getHash()));
+        assertTrue(reopened.contains(blocks[4].getHash()));
+        reopened.close();
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(directory.toPath());
+    }
+
+    // blocks with the different nonce
+    private Block[] createBlocks(int number) {
+        Block[] blocks = new Block[number];
+        for (int i = 0; i < number; i++) {
+            byte[] bytes = hexToBytes(genesis);
+            bytes[76] = (byte) i;
+            blocks[i] = new Block(bytes);
+        }
+        return blocks;
+    }
+
+    private byte[] toBytes(Block block) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        assertNotThrows(() -> block.write(stream));
+        return stream.toByteArray();
+    }
+}
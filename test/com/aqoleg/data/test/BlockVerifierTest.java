@@ -0,0 +1,159 @@
+package com.aqoleg.data.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.crypto.Sha256;
+import com.aqoleg.data.BlockVerifier;
+import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Transaction;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+@SuppressWarnings("unused")
+public class BlockVerifierTest extends Test {
+    private static final String header = "01000000" // version
+            + "0000000000000000000000000000000000000000000000000000000000000000" // prevBlock
+            + "0000000000000000000000000000000000000000000000000000000000000000" // merkleRoot
+            + "29AB5F49" // timestamp
+            + "FFFF001D" // bits
+            + "1DAC2B7C"; // nonce
+    private static final String coinbase = "01000000" // version
+            + "01" // vin#
+            + "0000000000000000000000000000000000000000000000000000000000000000" // previousTransactionHash
+            + "FFFFFFFF" // previousOutIndex
+            + "4D" // scriptSigLen
+            + "04FFFF001D0104455468652054696D65732030332F4A616E2F32303039204368"
+            + "616E63656C6C6F72206F6E206272696E6B206F66207365636F6E64206261696C6F757420666F722062616E6B73"
+            + "FFFFFFFF" // sequence
+            + "01" // vout#
+            + "00F2052A01000000" // value
+            + "43" // scriptPubKeyLen
+            + "4104678AFDB0FE5548271967F1A67130B7105CD6A828E03909A67962E0EA1F61"
+            + "DEB649F6BC3F4CEF38C4F35504E51EC112DE5C384DF7BA0B8D578A4C702B6BF11D5FAC"
+            + "00000000"; // lockTime
+
+    public static void main(String[] args) {
+        new BlockVerifierTest().testAll();
+    }
+
+    public void test() {
+        String txF44566 = "01000000" + "01" + "af1d88acbb95dab01f28cd737e5c9d96b8925e4a9b6b21326d5482b87a23ef47"
+                + "00000000" + "8a" + "47" + "30" + "44" + "02" + "20"
+                + "243419ecb20f8b9a23ba107d66199637f1aeaadb6a13a7582132dd8b8dd26884" + "02" + "20"
+                + "2a8168e44da4b3e272ff22bda065d9fb2f06df5fb581af3c00e6c7247f751f59" + "01" + "41" + "04"
+                + "9da5a1a2c2e415d9fe2b1cc449b79ff41b47cbbe9ee66e82857b913bf7632828"
+                + "dce4dfe0cee38d258cdd60a19b22e9a3a4769c4300ba837a4abbf34251c2b5b2" + "ffffffff" + "01"
+                + "00e8764817000000" + "19" + "76" + "a9" + "14" + "c066f19518e5b6aac18899b4004fb62e0cd8bc7d"
+                + "88" + "ac" + "00000000";
+        String tx47ef23 = "0100000001d14f3995168e8d3f9da3f3980bcd4d79ab04c9783d7fedcc20b1453b8ab7738000000000" +
+                "8b4830450221" +
+                "00f9444b348def806904ea441231320616f671db4bc3fb1ce90127a01566c3ae88022050cd43345913d05923bfa1" +
+                "9e0d5e64bc3d1c221b917857776e4f441362b2aa9d014104157eb7e4ed5b595907a455213e01f8a41b2838e98cb4" +
+                "721afb86b363f118f2e4059d6215fa8a964bd53861af1d9bd89374f2e4be0a423a6f4fd45ef71fb3ccd1ffffffff" +
+                "0100e87648170000001976a914d655b65519dca2553aade471971ddbfc7f531ad188ac00000000";
+        String tx8073b7 = "010000000662fb60f0162c1a9d98fafc16fc09f4b420039b4b21aacdeb5cc4added169092f0000000" +
+                "04a4930460221" +
+                "00bc41ce4e5ea7114c7a0c8ea9118a9ff622b67af3264327d42667a99fb806ad270221009a701c8d05baf353f1ac" +
+                "6f7b60b95f4e1b18abaf5edf64b88c9c7a661822851201ffffffffa9d6a8d752a6711da22833d5b1bd6b0bafbcdf" +
+                "e9ca33e83eee74447974d99fbb0000000049483045022100b03120fb73efd591187a6a01d929ff35583d43e60a25" +
+                "af5d1c87c275f9d1984c02206557a6773e56b736e920a15a06abc65eb7a0575d1d8813b92108920572dbd57401ff" +
+                "ffffff7cf121922950acf020420c664e464b1ee3d5cc10e84a630fba036ffac1a4b15e000000004a493046022100" +
+                "ac083c3ce6dcb442af357208d9a493f4bb0d5d8fe84c45e2c8626299938aa5f1022100cb61f67733d420fad09bcc" +
+                "a79ee8d92ec43eb041ea2e6ed7489be25062bd0ef701ffffffffc3945b12584f90bafdf5e4ff98fbb3f0c19b70b0" +
+                "0d02cafef73e4ee2964bcc3700000000494830450221009c9376eda8b357baf6ce82827ccd4eaefe37ae3caa1a5e" +
+                "d0cfe96ae93569070802206d57de501255460cc6d9f3bf4dc2264d5355ac06ec0e94b3d93becb57767626401ffff" +
+                "ffffd1c8af804abd0bcdaaa43f1ad4b56c9e03eead5fce878a1f26aee78992613052000000008a47304402205815" +
+                "0e984e576fa106f4353e64d894dfc5312862d4ce1d968475f480d4cfc2a002202187c45378f2c38fb3bb5bb57b47" +
+                "be0c2b3af7a10260235070e5303dd834358f01410459429ca260a69fcdab5fc92e68c4b470cb53c59bf49ba80a4d" +
+                "afb50a4c9bf0c50efde2cf2182d9fd0121e7be07c017a8c45bd3cdb7027df2f4bb57accf83a01fffffffff433c20" +
+                "6bf802d0ba26736f6f290c569cc62965cd66183edf671692799738a27c000000008c493046022100b3bfb4cdc4d6" +
+                "58df832feeb0062b95a7b8a4f64be74ebbe83d818c6cdbb0010f022100d3b848e35ddf4de502cc7714401f167e38" +
+                "40124cb6b6e77497f3a03f1e411f12014104ecd330fce1878c3c8faac79e462083c98006ef7bb0a221a5c53ddc97" +
+                "41c77fd8b296b014cb740e37ac4365e7f3711377d92c51a7a1ddba4eb57321ba5c4ba775ffffffff0100e8764817" +
+                "0000001976a914a80bb70eba8a9059dfab72a1cb3b308c4052b6f288ac00000000";
+        Transaction previousTransaction = Transaction.fromBytes(hexToBytes(tx8073b7));
+        BlockVerifier.OutputLookup lookup = (hash, index) ->
+                hash.equals(previousTransaction.getHash()) ? previousTransaction.getTxOutput(index) : null;
+        assertThrows(NullPointerException.class, () -> new BlockVerifier(null));
+        assertThrows(NullPointerException.class, () -> new BlockVerifier(null, lookup));
+
+        Block block = new Block(hexToBytes(header + "03" + coinbase + tx47ef23 + txF44566));
+        BlockVerifier.Result result = new BlockVerifier(lookup).verify(block);
+        assertTrue(result.isVerified());
+        assertEquals(3, result.size());
+        assertEquals(0, result.getFailed().size());
+        assertEquals(BlockVerifier.coinbase, result.get(0).status);
+        assertEquals(1, result.get(1).txIndex);
+        assertEquals(0, result.get(1).inputIndex);
+        assertEquals(BlockVerifier.verified, result.get(1).status);
+        assertEquals(BlockVerifier.verified, result.get(2).status);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        result = new BlockVerifier(executor, lookup).verify(block);
+        executor.shutdown();
+        assertTrue(result.isVerified());
+        assertEquals(3, result.size());
+
+        result = new BlockVerifier(new ForkJoinPool(2), (hash, index) -> null).verify(block);
+        assertTrue(!result.isVerified());
+        assertEquals(1, result.getFailed().size());
+        assertEquals(BlockVerifier.noPreviousOutput, result.get(1).status);
+        assertEquals(BlockVerifier.verified, result.get(2).status);
+
+        // spends the output of the later tx
+        block = new Block(hexToBytes(header + "02" + txF44566 + tx47ef23));
+        result = new BlockVerifier(lookup).verify(block);
+        assertEquals(BlockVerifier.noPreviousOutput, result.get(0).status);
+        assertEquals(BlockVerifier.verified, result.get(1).status);
+
+        // incorrect r
+        String incorrect = txF44566.replace("243419ecb2", "243419ecb3");
+        block = new Block(hexToBytes(header + "02" + tx47ef23 + incorrect));
+        result = new BlockVerifier(lookup).verify(block);
+        assertEquals(1, result.getFailed().size());
+        assertEquals(1, result.getFailed().get(0).txIndex);
+        assertEquals(BlockVerifier.notVerified, result.get(1).status);
+        assertEquals("incorrect signature", result.get(1).error);
+
+        // checkBlock
+        BlockVerifier verifier = new BlockVerifier(lookup);
+        Block incorrectRoot = new Block(hexToBytes(header + "03" + coinbase + tx47ef23 + txF44566));
+        assertThrows(BlockVerifier.Exception.class, () -> verifier.checkBlock(incorrectRoot, 0));
+        Block correct = withMerkleRoot(coinbase + tx47ef23 + txF44566, 3);
+        assertNotThrows(() -> verifier.checkBlock(correct, 0));
+        assertThrows(BlockVerifier.Exception.class, () -> verifier.checkBlock(correct, 210000)); // 25 btc
+        assertThrows(BlockVerifier.Exception.class, () -> new BlockVerifier((hash, index) -> null)
+                .checkBlock(correct, 0));
+        Block noCoinbase = withMerkleRoot(tx47ef23 + txF44566, 2);
+        assertThrows(BlockVerifier.Exception.class, () -> verifier.checkBlock(noCoinbase, 0));
+        // 50 btc and 1 satoshi without fees
+        String bigValue = coinbase.replace("00F2052A01000000", "01F2052A01000000");
+        Block bigCoinbase = withMerkleRoot(bigValue + tx47ef23, 2);
+        assertThrows(BlockVerifier.Exception.class, () -> verifier.checkBlock(bigCoinbase, 0));
+        // 10 btc fee, 60 btc coinbase
+        String fee = tx47ef23.replace("00e8764817000000", "001edc0c17000000");
+        String withFee = coinbase.replace("00F2052A01000000", "00BCA06501000000");
+        assertNotThrows(() -> verifier.checkBlock(withMerkleRoot(withFee + fee, 2), 0));
+    }
+
+    // block with the correct merkle root of the transactions
+    private Block withMerkleRoot(String transactions, int txNumber) {
+        Block block = new Block(hexToBytes(header + "0" + txNumber + transactions));
+        byte[][] tree = new byte[txNumber][];
+        for (int i = 0; i < txNumber; i++) {
+            tree[i] = block.getTxHash(i).getBytes();
+        }
+        for (int number = txNumber; number > 1; number = (number + 1) / 2) {
+            for (int i = 0; i < number; i += 2) {
+                byte[] pair = new byte[64];
+                System.arraycopy(tree[i], 0, pair, 0, 32);
+                System.arraycopy(tree[Math.min(i + 1, number - 1)], 0, pair, 32, 32);
+                tree[i / 2] = Sha256.getDoubleHash(pair);
+            }
+        }
+        byte[] bytes = hexToBytes(header + "0" + txNumber + transactions);
+        System.arraycopy(tree[0], 0, bytes, 36, 32);
+        return new Block(bytes);
+    }
+}
@@ -0,0 +1,96 @@
+package com.aqoleg.data.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.data.HeaderChain;
+import com.aqoleg.messages.Hash;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+@SuppressWarnings("unused")
+public class HeaderChainTest extends Test {
+    private static final String genesis = "000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f";
+    private static final String hash1 = "00000000839a8e6886ab5951d76f411475428afc90947ee320161bbf18eb6048";
+    private static final String hash2 = "000000006a625f06636b8bb6ac7b960a8d03705d1ace08b1a19da3fdcc99ddbd";
+    private static final String header1 = "01000000"
+            + "6fe28c0ab6f1b372c1a6a246ae63f74f931e8365e15a089c68d6190000000000"
+            + "982051fd1e4ba744bbbe680e1fee14677ba1a3c3540bf7b1cdb606e857233e0e"
+            + "61bc6649" + "ffff001d" + "01e36299";
+    private static final String header2 = "01000000"
+            + "4860eb18bf1b1620e37e9490fc8a427514416fd75159ab86688e9a8300000000"
+            + "d5fdcc541e25de1c7a5addedf24858b8bb665c9f36ef744ee42c316022c90f9b"
+            + "b0bc6649" + "ffff001d" + "08d2bd61";
+
+    public static void main(String[] args) {
+        new HeaderChainTest().testAll();
+    }
+
+    public void test() throws IOException {
+        File file = new File(Files.createTempDirectory("headerChainTest").toFile(), "headers.dat");
+        assertThrows(NullPointerException.class, () -> new HeaderChain(null));
+        HeaderChain headerChain = new HeaderChain(file);
+        assertEquals(0, headerChain.getHeight());
+        assertEquals(genesis, headerChain.getTip().toString());
+        assertEquals(genesis, headerChain.getHash(0).toString());
+        assertEquals(0, headerChain.getHeight(Hash.fromHex(genesis)));
+        assertEquals(-1, headerChain.getHeight(Hash.fromHex(hash1)));
+        assertEquals("01000000", Arrays.copyOf(headerChain.getHeader(0), 4));
+        assertEquals(1, headerChain.getLocator().length);
+        assertThrows(IndexOutOfBoundsException.class, () -> headerChain.getHash(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> headerChain.getHeader(-1));
+        assertThrows(NullPointerException.class, () -> headerChain.getHeight(null));
+        assertThrows(NullPointerException.class, () -> headerChain.add(null));
+        assertEquals(0, headerChain.add(Collections.emptyList()));
+
+        assertThrows(HeaderChain.Exception.class, () -> headerChain.add(Collections.singletonList(new byte[79])));
+        byte[] unknownPrev = hexToBytes(header2);
+        assertThrows(HeaderChain.Exception.class, () -> headerChain.add(Collections.singletonList(unknownPrev)));
+        byte[] badBits = hexToBytes(header1);
+        badBits[72] = (byte) 0xfe;
+        assertThrows(HeaderChain.Exception.class, () -> headerChain.add(Collections.singletonList(badBits)));
+        byte[] badNonce = hexToBytes(header1);
+        badNonce[76]++;
+        assertThrows(HeaderChain.Exception.class, () -> headerChain.add(Collections.singletonList(badNonce)));
+        byte[] badTime = hexToBytes(header1);
+        badTime[71] = 0x40;
+        assertThrows(HeaderChain.Exception.class, () -> headerChain.add(Collections.singletonList(badTime)));
+        assertEquals(0, headerChain.getHeight());
+
+        // the valid header is added before the incorrect one
+        byte[] badHeader2 = hexToBytes(header2);
+        badHeader2[76]++;
+        byte[] validHeader1 = hexToBytes(header1);
+        assertThrows(HeaderChain.Exception.class, () -> headerChain.add(Arrays.asList(validHeader1, badHeader2)));
+        assertEquals(1, headerChain.getHeight());
+        assertEquals(hash1, headerChain.getTip().toString());
+        assertEquals(1, headerChain.add(Arrays.asList(hexToBytes(header1), hexToBytes(header2))));
+        assertEquals(0, headerChain.add(Arrays.asList(hexToBytes(header1), hexToBytes(header2))));
+        assertEquals(0, headerChain.add(Collections.singletonList(hexToBytes(header2))));
+        assertEquals(2, headerChain.getHeight());
+        assertEquals(hash2, headerChain.getTip().toString());
+        assertEquals(hash1, headerChain.getHash(1).toString());
+        assertEquals(2, headerChain.getHeight(Hash.fromHex(hash2)));
+        assertEquals(header2, headerChain.getHeader(2));
+        Hash[] locator = headerChain.getLocator();
+        assertEquals(3, locator.length);
+        assertEquals(hash2, locator[0].toString());
+        assertEquals(hash1, locator[1].toString());
+        assertEquals(genesis, locator[2].toString());
+        headerChain.close();
+
+        HeaderChain reopened = new HeaderChain(file);
+        assertEquals(2, reopened.getHeight());
+        assertEquals(hash2, reopened.getTip().toString());
+        assertEquals(1, reopened.getHeight(Hash.fromHex(hash1)));
+        assertEquals(header1, reopened.getHeader(1));
+        reopened.close();
+
+        Files.write(file.toPath(), new byte[4]);
+        assertThrows(IOException.class, () -> new HeaderChain(file));
+        Files.delete(file.toPath());
+        Files.delete(file.getParentFile().toPath());
+    }
+}
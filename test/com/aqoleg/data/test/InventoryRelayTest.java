@@ -0,0 +1,65 @@
+package com.aqoleg.data.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.data.InventoryRelay;
+import com.aqoleg.messages.FrameEncoder;
+import com.aqoleg.messages.Hash;
+import com.aqoleg.messages.Inventory;
+import com.aqoleg.messages.Message;
+
+import java.util.List;
+
+@SuppressWarnings("unused")
+public class InventoryRelayTest extends Test {
+
+    public static void main(String[] args) {
+        new InventoryRelayTest().testAll();
+    }
+
+    public void test() {
+        assertThrows(NullPointerException.class, () -> InventoryRelay.relay(null, frame(0)));
+        assertThrows(NullPointerException.class, () -> InventoryRelay.relay(inventory(0), null));
+        assertNull(InventoryRelay.get(inventory(0)));
+
+        FrameEncoder.Frame frame0 = frame(0);
+        InventoryRelay.relay(inventory(0), frame0);
+        assertEquals(1, InventoryRelay.size());
+        FrameEncoder.Frame frame = InventoryRelay.get(inventory(0));
+        assertTrue(frame == frame0);
+        frame.release();
+        assertEquals(Message.toByteArray("tx", new byte[]{0}), frame0.toByteArray());
+        assertNull(InventoryRelay.get(Inventory.create(Inventory.typeMsgBlock, inventory(0).getHash())));
+
+        // the oldest messages are released
+        for (int i = 1; i <= 1000; i++) {
+            InventoryRelay.relay(inventory(i), frame(i));
+        }
+        assertEquals(1000, InventoryRelay.size());
+        assertNull(InventoryRelay.get(inventory(0)));
+        assertThrows(Message.Exception.class, frame0::toByteArray);
+        List<Inventory> inventories = InventoryRelay.getInventories();
+        assertEquals(1000, inventories.size());
+        assertTrue(inventories.get(0).equals(inventory(1)));
+        assertTrue(inventories.get(999).equals(inventory(1000)));
+
+        // the replaced message is released
+        FrameEncoder.Frame old = InventoryRelay.get(inventory(1000));
+        old.release();
+        InventoryRelay.relay(inventory(1000), frame(1));
+        assertThrows(Message.Exception.class, old::toByteArray);
+        frame = InventoryRelay.get(inventory(1000));
+        assertEquals(Message.toByteArray("tx", new byte[]{1}), frame.toByteArray());
+        frame.release();
+    }
+
+    private static Inventory inventory(int i) {
+        byte[] hash = new byte[32];
+        hash[0] = (byte) i;
+        hash[1] = (byte) (i >> 8);
+        return Inventory.create(Inventory.typeMsgTx, Hash.fromBytes(hash));
+    }
+
+    private static FrameEncoder.Frame frame(int i) {
+        return FrameEncoder.encode("tx", new byte[]{(byte) i});
+    }
+}
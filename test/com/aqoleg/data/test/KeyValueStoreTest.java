@@ -0,0 +1,193 @@
+package com.aqoleg.data.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.data.KeyValueStore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+@SuppressWarnings("unused")
+public class KeyValueStoreTest extends Test {
+
+    public static void main(String[] args) {
+        new KeyValueStoreTest().testAll();
+    }
+
+    public void test() throws IOException {
+        File directory = Files.createTempDirectory("keyValueStoreTest").toFile();
+        assertThrows(NullPointerException.class, () -> new KeyValueStore(null));
+        KeyValueStore store = new KeyValueStore(directory);
+        assertEquals(new byte[0], store.getMetadata());
+        assertEquals(0, store.runNumber());
+        assertThrows(NullPointerException.class, () -> store.get(null));
+        assertThrows(NullPointerException.class, () -> store.put(null, new byte[1]));
+        assertThrows(NullPointerException.class, () -> store.put(new byte[1], null));
+        assertThrows(IllegalArgumentException.class, () -> store.put(new byte[256], new byte[1]));
+        assertThrows(NullPointerException.class, () -> store.delete(null));
+        assertThrows(NullPointerException.class, () -> store.flush(null));
+        assertThrows(NullPointerException.class, () -> store.scan(null, new ArrayList<>(), new ArrayList<>()));
+        assertNull(store.get(hexToBytes("00")));
+
+        // the first run, keys 0..999, values are keys
+        for (int i = 0; i < 1000; i++) {
+            store.put(key(i), key(i));
+        }
+        store.put(new byte[0], hexToBytes("ff"));
+        store.put(hexToBytes("80"), new byte[0]);
+        assertEquals("0102", store.get(key(0x0102)));
+        store.flush(hexToBytes("01"));
+        assertEquals(1, store.runNumber());
+        assertEquals("01", store.getMetadata());
+        assertEquals("0102", store.get(key(0x0102)));
+        assertEquals("ff", store.get(new byte[0]));
+        assertEquals(new byte[0], store.get(hexToBytes("80")));
+        assertNull(store.get(key(1000)));
+        assertNull(store.get(hexToBytes("000100")));
+        assertNull(store.get(hexToBytes("ffff")));
+
+        // the newer runs override the older ones
+        store.delete(key(5));
+        store.put(key(6), hexToBytes("06"));
+        store.put(key(1000), key(1000));
+        assertNull(store.get(key(5)));
+        store.flush(hexToBytes("02"));
+        assertNull(store.get(key(5)));
+        assertEquals("06", store.get(key(6)));
+        assertEquals("03e8", store.get(key(1000)));
+        assertEquals("0007", store.get(key(7)));
+        store.put(key(5), hexToBytes("05"));
+        store.delete(key(6));
+        store.flush(hexToBytes("03"));
+        store.close();
+
+        KeyValueStore reopened = new KeyValueStore(directory);
+        assertEquals(3, reopened.runNumber());
+        assertEquals("03", reopened.getMetadata());
+        assertEquals("05", reopened.get(key(5)));
+        assertNull(reopened.get(key(6)));
+        reopened.put(key(7), hexToBytes("07"));
+        reopened.close(); // not flushed
+        reopened = new KeyValueStore(directory);
+        assertEquals("0007", reopened.get(key(7)));
+
+        // the newest small runs are merged, the big first run is kept, so the deleted key is kept
+        reopened.flush(hexToBytes("04"));
+        reopened.delete(key(999));
+        reopened.flush(hexToBytes("05"));
+        assertEquals(2, reopened.runNumber());
+        assertEquals("05", reopened.getMetadata());
+        assertEquals(2, directory.listFiles().length);
+        reopened.close();
+
+        // each entry is in several mappings
+        reopened = new KeyValueStore(directory, KeyValueStore.defaultMaxRunSize, 9);
+        assertEquals(2, reopened.runNumber());
+        assertEquals("05", reopened.get(key(5)));
+        assertNull(reopened.get(key(6)));
+        assertNull(reopened.get(key(999)));
+        assertEquals("03e8", reopened.get(key(1000)));
+        for (int i = 7; i < 999; i++) {
+            assertEquals(key(i), reopened.get(key(i)));
+        }
+        reopened.put(hexToBytes("0301"), hexToBytes("01"));
+        reopened.delete(key(0x0302));
+        reopened.put(hexToBytes("030500"), hexToBytes("02"));
+        ArrayList<byte[]> keys = new ArrayList<>();
+        ArrayList<byte[]> values = new ArrayList<>();
+        assertEquals(232, reopened.scan(hexToBytes("03"), keys, values));
+        assertEquals("0300", keys.get(0));
+        assertEquals("0300", values.get(0));
+        assertEquals("0301", keys.get(1));
+        assertEquals("01", values.get(1));
+        assertEquals("0303", keys.get(2));
+        assertEquals("0305", keys.get(4));
+        assertEquals("030500", keys.get(5));
+        assertEquals("02", values.get(5));
+        assertEquals("03e8", keys.get(231));
+        keys.clear();
+        assertEquals(0, reopened.scan(hexToBytes("0400"), keys, values));
+        assertEquals(0, keys.size());
+        assertEquals(1001, reopened.scan(new byte[0], keys, values));
+        reopened.close();
+
+        // not finished run
+        try (FileOutputStream stream = new FileOutputStream(new File(directory, "run00000100.tmp"))) {
+            stream.write(hexToBytes("0102"));
+        }
+        reopened = new KeyValueStore(directory);
+        assertEquals(2, directory.listFiles().length);
+        assertEquals("05", reopened.getMetadata());
+        reopened.close();
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(directory.toPath());
+    }
+
+    public void merge() throws IOException {
+        File directory = Files.createTempDirectory("keyValueStoreTest").toFile();
+        assertThrows(IllegalArgumentException.class, () -> new KeyValueStore(directory, 0, 1024));
+        assertThrows(IllegalArgumentException.class, () -> new KeyValueStore(directory, 1024, 7));
+        // runs of the same size, all of them are merged and the deleted keys are dropped
+        KeyValueStore store = new KeyValueStore(directory);
+        flushRuns(store);
+        assertEquals(1, store.runNumber());
+        assertEquals(1, directory.listFiles().length);
+        ArrayList<byte[]> keys = new ArrayList<>();
+        assertEquals(20, store.scan(new byte[0], keys, new ArrayList<>()));
+        assertEquals(key(10), keys.get(0));
+        assertNull(store.get(key(0)));
+        store.close();
+        store = new KeyValueStore(directory);
+        assertEquals(1, store.runNumber());
+        assertEquals("04", store.getMetadata());
+        store.close();
+        deleteDirectory(directory);
+
+        // the merged run would be bigger than maxRunSize
+        File otherDirectory = Files.createTempDirectory("keyValueStoreTest").toFile();
+        store = new KeyValueStore(otherDirectory, 250, KeyValueStore.defaultMappingSize);
+        flushRuns(store);
+        assertEquals(4, store.runNumber());
+        assertNull(store.get(key(0)));
+        assertEquals(new byte[0], store.get(key(29)));
+        store.close();
+        deleteDirectory(otherDirectory);
+    }
+
+    // flushes 4 runs of the same size, 10 keys, the deletion of them, 10 keys, 10 keys
+    private void flushRuns(KeyValueStore store) throws IOException {
+        for (int run = 0; run < 4; run++) {
+            int first = run == 0 ? 0 : (run - 1) * 10;
+            for (int i = first; i < first + 10; i++) {
+                if (run == 1) {
+                    store.delete(key(i));
+                } else {
+                    store.put(key(i), new byte[0]);
+                }
+            }
+            store.flush(new byte[]{(byte) (run + 1)});
+        }
+    }
+
+    private void deleteDirectory(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(directory.toPath());
+    }
+
+    private byte[] key(int i) {
+        return new byte[]{(byte) (i >>> 8), (byte) i};
+    }
+}
@@ -2,7 +2,9 @@ package com.aqoleg.data.test;
 
 import com.aqoleg.Test;
 import com.aqoleg.data.Storage;
+import com.aqoleg.data.UtxoSet;
 import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Hash;
 import com.aqoleg.messages.NetAddress;
 
 @SuppressWarnings("unused")
@@ -26,20 +28,34 @@ public class StorageTest extends Test {
     }
 
     public void blocks() {
-        String hash = "000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f";
+        Hash hash = Hash.fromHex("000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f");
+        Hash testHash = Hash.fromBytes(new byte[32]);
         assertThrows(NullPointerException.class, () -> Storage.readBlock(null));
-        assertTrue(Storage.readBlock("nonExistedBlock") == null);
+        assertTrue(Storage.readBlock(testHash) == null);
         Block block = Storage.readBlock(hash);
         assertTrue(block != null);
         //noinspection ConstantConditions
-        assertEquals(hash, block.getHash());
+        assertTrue(hash.equals(block.getHash()));
         assertThrows(NullPointerException.class, () -> Storage.writeBlock(null, block));
-        Storage.writeBlock("testBlock", block);
-        Block testBlock = Storage.readBlock("testBlock");
+        Storage.writeBlock(testHash, block);
+        Block testBlock = Storage.readBlock(testHash);
         assertTrue(testBlock != null);
         //noinspection ConstantConditions
-        assertEquals(hash, testBlock.getHash());
-        Storage.writeBlock("testBlock", null);
-        assertTrue(Storage.readBlock("testBlock") == null);
+        assertTrue(hash.equals(testBlock.getHash()));
+        Storage.writeBlock(testHash, null);
+        assertTrue(Storage.readBlock(testHash) == null);
     }
-}
\ No newline at end of file
+
+    public void utxoSet() throws InterruptedException {
+        Hash hash = Hash.fromHex("000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f");
+        Storage.writeBlock(hash, Storage.readBlock(hash));
+        UtxoSet utxoSet = Storage.getUtxoSet();
+        assertTrue(utxoSet != null);
+        // the set is updated by the background task
+        for (int i = 0; i < 100 && utxoSet.getBestBlock() == null; i++) {
+            Thread.sleep(50);
+        }
+        //noinspection ConstantConditions
+        assertTrue(Storage.getHeaderChain().getHeight(utxoSet.getBestBlock()) >= 0);
+    }
+}
@@ -0,0 +1,62 @@
+package com.aqoleg.data.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.data.Tasks;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+@SuppressWarnings("unused")
+public class TasksTest extends Test {
+
+    public static void main(String[] args) {
+        new TasksTest().testAll();
+    }
+
+    public void test() throws InterruptedException {
+        assertThrows(NullPointerException.class, () -> Tasks.start(null));
+        assertTrue(!Tasks.setVirtual(false));
+        assertTrue(!Tasks.isVirtual());
+        boolean virtualAvailable = Tasks.setVirtual(true);
+        assertTrue(virtualAvailable == Tasks.isVirtual());
+        for (int mode = 0; mode < 2; mode++) {
+            Tasks.setVirtual(mode == 1);
+            CountDownLatch latch = new CountDownLatch(1);
+            Thread thread = Tasks.start(() -> {
+                try {
+                    latch.await();
+                } catch (InterruptedException exception) {
+                    exception.printStackTrace();
+                }
+            });
+            assertEquals(1, Tasks.running());
+            assertTrue(!Tasks.join(10));
+            latch.countDown();
+            assertTrue(Tasks.join(5000));
+            assertEquals(0, Tasks.running());
+            thread.join();
+
+            CountDownLatch done = new CountDownLatch(100);
+            ArrayList<Integer> order = new ArrayList<>();
+            Executor serialExecutor = Tasks.serialExecutor();
+            for (int i = 0; i < 100; i++) {
+                int n = i;
+                serialExecutor.execute(() -> {
+                    order.add(n);
+                    done.countDown();
+                });
+            }
+            done.await();
+            assertEquals(100, order.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, order.get(i));
+            }
+            CountDownLatch executed = new CountDownLatch(1);
+            Tasks.executor().execute(executed::countDown);
+            executed.await();
+            assertTrue(Tasks.join(5000));
+        }
+        Tasks.setVirtual(false);
+    }
+}
@@ -0,0 +1,179 @@
+package com.aqoleg.data.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.data.UtxoSet;
+import com.aqoleg.keys.Address;
+import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Hash;
+import com.aqoleg.messages.Script;
+import com.aqoleg.messages.Transaction;
+import com.aqoleg.utils.BytesOutput;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+@SuppressWarnings("unused")
+public class UtxoSetTest extends Test {
+    private static final String script = "76a914" + "0102030405060708090a0b0c0d0e0f1011121314" + "88ac";
+    private static final String opReturn = "6a0401020304";
+    private static final String p2pk = "41" + "04678afdb0fe5548271967f1a67130b7105cd6a828e03909a67962e0ea1f61"
+            + "deb649f6bc3f4cef38c4f35504e51ec112de5c384df7ba0b8d578a4c702b6bf11d5f" + "ac";
+
+    public static void main(String[] args) {
+        new UtxoSetTest().testAll();
+    }
+
+    public void test() throws IOException {
+        File directory = Files.createTempDirectory("utxoSetTest").toFile();
+        assertThrows(NullPointerException.class, () -> new UtxoSet(null));
+        assertThrows(IllegalArgumentException.class, () -> new UtxoSet(directory, 0));
+        UtxoSet utxoSet = new UtxoSet(directory, 2);
+        assertNull(utxoSet.getBestBlock());
+        assertEquals(0, utxoSet.size());
+        assertThrows(NullPointerException.class, () -> utxoSet.getOutput(null, 0));
+        assertThrows(NullPointerException.class, () -> utxoSet.connectBlock(null));
+
+        Block block1 = block(new byte[32], coinbase(1));
+        Hash coinbase1 = block1.getTxHash(0);
+        utxoSet.connectBlock(block1);
+        assertEquals(block1.getHash().toString(), utxoSet.getBestBlock().toString());
+        assertEquals(1, utxoSet.size());
+        Transaction.Output output = utxoSet.getOutput(coinbase1, 0);
+        assertEquals(coinbase1.toString(), output.getTxHash().toString());
+        assertEquals(0, output.index);
+        assertEquals(5000000000L, output.value);
+        assertEquals("19" + script, toBytes(output.getScriptPubKey()));
+        assertNull(utxoSet.getOutput(coinbase1, 1));
+        assertThrows(UtxoSet.Exception.class, () -> utxoSet.connectBlock(block1));
+        assertThrows(NullPointerException.class, () -> utxoSet.getOutputs(null));
+        Address address = Address.createFromHash(hexToBytes("0102030405060708090a0b0c0d0e0f1011121314"), true);
+        Address p2shAddress = Address.createFromHash(hexToBytes("0102030405060708090a0b0c0d0e0f1011121314"), false);
+        Address p2pkAddress = new Script(hexToBytes(p2pk)).address;
+        ArrayList<Transaction.Output> outputs = utxoSet.getOutputs(address);
+        assertEquals(1, outputs.size());
+        assertEquals(coinbase1.toString(), outputs.get(0).getTxHash().toString());
+        assertEquals(0, outputs.get(0).index);
+        assertEquals(5000000000L, outputs.get(0).value);
+        assertEquals("19" + script, toBytes(outputs.get(0).getScriptPubKey()));
+        assertEquals(0, utxoSet.getOutputs(p2shAddress).size());
+
+        Block missing = block(block1.getHash().getBytes(), coinbase(2), tx(coinbase1, 1, script));
+        assertThrows(UtxoSet.Exception.class, () -> utxoSet.connectBlock(missing));
+        String tx = tx(coinbase1, 0, script);
+        Block doubleSpent = block(block1.getHash().getBytes(), coinbase(2), tx, tx(coinbase1, 0, opReturn));
+        assertThrows(UtxoSet.Exception.class, () -> utxoSet.connectBlock(doubleSpent));
+        assertEquals(1, utxoSet.size());
+        assertEquals(block1.getHash().toString(), utxoSet.getBestBlock().toString());
+
+        // tx0 spends coinbase1, tx1 spends the first output of tx0 in the same block
+        String tx0 = tx(coinbase1, 0, script, opReturn, p2pk);
+        Hash tx0Hash = block(new byte[32], tx0).getTxHash(0);
+        Block block2 = block(block1.getHash().getBytes(), coinbase(2), tx0, tx(tx0Hash, 0, script));
+        Hash coinbase2 = block2.getTxHash(0);
+        Hash tx1Hash = block2.getTxHash(2);
+        utxoSet.connectBlock(block2);
+        assertEquals(block2.getHash().toString(), utxoSet.getBestBlock().toString());
+        assertEquals(3, utxoSet.size());
+        assertNull(utxoSet.getOutput(coinbase1, 0));
+        assertNull(utxoSet.getOutput(tx0Hash, 0));
+        assertNull(utxoSet.getOutput(tx0Hash, 1)); // op_return
+        assertEquals(5000000000L, utxoSet.getOutput(coinbase2, 0).value);
+        assertEquals(5000000000L, utxoSet.getOutput(tx1Hash, 0).value);
+        assertThrows(UtxoSet.Exception.class, () -> utxoSet.disconnectBlock(block1));
+        assertEquals(2, utxoSet.getOutputs(address).size());
+        assertEquals(0, utxoSet.getOutputs(p2shAddress).size());
+        outputs = utxoSet.getOutputs(p2pkAddress);
+        assertEquals(1, outputs.size());
+        assertEquals(tx0Hash.toString(), outputs.get(0).getTxHash().toString());
+        assertEquals(2, outputs.get(0).index);
+        assertEquals("43" + p2pk, toBytes(outputs.get(0).getScriptPubKey()));
+
+        utxoSet.disconnectBlock(block2);
+        assertEquals(block1.getHash().toString(), utxoSet.getBestBlock().toString());
+        assertEquals(1, utxoSet.size());
+        assertEquals("19" + script, toBytes(utxoSet.getOutput(coinbase1, 0).getScriptPubKey()));
+        assertNull(utxoSet.getOutput(coinbase2, 0));
+        assertNull(utxoSet.getOutput(tx1Hash, 0));
+        assertEquals(1, utxoSet.getOutputs(address).size());
+        assertEquals(0, utxoSet.getOutputs(p2pkAddress).size());
+        utxoSet.connectBlock(block2);
+        utxoSet.close();
+
+        UtxoSet reopened = new UtxoSet(directory, 2);
+        assertEquals(block2.getHash().toString(), reopened.getBestBlock().toString());
+        assertEquals(3, reopened.size());
+        assertNull(reopened.getOutput(coinbase1, 0));
+        assertEquals(5000000000L, reopened.getOutput(coinbase2, 0).value);
+        assertEquals(5000000000L, reopened.getOutput(tx1Hash, 0).value);
+        assertEquals(2, reopened.getOutputs(address).size());
+        assertEquals(1, reopened.getOutputs(p2pkAddress).size());
+        reopened.disconnectBlock(block2);
+        reopened.disconnectBlock(block1);
+        assertEquals(0, reopened.size());
+        assertNull(reopened.getOutput(coinbase1, 0));
+        assertEquals(0, reopened.getOutputs(address).size());
+        reopened.close();
+
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(directory.toPath());
+    }
+
+    // block with the transactions
+    private Block block(byte[] prevBlockHash, String... txs) {
+        StringBuilder block = new StringBuilder()
+                .append("01000000") // version
+                .append(bytesToHex(prevBlockHash))
+                .append("0000000000000000000000000000000000000000000000000000000000000000") // merkleRoot
+                .append("29AB5F49") // timestamp
+                .append("FFFF001D") // bits
+                .append("1DAC2B7C") // nonce
+                .append(String.format("%02x", txs.length));
+        for (String tx : txs) {
+            block.append(tx);
+        }
+        return new Block(hexToBytes(block.toString()));
+    }
+
+    // coinbase tx with one output, different n makes different tx hash
+    private String coinbase(int n) {
+        return "01000000" // version
+                + "01" // vin#
+                + "0000000000000000000000000000000000000000000000000000000000000000" // previousTransactionHash
+                + "FFFFFFFF" // previousOutIndex
+                + "01" + String.format("%02x", n) // scriptSig
+                + "FFFFFFFF" // sequence
+                + "01" // vout#
+                + "00F2052A01000000" // value
+                + String.format("%02x", script.length() / 2) + script
+                + "00000000"; // lockTime
+    }
+
+    // tx spending one output, with the outputs with these scriptPubKeys
+    private String tx(Hash previousTxHash, int previousOutIndex, String... scriptPubKeys) {
+        StringBuilder tx = new StringBuilder()
+                .append("01000000") // version
+                .append("01") // vin#
+                .append(bytesToHex(previousTxHash.getBytes()))
+                .append(String.format("%02x000000", previousOutIndex))
+                .append("00") // scriptSig
+                .append("FFFFFFFF") // sequence
+                .append(String.format("%02x", scriptPubKeys.length));
+        for (String scriptPubKey : scriptPubKeys) {
+            tx.append("00F2052A01000000").append(String.format("%02x", scriptPubKey.length() / 2)).append(scriptPubKey);
+        }
+        return tx.append("00000000").toString();
+    }
+
+    private byte[] toBytes(Script script) {
+        BytesOutput bytesOutput = new BytesOutput();
+        script.write(bytesOutput);
+        return bytesOutput.toByteArray();
+    }
+}
@@ -0,0 +1,80 @@
+package com.aqoleg.keys.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.keys.Address;
+import com.aqoleg.keys.AddressMatcher;
+import com.aqoleg.messages.Script;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+@SuppressWarnings("unused")
+public class AddressMatcherTest extends Test {
+
+    public static void main(String[] args) {
+        new AddressMatcherTest().testAll();
+    }
+
+    public void matches() {
+        assertThrows(NullPointerException.class, () -> new AddressMatcher(null));
+        assertThrows(NullPointerException.class, () -> new AddressMatcher(Arrays.asList(null, null)));
+        AddressMatcher empty = new AddressMatcher(Collections.emptyList());
+        assertEquals(0, empty.size());
+        assertTrue(!empty.matches(new Address("14Wu4nRjjTNggBfoZ4Md8t1gZv788cdvqT")));
+
+        byte[] hash = hexToBytes("2690fe6bcae1c1a0e1f6b2f5e5c2b8a2e4e0b5d0");
+        ArrayList<Address> addresses = new ArrayList<>();
+        addresses.add(new Address("14Wu4nRjjTNggBfoZ4Md8t1gZv788cdvqT"));
+        addresses.add(Address.createFromHash(hash, true));
+        addresses.add(new Address("3J98t1WpEZ73CNmQviecrnyiWrnqRhWNLy"));
+        hash[19] = 1; // the same first 8 bytes
+        addresses.add(Address.createFromHash(hash, false));
+        addresses.add(new Address("14Wu4nRjjTNggBfoZ4Md8t1gZv788cdvqT"));
+        AddressMatcher matcher = new AddressMatcher(addresses);
+        assertEquals(5, matcher.size());
+        for (Address address : addresses) {
+            assertTrue(matcher.matches(address));
+        }
+        assertTrue(!matcher.matches((Address) null));
+        assertTrue(!matcher.matches(new Address("1FP3iFyCueBGMyQHQRQeojqamf1pt4eQVi")));
+        assertTrue(!matcher.matches(Address.createFromHash(hash, true))); // p2sh in the matcher
+        hash[19] = (byte) 0xd0;
+        assertTrue(!matcher.matches(Address.createFromHash(hash, false))); // p2pkh in the matcher
+        hash[19] = 2;
+        assertTrue(!matcher.matches(Address.createFromHash(hash, false)));
+
+        byte[] bytes = new byte[30];
+        System.arraycopy(addresses.get(1).getHash(), 0, bytes, 5, 20);
+        assertTrue(matcher.matches(bytes, 5, true));
+        assertTrue(!matcher.matches(bytes, 5, false));
+        assertTrue(!matcher.matches(bytes, 4, true));
+        assertThrows(NullPointerException.class, () -> matcher.matches(null, 0, true));
+        assertThrows(IndexOutOfBoundsException.class, () -> matcher.matches(bytes, 11, true));
+        assertThrows(IndexOutOfBoundsException.class, () -> matcher.matches(bytes, -1, true));
+
+        Script script = Script.createScriptPubKey(new Address("3J98t1WpEZ73CNmQviecrnyiWrnqRhWNLy"));
+        assertTrue(matcher.matches(script.address));
+        assertTrue(!matcher.matches(new Script(hexToBytes("6a0401020304")).address));
+    }
+
+    public void manyAddresses() {
+        ArrayList<Address> addresses = new ArrayList<>();
+        byte[] hash = new byte[20];
+        for (int i = 0; i < 5000; i++) {
+            hash[0] = (byte) i;
+            hash[7] = (byte) (i >>> 8);
+            hash[19] = (byte) (i * 7);
+            addresses.add(Address.createFromHash(hash, i % 2 == 0));
+        }
+        AddressMatcher matcher = new AddressMatcher(addresses);
+        assertEquals(5000, matcher.size());
+        for (Address address : addresses) {
+            assertTrue(matcher.matches(address));
+        }
+        hash[0] = 0;
+        hash[7] = 0;
+        hash[19] = 1;
+        assertTrue(!matcher.matches(Address.createFromHash(hash, true)));
+    }
+}
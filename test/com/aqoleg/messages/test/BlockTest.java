@@ -2,12 +2,17 @@ package com.aqoleg.messages.test;
 
 import com.aqoleg.Test;
 import com.aqoleg.keys.Address;
+import com.aqoleg.keys.AddressMatcher;
 import com.aqoleg.messages.Block;
+import com.aqoleg.messages.Hash;
 import com.aqoleg.messages.Message;
 import com.aqoleg.messages.Transaction;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 
 @SuppressWarnings("unused")
 public class BlockTest extends Test {
@@ -17,7 +22,8 @@ public class BlockTest extends Test {
     }
 
     public void genesis() {
-        assertThrows(NullPointerException.class, () -> new Block(null));
+        assertThrows(NullPointerException.class, () -> new Block((byte[]) null));
+        assertThrows(NullPointerException.class, () -> new Block((ByteBuffer) null));
         assertThrows(Message.Exception.class, () -> new Block(new byte[32]));
         String genesis = "01000000" // version
                 + "0000000000000000000000000000000000000000000000000000000000000000" // prevBlock
@@ -41,6 +47,7 @@ public class BlockTest extends Test {
                 + "DEB649F6BC3F4CEF38C4F35504E51EC112DE5C384DF7BA0B8D578A4C702B6BF11D5FAC"
                 + "00000000"; // lockTime
         Block block = new Block(hexToBytes(genesis));
+        assertTrue(block.checkMerkleRoot());
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
         assertNotThrows(() -> block.write(stream));
         assertEquals(genesis.toLowerCase(), stream.toByteArray());
@@ -57,8 +64,8 @@ public class BlockTest extends Test {
                         "scriptPubKey: (pubKey(1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNa) checksig)), lockTime: 0)",
                 block.toString()
         );
-        assertEquals("000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f", block.getHash());
-        assertEquals("000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f", block.getHash());
+        assertEquals("000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f", block.getHash().toString());
+        assertEquals("000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f", block.getHash().toString());
         assertEquals(1, block.txNumber());
         assertThrows(IndexOutOfBoundsException.class, () -> block.getTx(-1));
         assertThrows(IndexOutOfBoundsException.class, () -> block.getTx(1));
@@ -70,8 +77,38 @@ public class BlockTest extends Test {
                         "on brink of second bailout for banks)), sequence: -1), outputs: 1, 0: (value: 50.00000000, " +
                         "scriptPubKey: (pubKey(1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNa) checksig)), lockTime: 0",
                 block.getTx(0).toString());
-        assertNull(block.getTx("ddd"));
-        assertTrue(block.getTx("4a5e1e4baab89f3a32518a88c31bc87f618f76673e2cc77ab2127b7afdeda33b") != null);
+        assertNull(block.getTx(Hash.fromBytes(new byte[32])));
+        Hash txHash = Hash.fromHex("4a5e1e4baab89f3a32518a88c31bc87f618f76673e2cc77ab2127b7afdeda33b");
+        assertTrue(block.getTx(txHash) != null);
+
+        byte[] bytes = hexToBytes(genesis);
+        assertThrows(Message.Exception.class, () -> new Block(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertThrows(Message.Exception.class, () -> new Block(Arrays.copyOf(bytes, bytes.length + 1)));
+        byte[] incorrectScript = bytes.clone();
+        incorrectScript[81 + 4 + 1 + 36] = (byte) 0xfd; // scriptSigLen
+        assertThrows(Message.Exception.class, () -> new Block(incorrectScript));
+        ByteBuffer byteBuffer = ByteBuffer.allocateDirect(bytes.length + 2);
+        byteBuffer.put((byte) 1).put(bytes).put((byte) 2).flip().position(1).limit(bytes.length + 1);
+        Block directBlock = new Block(byteBuffer);
+        assertEquals(1, byteBuffer.position());
+        assertEquals(bytes.length, directBlock.getSize());
+        ByteArrayOutputStream directStream = new ByteArrayOutputStream();
+        assertNotThrows(() -> directBlock.write(directStream));
+        assertEquals(genesis.toLowerCase(), directStream.toByteArray());
+        assertEquals(block.toString(), directBlock.toString());
+        assertTrue(txHash.equals(directBlock.getTxHash(0)));
+        assertThrows(IndexOutOfBoundsException.class, () -> directBlock.getTxHash(1));
+        assertTrue(directBlock.getTx(0) == directBlock.getTx(0));
+        ArrayList<Transaction.Output> outputs = new ArrayList<>();
+        assertTrue(directBlock.searchTxOutput(new Address("1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNa"), outputs)); // p2pk
+        assertTrue(!directBlock.searchTxOutput(new Address("1FP3iFyCueBGMyQHQRQeojqamf1pt4eQVi"), outputs));
+        assertEquals(1, outputs.size());
+        AddressMatcher matcher = new AddressMatcher(Arrays.asList(
+                new Address("1FP3iFyCueBGMyQHQRQeojqamf1pt4eQVi"),
+                new Address("1A1zP1eP5QGefi2DMPTfTL5SLmv7DivfNa")
+        ));
+        assertTrue(new Block(ByteBuffer.wrap(hexToBytes(genesis))).searchTxOutput(matcher, outputs));
+        assertEquals(2, outputs.size());
     }
 
     public void block() {
@@ -140,7 +177,18 @@ public class BlockTest extends Test {
                 "f6aa188ac00000000";
         Block block = new Block(hexToBytes(hex));
         assertEquals(7, block.txNumber());
-        assertEquals("000000000003b97cec3e714136796147fb7ac36cd18eba941dffe346b330e7e1", block.getHash());
+        assertTrue(block.checkMerkleRoot());
+        byte[] incorrectRoot = hexToBytes(hex);
+        incorrectRoot[40] ^= 1;
+        assertTrue(!new Block(incorrectRoot).checkMerkleRoot());
+        // the duplicated last tx gives the same root
+        String duplicated = hex.substring(0, 160) + "08" + hex.substring(162) + block.getTx(6).getHex();
+        assertTrue(!new Block(hexToBytes(duplicated)).checkMerkleRoot());
+        assertEquals("000000000003b97cec3e714136796147fb7ac36cd18eba941dffe346b330e7e1", block.getHash().toString());
+        assertEquals(
+                "0000000000011bc2675148710038d131bad83cf6a3fb7da3f8ebff2c9cde68df",
+                block.getPrevBlockHash().toString()
+        );
         assertEquals(
                 "txHash: 518db5fdf62e6e5186f326f1867fe5e1fd5deeb428cb1960a48e698aa0e09f3f, " +
                         "size: 192, version: 1, inputs: 1, " +
@@ -153,8 +201,18 @@ public class BlockTest extends Test {
                         "equalverify checksig)), 1: (value: 45.00000000, " +
                         "scriptPubKey: (dup hash160 pubKeyHash(1CQw7uz4ZS52D3gPgmhRVbkDrpL3CuinRm) " +
                         "equalverify checksig)), lockTime: 0",
-                block.getTx("518db5fdf62e6e5186f326f1867fe5e1fd5deeb428cb1960a48e698aa0e09f3f").toString()
+                block.getTx(Hash.fromHex("518db5fdf62e6e5186f326f1867fe5e1fd5deeb428cb1960a48e698aa0e09f3f")).toString()
         );
+        for (int i = 0; i < block.txNumber(); i++) {
+            Hash txHash = block.getTx(i).getHash();
+            assertTrue(txHash.equals(block.getTxHash(i)));
+            assertEquals(i, block.getTxIndex(txHash));
+            assertTrue(block.getTx(txHash) == block.getTx(i));
+            byte[] bytes = txHash.getBytes();
+            bytes[31] ^= 1;
+            assertEquals(-1, block.getTxIndex(Hash.fromBytes(bytes)));
+        }
+        assertThrows(NullPointerException.class, () -> block.getTxIndex(null));
         ArrayList<Transaction.Output> outputs = new ArrayList<>();
         assertTrue(block.searchTxOutput(new Address("18KiH4iBn5VjtiwGyjgAFsEBLn1A8qTauh"), outputs));
         assertTrue(!block.searchTxOutput(new Address("1FP3iFyCueBGMyQHQRQeojqamf1pt4eQVi"), outputs));
@@ -169,6 +227,22 @@ public class BlockTest extends Test {
                 4500000000L,
                 outputs.get(1).value
         );
+        AddressMatcher matcher = new AddressMatcher(Arrays.asList(
+                new Address("18KiH4iBn5VjtiwGyjgAFsEBLn1A8qTauh"),
+                new Address("1FP3iFyCueBGMyQHQRQeojqamf1pt4eQVi"),
+                new Address("1CQw7uz4ZS52D3gPgmhRVbkDrpL3CuinRm")
+        ));
+        assertThrows(NullPointerException.class, () -> block.searchTxOutput((AddressMatcher) null, outputs));
+        assertThrows(NullPointerException.class, () -> block.searchTxOutput(matcher, null));
+        outputs.clear();
+        assertTrue(new Block(hexToBytes(hex)).searchTxOutput(matcher, outputs));
+        assertEquals(2, outputs.size());
+        assertEquals(5000000000L, outputs.get(0).value);
+        assertEquals(4500000000L, outputs.get(1).value);
+        outputs.clear();
+        assertTrue(block.searchTxOutput(matcher, outputs)); // transactions are already created
+        assertEquals(2, outputs.size());
+        assertTrue(!block.searchTxOutput(new AddressMatcher(Collections.emptyList()), outputs));
 
         hex = "01000000013f9fe0a08a698ea46019cb28b4ee5dfde1e57f86f126f386516e2ef6fdb58d51010000008c493046022100c654" +
                 "f92e6316537dd2255e300a75a58a8f8c839ab34d28478348ed508e883ac6022100b9057c7c6ed69a984a65c36c24a96704" +
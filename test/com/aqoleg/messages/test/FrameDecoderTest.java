@@ -0,0 +1,109 @@
+package com.aqoleg.messages.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.messages.FrameDecoder;
+import com.aqoleg.messages.Message;
+import com.aqoleg.messages.Ping;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+@SuppressWarnings("unused")
+public class FrameDecoderTest extends Test {
+
+    public static void main(String[] args) {
+        new FrameDecoderTest().testAll();
+    }
+
+    public void create() {
+        assertThrows(NullPointerException.class, () -> new FrameDecoder(null));
+        assertThrows(NullPointerException.class, () -> new FrameDecoder(new String[]{"a", null}));
+        assertThrows(Message.Exception.class, () -> new FrameDecoder(new String[]{"toobigmessage"}));
+    }
+
+    public void next() {
+        FrameDecoder decoder = new FrameDecoder(new String[]{"UUUUU", "awesome"});
+        assertThrows(NullPointerException.class, () -> decoder.next(null));
+        String awesome = "f9beb4d9" + "617765736f6d650000000000" + "0a000000" + "72bd2e30" + "2273748673128677aabb";
+        String uuuuu = "f9beb4d9" + "555555555500000000000000" + "00000000" + "5df6e0e2";
+        String skipped = "f9beb4d9" + "555555554400000000000000" + "04000000" + "00000000" + "f9beb4d9";
+        ByteBuffer buffer = ByteBuffer.wrap(hexToBytes("cc00f9" + "00f9beb4" + awesome + skipped + "00" + uuuuu));
+        FrameDecoder.Frame frame = decoder.next(buffer);
+        assertEquals("awesome", frame.command);
+        assertEquals(10, frame.payload.remaining());
+        assertEquals(0x2273748673128677L, frame.payload.order(ByteOrder.BIG_ENDIAN).getLong(0));
+        assertEquals(7 + 34, buffer.position());
+        frame = decoder.next(buffer);
+        assertEquals("UUUUU", frame.command);
+        assertEquals(0, frame.payload.remaining());
+        assertNull(decoder.next(buffer));
+        assertEquals(0, decoder.getRequired());
+        assertEquals(0, buffer.remaining());
+
+        String checksum = "f9beb4d9" + "555555555500000000000000" + "00000000" + "aaaaaaaa";
+        buffer = ByteBuffer.wrap(hexToBytes(checksum + uuuuu));
+        ByteBuffer finalBuffer = buffer;
+        assertThrows(Message.Exception.class, () -> decoder.next(finalBuffer));
+        assertEquals(24, buffer.position());
+        assertEquals("UUUUU", decoder.next(buffer).command);
+
+        String length = "f9beb4d9" + "555555555500000000000000" + "01000002" + "00000000";
+        buffer = ByteBuffer.wrap(hexToBytes(length + uuuuu));
+        ByteBuffer lengthBuffer = buffer;
+        assertThrows(Message.Exception.class, () -> decoder.next(lengthBuffer));
+        assertEquals(4, buffer.position());
+        assertEquals("UUUUU", decoder.next(buffer).command);
+    }
+
+    public void partial() {
+        FrameDecoder decoder = new FrameDecoder(new String[]{Ping.command});
+        byte[] ping = ping(0x1122334455667788L);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        for (int i = 0; i < ping.length; i++) {
+            buffer.put(ping[i]).flip();
+            if (i != ping.length - 1) {
+                assertNull(decoder.next(buffer));
+                assertEquals(i < 3 ? 0 : i < 23 ? 24 : 32, decoder.getRequired());
+                buffer.compact();
+            }
+        }
+        FrameDecoder.Frame frame = decoder.next(buffer);
+        assertEquals(0x1122334455667788L, frame.payload.getLong(0));
+        assertTrue(frame.payload.isDirect());
+        assertTrue(frame.payload.isReadOnly());
+        assertEquals(0x1122334455667788L, ((Ping) frame.toMessage()).nonce);
+    }
+
+    public void skip() {
+        FrameDecoder decoder = new FrameDecoder(new String[]{Ping.command});
+        byte[] big = Message.toByteArray("big", new byte[100]);
+        byte[] ping = ping(5);
+        ByteBuffer buffer = ByteBuffer.allocate(32);
+        int pos = 0;
+        while (pos < big.length) {
+            int n = Math.min(buffer.remaining(), big.length - pos);
+            buffer.put(big, pos, n).flip();
+            pos += n;
+            assertNull(decoder.next(buffer));
+            assertEquals(0, decoder.getRequired());
+            assertEquals(0, buffer.remaining());
+            buffer.clear();
+        }
+        buffer.put(ping).flip();
+        assertEquals(5, ((Ping) decoder.next(buffer).toMessage()).nonce);
+    }
+
+    public void zeroCopy() {
+        FrameDecoder decoder = new FrameDecoder(new String[]{Ping.command});
+        ByteBuffer buffer = ByteBuffer.wrap(ping(7)).order(ByteOrder.BIG_ENDIAN);
+        FrameDecoder.Frame frame = decoder.next(buffer);
+        buffer.put(24, (byte) 8);
+        assertEquals(8, frame.payload.getLong(0));
+    }
+
+    // Ping message with the nonce
+    private static byte[] ping(long nonce) {
+        byte[] payload = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(nonce).array();
+        return Message.toByteArray(Ping.command, payload);
+    }
+}
@@ -0,0 +1,84 @@
+package com.aqoleg.messages.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.messages.*;
+import com.aqoleg.utils.BytesOutput;
+
+import java.nio.ByteBuffer;
+
+@SuppressWarnings("unused")
+public class FrameEncoderTest extends Test {
+
+    public static void main(String[] args) {
+        new FrameEncoderTest().testAll();
+    }
+
+    public void encode() {
+        assertThrows(NullPointerException.class, () -> FrameEncoder.encode(null, new byte[5]));
+        assertThrows(NullPointerException.class, () -> FrameEncoder.encode("cmd", null));
+        assertThrows(Message.Exception.class, () -> FrameEncoder.encode("toobigmessage", new byte[5]));
+
+        assertEquals(
+                "f9beb4d9" + "555555555500000000000000" + "00000000" + "5df6e0e2",
+                FrameEncoder.encode("UUUUU", new byte[0]).toByteArray()
+        );
+        assertEquals(
+                "f9beb4d9" + "617765736f6d650000000000" + "0a000000" + "72bd2e302" + "273748673128677aabb",
+                FrameEncoder.encode("awesome", hexToBytes("2273748673128677AABB")).toByteArray()
+        );
+        byte[] payload = payload(10000);
+        FrameEncoder.Frame frame = FrameEncoder.encode("big", payload);
+        assertEquals(10024, frame.length());
+        assertEquals(Message.toByteArray("big", payload), frame.toByteArray());
+    }
+
+    public void write() {
+        FrameEncoder encoder = new FrameEncoder("cmd");
+        BytesOutput bytesOutput = new BytesOutput();
+        long[] lengths = {0, 0xFC, 0xFD, 0xFFFF, 0x10000, 0xFFFFFFFFL, 0x100000000L, -1};
+        for (int i = 0; i < 500; i++) {
+            encoder.writeByte(i).writeIntLE(i * 31).writeLongLE(i * 0x0102030405060708L);
+            bytesOutput.writeBytes(new byte[]{(byte) i}).writeIntLE(i * 31).writeLongLE(i * 0x0102030405060708L);
+            encoder.writeVariableLength(lengths[i % lengths.length]);
+            bytesOutput.writeVariableLength(lengths[i % lengths.length]);
+            encoder.writeBytes(new byte[]{1, 2, 3, 4, 5}, 1, 3);
+            bytesOutput.writeBytes(new byte[]{1, 2, 3, 4, 5}, 1, 3);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> encoder.writeBytes(new byte[3], 2, 2));
+        assertEquals(Message.toByteArray("cmd", bytesOutput.toByteArray()), encoder.finish().toByteArray());
+
+        GetData getData = new GetData();
+        getData.add(Inventory.create(Inventory.typeMsgBlock, Hash.fromBytes(new byte[32])));
+        getData.add(Inventory.create(Inventory.typeMsgTx, Hash.fromBytes(payload(32))));
+        assertEquals(getData.toByteArray(), getData.encode().toByteArray());
+    }
+
+    public void buffers() {
+        byte[] payload = payload(9000);
+        FrameEncoder.Frame frame = FrameEncoder.encode("big", payload);
+        ByteBuffer[] buffers = frame.getBuffers();
+        assertTrue(buffers.length > 1);
+        assertTrue(buffers[0].isDirect());
+        ByteBuffer gathered = ByteBuffer.allocate(frame.length());
+        for (ByteBuffer buffer : buffers) {
+            gathered.put(buffer);
+        }
+        assertEquals(Message.toByteArray("big", payload), gathered.array());
+        ByteBuffer[] otherBuffers = frame.getBuffers();
+        assertEquals(0, otherBuffers[0].position());
+        frame.release();
+        frame.release();
+        assertEquals(Message.toByteArray("big", payload), frame.toByteArray());
+        frame.release();
+        assertThrows(Message.Exception.class, frame::toByteArray);
+        assertThrows(Message.Exception.class, frame::getBuffers);
+    }
+
+    private static byte[] payload(int length) {
+        byte[] payload = new byte[length];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) (i * 13 + 1);
+        }
+        return payload;
+    }
+}
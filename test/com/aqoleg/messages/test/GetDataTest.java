@@ -2,6 +2,7 @@ package com.aqoleg.messages.test;
 
 import com.aqoleg.Test;
 import com.aqoleg.messages.GetData;
+import com.aqoleg.messages.Hash;
 import com.aqoleg.messages.Inventory;
 import com.aqoleg.messages.Message;
 
@@ -21,9 +22,9 @@ public class GetDataTest extends Test {
         String hash0Reversed = "2211009988776655443322110099887766554433221100998877665544332211";
         String hash1 = "00112233445566778899aabbccddeeff00112233445566778899aabbccddeeff";
         String hash1Reversed = "ffeeddccbbaa99887766554433221100ffeeddccbbaa99887766554433221100";
-        Inventory inventory0 = Inventory.create(1, hash0Reversed);
-        Inventory inventory1 = Inventory.create(1, hash1Reversed);
-        Inventory inventory2 = Inventory.create(2, hash1Reversed);
+        Inventory inventory0 = Inventory.create(1, Hash.fromHex(hash0Reversed));
+        Inventory inventory1 = Inventory.create(1, Hash.fromHex(hash1Reversed));
+        Inventory inventory2 = Inventory.create(2, Hash.fromHex(hash1Reversed));
 
         GetData getData = new GetData(new byte[]{0});
         assertEquals(0, getData.size());
@@ -55,8 +56,9 @@ public class GetDataTest extends Test {
         assertTrue(getData.add(inventory1));
         assertTrue(getData.add(inventory2));
         assertEquals(3, getData.size());
+        assertTrue(getData.get(1).equals(inventory1));
         assertTrue(getData.contains(inventory0));
-        assertTrue(!getData.contains(Inventory.create(1, bytesToHex(new byte[32]))));
+        assertTrue(!getData.contains(Inventory.create(1, Hash.fromBytes(new byte[32]))));
         assertEquals(
                 "f9beb4d9" + "676574646174610000000000" + "6d000000" + "27ae3625" + "03" + "01000000" + hash0
                         + "01000000" + hash1 + "02000000" + hash1,
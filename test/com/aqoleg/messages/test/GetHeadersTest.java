@@ -0,0 +1,38 @@
+package com.aqoleg.messages.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.messages.GetHeaders;
+import com.aqoleg.messages.Hash;
+
+import java.util.Arrays;
+
+@SuppressWarnings("unused")
+public class GetHeadersTest extends Test {
+
+    public static void main(String[] args) {
+        new GetHeadersTest().testAll();
+    }
+
+    public void test() {
+        assertThrows(NullPointerException.class, () -> GetHeaders.create(1, null, null));
+        assertThrows(NullPointerException.class, () -> GetHeaders.create(1, new Hash[]{null}, null));
+        Hash hash1 = Hash.fromHex("00000000000000001bd3146aa1555e10b23b63e6d484987237b575778a609fd3");
+        Hash hash2 = Hash.fromHex("00000000000000000aea3be27cda4b71011c2b60fb8a2e0a113708d403643e5c");
+        GetHeaders getHeaders = GetHeaders.create(70001, new Hash[]{hash1, hash2}, null);
+        assertEquals(
+                "version: 70001, hashes: 2, 0: 00000000000000001bd3146aa1555e10b23b63e6d484987237b575778a609fd3, "
+                        + "1: 00000000000000000aea3be27cda4b71011c2b60fb8a2e0a113708d403643e5c, "
+                        + "stopHash: 0000000000000000000000000000000000000000000000000000000000000000",
+                getHeaders.toString()
+        );
+        byte[] message = getHeaders.toByteArray();
+        assertEquals("f9beb4d967657468656164657273000065000000", Arrays.copyOf(message, 20));
+        assertEquals(24 + 101, message.length);
+        getHeaders = GetHeaders.create(31800, new Hash[0], hash1);
+        assertEquals(
+                "version: 31800, hashes: 0, "
+                        + "stopHash: 00000000000000001bd3146aa1555e10b23b63e6d484987237b575778a609fd3",
+                getHeaders.toString()
+        );
+    }
+}
@@ -0,0 +1,74 @@
+package com.aqoleg.messages.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.messages.Hash;
+import com.aqoleg.messages.Message;
+import com.aqoleg.utils.BytesOutput;
+
+import java.util.HashMap;
+
+@SuppressWarnings("unused")
+public class HashTest extends Test {
+
+    public static void main(String[] args) {
+        new HashTest().testAll();
+    }
+
+    public void fromHex() {
+        assertThrows(NullPointerException.class, () -> Hash.fromHex(null));
+        assertThrows(Message.Exception.class, () -> Hash.fromHex("ik"));
+        assertThrows(Message.Exception.class, () -> Hash.fromHex("00112233"));
+        String hex = "000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f";
+        Hash hash = Hash.fromHex(hex);
+        assertEquals(hex, hash.toString());
+        assertEquals(hex, Hash.fromHex("0x" + hex.toUpperCase()).toString());
+        assertEquals("6fe28c0ab6f1b372c1a6a246ae63f74f931e8365e15a089c68d6190000000000", hash.getBytes());
+        BytesOutput bytesOutput = new BytesOutput();
+        hash.write(bytesOutput);
+        assertEquals(hash.getBytes(), bytesOutput.toByteArray());
+        assertThrows(NullPointerException.class, () -> hash.write(null));
+    }
+
+    public void fromBytes() {
+        assertThrows(NullPointerException.class, () -> Hash.fromBytes(null));
+        assertThrows(Message.Exception.class, () -> Hash.fromBytes(new byte[31]));
+        assertThrows(NullPointerException.class, () -> Hash.fromBytes(null, 0));
+        assertThrows(IndexOutOfBoundsException.class, () -> Hash.fromBytes(new byte[40], 9));
+        assertThrows(IndexOutOfBoundsException.class, () -> Hash.fromBytes(new byte[40], -1));
+        byte[] bytes = hexToBytes("6fe28c0ab6f1b372c1a6a246ae63f74f931e8365e15a089c68d6190000000000");
+        Hash hash = Hash.fromBytes(bytes);
+        bytes[0] = 0;
+        assertEquals("000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f", hash.toString());
+        hash.getBytes()[0] = 0;
+        assertEquals("000000000019d6689c085ae165831e934ff763ae46a2a6c172b3f1b60a8ce26f", hash.toString());
+        bytes = new byte[40];
+        bytes[8] = 1;
+        assertEquals(
+                "0000000000000000000000000000000000000000000000000000000000000001",
+                Hash.fromBytes(bytes, 8).toString()
+        );
+    }
+
+    @SuppressWarnings("EqualsWithItself")
+    public void equals() {
+        Hash hash0 = Hash.fromHex("de55ffd709ac1f5dc509a0925d0b1fc442ca034f224732e429081da1b621f55a");
+        Hash hash1 = Hash.fromHex("de55ffd709ac1f5dc509a0925d0b1fc442ca034f224732e429081da1b621f55b");
+        Hash hash2 = Hash.fromHex("ee55ffd709ac1f5dc509a0925d0b1fc442ca034f224732e429081da1b621f55a");
+        Hash hash3 = Hash.fromBytes(hash0.getBytes());
+        assertTrue(hash0.equals(hash0));
+        assertTrue(hash0.equals(hash3));
+        assertTrue(!hash0.equals(hash1));
+        assertTrue(!hash0.equals(hash2));
+        //noinspection ObjectEqualsNull
+        assertTrue(!hash0.equals(null));
+        assertEquals(hash0.hashCode(), hash3.hashCode());
+        assertEquals(hash0.hashCode(), hash2.hashCode()); // only the last bytes are different
+        assertTrue(hash0.hashCode() != hash1.hashCode());
+        HashMap<Hash, Integer> map = new HashMap<>();
+        map.put(hash0, 0);
+        map.put(hash1, 1);
+        map.put(hash2, 2);
+        assertEquals(0, map.get(hash3));
+        assertEquals(2, map.get(hash2));
+    }
+}
@@ -0,0 +1,43 @@
+package com.aqoleg.messages.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.messages.Headers;
+import com.aqoleg.messages.Message;
+
+@SuppressWarnings("unused")
+public class HeadersTest extends Test {
+    private static final String header1 = "01000000"
+            + "6fe28c0ab6f1b372c1a6a246ae63f74f931e8365e15a089c68d6190000000000"
+            + "982051fd1e4ba744bbbe680e1fee14677ba1a3c3540bf7b1cdb606e857233e0e"
+            + "61bc6649" + "ffff001d" + "01e36299";
+    private static final String header2 = "01000000"
+            + "4860eb18bf1b1620e37e9490fc8a427514416fd75159ab86688e9a8300000000"
+            + "d5fdcc541e25de1c7a5addedf24858b8bb665c9f36ef744ee42c316022c90f9b"
+            + "b0bc6649" + "ffff001d" + "08d2bd61";
+
+    public static void main(String[] args) {
+        new HeadersTest().testAll();
+    }
+
+    public void test() {
+        assertThrows(NullPointerException.class, () -> new Headers(null));
+        assertThrows(Message.Exception.class, () -> new Headers(new byte[0]));
+        assertThrows(Message.Exception.class, () -> new Headers(hexToBytes("fdd107")));
+        assertThrows(Message.Exception.class, () -> new Headers(hexToBytes("01" + header1)));
+        assertThrows(Message.Exception.class, () -> new Headers(hexToBytes("01" + header1 + "01")));
+        assertThrows(Message.Exception.class, () -> new Headers(hexToBytes("01" + header1 + "0000")));
+        Headers headers = new Headers(hexToBytes("00"));
+        assertEquals(0, headers.size());
+        assertEquals("count: 0", headers.toString());
+
+        headers = new Headers(hexToBytes("02" + header1 + "00" + header2 + "00"));
+        assertEquals(2, headers.size());
+        assertEquals("count: 2", headers.toString());
+        assertEquals(header1, headers.getHeader(0));
+        assertEquals(header2, headers.getHeader(1));
+        headers.getHeader(0)[0] = 2;
+        assertEquals(header1, headers.getHeader(0));
+        Headers finalHeaders = headers;
+        assertThrows(IndexOutOfBoundsException.class, () -> finalHeaders.getHeader(2));
+    }
+}
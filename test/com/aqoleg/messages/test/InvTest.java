@@ -2,6 +2,7 @@ package com.aqoleg.messages.test;
 
 import com.aqoleg.Test;
 import com.aqoleg.messages.Inv;
+import com.aqoleg.messages.Hash;
 import com.aqoleg.messages.Inventory;
 import com.aqoleg.messages.Message;
 
@@ -21,9 +22,9 @@ public class InvTest extends Test {
         String hash0Reversed = "2211009988776655443322110099887766554433221100998877665544332211";
         String hash1 = "00112233445566778899aabbccddeeff00112233445566778899aabbccddeeff";
         String hash1Reversed = "ffeeddccbbaa99887766554433221100ffeeddccbbaa99887766554433221100";
-        Inventory inventory0 = Inventory.create(1, hash0Reversed);
-        Inventory inventory1 = Inventory.create(1, hash1Reversed);
-        Inventory inventory2 = Inventory.create(2, hash1Reversed);
+        Inventory inventory0 = Inventory.create(1, Hash.fromHex(hash0Reversed));
+        Inventory inventory1 = Inventory.create(1, Hash.fromHex(hash1Reversed));
+        Inventory inventory2 = Inventory.create(2, Hash.fromHex(hash1Reversed));
 
         Inv inv = new Inv();
         assertEquals("count: 0", inv.toString());
@@ -54,10 +55,13 @@ public class InvTest extends Test {
         assertTrue(inv2.add(inventory1));
         assertTrue(inv2.add(inventory2));
         assertEquals(3, inv2.size());
+        assertTrue(inv2.get(2).equals(inventory2));
+        assertThrows(IndexOutOfBoundsException.class, () -> inv2.get(3));
         assertEquals(
                 "f9beb4d9" + "696e76000000000000000000" + "6d000000" + "27ae3625" + "03" + "01000000" + hash0 +
                         "01000000" + hash1 + "02000000" + hash1,
                 inv2.toByteArray()
         );
+        assertEquals(inv2.toByteArray(), inv2.encode().toByteArray());
     }
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package com.aqoleg.messages.test;
 
 import com.aqoleg.Test;
+import com.aqoleg.messages.Hash;
 import com.aqoleg.messages.Inventory;
 import com.aqoleg.messages.Message;
 import com.aqoleg.messages.NotFound;
 
+import java.util.Arrays;
+
 @SuppressWarnings("unused")
 public class NotFoundTest extends Test {
 
@@ -19,9 +22,9 @@ public class NotFoundTest extends Test {
 
         String hash0 = "1122334455667788990011223344556677889900112233445566778899001122";
         String hash1 = "00112233445566778899aabbccddeeff00112233445566778899aabbccddeeff";
-        Inventory inventory0 = Inventory.create(1, hash0);
-        Inventory inventory1 = Inventory.create(1, hash1);
-        Inventory inventory2 = Inventory.create(2, hash1);
+        Inventory inventory0 = Inventory.create(1, Hash.fromHex(hash0));
+        Inventory inventory1 = Inventory.create(1, Hash.fromHex(hash1));
+        Inventory inventory2 = Inventory.create(2, Hash.fromHex(hash1));
         byte[] bytes = hexToBytes("01" + "01000000" +
                 "2211009988776655443322110099887766554433221100998877665544332211");
         assertTrue(!new NotFound(bytes).contains(null));
@@ -38,5 +41,11 @@ public class NotFoundTest extends Test {
         assertTrue(notFound.contains(inventory0));
         assertTrue(!notFound.contains(inventory1));
         assertTrue(!notFound.contains(inventory2));
+
+        byte[] message = NotFound.encode(Arrays.asList(inventory0, inventory2)).toByteArray();
+        NotFound encoded = new NotFound(Arrays.copyOfRange(message, 24, message.length));
+        assertTrue(encoded.contains(inventory0));
+        assertTrue(!encoded.contains(inventory1));
+        assertTrue(encoded.contains(inventory2));
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.aqoleg.messages.test;
 
 import com.aqoleg.Test;
+import com.aqoleg.crypto.Ecc;
 import com.aqoleg.keys.Address;
 import com.aqoleg.messages.Message;
 import com.aqoleg.messages.Transaction;
@@ -82,7 +83,10 @@ public class TransactionTest extends Test {
                         "pubKeyHash(16UwLL9Risc3QfPqBUvKofHmBQ7wMtjvM) equalverify checksig)), lockTime: 0",
                 transaction.toString()
         );
-        assertEquals("f2b3eb2deb76566e7324307cd47c35eeb88413f971d88519859b1834307ecfec", transaction.getHash());
+        assertEquals(
+                "f2b3eb2deb76566e7324307cd47c35eeb88413f971d88519859b1834307ecfec",
+                transaction.getHash().toString()
+        );
         assertEquals(input, transaction.getHex());
         assertEquals(input.length() / 2, transaction.getSize());
 
@@ -94,7 +98,7 @@ public class TransactionTest extends Test {
         );
         assertEquals(0, output.index);
         assertEquals(4799950000L, output.value);
-        assertEquals("eccf7e3034189b851985d871f91384b8ee357cd47c3024736e5676eb2debb3f2", output.getTxHash());
+        assertEquals("f2b3eb2deb76566e7324307cd47c35eeb88413f971d88519859b1834307ecfec", output.getTxHash().toString());
         assertEquals(
                 "dup hash160 pubKeyHash(15sKPhXzhXbTRDHby15b45AeodmCWXzj8G) equalverify checksig",
                 output.getScriptPubKey().toString()
@@ -138,7 +142,7 @@ public class TransactionTest extends Test {
         Transaction prevTx = Transaction.fromBytes(hexToBytes(hex));
         assertEquals(
                 "ab750975b023bc6aff0db899c188015c09e6255edeaa00a9674961a87964c365",
-                prevTx.getHash()
+                prevTx.getHash().toString()
         );
         assertEquals(
                 "txHash: ab750975b023bc6aff0db899c188015c09e6255edeaa00a9674961a87964c365, " +
@@ -240,7 +244,7 @@ public class TransactionTest extends Test {
                 "b66feebae5c2e25a7b6a5d1cf3188ac34431100000000001976a9144b46bf8892b3d93db1bb1f4201539c18" +
                 "1e9acd3c88ac00000000";
         Transaction tx = Transaction.fromBytes(hexToBytes(hex));
-        assertEquals("595cf9da27359b36196ad457acba9a409ef68f51d6cd130e5449a4f418fb62f1", tx.getHash());
+        assertEquals("595cf9da27359b36196ad457acba9a409ef68f51d6cd130e5449a4f418fb62f1", tx.getHash().toString());
         String prevHex = "01000000023f5ae6f5782edec110473e04f8c89a0da8b1ac3bca23c1725862e0c2d800e2bd0000" +
                 "00006b483045022100ad179cd0f9ba9e2e7394ea12b459b1db29e28dddcc99d46f3bf01fdb4eb4a24502205" +
                 "13dd6796601a3c060cf435e47e1e6f7e4c46c09976fc910ed9e26809aca6f09012102e62bef63dd2712bb95" +
@@ -252,6 +256,13 @@ public class TransactionTest extends Test {
                 "976a9146a4d0e378ba77c56cb09ae0623135b889430ed7888ac00000000";
         Transaction prevTx = Transaction.fromBytes(hexToBytes(prevHex));
         assertNotThrows(() -> tx.verifyInput(0, prevTx));
+        Ecc.Batch batch = new Ecc.Batch();
+        assertEquals(0, tx.verifyInput(0, prevTx, batch));
+        assertEquals(1, tx.verifyInput(0, prevTx, batch));
+        assertEquals(2, batch.size());
+        boolean[] verified = batch.verify();
+        assertTrue(verified[0]);
+        assertTrue(verified[1]);
     }
 
     public void witness() {
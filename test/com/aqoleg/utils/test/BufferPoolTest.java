@@ -0,0 +1,42 @@
+package com.aqoleg.utils.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.utils.BufferPool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+@SuppressWarnings("unused")
+public class BufferPoolTest extends Test {
+
+    public static void main(String[] args) {
+        new BufferPoolTest().testAll();
+    }
+
+    public void test() {
+        assertThrows(IllegalArgumentException.class, () -> new BufferPool(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BufferPool(1, -1));
+        BufferPool bufferPool = new BufferPool(16, 1);
+        assertThrows(NullPointerException.class, () -> bufferPool.release(null));
+        ByteBuffer buffer0 = bufferPool.acquire();
+        assertTrue(buffer0.isDirect());
+        assertEquals(16, buffer0.capacity());
+        assertEquals(16, buffer0.remaining());
+        ByteBuffer buffer1 = bufferPool.acquire();
+        assertTrue(buffer0 != buffer1);
+        assertEquals(0, bufferPool.size());
+
+        buffer0.order(ByteOrder.LITTLE_ENDIAN).putInt(1).flip();
+        bufferPool.release(buffer0);
+        bufferPool.release(buffer1);
+        bufferPool.release(ByteBuffer.allocate(16));
+        bufferPool.release(ByteBuffer.allocateDirect(8));
+        assertEquals(1, bufferPool.size());
+        ByteBuffer buffer = bufferPool.acquire();
+        assertTrue(buffer == buffer0);
+        assertEquals(0, buffer.position());
+        assertEquals(16, buffer.limit());
+        assertTrue(buffer.order() == ByteOrder.BIG_ENDIAN);
+        assertEquals(0, bufferPool.size());
+    }
+}
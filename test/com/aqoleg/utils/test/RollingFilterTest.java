@@ -0,0 +1,67 @@
+package com.aqoleg.utils.test;
+
+import com.aqoleg.Test;
+import com.aqoleg.utils.RollingFilter;
+
+@SuppressWarnings("unused")
+public class RollingFilterTest extends Test {
+
+    public static void main(String[] args) {
+        new RollingFilterTest().testAll();
+    }
+
+    public void test() {
+        assertThrows(IllegalArgumentException.class, () -> new RollingFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new RollingFilter(10, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RollingFilter(10, 1));
+        RollingFilter filter = new RollingFilter(1000, 0.0001);
+        assertThrows(NullPointerException.class, () -> filter.add(null));
+        assertThrows(NullPointerException.class, () -> filter.contains(null));
+        assertTrue(!filter.contains(key(0)));
+        filter.add(key(0));
+        assertTrue(filter.contains(key(0)));
+        assertTrue(!filter.contains(key(1)));
+        filter.clear();
+        assertTrue(!filter.contains(key(0)));
+    }
+
+    public void rolling() {
+        RollingFilter filter = new RollingFilter(1000, 0.0001);
+        for (int i = 0; i < 5000; i++) {
+            filter.add(key(i));
+            // the last 1000 keys are remembered
+            for (int j = Math.max(0, i - 999); j <= i; j += 97) {
+                if (!filter.contains(key(j))) {
+                    assertTrue(false);
+                    return;
+                }
+            }
+        }
+        assertTrue(filter.contains(key(4000)));
+        int oldKeys = 0;
+        for (int i = 0; i < 3000; i++) {
+            if (filter.contains(key(i))) {
+                oldKeys++;
+            }
+        }
+        assertTrue(oldKeys < 5);
+        int falsePositives = 0;
+        for (int i = 10000; i < 110000; i++) {
+            if (filter.contains(key(i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 50);
+    }
+
+    private static byte[] key(int i) {
+        byte[] key = new byte[32];
+        for (int j = 0; j < 32; j += 4) {
+            key[j] = (byte) i;
+            key[j + 1] = (byte) (i >> 8);
+            key[j + 2] = (byte) (i >> 16);
+            key[j + 3] = (byte) j;
+        }
+        return key;
+    }
+}